@@ -0,0 +1,61 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.benchmarks;
+
+import edu.uiowa.alloy2smt.generator.ModelGenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * The alloy inputs of the benchmarks
+ */
+class BenchmarkModels
+{
+    static final String SYNTHETIC = "synthetic-";
+
+    /**
+     * @param name the name of a model in examples/ without the .als extension,
+     *             or synthetic-n for a generated model with n signatures
+     * @return the alloy source of the model
+     */
+    static String load(String name) throws IOException
+    {
+        if(name.startsWith(SYNTHETIC))
+        {
+            int signatures = Integer.parseInt(name.substring(SYNTHETIC.length()));
+            return new ModelGenerator().signatures(signatures).generate();
+        }
+        return new String(Files.readAllBytes(Paths.get("examples", name + ".als")), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param atoms the number of atoms
+     * @return a model in the format of the solver output whose signature
+     * contains all atoms
+     */
+    static String smtModel(int atoms)
+    {
+        StringBuilder universe = new StringBuilder("(singleton (mkTuple @uc_Atom_0))");
+        for (int i = 1; i < atoms; i++)
+        {
+            universe.insert(0, "(union ").append(" (singleton (mkTuple @uc_Atom_").append(i).append(")))");
+        }
+        return "(model\n" +
+               "(declare-sort Atom 0)\n" +
+               "(declare-sort UnaryIntTup 0)\n" +
+               "(define-fun value_of_unaryIntTup ((BOUND_VARIABLE_448 UnaryIntTup)) (Tuple Int) (mkTuple 0))\n" +
+               "(define-fun atomNone () (Set (Tuple Atom)) (as emptyset (Set (Tuple Atom))))\n" +
+               "(define-fun atomUniv () (Set (Tuple Atom)) " + universe + ")\n" +
+               "(define-fun this_A () (Set (Tuple Atom)) " + universe + ")\n" +
+               ")";
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.benchmarks;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.translators.Translation;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Translating the first command of a translated model
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBenchmark
+{
+    @Param({"barber", "test", "alloy_syntax1", "alloy_syntax2", "synthetic-10", "synthetic-100"})
+    public String model;
+
+    private Translation translation;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        translation = Utils.translate(BenchmarkModels.load(model));
+    }
+
+    @Benchmark
+    public String translateCommand()
+    {
+        return translation.translateCommand(0);
+    }
+}
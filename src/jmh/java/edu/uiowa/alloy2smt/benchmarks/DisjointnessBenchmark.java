@@ -0,0 +1,94 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.benchmarks;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.solver.CommandResult;
+import edu.uiowa.alloy2smt.solver.SolverDriver;
+import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairwise against linear disjointness of sibling signatures in an enum-like
+ * taxonomy. The size of the smt script is reported as an auxiliary counter
+ * of the translation. The solver is the command of the alloy2smt.solver
+ * property, cvc4 by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisjointnessBenchmark
+{
+    @Param({"10", "100", "500"})
+    public int siblings;
+
+    @Param({"false", "true"})
+    public boolean linearDisjointness;
+
+    private String              alloy;
+    private TranslationOptions  options;
+    private Translation         translation;
+    private List<String>        solver;
+
+    @Setup
+    public void setup()
+    {
+        StringBuilder builder = new StringBuilder("abstract sig Kind {}\none sig ");
+        for (int i = 0; i < siblings; i++)
+        {
+            builder.append(i > 0 ? ", " : "").append("Kind").append(i);
+        }
+        builder.append(" extends Kind {}\n");
+        builder.append("sig Item {kind: one Kind}\n");
+        builder.append("run {some Item and some Kind0.~kind}\n");
+        alloy       = builder.toString();
+        options     = new TranslationOptions();
+        options.linearDisjointness = linearDisjointness;
+        translation = Utils.translate(alloy, options);
+        solver      = Arrays.asList(System.getProperty("alloy2smt.solver", "cvc4 --lang smt2").trim().split("\\s+"));
+    }
+
+    /**
+     * The number of characters of the last translated smt script
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ScriptSize
+    {
+        public long scriptCharacters;
+    }
+
+    @Benchmark
+    public String translate(ScriptSize size)
+    {
+        String script = Utils.translate(alloy, options).getSmtScript();
+        size.scriptCharacters = script.length();
+        return script;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    public CommandResult solve() throws IOException
+    {
+        try (SolverDriver driver = new SolverDriver(solver, translation))
+        {
+            return driver.solve(0);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.benchmarks;
+
+import edu.mit.csail.sdg.parser.CompUtil;
+import edu.uiowa.alloy2smt.mapping.Mapper;
+import edu.uiowa.alloy2smt.translators.Alloy2SmtTranslator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating the mapper of a translated model and writing it as json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark
+{
+    @Param({"barber", "test", "alloy_syntax1", "alloy_syntax2", "synthetic-10", "synthetic-100"})
+    public String model;
+
+    private Alloy2SmtTranslator translator;
+
+    private File jsonFile;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        String alloy = BenchmarkModels.load(model);
+        translator = new Alloy2SmtTranslator(CompUtil.parseEverything_fromString(null, alloy));
+        translator.translate();
+        jsonFile = File.createTempFile("mapper", ".json");
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        jsonFile.delete();
+    }
+
+    @Benchmark
+    public Mapper generateAndWriteMapper() throws IOException
+    {
+        Mapper mapper = translator.generateMapper();
+        mapper.writeToJson(jsonFile.getAbsolutePath());
+        return mapper;
+    }
+}
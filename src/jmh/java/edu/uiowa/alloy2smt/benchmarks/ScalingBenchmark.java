@@ -0,0 +1,69 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.benchmarks;
+
+import edu.mit.csail.sdg.parser.CompModule;
+import edu.mit.csail.sdg.parser.CompUtil;
+import edu.uiowa.alloy2smt.generator.ModelGenerator;
+import edu.uiowa.alloy2smt.smtAst.SmtProgram;
+import edu.uiowa.alloy2smt.translators.Alloy2SmtTranslator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Translation time and allocation against model size. Signatures stress the
+ * SignatureTranslator, fields the FieldTranslator and facts with nested
+ * quantifiers the ExprTranslator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalingBenchmark
+{
+    @Param({"10", "50", "100"})
+    public int signatures;
+
+    @Param({"1", "4"})
+    public int fieldsPerSig;
+
+    @Param({"0", "20"})
+    public int facts;
+
+    @Param({"1", "3"})
+    public int quantifierDepth;
+
+    private CompModule alloyModel;
+
+    @Setup
+    public void setup()
+    {
+        String alloy = new ModelGenerator()
+                .signatures(signatures)
+                .hierarchyDepth(3)
+                .fieldsPerSig(fieldsPerSig)
+                .multiplicities(ModelGenerator.MULTIPLICITIES.toArray(new String[0]))
+                .facts(facts)
+                .quantifierDepth(quantifierDepth)
+                .predicates(facts / 4)
+                .setComprehensions(facts / 4)
+                .cardinalityConstraints(facts / 4)
+                .generate();
+        alloyModel = CompUtil.parseEverything_fromString(null, alloy);
+    }
+
+    @Benchmark
+    public SmtProgram translate()
+    {
+        return new Alloy2SmtTranslator(alloyModel).translate();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.benchmarks;
+
+import edu.uiowa.alloy2smt.smtAst.SmtModel;
+import edu.uiowa.alloy2smt.smtparser.SmtModelReader;
+import edu.uiowa.alloy2smt.smtparser.SmtModelVisitor;
+import edu.uiowa.alloy2smt.smtparser.antlr.SmtLexer;
+import edu.uiowa.alloy2smt.smtparser.antlr.SmtParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a model returned by the solver with the antlr parser and with the
+ * hand-written reader
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmtModelBenchmark
+{
+    @Param({"10", "100", "1000"})
+    public int atoms;
+
+    private String model;
+
+    @Setup
+    public void setup()
+    {
+        model = BenchmarkModels.smtModel(atoms);
+    }
+
+    @Benchmark
+    public SmtModel parseModel()
+    {
+        SmtLexer    lexer   = new SmtLexer(CharStreams.fromString(model));
+        SmtParser   parser  = new SmtParser(new CommonTokenStream(lexer));
+        return (SmtModel) new SmtModelVisitor().visit(parser.model());
+    }
+
+    @Benchmark
+    public SmtModel readModel() throws IOException
+    {
+        return new SmtModelReader(new StringReader(model)).read();
+    }
+}
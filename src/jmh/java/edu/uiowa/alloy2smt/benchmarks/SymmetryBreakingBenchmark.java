@@ -0,0 +1,79 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.benchmarks;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.solver.CommandResult;
+import edu.uiowa.alloy2smt.solver.SolverDriver;
+import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solving the check command of models whose scope grows, with and without
+ * the ordered atom pools of symmetry breaking. The solver is the command of
+ * the alloy2smt.solver property, cvc4 by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SymmetryBreakingBenchmark
+{
+    @Param({"test", "pigeonhole"})
+    public String model;
+
+    @Param({"3", "5", "8"})
+    public int scope;
+
+    @Param({"false", "true"})
+    public boolean breakSymmetries;
+
+    private Translation     translation;
+    private List<String>    solver;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        String alloy;
+        if(model.equals("pigeonhole"))
+        {
+            alloy = "sig Pigeon {hole: one Hole}\n" +
+                    "sig Hole {}\n" +
+                    "fact {all disj p, q: Pigeon | p.hole != q.hole}\n" +
+                    "check {Pigeon.hole = Hole} for exactly " + scope + " Pigeon, " + scope + " Hole\n";
+        }
+        else
+        {
+            // the check of the example with the given scope instead of 10
+            alloy = BenchmarkModels.load(model).replace("for 10", "for " + scope);
+        }
+        TranslationOptions options = new TranslationOptions();
+        options.translateScopes = true;
+        options.breakSymmetries = breakSymmetries;
+        translation = Utils.translate(alloy, options);
+        solver      = Arrays.asList(System.getProperty("alloy2smt.solver", "cvc4 --lang smt2").trim().split("\\s+"));
+    }
+
+    @Benchmark
+    public CommandResult check() throws IOException
+    {
+        try (SolverDriver driver = new SolverDriver(solver, translation))
+        {
+            return driver.solve(translation.getCommandCount() - 1);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.benchmarks;
+
+import edu.mit.csail.sdg.parser.CompModule;
+import edu.mit.csail.sdg.parser.CompUtil;
+import edu.uiowa.alloy2smt.smtAst.SmtProgram;
+import edu.uiowa.alloy2smt.translators.Alloy2SmtTranslator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing an alloy model and translating it into an smt program
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranslatorBenchmark
+{
+    @Param({"barber", "test", "alloy_syntax1", "alloy_syntax2", "synthetic-10", "synthetic-100"})
+    public String model;
+
+    private String alloy;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        alloy = BenchmarkModels.load(model);
+    }
+
+    @Benchmark
+    public SmtProgram parseAndTranslate()
+    {
+        CompModule alloyModel = CompUtil.parseEverything_fromString(null, alloy);
+        return new Alloy2SmtTranslator(alloyModel).translate();
+    }
+}
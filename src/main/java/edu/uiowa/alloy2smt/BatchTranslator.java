@@ -0,0 +1,248 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Translates every alloy file of a directory, or every file that matches a
+ * glob pattern, on a pool of threads. Each input gets an smt script with the
+ * translations of all its commands and a mapper json file under the output
+ * directory, at the same relative path as the input. A manifest.json file in
+ * the output directory records the status, the duration, the output size and
+ * the error of each input. A failure of one input does not stop the others.
+ */
+public class BatchTranslator implements AutoCloseable
+{
+    public static final String  MANIFEST_FILE   = "manifest.json";
+    public static final String  SMT_EXTENSION   = ".smt2";
+    public static final String  MAPPER_EXTENSION = ".mapper.json";
+
+    private static final ObjectMapper       objectMapper    = new ObjectMapper();
+    private static final Alloy2SmtLogger    logger          = new Alloy2SmtLogger(BatchTranslator.class.getName());
+
+    private final ExecutorService       workers;
+    private final TranslationOptions    options;
+    private final TranslationCache      cache;
+
+    /**
+     * @param threads the number of worker threads
+     * @param options the translation options of all inputs
+     * @param cache the translation cache, or null
+     */
+    public BatchTranslator(int threads, TranslationOptions options, TranslationCache cache)
+    {
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Invalid number of threads " + threads);
+        }
+        this.workers    = Executors.newFixedThreadPool(threads);
+        this.options    = options;
+        this.cache      = cache;
+    }
+
+    /**
+     * @param pattern a directory, which is searched recursively, or a glob
+     *                pattern of files, e.g. models/**.als
+     * @return the alloy files of the directory or the files that match the pattern, in order
+     */
+    public static List<Path> findInputs(String pattern) throws IOException
+    {
+        Path path = Paths.get(pattern);
+        if(Files.isDirectory(path))
+        {
+            return find(path, file -> file.toString().endsWith(".als"));
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        return find(getBaseDirectory(pattern), matcher);
+    }
+
+    private static List<Path> find(Path directory, PathMatcher matcher) throws IOException
+    {
+        try (Stream<Path> files = Files.walk(directory))
+        {
+            return files.filter(file -> Files.isRegularFile(file) && matcher.matches(file))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return the directory of the pattern before its first glob character
+     */
+    static Path getBaseDirectory(String pattern)
+    {
+        int     end     = pattern.length();
+        for (String special : new String[]{"*", "?", "[", "{"})
+        {
+            int index = pattern.indexOf(special);
+            if(index >= 0)
+            {
+                end = Math.min(end, index);
+            }
+        }
+        int     slash   = Math.max(pattern.lastIndexOf('/', end), pattern.lastIndexOf(File.separatorChar, end));
+        return  slash < 0 ? Paths.get(".") : Paths.get(pattern.substring(0, slash + 1));
+    }
+
+    /**
+     * Translates the inputs of the given directory or glob pattern
+     * @see #translate(Path, List, Path)
+     */
+    public Manifest translate(String pattern, Path outputDirectory) throws IOException, InterruptedException
+    {
+        Path base = Files.isDirectory(Paths.get(pattern)) ? Paths.get(pattern) : getBaseDirectory(pattern);
+        return translate(base, findInputs(pattern), outputDirectory);
+    }
+
+    /**
+     * Translates the given inputs and writes the manifest
+     * @param base the directory against which the output paths are relative
+     * @param inputs the alloy files
+     * @param outputDirectory the directory of the outputs and the manifest
+     * @return the manifest
+     */
+    public Manifest translate(Path base, List<Path> inputs, Path outputDirectory) throws IOException, InterruptedException
+    {
+        Files.createDirectories(outputDirectory);
+        List<Future<Entry>> futures = new ArrayList<>();
+        for (Path input : inputs)
+        {
+            Path output = outputDirectory.resolve(base.relativize(input).toString());
+            futures.add(workers.submit(() -> translateFile(input, output)));
+        }
+
+        Manifest manifest = new Manifest();
+        for (Future<Entry> future : futures)
+        {
+            try
+            {
+                Entry entry = future.get();
+                manifest.files.add(entry);
+                if(entry.error != null)
+                {
+                    manifest.failures++;
+                }
+            }
+            catch (ExecutionException exception)
+            {
+                // translateFile catches the failures of the translation
+                throw new RuntimeException(exception.getCause());
+            }
+        }
+        manifest.inputs = inputs.size();
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(outputDirectory.resolve(MANIFEST_FILE).toFile(), manifest);
+        return manifest;
+    }
+
+    /**
+     * Translates one input. The input is parsed once and its commands are
+     * translated on the current worker.
+     * @param output the path of the outputs without their extensions
+     */
+    private Entry translateFile(Path input, Path output)
+    {
+        Entry   entry   = new Entry();
+        long    start   = System.nanoTime();
+        entry.input     = input.toString();
+        try
+        {
+            Translation translation;
+            if(cache != null)
+            {
+                translation = cache.translateFile(input, options);
+            }
+            else
+            {
+                String alloy = new String(Files.readAllBytes(input), StandardCharsets.UTF_8);
+                translation  = Utils.translate(alloy, options);
+            }
+            List<String> commands = translation.translateAllCommands(Runnable::run);
+
+            Path smtFile    = Paths.get(output + SMT_EXTENSION);
+            Path mapperFile = Paths.get(output + MAPPER_EXTENSION);
+            Files.createDirectories(smtFile.toAbsolutePath().getParent());
+            try (Writer writer = Files.newBufferedWriter(smtFile, StandardCharsets.UTF_8))
+            {
+                Main.writeScript(translation, commands, writer);
+            }
+            translation.getMapper().writeToJson(mapperFile.toString());
+
+            entry.status        = Entry.OK;
+            entry.commands      = commands.size();
+            entry.smt           = smtFile.toString();
+            entry.mapper        = mapperFile.toString();
+            entry.outputBytes   = Files.size(smtFile) + Files.size(mapperFile);
+        }
+        catch (Exception | StackOverflowError exception)
+        {
+            logger.printWarning("Failed to translate " + input + ": " + exception);
+            entry.status    = Entry.ERROR;
+            entry.error     = exception.toString();
+        }
+        entry.durationMillis = (System.nanoTime() - start) / 1_000_000;
+        return entry;
+    }
+
+    @Override
+    public void close()
+    {
+        workers.shutdownNow();
+    }
+
+    /**
+     * The summary of a batch, written as json
+     */
+    public static class Manifest
+    {
+        public int          inputs;
+        public int          failures;
+        public List<Entry>  files = new ArrayList<>();
+    }
+
+    /**
+     * The result of one input, written as json
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry
+    {
+        public static final String OK       = "ok";
+        public static final String ERROR    = "error";
+
+        public String   input;
+        public String   status;
+        public long     durationMillis;
+        public long     outputBytes;
+        public int      commands;
+        public String   smt;
+        public String   mapper;
+        public String   error;
+    }
+}
@@ -7,16 +7,25 @@
  */
 
 package edu.uiowa.alloy2smt;
+import edu.uiowa.alloy2smt.solver.CommandResult;
+import edu.uiowa.alloy2smt.solver.SolverDriver;
 import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
 import org.apache.commons.cli.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Formatter;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 public class Main
@@ -60,11 +69,56 @@ public class Main
         
         options.addOption(Option.builder("i").longOpt("input").desc("Input Alloy model").hasArg().build());
         options.addOption(Option.builder("o").longOpt("output").desc("SMT-LIB model output").hasArg().build());
+        options.addOption(Option.builder().longOpt("cse").desc("Hoist repeated subterms into define-fun and let bindings").build());
+        options.addOption(Option.builder().longOpt("simplify").desc("Simplify boolean terms and drop trivially true assertions").build());
+        options.addOption(Option.builder().longOpt("scopes").desc("Bound the signatures by the scopes of the commands").build());
+        options.addOption(Option.builder().longOpt("linear-disjointness").desc("Assert the disjointness of sibling signatures with linearly many assertions").build());
+        options.addOption(Option.builder().longOpt("break-symmetries").desc("Bound the signatures by ordered pools of distinct atoms, which implies --scopes").build());
+        options.addOption(Option.builder().longOpt("metrics").desc("Print translation metrics to the standard error in the given format (json)").hasArg().argName("format").build());
+        options.addOption(Option.builder().longOpt("cache").desc("Directory of a cache of translations").hasArg().argName("dir").build());
+        options.addOption(Option.builder().longOpt("cache-size").desc("Size limit of the translation cache in bytes").hasArg().argName("bytes").build());
+        options.addOption(Option.builder().longOpt("solver").desc("Run the commands with the given solver command, e.g. \"cvc4 --lang smt2\"").hasArg().argName("command").build());
+        options.addOption(Option.builder().longOpt("server").desc("Serve line-delimited json translation requests from the standard input or a port").build());
+        options.addOption(Option.builder().longOpt("port").desc("Local port of the translation server").hasArg().build());
+        options.addOption(Option.builder().longOpt("batch").desc("Translate every alloy file of a directory or a glob pattern into the output directory").hasArg().argName("dir|glob").build());
+        options.addOption(Option.builder().longOpt("threads").desc("Number of worker threads of the translation server or the batch").hasArg().build());
+        options.addOption(Option.builder().longOpt("timeout").desc("Default request timeout of the translation server in milliseconds").hasArg().build());
 
         try
         {
             CommandLine command = commandLineParser.parse(options, args);
 
+            if(command.hasOption("server"))
+            {
+                serve(command);
+                return;
+            }
+
+            if(command.hasOption("metrics") && !command.getOptionValue("metrics").equals("json"))
+            {
+                throw new Exception("Unsupported metrics format " + command.getOptionValue("metrics"));
+            }
+
+            TranslationOptions translationOptions = new TranslationOptions();
+            translationOptions.eliminateCommonSubexpressions = command.hasOption("cse");
+            translationOptions.simplify                      = command.hasOption("simplify");
+            translationOptions.translateScopes               = command.hasOption("scopes");
+            translationOptions.linearDisjointness            = command.hasOption("linear-disjointness");
+            translationOptions.breakSymmetries               = command.hasOption("break-symmetries");
+
+            TranslationCache cache = null;
+            if(command.hasOption("cache"))
+            {
+                long cacheSize = Long.parseLong(command.getOptionValue("cache-size", String.valueOf(TranslationCache.DEFAULT_MAX_BYTES)));
+                cache = new TranslationCache(Paths.get(command.getOptionValue("cache")), cacheSize);
+            }
+
+            if(command.hasOption("batch"))
+            {
+                translateBatch(command, translationOptions, cache);
+                return;
+            }
+
             Translation translation;
             String      defaultOutputFile;
 
@@ -74,8 +128,15 @@ public class Main
 
                 if (isValidInputFilePath(inputFile))
                 {
-                    String alloy      = new String(Files.readAllBytes(Paths.get(inputFile)), StandardCharsets.UTF_8);
-                    translation       = Utils.translate(alloy);
+                    if(cache != null)
+                    {
+                        translation = cache.translateFile(Paths.get(inputFile), translationOptions);
+                    }
+                    else
+                    {
+                        String alloy = new String(Files.readAllBytes(Paths.get(inputFile)), StandardCharsets.UTF_8);
+                        translation  = Utils.translate(alloy, translationOptions);
+                    }
                     defaultOutputFile = OUTPUT_DIR + SEP + new File(inputFile).getName() + ".smt2";
                 } else
                 {
@@ -92,7 +153,9 @@ public class Main
                     stringBuilder.append(scanner.nextLine()).append("\n");
                 }
 
-                translation         = Utils.translate(stringBuilder.toString());
+                translation         = cache != null ?
+                                      cache.translate(stringBuilder.toString(), null, translationOptions) :
+                                      Utils.translate(stringBuilder.toString(), translationOptions);
                 defaultOutputFile   = DEFAULT_OUTPUT_FILE + ".smt2";
             }
 
@@ -109,27 +172,23 @@ public class Main
             {
                 outputFile = new File(defaultOutputFile);
             }
-            try (Formatter formatter = new Formatter(outputFile))
+            // stream the script to the file and to the standard output as it is printed
+            try (Writer fileWriter = Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8);
+                 Writer writer     = new TeeWriter(fileWriter, new PrintWriter(System.out)))
             {
-                formatter.format("%s\n", translation.getSmtScript());
-
-                System.out.println("\n");
-                System.out.println(translation.getSmtScript());
-
-                // translate all alloy commands
-                for (int i = 0; i < translation.getCommands().size(); i++)
-                {
-                    String commandTranslation = translation.translateCommand(i);
+                writeScript(translation, writer);
+            }
+            System.out.println("\nThe SMT-LIB model was generated at: " + outputFile.getAbsolutePath());
 
-                    commandTranslation         =    Translation.PUSH + "\n" + commandTranslation +
-                                                    Translation.CHECK_SAT + "\n" + Translation.GET_MODEL + "\n" +
-                                                    Translation.POP + "\n";
+            if(command.hasOption("solver"))
+            {
+                solve(translation, command.getOptionValue("solver"));
+            }
 
-                    formatter.format("%s\n", commandTranslation);
-                    System.out.println("\n" + commandTranslation);
-                }
+            if(command.hasOption("metrics"))
+            {
+                System.err.println(translation.getMetrics().toJson());
             }
-            System.out.println("\nThe SMT-LIB model was generated at: " + outputFile.getAbsolutePath());
         }
         catch (ParseException exception)
         {
@@ -141,4 +200,138 @@ public class Main
             exception.printStackTrace();
         }
     }
+
+    /**
+     * Writes the script of the translation followed by each command between
+     * push and pop. Each command is written as it is translated, so no
+     * translation of a command is kept in memory.
+     */
+    static void writeScript(Translation translation, Writer writer) throws IOException
+    {
+        // the script declares the operators of the commands
+        translation.declareOperators();
+        translation.writeSmtScript(writer);
+        writer.write("\n");
+        for (int i = 0; i < translation.getCommandCount(); i++)
+        {
+            writer.write(Translation.PUSH + "\n");
+            translation.translateCommand(i, writer);
+            writer.write(Translation.CHECK_SAT + "\n" + Translation.GET_MODEL + "\n" +
+                         Translation.POP + "\n\n");
+        }
+    }
+
+    /**
+     * Writes the script of the translation followed by each command between
+     * push and pop
+     * @param commands the translations of the commands
+     */
+    static void writeScript(Translation translation, List<String> commands, Writer writer) throws IOException
+    {
+        translation.writeSmtScript(writer);
+        writer.write("\n");
+        for (String commandTranslation : commands)
+        {
+            writer.write(Translation.PUSH + "\n");
+            writer.write(commandTranslation);
+            writer.write(Translation.CHECK_SAT + "\n" + Translation.GET_MODEL + "\n" +
+                         Translation.POP + "\n\n");
+        }
+    }
+
+    /**
+     * Translates the inputs of the batch option into the output directory
+     * and prints the number of failures
+     */
+    private static void translateBatch(CommandLine command, TranslationOptions translationOptions,
+                                       TranslationCache cache) throws Exception
+    {
+        int     threads         = Integer.parseInt(command.getOptionValue("threads", String.valueOf(TranslationServer.DEFAULT_THREADS)));
+        Path    outputDirectory = Paths.get(command.getOptionValue("o", OUTPUT_DIR).trim());
+
+        try (BatchTranslator batch = new BatchTranslator(threads, translationOptions, cache))
+        {
+            BatchTranslator.Manifest manifest = batch.translate(command.getOptionValue("batch").trim(), outputDirectory);
+            System.out.println("Translated " + (manifest.inputs - manifest.failures) + " of " + manifest.inputs +
+                               " files. The manifest was generated at: " +
+                               outputDirectory.resolve(BatchTranslator.MANIFEST_FILE).toAbsolutePath());
+        }
+    }
+
+    /**
+     * Runs all commands of the translation on one process of the given solver
+     * and prints their results
+     */
+    private static void solve(Translation translation, String solverCommand) throws IOException
+    {
+        List<String> solver = Arrays.asList(solverCommand.trim().split("\\s+"));
+        try (SolverDriver driver = new SolverDriver(solver, translation))
+        {
+            for (CommandResult result : driver.solveAll())
+            {
+                System.out.println("Command " + result.getCommandIndex() + ": " + result.getResult().name().toLowerCase());
+                if(result.getModelText() != null)
+                {
+                    System.out.println(result.getModelText());
+                }
+            }
+        }
+    }
+
+    private static void serve(CommandLine command) throws Exception
+    {
+        int     threads = Integer.parseInt(command.getOptionValue("threads", String.valueOf(TranslationServer.DEFAULT_THREADS)));
+        long    timeout = Long.parseLong(command.getOptionValue("timeout", String.valueOf(TranslationServer.DEFAULT_TIMEOUT)));
+
+        try (TranslationServer server = new TranslationServer(threads, TranslationServer.DEFAULT_QUEUE_CAPACITY, timeout))
+        {
+            server.warmUp();
+            if(command.hasOption("port"))
+            {
+                server.serve(Integer.parseInt(command.getOptionValue("port")));
+            }
+            else
+            {
+                server.serve(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                             new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * A writer that copies its output to two writers. Closing it closes only
+     * the first writer and flushes the second one.
+     */
+    private static class TeeWriter extends Writer
+    {
+        private final Writer first;
+        private final Writer second;
+
+        TeeWriter(Writer first, Writer second)
+        {
+            this.first  = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException
+        {
+            first.write(buffer, offset, length);
+            second.write(buffer, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            first.flush();
+            second.flush();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            second.flush();
+            first.close();
+        }
+    }
 }
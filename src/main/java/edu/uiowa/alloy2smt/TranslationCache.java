@@ -0,0 +1,412 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import edu.mit.csail.sdg.alloy4.Version;
+import edu.uiowa.alloy2smt.mapping.Mapper;
+import edu.uiowa.alloy2smt.translators.Alloy2SmtTranslator;
+import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A content-addressed on-disk cache of translations. The key of a translation
+ * is a hash of the alloy source, the modules it opens, the translator version
+ * and the translation options. An entry holds the smt script, the translations
+ * of all commands and the mapper. Entries are written atomically, so many
+ * processes can share a cache directory. The least recently used entries are
+ * evicted when the cache grows beyond its size limit. If the version of the
+ * translator is unknown, nothing is cached.
+ */
+public class TranslationCache
+{
+    public static final long    DEFAULT_MAX_BYTES   = 256L * 1024 * 1024;
+
+    // bump when the format of the entries changes
+    private static final String FORMAT_VERSION      = "1";
+    private static final String EXTENSION           = ".json";
+
+    private static final Pattern        openPattern     = Pattern.compile("^\\s*open\\s+([\\w/]+)", Pattern.MULTILINE);
+    private static final ObjectMapper   objectMapper    = new ObjectMapper();
+    // null if the version is unknown
+    private static final String         translatorVersion = computeTranslatorVersion();
+
+    private final Path  directory;
+    private final long  maxBytes;
+
+    public TranslationCache(Path directory) throws IOException
+    {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param directory the cache directory, created if it does not exist
+     * @param maxBytes the size limit of the cache in bytes
+     */
+    public TranslationCache(Path directory, long maxBytes) throws IOException
+    {
+        this.directory  = Files.createDirectories(directory);
+        this.maxBytes   = maxBytes;
+    }
+
+    /**
+     * Translates the given alloy file unless its translation is cached
+     * @param file an alloy file
+     * @param options the translation options
+     * @return the cached translation or a new translation
+     */
+    public Translation translateFile(Path file, TranslationOptions options) throws IOException
+    {
+        String alloy = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Path   root  = file.toAbsolutePath().getParent();
+        return translate(alloy, root, options);
+    }
+
+    /**
+     * @return true if translations are cached, which needs a known version of the translator
+     */
+    public static boolean isEnabled()
+    {
+        return translatorVersion != null;
+    }
+
+    /**
+     * Translates the given alloy source unless its translation is cached.
+     * A new translation keeps the command translations that were stored, so
+     * the commands are not translated again.
+     * @param alloy the alloy source
+     * @param root the directory against which opened modules are resolved, or null
+     * @param options the translation options
+     * @return the cached translation or a new translation
+     */
+    public Translation translate(String alloy, Path root, TranslationOptions options) throws IOException
+    {
+        if(!isEnabled())
+        {
+            return Utils.translate(alloy, options);
+        }
+        String      key         = computeKey(alloy, root, options);
+        Translation translation = get(key);
+        if(translation == null)
+        {
+            translation = Utils.translate(alloy, options);
+            put(key, translation);
+        }
+        return translation;
+    }
+
+    /**
+     * @return the key of the translation of the given alloy source
+     */
+    public String computeKey(String alloy, Path root, TranslationOptions options) throws IOException
+    {
+        MessageDigest digest = newDigest();
+        update(digest, FORMAT_VERSION);
+        update(digest, String.valueOf(translatorVersion));
+        update(digest, Version.version());
+        update(digest, "cse=" + options.eliminateCommonSubexpressions);
+        update(digest, "simplify=" + options.simplify);
+        update(digest, "scopes=" + options.translateScopes);
+        update(digest, "linearDisjointness=" + options.linearDisjointness);
+        update(digest, "breakSymmetries=" + options.breakSymmetries);
+        update(digest, alloy);
+
+        // modules opened from the root directory; library modules like util/ordering
+        // come with the alloy jar, whose version is part of the key
+        Set<Path>   visited = new HashSet<>();
+        List<String> sources = new ArrayList<>();
+        sources.add(alloy);
+        while (root != null && !sources.isEmpty())
+        {
+            Matcher matcher = openPattern.matcher(sources.remove(sources.size() - 1));
+            while (matcher.find())
+            {
+                Path module = root.resolve(matcher.group(1) + ".als").normalize();
+                if(Files.isRegularFile(module) && visited.add(module))
+                {
+                    String source = new String(Files.readAllBytes(module), StandardCharsets.UTF_8);
+                    update(digest, matcher.group(1));
+                    update(digest, source);
+                    sources.add(source);
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @param key the key of a translation
+     * @return the cached translation or null if the cache has no entry for the key
+     */
+    public Translation get(String key)
+    {
+        Path entry = directory.resolve(key + EXTENSION);
+        try
+        {
+            JsonNode    node        = objectMapper.readTree(entry.toFile());
+            List<String> commands   = new ArrayList<>();
+            for (JsonNode command : node.get("commands"))
+            {
+                commands.add(command.asText());
+            }
+            Mapper      mapper      = objectMapper.treeToValue(node.get("mapper"), Mapper.class);
+            touch(entry);
+            return new Translation(node.get("smtScript").asText(), commands, mapper);
+        }
+        catch (IOException | RuntimeException exception)
+        {
+            // a missing, evicted or corrupted entry is a cache miss
+            return null;
+        }
+    }
+
+    /**
+     * Marks the given entry as recently used. The modification time orders
+     * the entries for eviction.
+     */
+    private static void touch(Path entry)
+    {
+        try
+        {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException exception)
+        {
+            // the entry was evicted by another process after it was read
+        }
+    }
+
+    /**
+     * Stores the given translation, translating all its commands. The
+     * translation keeps the command translations for later calls of
+     * {@link Translation#translateAllCommands()}.
+     * @param key the key of the translation
+     * @param translation a translation
+     */
+    public void put(String key, Translation translation) throws IOException
+    {
+        if(!isEnabled())
+        {
+            return;
+        }
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("smtScript", translation.getSmtScript());
+        ArrayNode commands = node.putArray("commands");
+        translation.translateAllCommands().forEach(commands::add);
+        node.putRawValue("mapper", new RawValue(translation.getMapper().toJson()));
+
+        // write to a temporary file in the same directory and move it in place,
+        // so readers never see a partial entry
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+        try
+        {
+            try (OutputStream out = Files.newOutputStream(temporary))
+            {
+                objectMapper.writeValue(out, node);
+            }
+            Path entry = directory.resolve(key + EXTENSION);
+            try
+            {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException exception)
+            {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits its size limit
+     */
+    void evict() throws IOException
+    {
+        List<Path> entries = new ArrayList<>();
+        long       size    = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION))
+        {
+            for (Path entry : stream)
+            {
+                entries.add(entry);
+                size += sizeOf(entry);
+            }
+        }
+        if(size <= maxBytes)
+        {
+            return;
+        }
+        entries.sort(Comparator.comparing(TranslationCache::lastModified));
+        for (Path entry : entries)
+        {
+            if(size <= maxBytes)
+            {
+                break;
+            }
+            long entrySize = sizeOf(entry);
+            // another process may have evicted the entry already
+            Files.deleteIfExists(entry);
+            size -= entrySize;
+        }
+    }
+
+    private static long sizeOf(Path entry)
+    {
+        try
+        {
+            return Files.size(entry);
+        }
+        catch (IOException exception)
+        {
+            return 0;
+        }
+    }
+
+    private static FileTime lastModified(Path entry)
+    {
+        try
+        {
+            return Files.readAttributes(entry, BasicFileAttributes.class).lastModifiedTime();
+        }
+        catch (IOException exception)
+        {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * @return the implementation version of the translator, the size and
+     * modification time of its jar, or a hash of its class files when they
+     * are not in a jar, e.g. in tests or an ide. Null if neither is known.
+     */
+    private static String computeTranslatorVersion()
+    {
+        String version = Alloy2SmtTranslator.class.getPackage().getImplementationVersion();
+        if(version != null)
+        {
+            return version;
+        }
+        CodeSource codeSource = Alloy2SmtTranslator.class.getProtectionDomain().getCodeSource();
+        if(codeSource == null)
+        {
+            return null;
+        }
+        try
+        {
+            File location = new File(codeSource.getLocation().toURI());
+            if(location.isFile())
+            {
+                return location.length() + ":" + location.lastModified();
+            }
+            if(location.isDirectory())
+            {
+                return hashClassFiles(location.toPath());
+            }
+        }
+        catch (Exception exception)
+        {
+            // an unknown version disables the cache
+        }
+        return null;
+    }
+
+    /**
+     * @param directory a directory of compiled classes
+     * @return a hash of the paths and contents of the class files in the directory
+     */
+    private static String hashClassFiles(Path directory) throws IOException
+    {
+        List<Path> classFiles;
+        try (Stream<Path> paths = Files.walk(directory))
+        {
+            classFiles = paths.filter(path -> path.toString().endsWith(".class"))
+                              .sorted()
+                              .collect(Collectors.toList());
+        }
+        MessageDigest   digest  = newDigest();
+        byte[]          buffer  = new byte[8192];
+        for (Path classFile : classFiles)
+        {
+            update(digest, directory.relativize(classFile).toString());
+            try (InputStream in = Files.newInputStream(classFile))
+            {
+                int count;
+                while ((count = in.read(buffer)) > 0)
+                {
+                    digest.update(buffer, 0, count);
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException exception)
+        {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // prefix each value with its length so that boundaries are unambiguous
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes)
+        {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A long running translation service that keeps one warm jvm for many
+ * translations. Requests and responses are json objects, one per line.
+ * A request has the fields
+ * <ul>
+ *     <li>id: echoed in the response</li>
+ *     <li>alloy: the alloy source, or path: the path of an alloy file</li>
+ *     <li>command: the index of the command to translate (optional, all commands by default)</li>
+ *     <li>options: translation options, e.g. {"cse": true, "simplify": true, "scopes": true,
+ *     "linearDisjointness": true, "breakSymmetries": true} (optional)</li>
+ *     <li>timeout: the timeout of the request in milliseconds (optional)</li>
+ * </ul>
+ * A response has the fields id, smtScript, commands and mapper, or the
+ * fields id and error when the translation fails. Responses are written
+ * in the order translations finish.
+ */
+public class TranslationServer implements AutoCloseable
+{
+    public static final int     DEFAULT_THREADS         = Runtime.getRuntime().availableProcessors();
+    public static final int     DEFAULT_QUEUE_CAPACITY  = 64;
+    public static final long    DEFAULT_TIMEOUT         = 60_000;
+    public static final int     DEFAULT_CONNECTIONS     = 16;
+
+    private static final ObjectMapper   objectMapper    = new ObjectMapper();
+    private static final Alloy2SmtLogger logger          = new Alloy2SmtLogger(TranslationServer.class.getName());
+
+    private final ThreadPoolExecutor            workers;
+    private final ScheduledThreadPoolExecutor   timer;
+    // bounds the number of requests whose translation is running or waiting
+    // for a worker, including requests that timed out but still run
+    private final Semaphore                     pending;
+    private final long                          defaultTimeout;
+
+    public TranslationServer()
+    {
+        this(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param threads the number of worker threads
+     * @param queueCapacity the number of requests that can wait for a worker
+     * @param defaultTimeout the timeout in milliseconds of requests without a timeout
+     */
+    public TranslationServer(int threads, int queueCapacity, long defaultTimeout)
+    {
+        if(threads < 1 || queueCapacity < 0 || defaultTimeout <= 0)
+        {
+            throw new IllegalArgumentException("Invalid server configuration");
+        }
+        // the permits of pending keep the queue from overflowing, even while
+        // a worker that released its permit has not taken the next request
+        this.workers        = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                                     new ArrayBlockingQueue<>(threads + queueCapacity),
+                                                     daemonThreads("alloy2smt-worker"));
+        this.timer          = new ScheduledThreadPoolExecutor(1, daemonThreads("alloy2smt-timer"));
+        // timeouts of answered requests are dropped instead of waiting for their delay
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.pending        = new Semaphore(threads + queueCapacity);
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    private static ThreadFactory daemonThreads(String name)
+    {
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Translates a small model to load and compile the classes used by
+     * translations before the first request arrives
+     */
+    public void warmUp()
+    {
+        Translation translation = Utils.translate("sig A {f: set A} fact {some A} run {some f} for 3");
+        translation.getSmtScript();
+        translation.translateAllCommands(Runnable::run);
+    }
+
+    /**
+     * Serves the requests of the given input until its end and waits for
+     * their responses
+     * @param input the source of the requests
+     * @param output the destination of the responses
+     */
+    public void serve(Reader input, Writer output) throws IOException, InterruptedException
+    {
+        BufferedReader  reader      = new BufferedReader(input);
+        // tracks the requests of this input that have not been answered yet
+        Phaser          unanswered  = new Phaser(1);
+        String          line;
+        while ((line = reader.readLine()) != null)
+        {
+            if(!line.trim().isEmpty())
+            {
+                submit(line, output, unanswered);
+            }
+        }
+        unanswered.arriveAndAwaitAdvance();
+    }
+
+    /**
+     * Serves the requests of every connection to the given port of the
+     * loopback interface, at most {@link #DEFAULT_CONNECTIONS} at a time.
+     * This method does not return.
+     * @param port the port of the server socket
+     */
+    public void serve(int port) throws IOException, InterruptedException
+    {
+        serve(port, DEFAULT_CONNECTIONS);
+    }
+
+    /**
+     * Serves the requests of every connection to the given port of the
+     * loopback interface. Further connections wait in the backlog of the
+     * socket until a connection is closed. This method does not return.
+     * @param port the port of the server socket
+     * @param maxConnections the number of connections served at a time
+     */
+    public void serve(int port, int maxConnections) throws IOException, InterruptedException
+    {
+        Semaphore       open        = new Semaphore(maxConnections);
+        ExecutorService connections = Executors.newFixedThreadPool(maxConnections, daemonThreads("alloy2smt-connection"));
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress()))
+        {
+            while (true)
+            {
+                open.acquire();
+                Socket socket = serverSocket.accept();
+                connections.execute(() ->
+                {
+                    try
+                    {
+                        serve(socket);
+                    }
+                    finally
+                    {
+                        open.release();
+                    }
+                });
+            }
+        }
+        finally
+        {
+            connections.shutdownNow();
+        }
+    }
+
+    private void serve(Socket socket)
+    {
+        try (Socket connection = socket;
+             Writer writer = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8))
+        {
+            serve(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8), writer);
+        }
+        catch (IOException | InterruptedException exception)
+        {
+            logger.printSevere(exception.toString());
+        }
+    }
+
+    private void submit(String line, Writer output, Phaser unanswered) throws InterruptedException
+    {
+        JsonNode request;
+        try
+        {
+            request = objectMapper.readTree(line);
+        }
+        catch (IOException exception)
+        {
+            unanswered.register();
+            respond(output, error(null, "Invalid request: " + exception.getMessage()), unanswered);
+            return;
+        }
+
+        long            timeout         = request.path("timeout").asLong(defaultTimeout);
+        PendingRequest  pendingRequest  = new PendingRequest(request, output, unanswered);
+
+        // blocks the reader when too many requests are pending
+        pending.acquire();
+        unanswered.register();
+        pendingRequest.task     = workers.submit(pendingRequest);
+        pendingRequest.timeout  = timer.schedule(() -> pendingRequest.timeOut(timeout), timeout, TimeUnit.MILLISECONDS);
+        if(pendingRequest.task.isDone())
+        {
+            pendingRequest.timeout.cancel(false);
+        }
+    }
+
+    /**
+     * A request that is translated by a worker. Its permit of pending is
+     * released when the translation is done, or when it times out before a
+     * worker takes it, so a translation that ignores the interrupt of its
+     * timeout still counts as pending.
+     */
+    private class PendingRequest implements Runnable
+    {
+        private final JsonNode          request;
+        private final Writer            output;
+        private final Phaser            unanswered;
+        // whether the request is answered, by the worker or by the timeout
+        private final AtomicBoolean     responded   = new AtomicBoolean(false);
+        // whether the translation started or was dropped by the timeout
+        private final AtomicBoolean     claimed     = new AtomicBoolean(false);
+        private volatile Future<?>          task;
+        private volatile ScheduledFuture<?> timeout;
+
+        PendingRequest(JsonNode request, Writer output, Phaser unanswered)
+        {
+            this.request    = request;
+            this.output     = output;
+            this.unanswered = unanswered;
+        }
+
+        @Override
+        public void run()
+        {
+            if(!claimed.compareAndSet(false, true))
+            {
+                return;
+            }
+            try
+            {
+                ObjectNode response;
+                try
+                {
+                    response = translate(request);
+                }
+                catch (Throwable throwable)
+                {
+                    response = error(request.get("id"), throwable.toString());
+                }
+                if(responded.compareAndSet(false, true))
+                {
+                    respond(output, response, unanswered);
+                }
+            }
+            finally
+            {
+                ScheduledFuture<?> scheduled = timeout;
+                if(scheduled != null)
+                {
+                    scheduled.cancel(false);
+                }
+                pending.release();
+            }
+        }
+
+        void timeOut(long milliseconds)
+        {
+            if(!responded.compareAndSet(false, true))
+            {
+                return;
+            }
+            respond(output, error(request.get("id"), "Timeout after " + milliseconds + " ms"), unanswered);
+            if(claimed.compareAndSet(false, true))
+            {
+                // no worker took the request, so it leaves the queue
+                task.cancel(false);
+                workers.remove((Runnable) task);
+                pending.release();
+            }
+            else
+            {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @param request a translation request
+     * @return the response of the request
+     */
+    public ObjectNode translate(JsonNode request) throws IOException
+    {
+        String alloy;
+        if(request.hasNonNull("alloy"))
+        {
+            alloy = request.get("alloy").asText();
+        }
+        else if(request.hasNonNull("path"))
+        {
+            alloy = new String(Files.readAllBytes(Paths.get(request.get("path").asText())), StandardCharsets.UTF_8);
+        }
+        else
+        {
+            return error(request.get("id"), "The request has neither alloy nor path");
+        }
+
+        TranslationOptions options = new TranslationOptions();
+        options.eliminateCommonSubexpressions = request.path("options").path("cse").asBoolean(false);
+        options.simplify                      = request.path("options").path("simplify").asBoolean(false);
+        options.translateScopes               = request.path("options").path("scopes").asBoolean(false);
+        options.linearDisjointness            = request.path("options").path("linearDisjointness").asBoolean(false);
+        options.breakSymmetries               = request.path("options").path("breakSymmetries").asBoolean(false);
+
+        Translation translation = Utils.translate(alloy, options);
+
+        ObjectNode  response = objectMapper.createObjectNode();
+        response.set("id", request.get("id"));
+        response.put("smtScript", translation.getSmtScript());
+
+        ArrayNode commands = response.putArray("commands");
+        if(request.hasNonNull("command"))
+        {
+            int index = request.get("command").asInt();
+            if(index < 0 || index >= translation.getCommandCount())
+            {
+                return error(request.get("id"), "Invalid command index " + index);
+            }
+            commands.add(translation.translateCommand(index));
+        }
+        else
+        {
+            // the request already runs on a worker
+            translation.translateAllCommands(Runnable::run).forEach(commands::add);
+        }
+        response.putRawValue("mapper", new RawValue(translation.getMapper().toJson()));
+        return response;
+    }
+
+    private static ObjectNode error(JsonNode id, String message)
+    {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.set("id", id);
+        response.put("error", message);
+        return response;
+    }
+
+    private void respond(Writer output, ObjectNode response, Phaser unanswered)
+    {
+        try
+        {
+            String line = objectMapper.writeValueAsString(response);
+            synchronized (output)
+            {
+                output.write(line);
+                output.write("\n");
+                output.flush();
+            }
+        }
+        catch (IOException exception)
+        {
+            // the client is gone, nothing to report to
+            logger.printSevere(exception.toString());
+        }
+        finally
+        {
+            unanswered.arriveAndDeregister();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        workers.shutdownNow();
+        timer.shutdownNow();
+    }
+}
@@ -11,10 +11,14 @@ package edu.uiowa.alloy2smt;
 import edu.mit.csail.sdg.parser.CompModule;
 import edu.mit.csail.sdg.parser.CompUtil;
 import edu.uiowa.alloy2smt.mapping.Mapper;
+import edu.uiowa.alloy2smt.optimizers.CommonSubexpressionEliminator;
+import edu.uiowa.alloy2smt.optimizers.Simplifier;
 import edu.uiowa.alloy2smt.printers.SmtLibPrettyPrinter;
 import edu.uiowa.alloy2smt.smtAst.*;
 import edu.uiowa.alloy2smt.translators.Alloy2SmtTranslator;
 import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationMetrics;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
 
 public class Utils
 {
@@ -28,19 +32,18 @@ public class Utils
     {
         Alloy2SmtTranslator translator      = new Alloy2SmtTranslator(alloyModel);
         SmtProgram          smtProgram      = translator.translate();
-        SmtLibPrettyPrinter programPrinter  = new SmtLibPrettyPrinter();
+        StringBuilder       stringBuilder   = new StringBuilder();
+        SmtLibPrettyPrinter printer         = new SmtLibPrettyPrinter(stringBuilder);
 
-        programPrinter.visit(smtProgram);
+        printer.visit(smtProgram);
 
-        String              program         = programPrinter.getSmtLib();
         Assertion           assertion       = translator.translateCommand(commandIndex);
-        SmtLibPrettyPrinter commandPrinter  = new SmtLibPrettyPrinter();
 
-        commandPrinter.visit(assertion);
+        printer.visit(assertion);
 
-        String              command         = commandPrinter.getSmtLib();
+        stringBuilder.append(Translation.CHECK_SAT).append("\n").append(Translation.GET_MODEL).append("\n");
 
-        return program + command + Translation.CHECK_SAT + "\n" + Translation.GET_MODEL + "\n";
+        return stringBuilder.toString();
     }
 
     public static String translateFromString(String alloyProgram, int commandIndex)
@@ -51,17 +54,54 @@ public class Utils
 
     public static Translation translate(String alloyProgram)
     {
-        CompModule              alloyModel  = CompUtil.parseEverything_fromString(null, alloyProgram);
-        Alloy2SmtTranslator     translator  = new Alloy2SmtTranslator(alloyModel);
+        return translate(alloyProgram, new TranslationOptions());
+    }
+
+    /**
+     * @param alloyProgram the alloy model
+     * @param options the translation options
+     * @return the translation of the alloy program
+     */
+    public static Translation translate(String alloyProgram, TranslationOptions options)
+    {
+        TranslationMetrics      metrics     = new TranslationMetrics();
+        CompModule              alloyModel  = metrics.measure(TranslationMetrics.PARSE,
+                                                () -> CompUtil.parseEverything_fromString(null, alloyProgram));
+        Alloy2SmtTranslator     translator  = new Alloy2SmtTranslator(alloyModel, metrics);
+        translator.setTranslateScopes(options.translateScopes || options.breakSymmetries);
+        translator.setLinearDisjointness(options.linearDisjointness);
+        translator.setBreakSymmetries(options.breakSymmetries);
         SmtProgram              program     = translator.translate();
-        Mapper                  mapper      = translator.generateMapper();
-        SmtLibPrettyPrinter     printer     = new SmtLibPrettyPrinter();
+        Mapper                  mapper      = metrics.measure("generateMapper", translator::generateMapper);
 
-        printer.visit(program);
+        if(options.simplify)
+        {
+            metrics.addSimplifiedNodes(metrics.measure("simplify", () -> new Simplifier().simplify(program)));
+        }
+        if(options.eliminateCommonSubexpressions)
+        {
+            metrics.measure("eliminateCommonSubexpressions", () -> new CommonSubexpressionEliminator().eliminate(program));
+        }
+        metrics.countProgram(program);
 
-        String                  smtScript   = printer.getSmtLib();
+        // the smt script is printed on demand by the translation
+        Translation             translation = new Translation(translator, program, mapper, null);
+        translation.setSimplifyCommands(options.simplify);
+        return translation;
+    }
 
-        Translation             translation = new Translation(translator, program, mapper, smtScript);
+    /**
+     * Translates the alloy program and writes the resulting smt script to
+     * the given output as it is printed
+     * @param alloyProgram the alloy model
+     * @param options the translation options
+     * @param out the destination of the smt script
+     * @return the translation of the alloy program
+     */
+    public static Translation translate(String alloyProgram, TranslationOptions options, Appendable out)
+    {
+        Translation translation = translate(alloyProgram, options);
+        translation.writeSmtScript(out);
         return translation;
     }
 }
@@ -0,0 +1,59 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.instance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers the atoms of instances from 0. Relations store the numbers of
+ * their atoms, so relations are comparable only if they share a table.
+ */
+public class AtomTable
+{
+    private final Map<String, Integer>  ids     = new HashMap<>();
+    private final List<String>          names   = new ArrayList<>();
+
+    /**
+     * @param name the name of an atom, e.g. @uc_Atom_0 or an integer
+     * @return the id of the atom, assigning the next id to a new atom
+     */
+    public synchronized int id(String name)
+    {
+        Integer id = ids.get(name);
+        if(id == null)
+        {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of the atom, or -1 if the atom has no id
+     */
+    public synchronized int find(String name)
+    {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public synchronized String name(int id)
+    {
+        return names.get(id);
+    }
+
+    public synchronized int size()
+    {
+        return names.size();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.instance;
+
+import edu.uiowa.alloy2smt.mapping.Mapper;
+import edu.uiowa.alloy2smt.mapping.MappingField;
+import edu.uiowa.alloy2smt.mapping.MappingSignature;
+import edu.uiowa.alloy2smt.smtAst.*;
+import edu.uiowa.alloy2smt.smtparser.SmtModelListener;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values of the set valued constants of a model, e.g. the signatures
+ * and fields of an alloy instance, as compact relations over atom ids.
+ * An instance listens to a model reader, so it can be built while the
+ * solver prints the model.
+ */
+public class Instance implements SmtModelListener
+{
+    private final AtomTable             atoms;
+    private final Map<String, Relation> relations = new LinkedHashMap<>();
+
+    public Instance()
+    {
+        this(new AtomTable());
+    }
+
+    /**
+     * @param atoms the atom table, shared by instances that are compared
+     */
+    public Instance(AtomTable atoms)
+    {
+        this.atoms = atoms;
+    }
+
+    /**
+     * @return the instance of a parsed model
+     */
+    public static Instance fromModel(SmtModel model, AtomTable atoms)
+    {
+        Instance instance = new Instance(atoms);
+        for (FunctionDefinition definition : model.getFunctionDefinitions())
+        {
+            instance.functionDefined(definition);
+        }
+        return instance;
+    }
+
+    @Override
+    public void sortDeclared(Sort sort)
+    {
+    }
+
+    /**
+     * Adds the value of the definition if it is a set of tuples without arguments
+     */
+    @Override
+    public void functionDefined(FunctionDefinition definition)
+    {
+        Sort sort = definition.getOutputSort();
+        if(definition.getInputSorts().isEmpty() && sort instanceof SetSort &&
+           ((SetSort) sort).elementSort instanceof TupleSort)
+        {
+            int arity = ((TupleSort) ((SetSort) sort).elementSort).elementSorts.size();
+            relations.put(definition.getFuncName(), toRelation(definition.getExpression(), arity));
+        }
+    }
+
+    /**
+     * Collects the tuples of a union of singletons without recursion
+     */
+    private Relation toRelation(Expression expression, int arity)
+    {
+        Relation.Builder    builder = new Relation.Builder(arity);
+        int[]               tuple   = new int[arity];
+        Deque<Expression>   stack   = new ArrayDeque<>();
+        stack.push(expression);
+        while (!stack.isEmpty())
+        {
+            Expression current = stack.pop();
+            if(current instanceof BinaryExpression && ((BinaryExpression) current).getOp() == BinaryExpression.Op.UNION)
+            {
+                stack.push(((BinaryExpression) current).getRhsExpr());
+                stack.push(((BinaryExpression) current).getLhsExpr());
+            }
+            else if(current instanceof UnaryExpression && ((UnaryExpression) current).getOP() == UnaryExpression.Op.SINGLETON)
+            {
+                List<Expression> elements = ((MultiArityExpression) ((UnaryExpression) current).getExpression()).getExpressions();
+                for (int i = 0; i < arity; i++)
+                {
+                    tuple[i] = atoms.id(atomName(elements.get(i)));
+                }
+                builder.add(tuple);
+            }
+            else if(!(current instanceof UnaryExpression && ((UnaryExpression) current).getOP() == UnaryExpression.Op.EMPTYSET))
+            {
+                throw new UnsupportedOperationException("Unsupported set value " + current);
+            }
+        }
+        return builder.build();
+    }
+
+    private static String atomName(Expression expression)
+    {
+        if(expression instanceof AtomConstant)
+        {
+            return ((AtomConstant) expression).getName();
+        }
+        if(expression instanceof IntConstant)
+        {
+            return ((IntConstant) expression).getValue();
+        }
+        throw new UnsupportedOperationException("Unsupported atom " + expression);
+    }
+
+    public AtomTable getAtoms()
+    {
+        return atoms;
+    }
+
+    /**
+     * @param functionName the name of a constant in the smt model
+     * @return its value, or null if the model does not define it
+     */
+    public Relation getRelation(String functionName)
+    {
+        return relations.get(functionName);
+    }
+
+    /**
+     * @return the values keyed by the names of the smt constants
+     */
+    public Map<String, Relation> getRelations()
+    {
+        return Collections.unmodifiableMap(relations);
+    }
+
+    /**
+     * @param mapper the mapper of the translation
+     * @param label the label of an alloy signature, e.g. this/A
+     * @return the atoms of the signature, or null if it is not in the instance
+     */
+    public Relation getSignature(Mapper mapper, String label)
+    {
+        for (MappingSignature signature : mapper.signatures)
+        {
+            if(signature.label.equals(label))
+            {
+                return relations.get(signature.functionName);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param mapper the mapper of the translation
+     * @param signatureLabel the label of the signature of the field
+     * @param fieldLabel the label of the field
+     * @return the tuples of the field, or null if it is not in the instance
+     */
+    public Relation getField(Mapper mapper, String signatureLabel, String fieldLabel)
+    {
+        for (MappingSignature signature : mapper.signatures)
+        {
+            if(!signature.label.equals(signatureLabel))
+            {
+                continue;
+            }
+            for (MappingField field : mapper.fields)
+            {
+                if(field.parentId == signature.id && field.label.equals(fieldLabel))
+                {
+                    return relations.get(field.functionName);
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if(this == object)
+        {
+            return true;
+        }
+        if(object == null || getClass() != object.getClass())
+        {
+            return false;
+        }
+        Instance instance = (Instance) object;
+        return atoms == instance.atoms && relations.equals(instance.relations);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return relations.hashCode();
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.instance;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Consumer;
+
+/**
+ * An immutable set of tuples of atom ids. A unary relation is a bit set
+ * indexed by atom id. A relation of a higher arity is one int array that
+ * holds its tuples one after the other, sorted lexicographically and
+ * without duplicates, so membership is a binary search.
+ */
+public final class Relation
+{
+    private final int       arity;
+    private final int       size;
+    // the atoms of a unary relation
+    private final BitSet    atoms;
+    // the tuples of a relation of a higher arity
+    private final int[]     tuples;
+
+    private Relation(BitSet atoms)
+    {
+        this.arity  = 1;
+        this.size   = atoms.cardinality();
+        this.atoms  = atoms;
+        this.tuples = null;
+    }
+
+    private Relation(int arity, int[] tuples, int size)
+    {
+        this.arity  = arity;
+        this.size   = size;
+        this.atoms  = null;
+        this.tuples = tuples;
+    }
+
+    public static Relation empty(int arity)
+    {
+        return new Builder(arity).build();
+    }
+
+    public int getArity()
+    {
+        return arity;
+    }
+
+    /**
+     * @return the number of tuples
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * @param tuple atom ids, one per column
+     * @return true if the relation contains the tuple
+     */
+    public boolean contains(int ... tuple)
+    {
+        if(tuple.length != arity)
+        {
+            return false;
+        }
+        if(arity == 1)
+        {
+            return tuple[0] >= 0 && atoms.get(tuple[0]);
+        }
+        return search(tuple) >= 0;
+    }
+
+    /**
+     * @return the atom in the given column of the given tuple, where the
+     * tuples are ordered lexicographically
+     */
+    public int get(int tupleIndex, int column)
+    {
+        if(tupleIndex < 0 || tupleIndex >= size)
+        {
+            throw new IndexOutOfBoundsException("Tuple " + tupleIndex + " of " + size);
+        }
+        if(arity == 1)
+        {
+            int atom = atoms.nextSetBit(0);
+            for (int i = 0; i < tupleIndex; i++)
+            {
+                atom = atoms.nextSetBit(atom + 1);
+            }
+            return atom;
+        }
+        return tuples[tupleIndex * arity + column];
+    }
+
+    /**
+     * Passes the tuples in lexicographic order to the consumer. The array
+     * passed to the consumer is reused for the next tuple.
+     */
+    public void forEach(Consumer<int[]> consumer)
+    {
+        int[] tuple = new int[arity];
+        if(arity == 1)
+        {
+            for (int atom = atoms.nextSetBit(0); atom >= 0; atom = atoms.nextSetBit(atom + 1))
+            {
+                tuple[0] = atom;
+                consumer.accept(tuple);
+            }
+            return;
+        }
+        for (int i = 0; i < size; i++)
+        {
+            System.arraycopy(tuples, i * arity, tuple, 0, arity);
+            consumer.accept(tuple);
+        }
+    }
+
+    /**
+     * @return the atoms of a unary relation
+     */
+    public BitSet toBitSet()
+    {
+        if(arity != 1)
+        {
+            throw new UnsupportedOperationException("The relation has arity " + arity);
+        }
+        return (BitSet) atoms.clone();
+    }
+
+    /**
+     * The relational join: the last column of this relation is matched with
+     * the first column of the other one and both are dropped.
+     * @param other a relation with the same atom table
+     * @return the join of this and the other relation
+     */
+    public Relation join(Relation other)
+    {
+        int resultArity = arity + other.arity - 2;
+        if(resultArity < 1)
+        {
+            throw new UnsupportedOperationException("The join of two unary relations is not a relation");
+        }
+
+        Builder result  = new Builder(resultArity);
+        int[]   tuple   = new int[resultArity];
+        if(other.arity == 1)
+        {
+            // keep the tuples whose last atom is in the other set
+            for (int i = 0; i < size; i++)
+            {
+                if(other.atoms.get(tuples[i * arity + arity - 1]))
+                {
+                    System.arraycopy(tuples, i * arity, tuple, 0, resultArity);
+                    result.add(tuple);
+                }
+            }
+            return result.build();
+        }
+
+        if(arity == 1)
+        {
+            for (int atom = atoms.nextSetBit(0); atom >= 0; atom = atoms.nextSetBit(atom + 1))
+            {
+                other.joinRows(atom, tuple, 0, result);
+            }
+            return result.build();
+        }
+
+        for (int i = 0; i < size; i++)
+        {
+            System.arraycopy(tuples, i * arity, tuple, 0, arity - 1);
+            other.joinRows(tuples[i * arity + arity - 1], tuple, arity - 1, result);
+        }
+        return result.build();
+    }
+
+    /**
+     * Adds the given prefix followed by the rest of each tuple of this
+     * relation that starts with the given atom
+     */
+    private void joinRows(int atom, int[] tuple, int prefixLength, Builder result)
+    {
+        for (int row = firstRow(atom); row < size && tuples[row * arity] == atom; row++)
+        {
+            System.arraycopy(tuples, row * arity + 1, tuple, prefixLength, arity - 1);
+            result.add(tuple);
+        }
+    }
+
+    /**
+     * @return the index of the first tuple whose first atom is not less than the given one
+     */
+    private int firstRow(int atom)
+    {
+        int low = 0, high = size;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if(tuples[middle * arity] < atom)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int search(int[] tuple)
+    {
+        int low = 0, high = size - 1;
+        while (low <= high)
+        {
+            int middle      = (low + high) >>> 1;
+            int comparison  = compare(tuples, middle * arity, tuple, 0, arity);
+            if(comparison < 0)
+            {
+                low = middle + 1;
+            }
+            else if(comparison > 0)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int compare(int[] left, int leftOffset, int[] right, int rightOffset, int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            int comparison = Integer.compare(left[leftOffset + i], right[rightOffset + i]);
+            if(comparison != 0)
+            {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object object)
+    {
+        if(this == object)
+        {
+            return true;
+        }
+        if(object == null || getClass() != object.getClass())
+        {
+            return false;
+        }
+        Relation relation = (Relation) object;
+        if(arity != relation.arity || size != relation.size)
+        {
+            return false;
+        }
+        if(arity == 1)
+        {
+            return atoms.equals(relation.atoms);
+        }
+        return compare(tuples, 0, relation.tuples, 0, size * arity) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        if(arity == 1)
+        {
+            return atoms.hashCode();
+        }
+        int hash = arity;
+        for (int i = 0; i < size * arity; i++)
+        {
+            hash = 31 * hash + tuples[i];
+        }
+        return hash;
+    }
+
+    /**
+     * @return the tuples with the names of their atoms, e.g. {(a, b), (a, c)}
+     */
+    public String toString(AtomTable atomTable)
+    {
+        StringBuilder result = new StringBuilder("{");
+        forEach(tuple ->
+        {
+            if(result.length() > 1)
+            {
+                result.append(", ");
+            }
+            result.append("(");
+            for (int i = 0; i < tuple.length; i++)
+            {
+                result.append(i > 0 ? ", " : "").append(atomTable.name(tuple[i]));
+            }
+            result.append(")");
+        });
+        return result.append("}").toString();
+    }
+
+    /**
+     * Collects tuples in any order and with duplicates
+     */
+    public static class Builder
+    {
+        private final int       arity;
+        private final BitSet    atoms;
+        private int[]           tuples;
+        private int             size;
+
+        public Builder(int arity)
+        {
+            if(arity < 1)
+            {
+                throw new IllegalArgumentException("The arity should be positive: " + arity);
+            }
+            this.arity  = arity;
+            this.atoms  = arity == 1 ? new BitSet() : null;
+            this.tuples = arity == 1 ? null : new int[arity * 8];
+        }
+
+        /**
+         * @param tuple atom ids, one per column. The array is copied.
+         */
+        public Builder add(int ... tuple)
+        {
+            if(tuple.length != arity)
+            {
+                throw new IllegalArgumentException("Expected a tuple of arity " + arity + " but found " + Arrays.toString(tuple));
+            }
+            if(arity == 1)
+            {
+                atoms.set(tuple[0]);
+                return this;
+            }
+            if((size + 1) * arity > tuples.length)
+            {
+                tuples = Arrays.copyOf(tuples, tuples.length * 2);
+            }
+            System.arraycopy(tuple, 0, tuples, size * arity, arity);
+            size++;
+            return this;
+        }
+
+        public Relation build()
+        {
+            if(arity == 1)
+            {
+                return new Relation((BitSet) atoms.clone());
+            }
+            int[]   sorted  = sort();
+            // drop duplicates, which are next to each other after sorting
+            int     unique  = 0;
+            for (int i = 0; i < size; i++)
+            {
+                if(unique == 0 || compare(sorted, (unique - 1) * arity, sorted, i * arity, arity) != 0)
+                {
+                    System.arraycopy(sorted, i * arity, sorted, unique * arity, arity);
+                    unique++;
+                }
+            }
+            return new Relation(arity, Arrays.copyOf(sorted, unique * arity), unique);
+        }
+
+        private int[] sort()
+        {
+            int[] sorted = new int[size * arity];
+            if(arity == 2)
+            {
+                // binary relations sort as longs, without boxing
+                long[] pairs = new long[size];
+                for (int i = 0; i < size; i++)
+                {
+                    pairs[i] = ((long) tuples[2 * i] << 32) | (tuples[2 * i + 1] & 0xFFFFFFFFL);
+                }
+                Arrays.sort(pairs);
+                for (int i = 0; i < size; i++)
+                {
+                    sorted[2 * i]       = (int) (pairs[i] >> 32);
+                    sorted[2 * i + 1]   = (int) pairs[i];
+                }
+                return sorted;
+            }
+            Integer[] rows = new Integer[size];
+            for (int i = 0; i < size; i++)
+            {
+                rows[i] = i;
+            }
+            Arrays.sort(rows, (left, right) -> compare(tuples, left * arity, tuples, right * arity, arity));
+            for (int i = 0; i < size; i++)
+            {
+                System.arraycopy(tuples, rows[i] * arity, sorted, i * arity, arity);
+            }
+            return sorted;
+        }
+    }
+}
@@ -9,56 +9,270 @@
 package edu.uiowa.alloy2smt.mapping;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * The signatures and fields of a translation with the names of their smt
+ * constants. Mappers are written and read as json or xml. The json methods
+ * stream the signatures and fields one at a time without building a tree,
+ * and the jackson and jaxb contexts are shared by all threads.
+ */
 @XmlRootElement(name = "Mapper")
 public class Mapper
 {
-    @XmlAttribute(name = "Signature")
+    // writeValue should not flush the generator after every element
+    private static final ObjectMapper   objectMapper        = new ObjectMapper()
+                                                                .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final ObjectReader   signatureReader     = objectMapper.readerFor(MappingSignature.class);
+    private static final ObjectReader   fieldReader         = objectMapper.readerFor(MappingField.class);
+    private static final XMLInputFactory xmlInputFactory    = createXmlInputFactory();
+    private static JAXBContext          jaxbContext;
+
+    @XmlElement(name = "Signature")
     @JsonProperty("signatures")
     public List<MappingSignature> signatures = new ArrayList<>();
 
-    @XmlAttribute(name = "Field")
+    @XmlElement(name = "Field")
     @JsonProperty("fields")
     public List<MappingField> fields = new ArrayList<>();
 
+    private static XMLInputFactory createXmlInputFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * @return the jaxb context of mappers, which is created once because it is expensive
+     */
+    private static synchronized JAXBContext getJaxbContext() throws JAXBException
+    {
+        if(jaxbContext == null)
+        {
+            jaxbContext = JAXBContext.newInstance(Mapper.class);
+        }
+        return jaxbContext;
+    }
+
     public void writeToXml(String xmlFile) throws JAXBException
     {
-        JAXBContext context = JAXBContext.newInstance(Mapper.class);
-        Marshaller marshaller = context.createMarshaller();
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(xmlFile)))
+        {
+            writeToXml(out);
+        }
+        catch (IOException exception)
+        {
+            throw new JAXBException(exception);
+        }
+    }
+
+    /**
+     * Writes the mapper as xml to the given stream, which is left open
+     */
+    public void writeToXml(OutputStream out) throws JAXBException
+    {
+        // marshallers are not thread safe, but they are cheap to create from the context
+        Marshaller marshaller = getJaxbContext().createMarshaller();
         marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        marshaller.marshal(this, new File(xmlFile));
+        marshaller.marshal(this, out);
     }
 
     public static Mapper readFromXml(String xmlFile) throws JAXBException
     {
-        JAXBContext context = JAXBContext.newInstance(Mapper.class);
-        Unmarshaller unmarshaller = context.createUnmarshaller();
-        Mapper mapper = (Mapper) unmarshaller.unmarshal(new File(xmlFile));
-        return mapper;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xmlFile)))
+        {
+            return readFromXml(in);
+        }
+        catch (IOException exception)
+        {
+            throw new JAXBException(exception);
+        }
+    }
+
+    /**
+     * Reads a mapper from the xml of the given stream with a stax reader
+     */
+    public static Mapper readFromXml(InputStream in) throws JAXBException
+    {
+        try
+        {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+            try
+            {
+                Unmarshaller unmarshaller = getJaxbContext().createUnmarshaller();
+                return unmarshaller.unmarshal(reader, Mapper.class).getValue();
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException exception)
+        {
+            throw new JAXBException(exception);
+        }
     }
 
     public void writeToJson(String jsonFile) throws IOException
     {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File(jsonFile), this);
+        writeToJson(new File(jsonFile));
+    }
+
+    public void writeToJson(File jsonFile) throws IOException
+    {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(jsonFile)))
+        {
+            writeToJson(out);
+        }
+    }
+
+    /**
+     * Writes the mapper as indented json to the given stream, which is left open
+     */
+    public void writeToJson(OutputStream out) throws IOException
+    {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out))
+        {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.useDefaultPrettyPrinter();
+            writeJson(generator);
+        }
+    }
+
+    /**
+     * @return the mapper as json on one line
+     */
+    public String toJson() throws IOException
+    {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer))
+        {
+            writeJson(generator);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes the mapper as a json object to the given generator one signature
+     * and one field at a time
+     */
+    public void writeJson(JsonGenerator generator) throws IOException
+    {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("signatures");
+        for (MappingSignature signature : signatures)
+        {
+            objectMapper.writeValue(generator, signature);
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("fields");
+        for (MappingField field : fields)
+        {
+            objectMapper.writeValue(generator, field);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
     }
 
     public static Mapper readFromJson(String jsonFile) throws IOException
     {
-        ObjectMapper objectMapper = new ObjectMapper();
-        Mapper mapper = objectMapper.readValue(new File(jsonFile), Mapper.class);
+        return readFromJson(new File(jsonFile));
+    }
+
+    public static Mapper readFromJson(File jsonFile) throws IOException
+    {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(jsonFile)))
+        {
+            return readFromJson(in);
+        }
+    }
+
+    /**
+     * Reads a mapper from the json of the given stream, which is left open
+     */
+    public static Mapper readFromJson(InputStream in) throws IOException
+    {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in))
+        {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            parser.nextToken();
+            return readJson(parser);
+        }
+    }
+
+    /**
+     * Reads a mapper one signature and one field at a time
+     * @param parser a parser at the start of a json object
+     * @return the mapper of the object, after which the parser is left
+     */
+    public static Mapper readJson(JsonParser parser) throws IOException
+    {
+        if(parser.currentToken() != JsonToken.START_OBJECT)
+        {
+            throw new IOException("Expected a mapper object but found " + parser.currentToken());
+        }
+        Mapper mapper = new Mapper();
+        while (parser.nextToken() == JsonToken.FIELD_NAME)
+        {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            if(name.equals("signatures"))
+            {
+                readArray(parser, signatureReader, mapper.signatures);
+            }
+            else if(name.equals("fields"))
+            {
+                readArray(parser, fieldReader, mapper.fields);
+            }
+            else
+            {
+                throw new IOException("Unknown mapper property " + name);
+            }
+        }
         return mapper;
     }
+
+    private static <T> void readArray(JsonParser parser, ObjectReader reader, List<T> values) throws IOException
+    {
+        if(parser.currentToken() == JsonToken.VALUE_NULL)
+        {
+            return;
+        }
+        if(parser.currentToken() != JsonToken.START_ARRAY)
+        {
+            throw new IOException("Expected an array but found " + parser.currentToken());
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY)
+        {
+            values.add(reader.readValue(parser));
+        }
+    }
 }
@@ -11,6 +11,7 @@ package edu.uiowa.alloy2smt.mapping;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 import java.util.ArrayList;
 import java.util.List;
@@ -42,7 +43,7 @@ public class MappingField
     @JsonProperty("isMeta")
     public boolean isMeta;
 
-    @XmlAttribute(name = "types")
+    @XmlElement(name = "Type")
     @JsonProperty("types")
     public List<MappingType> types = new ArrayList<>();
 
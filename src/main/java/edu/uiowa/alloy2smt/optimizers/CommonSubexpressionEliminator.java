@@ -0,0 +1,566 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.optimizers;
+
+import edu.uiowa.alloy2smt.smtAst.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hoists repeated subterms of an smt program. Closed subterms that occur more
+ * than once in the assertions are replaced with calls to new define-fun
+ * definitions, and repeated subterms that depend on bound variables are bound
+ * with a let expression at the body of their closest binder.
+ */
+public class CommonSubexpressionEliminator
+{
+    public static final int DEFAULT_MINIMUM_SIZE   = 3;
+    public static final String DEFINITION_PREFIX   = "_cse";
+    public static final String LET_PREFIX          = "_let";
+
+    private final int                           minimumSize;
+    private final Map<Expression, Integer>      sizes           = new IdentityHashMap<>();
+    private final Map<Expression, Set<String>>  freeVariables   = new IdentityHashMap<>();
+    private final Set<String>                   globalNames     = new HashSet<>();
+    private final Set<String>                   usedNames       = new HashSet<>();
+    private SortInference                       sortInference;
+    private int                                 definitionIndex = 0;
+    private int                                 letIndex        = 0;
+
+    public CommonSubexpressionEliminator()
+    {
+        this(DEFAULT_MINIMUM_SIZE);
+    }
+
+    /**
+     * @param minimumSize the minimum number of nodes of a subterm to be hoisted
+     */
+    public CommonSubexpressionEliminator(int minimumSize)
+    {
+        this.minimumSize = minimumSize;
+    }
+
+    /**
+     * Eliminates common subexpressions in the given program in place
+     * @param program an smt program
+     * @return the number of introduced definitions and let bindings
+     */
+    public int eliminate(SmtProgram program)
+    {
+        collectNames(program);
+        sortInference = new SortInference(program);
+
+        hoistClosedSubterms(program);
+
+        List<FunctionDefinition> definitions = program.getFunctionDefinitions();
+        for (int i = 0; i < definitions.size(); i++)
+        {
+            FunctionDefinition definition = definitions.get(i);
+            Expression expression = bindRepeatedSubterms(definition.getExpression());
+            if(!definition.getInputSorts().isEmpty())
+            {
+                expression = letBind(expression);
+            }
+            if(expression != definition.getExpression())
+            {
+                definitions.set(i, new FunctionDefinition(definition.getFuncName(), definition.getInputSorts(),
+                        definition.getOutputSort(), expression));
+            }
+        }
+
+        List<Assertion> assertions = program.getAssertions();
+        for (int i = 0; i < assertions.size(); i++)
+        {
+            Assertion  assertion  = assertions.get(i);
+            Expression expression = bindRepeatedSubterms(assertion.getExpression());
+            if(expression != assertion.getExpression())
+            {
+                assertions.set(i, new Assertion(assertion.getName(), expression));
+            }
+        }
+        return definitionIndex + letIndex;
+    }
+
+    private void collectNames(SmtProgram program)
+    {
+        for (FunctionDeclaration declaration : program.getFunctionDeclarations())
+        {
+            globalNames.add(declaration.getName());
+        }
+        for (ConstantDeclaration declaration : program.getConstantDeclarations())
+        {
+            globalNames.add(declaration.getName());
+        }
+        for (FunctionDefinition definition : program.getFunctionDefinitions())
+        {
+            globalNames.add(definition.getFuncName());
+        }
+        usedNames.addAll(globalNames);
+
+        Set<String> boundNames = new HashSet<>();
+        for (FunctionDefinition definition : program.getFunctionDefinitions())
+        {
+            for (BoundVariableDeclaration variable : definition.getInputSorts())
+            {
+                boundNames.add(variable.getName());
+            }
+            collectBoundNames(definition.getExpression(), boundNames);
+        }
+        for (Assertion assertion : program.getAssertions())
+        {
+            collectBoundNames(assertion.getExpression(), boundNames);
+        }
+        usedNames.addAll(boundNames);
+        // a global name that is shadowed somewhere is treated as a variable
+        globalNames.removeAll(boundNames);
+    }
+
+    private static void collectBoundNames(Expression expression, Set<String> boundNames)
+    {
+        ExpressionTraversal.traverse(expression, new ExpressionTraversal.Visitor()
+        {
+            @Override
+            public boolean preVisit(Expression expression)
+            {
+                if(expression instanceof QuantifiedExpression)
+                {
+                    for (BoundVariableDeclaration variable : ((QuantifiedExpression) expression).getBoundVars())
+                    {
+                        boundNames.add(variable.getName());
+                    }
+                }
+                else if(expression instanceof LetExpression)
+                {
+                    boundNames.addAll(((LetExpression) expression).getLetVars().keySet());
+                }
+                return true;
+            }
+        });
+    }
+
+    private void hoistClosedSubterms(SmtProgram program)
+    {
+        Map<Expression, Integer> counts = new HashMap<>();
+        for (Assertion assertion : program.getAssertions())
+        {
+            countClosedSubterms(assertion.getExpression(), counts);
+        }
+
+        Set<Expression> selected = new HashSet<>();
+        for (Map.Entry<Expression, Integer> entry : counts.entrySet())
+        {
+            if(entry.getValue() > 1 && sortInference.inferSort(entry.getKey()) != null)
+            {
+                selected.add(entry.getKey());
+            }
+        }
+
+        // drop subterms that are rarely used after their enclosing subterms are hoisted
+        boolean changed = true;
+        while (changed && !selected.isEmpty())
+        {
+            Map<Expression, Integer> uses       = new HashMap<>();
+            Deque<Expression>        worklist   = new ArrayDeque<>();
+            for (Assertion assertion : program.getAssertions())
+            {
+                countUses(assertion.getExpression(), selected, uses, worklist, true);
+            }
+            while (!worklist.isEmpty())
+            {
+                for (Expression child : ExpressionTraversal.getChildren(worklist.pop()))
+                {
+                    countUses(child, selected, uses, worklist, true);
+                }
+            }
+            changed = selected.removeIf(expression -> !isProfitable(expression, uses.getOrDefault(expression, 0)));
+        }
+
+        if(selected.isEmpty())
+        {
+            return;
+        }
+
+        Map<Expression, String>             names       = new LinkedHashMap<>();
+        Map<Expression, FunctionDefinition> definitions = new HashMap<>();
+        List<Assertion> assertions = program.getAssertions();
+        for (int i = 0; i < assertions.size(); i++)
+        {
+            Assertion  assertion  = assertions.get(i);
+            Expression expression = replaceClosedSubterms(assertion.getExpression(), selected, names, definitions);
+            assertions.set(i, new Assertion(assertion.getName(), expression));
+        }
+
+        // a definition only refers to definitions of smaller subterms
+        List<Expression> hoisted = new ArrayList<>(names.keySet());
+        hoisted.sort(Comparator.comparingInt(this::getSize));
+        for (Expression expression : hoisted)
+        {
+            program.addFunctionDefinition(definitions.get(expression));
+        }
+    }
+
+    private void countClosedSubterms(Expression expression, Map<Expression, Integer> counts)
+    {
+        ExpressionTraversal.traverse(expression, new ExpressionTraversal.Visitor()
+        {
+            @Override
+            public boolean preVisit(Expression expression)
+            {
+                if(isCandidate(expression) && getFreeVariables(expression).isEmpty())
+                {
+                    counts.merge(expression, 1, Integer::sum);
+                }
+                return true;
+            }
+        });
+    }
+
+    private static void countUses(Expression expression, Set<Expression> selected, Map<Expression, Integer> uses,
+                                  Deque<Expression> worklist, boolean enterBinders)
+    {
+        ExpressionTraversal.traverse(expression, new ExpressionTraversal.Visitor()
+        {
+            @Override
+            public boolean preVisit(Expression expression)
+            {
+                if(selected.contains(expression))
+                {
+                    if(uses.merge(expression, 1, Integer::sum) == 1 && worklist != null)
+                    {
+                        worklist.push(expression);
+                    }
+                    return false;
+                }
+                return enterBinders || !isBinder(expression);
+            }
+        });
+    }
+
+    /**
+     * Replaces the selected subterms with calls of their definitions. The
+     * names of the definitions are chosen before their bodies are rewritten,
+     * the definitions themselves after.
+     */
+    private Expression replaceClosedSubterms(Expression expression, Set<Expression> selected,
+                                             Map<Expression, String> names,
+                                             Map<Expression, FunctionDefinition> definitions)
+    {
+        return ExpressionTraversal.rewrite(expression, new ExpressionTraversal.Rewriter()
+        {
+            @Override
+            public Expression preRewrite(Expression expression)
+            {
+                if(selected.contains(expression))
+                {
+                    FunctionDefinition definition = definitions.get(expression);
+                    if(definition != null)
+                    {
+                        return new FunctionCallExpression(definition.getFuncName());
+                    }
+                    names.put(expression, getNewName(DEFINITION_PREFIX, ++definitionIndex));
+                }
+                return expression;
+            }
+
+            @Override
+            public Expression postRewrite(Expression expression, Expression rebuilt)
+            {
+                if(!selected.contains(expression) || definitions.containsKey(expression))
+                {
+                    return rebuilt;
+                }
+                Sort                sort        = sortInference.inferSort(expression);
+                FunctionDefinition  definition  = new FunctionDefinition(names.get(expression), sort, rebuilt);
+                definitions.put(expression, definition);
+                sortInference.addFunction(definition);
+                return new FunctionCallExpression(definition.getFuncName());
+            }
+        });
+    }
+
+    private Expression bindRepeatedSubterms(Expression expression)
+    {
+        return ExpressionTraversal.rewrite(expression, result ->
+        {
+            if(result instanceof QuantifiedExpression)
+            {
+                QuantifiedExpression quantifiedExpression = (QuantifiedExpression) result;
+                Expression body = letBind(quantifiedExpression.getExpression());
+                if(body != quantifiedExpression.getExpression())
+                {
+                    return new QuantifiedExpression(quantifiedExpression.getOp(), quantifiedExpression.getBoundVars(), body);
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Binds the subterms that are repeated in the given body outside nested
+     * binders to new let variables
+     */
+    private Expression letBind(Expression body)
+    {
+        Map<Expression, Integer> counts = new HashMap<>();
+        countOpenSubterms(body, counts);
+
+        Set<Expression> selected = new HashSet<>();
+        for (Map.Entry<Expression, Integer> entry : counts.entrySet())
+        {
+            if(entry.getValue() > 1)
+            {
+                selected.add(entry.getKey());
+            }
+        }
+
+        boolean changed = true;
+        while (changed && !selected.isEmpty())
+        {
+            Map<Expression, Integer> uses = new HashMap<>();
+            countUses(body, selected, uses, null, false);
+            changed = selected.removeIf(expression -> !isProfitable(expression, uses.getOrDefault(expression, 0)));
+        }
+
+        if(selected.isEmpty())
+        {
+            return body;
+        }
+
+        Map<Expression, ConstantExpression> variables = new LinkedHashMap<>();
+        Expression newBody = replaceOpenSubterms(body, selected, variables);
+
+        Map<String, Expression> letVars = new LinkedHashMap<>();
+        for (Map.Entry<Expression, ConstantExpression> entry : variables.entrySet())
+        {
+            letVars.put(entry.getValue().getVarName(), entry.getKey());
+        }
+        return new LetExpression(LetExpression.Op.LET, letVars, newBody);
+    }
+
+    /**
+     * Counts the subterms of the body with free variables, except the body
+     * itself and the subterms of nested binders
+     */
+    private void countOpenSubterms(Expression body, Map<Expression, Integer> counts)
+    {
+        ExpressionTraversal.traverse(body, new ExpressionTraversal.Visitor()
+        {
+            @Override
+            public boolean preVisit(Expression expression)
+            {
+                if(expression == body)
+                {
+                    return true;
+                }
+                if(isCandidate(expression) && !getFreeVariables(expression).isEmpty())
+                {
+                    counts.merge(expression, 1, Integer::sum);
+                }
+                return !isBinder(expression);
+            }
+        });
+    }
+
+    private Expression replaceOpenSubterms(Expression expression, Set<Expression> selected,
+                                           Map<Expression, ConstantExpression> variables)
+    {
+        return ExpressionTraversal.rewrite(expression, new ExpressionTraversal.Rewriter()
+        {
+            @Override
+            public Expression preRewrite(Expression expression)
+            {
+                if(!selected.contains(expression))
+                {
+                    return expression;
+                }
+                ConstantExpression variable = variables.get(expression);
+                if(variable == null)
+                {
+                    String name = getNewName(LET_PREFIX, ++letIndex);
+                    variable = new ConstantDeclaration(name, sortInference.inferSort(expression)).getConstantExpr();
+                    variables.put(expression, variable);
+                }
+                return variable;
+            }
+
+            @Override
+            public boolean rewriteChildren(Expression expression)
+            {
+                return !isBinder(expression);
+            }
+
+            @Override
+            public Expression postRewrite(Expression expression, Expression rebuilt)
+            {
+                return rebuilt;
+            }
+        });
+    }
+
+    /**
+     * @return true if binding the expression saves more nodes than
+     * the binding itself introduces
+     */
+    private boolean isProfitable(Expression expression, int uses)
+    {
+        return (uses - 1) * (getSize(expression) - 1) > 2;
+    }
+
+    private String getNewName(String prefix, int index)
+    {
+        String name = prefix + index;
+        while (!usedNames.add(name))
+        {
+            name = name + "_";
+        }
+        return name;
+    }
+
+    private boolean isCandidate(Expression expression)
+    {
+        return !(expression instanceof Sort) && !ExpressionTraversal.getChildren(expression).isEmpty() && getSize(expression) >= minimumSize;
+    }
+
+    private static boolean isBinder(Expression expression)
+    {
+        return expression instanceof QuantifiedExpression || expression instanceof LetExpression;
+    }
+
+    private int getSize(Expression expression)
+    {
+        Integer size = sizes.get(expression);
+        if(size != null)
+        {
+            return size;
+        }
+        // the sizes of the subterms are computed bottom up
+        ExpressionTraversal.traverse(expression, new ExpressionTraversal.Visitor()
+        {
+            @Override
+            public boolean preVisit(Expression expression)
+            {
+                return !sizes.containsKey(expression);
+            }
+
+            @Override
+            public void postVisit(Expression expression)
+            {
+                if(!sizes.containsKey(expression))
+                {
+                    int size = 1;
+                    for (Expression child : ExpressionTraversal.getChildren(expression))
+                    {
+                        size += sizes.get(child);
+                    }
+                    sizes.put(expression, size);
+                }
+            }
+        });
+        return sizes.get(expression);
+    }
+
+    /**
+     * @return the free variables of the expression excluding global names
+     */
+    private Set<String> getFreeVariables(Expression expression)
+    {
+        Set<String> variables = freeVariables.get(expression);
+        if(variables != null)
+        {
+            return variables;
+        }
+        // the free variables of the subterms are computed bottom up
+        ExpressionTraversal.traverse(expression, new ExpressionTraversal.Visitor()
+        {
+            @Override
+            public boolean preVisit(Expression expression)
+            {
+                return !freeVariables.containsKey(expression);
+            }
+
+            @Override
+            public void postVisit(Expression expression)
+            {
+                if(!freeVariables.containsKey(expression))
+                {
+                    freeVariables.put(expression, computeFreeVariables(expression));
+                }
+            }
+        });
+        return freeVariables.get(expression);
+    }
+
+    /**
+     * @return the free variables of the expression, whose subterms have their free variables already
+     */
+    private Set<String> computeFreeVariables(Expression expression)
+    {
+        Set<String> variables = null;
+        if(expression instanceof ConstantExpression)
+        {
+            String name = ((ConstantExpression) expression).getVarName();
+            variables = globalNames.contains(name) ? Collections.emptySet() : Collections.singleton(name);
+        }
+        else if(expression instanceof QuantifiedExpression)
+        {
+            QuantifiedExpression quantifiedExpression = (QuantifiedExpression) expression;
+            variables = new HashSet<>(getFreeVariables(quantifiedExpression.getExpression()));
+            for (BoundVariableDeclaration variable : quantifiedExpression.getBoundVars())
+            {
+                variables.remove(variable.getName());
+            }
+        }
+        else if(expression instanceof LetExpression)
+        {
+            LetExpression letExpression = (LetExpression) expression;
+            variables = new HashSet<>(getFreeVariables(letExpression.getExpression()));
+            variables.removeAll(letExpression.getLetVars().keySet());
+            for (Expression value : letExpression.getLetVars().values())
+            {
+                variables.addAll(getFreeVariables(value));
+            }
+        }
+        else
+        {
+            for (Expression child : ExpressionTraversal.getChildren(expression))
+            {
+                Set<String> childVariables = getFreeVariables(child);
+                if(variables == null || variables.isEmpty())
+                {
+                    variables = childVariables;
+                }
+                else if(!childVariables.isEmpty() && !variables.containsAll(childVariables))
+                {
+                    variables = new HashSet<>(variables);
+                    variables.addAll(childVariables);
+                }
+            }
+            if(variables == null)
+            {
+                variables = Collections.emptySet();
+            }
+        }
+        if(variables.isEmpty())
+        {
+            variables = Collections.emptySet();
+        }
+        return variables;
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.optimizers;
+
+import edu.uiowa.alloy2smt.smtAst.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites boolean terms of an smt program into smaller equivalent terms.
+ * The simplifier absorbs true and false in and, or, implies, not and ite,
+ * flattens nested and and or terms into n-ary terms without duplicate
+ * operands, eliminates double negations, and drops assertions that are
+ * trivially true.
+ */
+public class Simplifier
+{
+    private static final BooleanConstant TRUE  = new BooleanConstant(true);
+    private static final BooleanConstant FALSE = new BooleanConstant(false);
+
+    // the number of nodes removed so far
+    private long removedNodes = 0;
+
+    /**
+     * Simplifies the definitions and assertions of the given program in place
+     * @param program an smt program
+     * @return the number of removed expression nodes
+     */
+    public long simplify(SmtProgram program)
+    {
+        long removedBefore = removedNodes;
+
+        List<FunctionDefinition> definitions = program.getFunctionDefinitions();
+        for (int i = 0; i < definitions.size(); i++)
+        {
+            FunctionDefinition definition = definitions.get(i);
+            Expression expression = simplifyAndCount(definition.getExpression());
+            if(expression != definition.getExpression())
+            {
+                definitions.set(i, new FunctionDefinition(definition.getFuncName(), definition.getInputSorts(),
+                        definition.getOutputSort(), expression));
+            }
+        }
+
+        List<Assertion> assertions = new ArrayList<>();
+        for (Assertion assertion : program.getAssertions())
+        {
+            Assertion simplified = simplify(assertion);
+            if(simplified != null)
+            {
+                assertions.add(simplified);
+            }
+        }
+        program.getAssertions().clear();
+        program.getAssertions().addAll(assertions);
+
+        return removedNodes - removedBefore;
+    }
+
+    /**
+     * @param assertion an smt assertion
+     * @return the simplified assertion, or null if the assertion is trivially true
+     */
+    public Assertion simplify(Assertion assertion)
+    {
+        Expression expression = simplifyAndCount(assertion.getExpression());
+        if(TRUE.equals(expression))
+        {
+            removedNodes++;
+            return null;
+        }
+        if(expression == assertion.getExpression())
+        {
+            return assertion;
+        }
+        return new Assertion(assertion.getName(), expression);
+    }
+
+    /**
+     * @return the number of expression nodes removed by this simplifier so far
+     */
+    public long getRemovedNodes()
+    {
+        return removedNodes;
+    }
+
+    private Expression simplifyAndCount(Expression expression)
+    {
+        Expression simplified = simplify(expression);
+        if(simplified != expression)
+        {
+            removedNodes += ExpressionTraversal.countNodes(expression) - ExpressionTraversal.countNodes(simplified);
+        }
+        return simplified;
+    }
+
+    /**
+     * @param expression an smt expression
+     * @return an equivalent expression that is not larger than the given one,
+     * or the expression itself if it can not be simplified
+     */
+    public Expression simplify(Expression expression)
+    {
+        return ExpressionTraversal.rewrite(expression, new ExpressionTraversal.Rewriter()
+        {
+            @Override
+            public Expression preRewrite(Expression expression)
+            {
+                return flattenJunction(expression);
+            }
+
+            @Override
+            public Expression postRewrite(Expression expression, Expression rebuilt)
+            {
+                return simplifyNode(rebuilt, rebuilt != expression);
+            }
+        });
+    }
+
+    /**
+     * Simplifies the given expression whose children are simplified already
+     * @param childrenChanged whether simplifying the children changed them
+     */
+    private static Expression simplifyNode(Expression expression, boolean childrenChanged)
+    {
+        if(isJunction(expression, BinaryExpression.Op.AND) || isJunction(expression, BinaryExpression.Op.OR))
+        {
+            return simplifyJunction(expression, childrenChanged);
+        }
+        if(expression instanceof UnaryExpression && ((UnaryExpression) expression).getOP() == UnaryExpression.Op.NOT)
+        {
+            Expression operand = ((UnaryExpression) expression).getExpression();
+            if(TRUE.equals(operand))
+            {
+                return FALSE;
+            }
+            if(FALSE.equals(operand))
+            {
+                return TRUE;
+            }
+            if(operand instanceof UnaryExpression && ((UnaryExpression) operand).getOP() == UnaryExpression.Op.NOT)
+            {
+                return ((UnaryExpression) operand).getExpression();
+            }
+        }
+        else if(expression instanceof BinaryExpression)
+        {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            Expression       left             = binaryExpression.getLhsExpr();
+            Expression       right            = binaryExpression.getRhsExpr();
+            if(binaryExpression.getOp() == BinaryExpression.Op.IMPLIES)
+            {
+                if(TRUE.equals(left))
+                {
+                    return right;
+                }
+                if(FALSE.equals(left) || TRUE.equals(right) || left.equals(right))
+                {
+                    return TRUE;
+                }
+                if(FALSE.equals(right))
+                {
+                    return simplifyNode(new UnaryExpression(UnaryExpression.Op.NOT, left), false);
+                }
+            }
+            else if(binaryExpression.getOp() == BinaryExpression.Op.EQ && left.equals(right))
+            {
+                return TRUE;
+            }
+        }
+        else if(expression instanceof ITEExpression)
+        {
+            ITEExpression iteExpression = (ITEExpression) expression;
+            if(TRUE.equals(iteExpression.getCondExpression()))
+            {
+                return iteExpression.getThenExpression();
+            }
+            if(FALSE.equals(iteExpression.getCondExpression()))
+            {
+                return iteExpression.getElseExpression();
+            }
+            if(iteExpression.getThenExpression().equals(iteExpression.getElseExpression()))
+            {
+                return iteExpression.getThenExpression();
+            }
+        }
+        else if(expression instanceof QuantifiedExpression)
+        {
+            QuantifiedExpression quantifiedExpression = (QuantifiedExpression) expression;
+            Expression           body                 = quantifiedExpression.getExpression();
+            if(quantifiedExpression.getOp() == QuantifiedExpression.Op.FORALL && TRUE.equals(body))
+            {
+                return TRUE;
+            }
+            if(quantifiedExpression.getOp() == QuantifiedExpression.Op.EXISTS && FALSE.equals(body))
+            {
+                return FALSE;
+            }
+        }
+        return expression;
+    }
+
+    /**
+     * Collects the operands of nested and or or terms with the same operator
+     * into one n-ary term before the operands are simplified. The operands are
+     * collected without recursion, so long chains of conjuncts do not deepen
+     * the stack.
+     * @return the flattened term, or the expression itself if nothing is nested
+     */
+    private static Expression flattenJunction(Expression expression)
+    {
+        BinaryExpression.Op op;
+        if(isJunction(expression, BinaryExpression.Op.AND))
+        {
+            op = BinaryExpression.Op.AND;
+        }
+        else if(isJunction(expression, BinaryExpression.Op.OR))
+        {
+            op = BinaryExpression.Op.OR;
+        }
+        else
+        {
+            return expression;
+        }
+
+        List<Expression>    operands    = new ArrayList<>();
+        boolean             nested      = false;
+        Deque<Expression>   stack       = new ArrayDeque<>();
+        pushOperands(expression, stack);
+        while (!stack.isEmpty())
+        {
+            Expression operand = stack.pop();
+            if(isJunction(operand, op))
+            {
+                pushOperands(operand, stack);
+                nested = true;
+            }
+            else
+            {
+                operands.add(operand);
+            }
+        }
+        if(!nested)
+        {
+            return expression;
+        }
+        return new MultiArityExpression(op == BinaryExpression.Op.AND ? MultiArityExpression.Op.AND : MultiArityExpression.Op.OR,
+                                        operands);
+    }
+
+    /**
+     * Simplifies an and or an or term whose operands are simplified already.
+     * A junction with changed operands becomes an n-ary term.
+     */
+    private static Expression simplifyJunction(Expression expression, boolean operandsChanged)
+    {
+        boolean             isAnd       = isJunction(expression, BinaryExpression.Op.AND);
+        BinaryExpression.Op op          = isAnd ? BinaryExpression.Op.AND : BinaryExpression.Op.OR;
+        // true absorbs or and is the identity of and
+        BooleanConstant     absorbing   = isAnd ? FALSE : TRUE;
+        BooleanConstant     identity    = isAnd ? TRUE : FALSE;
+
+        Set<Expression>     operands    = new LinkedHashSet<>();
+        boolean             changed     = operandsChanged;
+        for (Expression operand : getOperands(expression))
+        {
+            if(isJunction(operand, op))
+            {
+                // the operands of a simplified junction are already flat
+                for (Expression nested : getOperands(operand))
+                {
+                    operands.add(nested);
+                }
+                changed = true;
+            }
+            else if(absorbing.equals(operand))
+            {
+                return absorbing;
+            }
+            else if(identity.equals(operand))
+            {
+                changed = true;
+            }
+            else
+            {
+                changed |= !operands.add(operand);
+            }
+        }
+
+        if(!changed)
+        {
+            return expression;
+        }
+        if(operands.isEmpty())
+        {
+            return identity;
+        }
+        if(operands.size() == 1)
+        {
+            return operands.iterator().next();
+        }
+        return new MultiArityExpression(isAnd ? MultiArityExpression.Op.AND : MultiArityExpression.Op.OR,
+                                        new ArrayList<>(operands));
+    }
+
+    private static void pushOperands(Expression junction, Deque<Expression> stack)
+    {
+        List<Expression> operands = getOperands(junction);
+        for (int i = operands.size() - 1; i >= 0; i--)
+        {
+            stack.push(operands.get(i));
+        }
+    }
+
+    private static List<Expression> getOperands(Expression junction)
+    {
+        return ExpressionTraversal.getChildren(junction);
+    }
+
+    /**
+     * @return true if the expression is a binary or an n-ary term of the given boolean operator
+     */
+    private static boolean isJunction(Expression expression, BinaryExpression.Op op)
+    {
+        if(expression instanceof BinaryExpression)
+        {
+            return ((BinaryExpression) expression).getOp() == op;
+        }
+        if(expression instanceof MultiArityExpression)
+        {
+            MultiArityExpression.Op multiArityOp = ((MultiArityExpression) expression).getOp();
+            return (op == BinaryExpression.Op.AND && multiArityOp == MultiArityExpression.Op.AND) ||
+                   (op == BinaryExpression.Op.OR && multiArityOp == MultiArityExpression.Op.OR);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.optimizers;
+
+import edu.uiowa.alloy2smt.smtAst.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the sorts of smt expressions built by the translators
+ */
+public class SortInference
+{
+    private final Map<String, Sort>     functionSorts   = new HashMap<>();
+    // the inferred sorts of expressions, which are shared between calls
+    private final Map<Expression, Sort> sorts           = new IdentityHashMap<>();
+
+    public SortInference(SmtProgram program)
+    {
+        for (FunctionDeclaration declaration : program.getFunctionDeclarations())
+        {
+            functionSorts.put(declaration.getName(), declaration.getSort());
+        }
+        for (ConstantDeclaration declaration : program.getConstantDeclarations())
+        {
+            functionSorts.put(declaration.getName(), declaration.getSort());
+        }
+        for (FunctionDefinition definition : program.getFunctionDefinitions())
+        {
+            addFunction(definition);
+        }
+    }
+
+    /**
+     * Makes the output sort of the given definition available for
+     * function calls
+     * @param definition a function definition
+     */
+    public void addFunction(FunctionDefinition definition)
+    {
+        functionSorts.put(definition.getFuncName(), definition.getOutputSort());
+    }
+
+    /**
+     * @param expression an smt expression
+     * @return the sort of the expression or null if the sort can not be inferred
+     */
+    public Sort inferSort(Expression expression)
+    {
+        // the sorts of the subterms the sort depends on are inferred bottom up
+        Deque<Expression> stack = new ArrayDeque<>();
+        stack.push(expression);
+        while (!stack.isEmpty())
+        {
+            Expression top     = stack.peek();
+            if(sorts.containsKey(top))
+            {
+                stack.pop();
+                continue;
+            }
+            boolean    pending = false;
+            for (Expression operand : getSortOperands(top))
+            {
+                if(!sorts.containsKey(operand))
+                {
+                    stack.push(operand);
+                    pending = true;
+                }
+            }
+            if(!pending)
+            {
+                stack.pop();
+                sorts.put(top, inferSort(top, sorts));
+            }
+        }
+        return sorts.get(expression);
+    }
+
+    /**
+     * @return the subexpressions whose sorts determine the sort of the expression
+     */
+    private List<Expression> getSortOperands(Expression expression)
+    {
+        if(expression instanceof BinaryExpression)
+        {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            switch (binaryExpression.getOp())
+            {
+                case UNION:
+                case INTERSECTION:
+                case SETMINUS: return Collections.singletonList(binaryExpression.getLhsExpr());
+                case JOIN:
+                case PRODUCT: return ExpressionTraversal.getChildren(expression);
+                case TUPSEL: return Collections.singletonList(binaryExpression.getRhsExpr());
+                default: return Collections.emptyList();
+            }
+        }
+        if(expression instanceof UnaryExpression)
+        {
+            switch (((UnaryExpression) expression).getOP())
+            {
+                case COMPLEMENT:
+                case TCLOSURE:
+                case TRANSPOSE:
+                case SINGLETON: return Collections.singletonList(((UnaryExpression) expression).getExpression());
+                default: return Collections.emptyList();
+            }
+        }
+        if(expression instanceof MultiArityExpression)
+        {
+            List<Expression> operands = ((MultiArityExpression) expression).getExpressions();
+            switch (((MultiArityExpression) expression).getOp())
+            {
+                case MKTUPLE:
+                case PRODUCT: return operands;
+                case INSERT: return Collections.singletonList(operands.get(operands.size() - 1));
+                case UNION:
+                case INTERSECTION: return Collections.singletonList(operands.get(0));
+                default: return Collections.emptyList();
+            }
+        }
+        if(expression instanceof LetExpression)
+        {
+            return Collections.singletonList(((LetExpression) expression).getExpression());
+        }
+        if(expression instanceof ITEExpression)
+        {
+            return Collections.singletonList(((ITEExpression) expression).getThenExpression());
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @param sorts the sorts of the sort operands of the expression
+     */
+    private Sort inferSort(Expression expression, Map<Expression, Sort> inferred)
+    {
+        if(expression instanceof ConstantExpression)
+        {
+            return ((ConstantExpression) expression).getDeclaration().getSort();
+        }
+        if(expression instanceof BooleanConstant)
+        {
+            return new BoolSort();
+        }
+        if(expression instanceof IntConstant)
+        {
+            // integer constants are printed as singleton sets of integers
+            return new SetSort(new TupleSort(new IntSort()));
+        }
+        if(expression instanceof BinaryExpression)
+        {
+            return inferSort((BinaryExpression) expression, inferred);
+        }
+        if(expression instanceof UnaryExpression)
+        {
+            return inferSort((UnaryExpression) expression, inferred);
+        }
+        if(expression instanceof MultiArityExpression)
+        {
+            return inferSort((MultiArityExpression) expression, inferred);
+        }
+        if(expression instanceof QuantifiedExpression)
+        {
+            return new BoolSort();
+        }
+        if(expression instanceof LetExpression)
+        {
+            return inferred.get(((LetExpression) expression).getExpression());
+        }
+        if(expression instanceof ITEExpression)
+        {
+            return inferred.get(((ITEExpression) expression).getThenExpression());
+        }
+        if(expression instanceof FunctionCallExpression)
+        {
+            return functionSorts.get(((FunctionCallExpression) expression).getFunctionName());
+        }
+        return null;
+    }
+
+    private Sort inferSort(BinaryExpression expression, Map<Expression, Sort> inferred)
+    {
+        switch (expression.getOp())
+        {
+            case OR:
+            case AND:
+            case IMPLIES:
+            case EQ:
+            case NEQ:
+            case GTE:
+            case LTE:
+            case GT:
+            case LT:
+            case MEMBER:
+            case SUBSET: return new BoolSort();
+            case PLUS:
+            case MINUS:
+            case MULTIPLY:
+            case DIVIDE: return new IntSort();
+            case UNION:
+            case INTERSECTION:
+            case SETMINUS: return inferred.get(expression.getLhsExpr());
+            case JOIN:
+            {
+                List<Sort> lhsSorts = getElementSorts(inferred.get(expression.getLhsExpr()));
+                List<Sort> rhsSorts = getElementSorts(inferred.get(expression.getRhsExpr()));
+                if(lhsSorts.isEmpty() || rhsSorts.isEmpty() || lhsSorts.size() + rhsSorts.size() <= 2)
+                {
+                    return null;
+                }
+                List<Sort> sorts = new ArrayList<>(lhsSorts.subList(0, lhsSorts.size() - 1));
+                sorts.addAll(rhsSorts.subList(1, rhsSorts.size()));
+                return new SetSort(new TupleSort(sorts));
+            }
+            case PRODUCT:
+            {
+                List<Sort> lhsSorts = getElementSorts(inferred.get(expression.getLhsExpr()));
+                List<Sort> rhsSorts = getElementSorts(inferred.get(expression.getRhsExpr()));
+                if(lhsSorts.isEmpty() || rhsSorts.isEmpty())
+                {
+                    return null;
+                }
+                List<Sort> sorts = new ArrayList<>(lhsSorts);
+                sorts.addAll(rhsSorts);
+                return new SetSort(new TupleSort(sorts));
+            }
+            case TUPSEL:
+            {
+                Sort tupleSort = inferred.get(expression.getRhsExpr());
+                if(tupleSort instanceof TupleSort)
+                {
+                    int index = Integer.parseInt(((IntConstant) expression.getLhsExpr()).getValue());
+                    return ((TupleSort) tupleSort).elementSorts.get(index);
+                }
+                return null;
+            }
+            default: return null;
+        }
+    }
+
+    private Sort inferSort(UnaryExpression expression, Map<Expression, Sort> inferred)
+    {
+        switch (expression.getOP())
+        {
+            case NOT:
+            case DISTINCT: return new BoolSort();
+            case COMPLEMENT:
+            case TCLOSURE: return inferred.get(expression.getExpression());
+            case TRANSPOSE:
+            {
+                List<Sort> sorts = new ArrayList<>(getElementSorts(inferred.get(expression.getExpression())));
+                if(sorts.isEmpty())
+                {
+                    return null;
+                }
+                Collections.reverse(sorts);
+                return new SetSort(new TupleSort(sorts));
+            }
+            case SINGLETON:
+            {
+                Sort elementSort = inferred.get(expression.getExpression());
+                return elementSort == null ? null : new SetSort(elementSort);
+            }
+            case UNIVSET:
+            case EMPTYSET: return expression.getExpression() instanceof Sort ? (Sort) expression.getExpression() : null;
+            default: return null;
+        }
+    }
+
+    private Sort inferSort(MultiArityExpression expression, Map<Expression, Sort> inferred)
+    {
+        switch (expression.getOp())
+        {
+            case MKTUPLE:
+            {
+                List<Sort> sorts = new ArrayList<>();
+                for (Expression element : expression.getExpressions())
+                {
+                    Sort sort = inferred.get(element);
+                    if(sort == null)
+                    {
+                        return null;
+                    }
+                    sorts.add(sort);
+                }
+                return new TupleSort(sorts);
+            }
+            case INSERT: return inferred.get(expression.getExpressions().get(expression.getExpressions().size() - 1));
+            case DISTINCT:
+            case AND:
+            case OR: return new BoolSort();
+            case UNION:
+            case INTERSECTION: return inferred.get(expression.getExpressions().get(0));
+            case PRODUCT:
+            {
+                List<Sort> sorts = new ArrayList<>();
+                for (Expression operand : expression.getExpressions())
+                {
+                    List<Sort> operandSorts = getElementSorts(inferred.get(operand));
+                    if(operandSorts.isEmpty())
+                    {
+                        return null;
+                    }
+                    sorts.addAll(operandSorts);
+                }
+                return new SetSort(new TupleSort(sorts));
+            }
+            default: return null;
+        }
+    }
+
+    private List<Sort> getElementSorts(Sort sort)
+    {
+        if(sort instanceof SetSort && ((SetSort) sort).elementSort instanceof TupleSort)
+        {
+            return ((TupleSort) ((SetSort) sort).elementSort).elementSorts;
+        }
+        return Collections.emptyList();
+    }
+}
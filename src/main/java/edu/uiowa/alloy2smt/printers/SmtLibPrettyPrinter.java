@@ -10,28 +10,146 @@ package edu.uiowa.alloy2smt.printers;
 
 import edu.uiowa.alloy2smt.smtAst.*;
 
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class SmtLibPrettyPrinter implements SmtAstVisitor
 {
-    private StringBuilder stringBuilder = new StringBuilder();
+    /**
+     * The solver options at the start of every smt script. The solver
+     * drivers depend on produce-models and incremental.
+     */
+    public static final Map<String, String> DEFAULT_OPTIONS = defaultOptions();
 
+    private final Appendable            out;
+    private Map<String, String>         solverOptions = DEFAULT_OPTIONS;
+    private final ExpressionPrinter     expressionPrinter = new ExpressionPrinter();
+
+    private static Map<String, String> defaultOptions()
+    {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("produce-models", "true");
+        options.put("incremental", "true");
+//        options.put("fmf-bound", "true");
+        options.put("finite-model-find", "true");
+        options.put("sets-ext", "true");
+        return Collections.unmodifiableMap(options);
+    }
+
+    /**
+     * Creates a printer that accumulates the smt script in memory.
+     * The script is available through {@link SmtLibPrettyPrinter#getSmtLib()}
+     */
+    public SmtLibPrettyPrinter()
+    {
+        this(new StringBuilder());
+    }
+
+    /**
+     * Creates a printer that writes the smt script to the given output
+     * as it visits the ast, without keeping a copy in memory.
+     * @param out the destination of the smt script
+     */
+    public SmtLibPrettyPrinter(Appendable out)
+    {
+        this.out = out;
+    }
+
+    /**
+     * Creates a printer that writes the smt script to the given channel
+     * through a buffered utf-8 writer. {@link SmtLibPrettyPrinter#flush()}
+     * should be called when printing is done.
+     * @param channel the destination of the smt script
+     */
+    public SmtLibPrettyPrinter(WritableByteChannel channel)
+    {
+        this(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1)));
+    }
+
+    /**
+     * @return the smt script printed so far
+     * @throws UnsupportedOperationException if the printer writes to an
+     * external output instead of an in-memory buffer
+     */
     public String getSmtLib()
     {
-        return stringBuilder.toString();
+        if(out instanceof CharSequence)
+        {
+            return out.toString();
+        }
+        throw new UnsupportedOperationException("The smt script was written to " + out.getClass().getName());
+    }
+
+    /**
+     * Flushes the underlying output if it is buffered
+     */
+    public void flush()
+    {
+        if(out instanceof Flushable)
+        {
+            try
+            {
+                ((Flushable) out).flush();
+            }
+            catch (IOException exception)
+            {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+
+    private SmtLibPrettyPrinter append(Object value)
+    {
+        try
+        {
+            out.append(String.valueOf(value));
+        }
+        catch (IOException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+        return this;
     }
 
+    /**
+     * Sets the options printed at the start of the smt script
+     * @param solverOptions option names without the colon mapped to their values
+     */
+    public void setSolverOptions(Map<String, String> solverOptions)
+    {
+        this.solverOptions = solverOptions;
+    }
+
+    /**
+     * @param solverOptions option names without the colon mapped to their values
+     * @return the logic and the given options as printed at the start of an smt script
+     */
+    public static String header(Map<String, String> solverOptions)
+    {
+        SmtLibPrettyPrinter printer = new SmtLibPrettyPrinter();
+        printer.solverOptions = solverOptions;
+        printer.initializeProgram();
+        return printer.getSmtLib();
+    }
 
     private void initializeProgram()
     {
-        stringBuilder.append(
-                "(set-logic ALL)\n" +
-                "(set-option :produce-models true)\n" +
-                "(set-option :incremental true)\n" +
-//                "(set-option :fmf-bound true)\n" +
-                "(set-option :finite-model-find true)\n" +
-                "(set-option :sets-ext true)\n");
+        this.append("(set-logic ALL)\n");
+        for (Map.Entry<String, String> entry: solverOptions.entrySet())
+        {
+            this.visit(new SolverOption(entry.getKey(), entry.getValue()));
+        }
     }
 
     public void visit(SmtProgram program)
@@ -42,9 +160,9 @@ public class SmtLibPrettyPrinter implements SmtAstVisitor
         {
             if(sort instanceof UninterpretedSort)
             {
-                this.stringBuilder.append("(declare-sort ");
-                this.stringBuilder.append(((UninterpretedSort) sort).getName());
-                this.stringBuilder.append(" 0)\n");
+                this.append("(declare-sort ");
+                this.append(((UninterpretedSort) sort).getName());
+                this.append(" 0)\n");
             }
         }
         for (FunctionDeclaration declaration : program.getFunctionDeclarations())
@@ -71,41 +189,19 @@ public class SmtLibPrettyPrinter implements SmtAstVisitor
     @Override
     public void visit(BinaryExpression binaryExpression)
     {
-        if(binaryExpression.getOp() != BinaryExpression.Op.TUPSEL)
-        {
-            this.stringBuilder.append("(" + binaryExpression.getOp() + " ");
-            this.visit(binaryExpression.getLhsExpr());
-            this.stringBuilder.append(" ");
-            this.visit(binaryExpression.getRhsExpr());
-            this.stringBuilder.append(")");            
-        }
-        else
-        {
-            this.stringBuilder.append("((_ " + binaryExpression.getOp() + " ");
-            this.stringBuilder.append(((IntConstant)binaryExpression.getLhsExpr()).getValue());
-            this.stringBuilder.append(") ");
-            this.visit(binaryExpression.getRhsExpr());
-            this.stringBuilder.append(")");
-        }
+        this.visit((Expression) binaryExpression);
     }
 
     @Override
     public void visit(IntSort intSort)
     {
-        this.stringBuilder.append(intSort.getName());
+        this.append(intSort.getName());
     }
 
     @Override
     public void visit(QuantifiedExpression quantifiedExpression)
     {
-        this.stringBuilder.append("(" + quantifiedExpression.getOp() + " (");
-        for (BoundVariableDeclaration boundVariable: quantifiedExpression.getBoundVars())
-        {
-            this.visit(boundVariable);
-        }
-        this.stringBuilder.append(") ");
-        this.visit(quantifiedExpression.getExpression());
-        this.stringBuilder.append(")");
+        this.visit((Expression) quantifiedExpression);
     }
 
     @Override
@@ -116,9 +212,9 @@ public class SmtLibPrettyPrinter implements SmtAstVisitor
     @Override
     public void visit(SetSort setSort)
     {
-        this.stringBuilder.append("(Set ");
+        this.append("(Set ");
         this.visit(setSort.elementSort);
-        this.stringBuilder.append(")");
+        this.append(")");
     }
 
     @Override
@@ -129,52 +225,32 @@ public class SmtLibPrettyPrinter implements SmtAstVisitor
     @Override
     public void visit(TupleSort tupleSort)
     {
-        this.stringBuilder.append("(Tuple ");
+        this.append("(Tuple ");
         for(int i = 0; i < tupleSort.elementSorts.size()-1; ++i)
         {
             this.visit(tupleSort.elementSorts.get(i));
-            this.stringBuilder.append(" ");
+            this.append(" ");
         }
         this.visit(tupleSort.elementSorts.get(tupleSort.elementSorts.size()-1));
-        this.stringBuilder.append(")");
+        this.append(")");
     }
 
     @Override
     public void visit(UnaryExpression unaryExpression)
     {
-        this.stringBuilder.append("(" + unaryExpression.getOP() + " ");
-        if(unaryExpression.getExpression() != null)
-        {
-            this.visit(unaryExpression.getExpression());       
-        }
-        else if(unaryExpression.getExpressions() != null)
-        {
-            for(int i = 0; i < unaryExpression.getExpressions().size(); ++i)
-            {
-                this.visit(unaryExpression.getExpressions().get(i));
-                if(i < unaryExpression.getExpressions().size() - 1)
-                {
-                    this.stringBuilder.append(" ");
-                }
-            }
-        }
-        else
-        {
-            throw new RuntimeException("Something is wrong!");
-        }
-        this.stringBuilder.append(")");
+        this.visit((Expression) unaryExpression);
     }
 
     @Override
     public void visit(UninterpretedSort uninterpretedSort)
     {
-        this.stringBuilder.append(uninterpretedSort.getName());
+        this.append(uninterpretedSort.getName());
     }
 
     @Override
     public void visit(IntConstant intConstant)
     {
-        this.stringBuilder.append("(singleton (mkTuple ")
+        this.append("(singleton (mkTuple ")
         .append(intConstant.getValue())
         .append("))");
         
@@ -183,52 +259,52 @@ public class SmtLibPrettyPrinter implements SmtAstVisitor
     @Override
     public void visit(ConstantExpression constantExpression)
     {
-        this.stringBuilder.append(constantExpression.getVarName());
+        this.append(constantExpression.getVarName());
     }
 
     @Override
     public void visit(FunctionDeclaration functionDeclaration)
     {
-        this.stringBuilder.append("(declare-fun ");
-        this.stringBuilder.append(functionDeclaration.getName() + " (");
+        this.append("(declare-fun ");
+        this.append(functionDeclaration.getName() + " (");
 
         List<Sort> inputSorts  = functionDeclaration.getInputSorts();
         for(int i = 0 ; i < inputSorts.size(); i++)
         {
             this.visit(inputSorts.get(i));
         }
-        this.stringBuilder.append(") ");
+        this.append(") ");
         this.visit(functionDeclaration.getSort());
-        this.stringBuilder.append(")\n");
+        this.append(")\n");
     }
 
     @Override
     public void visit(FunctionDefinition funcDef) {
-        this.stringBuilder.append("(define-fun ").append(funcDef.getFuncName()).append(" (");
+        this.append("(define-fun ").append(funcDef.getFuncName()).append(" (");
         for(BoundVariableDeclaration bdVar : funcDef.inputVarDecls)
         {
             this.visit(bdVar);
         }
-        this.stringBuilder.append(") ");
+        this.append(") ");
         this.visit(funcDef.outputSort);
-        this.stringBuilder.append(" ").append("\n");
+        this.append(" ").append("\n");
         this.visit(funcDef.expression);
-        this.stringBuilder.append(")");
-        this.stringBuilder.append("\n");
+        this.append(")");
+        this.append("\n");
     }
 
     @Override
     public void visit(ConstantDeclaration constantDeclaration)
     {
-        this.stringBuilder.append("(declare-const ");
-        this.stringBuilder.append(constantDeclaration.getName() + " ");
+        this.append("(declare-const ");
+        this.append(constantDeclaration.getName() + " ");
         this.visit(constantDeclaration.getSort());
-        this.stringBuilder.append(")\n");
+        this.append(")\n");
     }
 
     @Override
     public void visit(BooleanConstant aThis) {
-        this.stringBuilder.append(aThis.getValue());
+        this.append(aThis.getValue());
     }
 
     @Override
@@ -238,117 +314,50 @@ public class SmtLibPrettyPrinter implements SmtAstVisitor
         if(! assertion.getName().isEmpty())
         {
             // print comment
-            this.stringBuilder.append("; " + assertion.getName() + "\n");
+            this.append("; " + assertion.getName() + "\n");
         }
-        this.stringBuilder.append("(assert ");
+        this.append("(assert ");
         this.visit(assertion.getExpression());
-        this.stringBuilder.append(")\n");
+        this.append(")\n");
     }
 
     @Override
     public void visit(MultiArityExpression multiArityExpression)
     {
-        this.stringBuilder.append("(" + multiArityExpression.getOp() + " ");
-        if(multiArityExpression.getExpressions().size() == 1)
-        {
-            this.visit(multiArityExpression.getExpressions().get(0));
-        }
-        else if(multiArityExpression.getExpressions().size() > 1)
-        {
-            for (int i = 0; i < multiArityExpression.getExpressions().size()-1; ++i)
-            {
-                this.visit(multiArityExpression.getExpressions().get(i));
-                this.stringBuilder.append(" ");
-            }
-            this.visit(multiArityExpression.getExpressions().get(multiArityExpression.getExpressions().size()-1));            
-        }
-        else
-        {
-            throw new RuntimeException("");
-        }
-        this.stringBuilder.append(")");
+        this.visit((Expression) multiArityExpression);
+    }
+
+    /**
+     * The set operators of the solver take two arguments
+     */
+    private static boolean isBinarySetOperator(MultiArityExpression.Op op)
+    {
+        return op == MultiArityExpression.Op.UNION ||
+               op == MultiArityExpression.Op.INTERSECTION ||
+               op == MultiArityExpression.Op.PRODUCT;
     }
 
     @Override
     public void visit(FunctionCallExpression functionCallExpression)
     {
-        if(functionCallExpression.getArguments().size() > 0)
-        {
-            this.stringBuilder.append("(");
-            this.stringBuilder.append(functionCallExpression.getFunctionName());            
-            this.stringBuilder.append(" ");
-            for(int i = 0; i < functionCallExpression.getArguments().size()-1; ++i)
-            {
-                this.visit(functionCallExpression.getArguments().get(i));
-                this.stringBuilder.append(" ");
-            }
-            this.visit(functionCallExpression.getArguments().get(functionCallExpression.getArguments().size()-1));            
-            this.stringBuilder.append(")");
-        }
-        else
-        {
-            this.stringBuilder.append(functionCallExpression.getFunctionName());
-        }     
+        this.visit((Expression) functionCallExpression);
     }
 
     @Override
     public void visit(BoundVariableDeclaration boundVariable)
     {
-        this.stringBuilder.append("(" + boundVariable.getName() + " ");
+        this.append("(" + boundVariable.getName() + " ");
         this.visit(boundVariable.getSort());
-        this.stringBuilder.append(")");
+        this.append(")");
     }
 
+    /**
+     * Prints the expression with an explicit stack, so deep expressions do
+     * not overflow the thread stack
+     */
     private void visit(Expression expression)
     {
-        if (expression instanceof ConstantExpression)
-        {
-            this.visit((ConstantExpression) expression);
-        }
-        else if (expression instanceof  UnaryExpression)
-        {
-            this.visit((UnaryExpression) expression);
-        }
-        else if (expression instanceof  BinaryExpression)
-        {
-            this.visit((BinaryExpression) expression);
-        }
-        else if (expression instanceof  MultiArityExpression)
-        {
-            this.visit((MultiArityExpression) expression);
-        }
-        else if (expression instanceof  QuantifiedExpression)
-        {
-            this.visit((QuantifiedExpression) expression);
-        }
-        else if (expression instanceof  Sort)
-        {
-            this.visit((Sort) expression);
-        }
-        else if (expression instanceof  IntConstant)
-        {
-            this.visit((IntConstant) expression);
-        }
-        else if (expression instanceof  FunctionCallExpression)
-        {
-            this.visit((FunctionCallExpression) expression);
-        }      
-        else if (expression instanceof  BooleanConstant)
-        {
-            this.visit((BooleanConstant) expression);
-        }
-        else if (expression instanceof  LetExpression)
-        {
-            this.visit((LetExpression) expression);
-        }  
-        else if (expression instanceof  ITEExpression)
-        {
-            this.visit((ITEExpression) expression);
-        }          
-        else
-        {   
-            throw new UnsupportedOperationException();
-        }
+        ExpressionTraversal.traverse(expression, expressionPrinter);
     }
 
     public void visit(Sort sort)
@@ -393,48 +402,201 @@ public class SmtLibPrettyPrinter implements SmtAstVisitor
 
     @Override
     public void visit(BoolSort aThis) {
-        this.stringBuilder.append(aThis.getName());
+        this.append(aThis.getName());
     }
 
     @Override
-    public void visit(LetExpression aThis) {
-        this.stringBuilder.append("(" + aThis.getOp() + " (");
-        for(Map.Entry<String, Expression> letVar : aThis.getLetVars().entrySet())
-        {
-            this.stringBuilder.append("(");
-            this.stringBuilder.append(letVar.getKey()).append(" ");
-            this.visit(letVar.getValue());
-            this.stringBuilder.append(")");
-        }
-        this.stringBuilder.append(") ");
-        this.visit(aThis.getExpression());
-        this.stringBuilder.append(")");        
+    public void visit(LetExpression letExpression)
+    {
+        this.visit((Expression) letExpression);
     }
 
     @Override
-    public void visit(ITEExpression aThis) 
-    {
-        this.stringBuilder.append("(" + aThis.getOp() + " ");
-        this.visit(aThis.getCondExpression());
-        this.stringBuilder.append(" ");
-        this.visit(aThis.getThenExpression());
-        this.stringBuilder.append(" ");
-        this.visit(aThis.getElseExpression());
-        this.stringBuilder.append(")");
-        
+    public void visit(ITEExpression iteExpression)
+    {
+        this.visit((Expression) iteExpression);
     }
 
     @Override
     public void visit(AtomConstant atomConstant)
     {
-        this.stringBuilder.append(atomConstant.getName());
+        this.append(atomConstant.getName());
     }
 
     @Override
     public void visit(SolverOption solverOption)
     {
-        this.stringBuilder.append("(set-option ");
-        this.stringBuilder.append(":" + solverOption.name + " ");
-        this.stringBuilder.append(solverOption.value + ")\n");
+        this.append("(set-option ");
+        this.append(":" + solverOption.name + " ");
+        this.append(solverOption.value + ")\n");
+    }
+
+    /**
+     * Prints the opening of every term before its children, the separators
+     * between the children and the closing after them
+     */
+    private class ExpressionPrinter implements ExpressionTraversal.Visitor
+    {
+        @Override
+        public boolean preVisit(Expression expression)
+        {
+            if (expression instanceof ConstantExpression)
+            {
+                SmtLibPrettyPrinter.this.visit((ConstantExpression) expression);
+                return false;
+            }
+            if (expression instanceof Sort)
+            {
+                SmtLibPrettyPrinter.this.visit((Sort) expression);
+                return false;
+            }
+            if (expression instanceof IntConstant)
+            {
+                SmtLibPrettyPrinter.this.visit((IntConstant) expression);
+                return false;
+            }
+            if (expression instanceof BooleanConstant)
+            {
+                SmtLibPrettyPrinter.this.visit((BooleanConstant) expression);
+                return false;
+            }
+            if (expression instanceof UnaryExpression)
+            {
+                UnaryExpression unaryExpression = (UnaryExpression) expression;
+                if(unaryExpression.getExpression() == null && unaryExpression.getExpressions() == null)
+                {
+                    throw new RuntimeException("Something is wrong!");
+                }
+                append("(" + unaryExpression.getOP() + " ");
+                return true;
+            }
+            if (expression instanceof BinaryExpression)
+            {
+                BinaryExpression binaryExpression = (BinaryExpression) expression;
+                if(binaryExpression.getOp() != BinaryExpression.Op.TUPSEL)
+                {
+                    append("(" + binaryExpression.getOp() + " ");
+                }
+                else
+                {
+                    // the index of a tuple selection is a numeral and not an int constant
+                    append("((_ " + binaryExpression.getOp() + " ");
+                    append(((IntConstant)binaryExpression.getLhsExpr()).getValue());
+                    append(") ");
+                }
+                return true;
+            }
+            if (expression instanceof MultiArityExpression)
+            {
+                MultiArityExpression multiArityExpression = (MultiArityExpression) expression;
+                if(multiArityExpression.getExpressions().isEmpty())
+                {
+                    throw new RuntimeException("");
+                }
+                if(isBinarySetOperator(multiArityExpression.getOp()))
+                {
+                    // a left-nested chain of binary applications, e.g. (union (union a b) c)
+                    for (int i = 1; i < multiArityExpression.getExpressions().size(); i++)
+                    {
+                        append("(" + multiArityExpression.getOp() + " ");
+                    }
+                }
+                else
+                {
+                    append("(" + multiArityExpression.getOp() + " ");
+                }
+                return true;
+            }
+            if (expression instanceof QuantifiedExpression)
+            {
+                QuantifiedExpression quantifiedExpression = (QuantifiedExpression) expression;
+                append("(" + quantifiedExpression.getOp() + " (");
+                for (BoundVariableDeclaration boundVariable: quantifiedExpression.getBoundVars())
+                {
+                    SmtLibPrettyPrinter.this.visit(boundVariable);
+                }
+                append(") ");
+                return true;
+            }
+            if (expression instanceof FunctionCallExpression)
+            {
+                FunctionCallExpression functionCallExpression = (FunctionCallExpression) expression;
+                if(functionCallExpression.getArguments().size() > 0)
+                {
+                    append("(" + functionCallExpression.getFunctionName() + " ");
+                }
+                else
+                {
+                    append(functionCallExpression.getFunctionName());
+                }
+                return true;
+            }
+            if (expression instanceof LetExpression)
+            {
+                LetExpression letExpression = (LetExpression) expression;
+                append("(" + letExpression.getOp() + " (");
+                Iterator<String> names = letExpression.getLetVars().keySet().iterator();
+                append(names.hasNext() ? "(" + names.next() + " " : ") ");
+                return true;
+            }
+            if (expression instanceof ITEExpression)
+            {
+                append("(" + ((ITEExpression) expression).getOp() + " ");
+                return true;
+            }
+            throw new UnsupportedOperationException("Can not print " + expression.getClass().getName());
+        }
+
+        @Override
+        public void inVisit(Expression expression, int index)
+        {
+            if(expression instanceof MultiArityExpression &&
+               isBinarySetOperator(((MultiArityExpression) expression).getOp()) && index > 1)
+            {
+                append(")");
+            }
+            if(expression instanceof LetExpression)
+            {
+                LetExpression letExpression = (LetExpression) expression;
+                List<String>  names         = new ArrayList<>(letExpression.getLetVars().keySet());
+                append(")");
+                append(index < names.size() ? "(" + names.get(index) + " " : ") ");
+                return;
+            }
+            append(" ");
+        }
+
+        @Override
+        public void postVisit(Expression expression)
+        {
+            if(expression instanceof ConstantExpression || expression instanceof Sort ||
+               expression instanceof IntConstant || expression instanceof BooleanConstant)
+            {
+                return;
+            }
+            if(expression instanceof FunctionCallExpression &&
+               ((FunctionCallExpression) expression).getArguments().isEmpty())
+            {
+                return;
+            }
+            if(expression instanceof MultiArityExpression &&
+               isBinarySetOperator(((MultiArityExpression) expression).getOp()) &&
+               ((MultiArityExpression) expression).getExpressions().size() == 1)
+            {
+                return;
+            }
+            append(")");
+        }
+
+        @Override
+        public List<Expression> getChildren(Expression expression)
+        {
+            if(expression instanceof BinaryExpression &&
+               ((BinaryExpression) expression).getOp() == BinaryExpression.Op.TUPSEL)
+            {
+                return Collections.singletonList(((BinaryExpression) expression).getRhsExpr());
+            }
+            return ExpressionTraversal.getChildren(expression);
+        }
     }
 }
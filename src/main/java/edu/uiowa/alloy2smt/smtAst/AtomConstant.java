@@ -17,6 +17,27 @@ public class AtomConstant extends Expression
         return name;
     }
 
+    @Override
+    public boolean equals(Object object)
+    {
+        if(this == object)
+        {
+            return true;
+        }
+        if(object == null || getClass() != object.getClass())
+        {
+            return false;
+        }
+        AtomConstant atomConstant = (AtomConstant) object;
+        return this.name.equals(atomConstant.name);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.name.hashCode();
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor)
     {
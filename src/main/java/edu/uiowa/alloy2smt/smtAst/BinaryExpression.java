@@ -15,12 +15,15 @@ public class BinaryExpression extends Expression
     private final Op            op;
     private final Expression    lhsExpr;
     private final Expression    rhsExpr;
+
+    private final int           hash;
     
     public BinaryExpression(Expression lhsExpr, Op op, Expression rhsExpr) 
     {
         this.op         = op;
         this.lhsExpr    = lhsExpr;
         this.rhsExpr    = rhsExpr;
+        this.hash       = 31 * (31 * op.ordinal() + lhsExpr.hashCode()) + rhsExpr.hashCode();
     }
     
     public Expression getLhsExpr() 
@@ -38,6 +41,18 @@ public class BinaryExpression extends Expression
         return this.op;
     }
 
+    @Override
+    public boolean equals(Object object)
+    {
+        return object instanceof Expression && ExpressionTraversal.equals(this, (Expression) object);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.hash;
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor) {
         visitor.visit(this);
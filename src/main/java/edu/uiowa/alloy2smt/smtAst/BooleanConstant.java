@@ -24,6 +24,27 @@ public class BooleanConstant extends Expression
         return String.valueOf(this.value);
     }   
 
+    @Override
+    public boolean equals(Object object)
+    {
+        if(this == object)
+        {
+            return true;
+        }
+        if(object == null || getClass() != object.getClass())
+        {
+            return false;
+        }
+        BooleanConstant booleanConstant = (BooleanConstant) object;
+        return this.value == booleanConstant.value;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Boolean.hashCode(this.value);
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor)
     {
@@ -9,6 +9,7 @@
 package edu.uiowa.alloy2smt.smtAst;
 
 import edu.uiowa.alloy2smt.printers.SmtAstVisitor;
+import java.util.Objects;
 
 public class ConstantExpression extends Expression
 {
@@ -29,6 +30,28 @@ public class ConstantExpression extends Expression
         return this.declaration;
     }
 
+    @Override
+    public boolean equals(Object object)
+    {
+        if(this == object)
+        {
+            return true;
+        }
+        if(object == null || getClass() != object.getClass())
+        {
+            return false;
+        }
+        ConstantExpression constantExpression = (ConstantExpression) object;
+        return this.declaration.getName().equals(constantExpression.getVarName()) &&
+               Objects.equals(this.declaration.getSort(), constantExpression.declaration.getSort());
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * this.declaration.getName().hashCode() + Objects.hashCode(this.declaration.getSort());
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor) {
         visitor.visit(this);
@@ -0,0 +1,435 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.smtAst;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Walks smt expressions with an explicit stack instead of recursion, so the
+ * depth of an expression costs heap memory and not thread stack.
+ */
+public class ExpressionTraversal
+{
+    /**
+     * The callbacks of a traversal. For every expression preVisit is called
+     * first, then the children are traversed with inVisit between each two of
+     * them, and postVisit is called last.
+     */
+    public interface Visitor
+    {
+        /**
+         * @return false if the children of the expression should be skipped
+         */
+        default boolean preVisit(Expression expression)
+        {
+            return true;
+        }
+
+        /**
+         * Called before the child with the given index is traversed, for every index except 0
+         */
+        default void inVisit(Expression expression, int index)
+        {
+        }
+
+        default void postVisit(Expression expression)
+        {
+        }
+
+        /**
+         * @return the children to traverse, which are all direct subexpressions by default
+         */
+        default List<Expression> getChildren(Expression expression)
+        {
+            return ExpressionTraversal.getChildren(expression);
+        }
+    }
+
+    /**
+     * The callbacks of a rewrite. For every expression preRewrite is called
+     * first, then the children of its result are rewritten unless
+     * rewriteChildren is false, and postRewrite is called last.
+     */
+    public interface Rewriter
+    {
+        /**
+         * @return the expression that is rewritten in place of the given one,
+         * which is the given expression by default
+         */
+        default Expression preRewrite(Expression expression)
+        {
+            return expression;
+        }
+
+        /**
+         * @param expression the result of preRewrite
+         * @return false if the children of the expression are kept as they are
+         */
+        default boolean rewriteChildren(Expression expression)
+        {
+            return true;
+        }
+
+        /**
+         * @param expression the result of preRewrite
+         * @param rebuilt the expression with its rewritten children, or the
+         *                expression itself if no child changed
+         * @return the rewritten expression
+         */
+        Expression postRewrite(Expression expression, Expression rebuilt);
+    }
+
+    // an expression on the stack with its children and the index of the next child
+    private static class Frame
+    {
+        final Expression        expression;
+        final List<Expression>  children;
+        final List<Expression>  newChildren;
+        int                     index = 0;
+
+        Frame(Expression expression, List<Expression> children, boolean rewrite)
+        {
+            this.expression     = expression;
+            this.children       = children;
+            this.newChildren    = rewrite ? new ArrayList<>(children.size()) : null;
+        }
+    }
+
+    /**
+     * Traverses the expression in pre- and post-order
+     * @param expression the root of the traversal
+     * @param visitor the callbacks of the traversal
+     */
+    public static void traverse(Expression expression, Visitor visitor)
+    {
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(enter(expression, visitor));
+        while (!stack.isEmpty())
+        {
+            Frame frame = stack.peek();
+            if(frame.index < frame.children.size())
+            {
+                if(frame.index > 0)
+                {
+                    visitor.inVisit(frame.expression, frame.index);
+                }
+                stack.push(enter(frame.children.get(frame.index++), visitor));
+            }
+            else
+            {
+                stack.pop();
+                visitor.postVisit(frame.expression);
+            }
+        }
+    }
+
+    private static Frame enter(Expression expression, Visitor visitor)
+    {
+        List<Expression> children = visitor.preVisit(expression) ?
+                visitor.getChildren(expression) : Collections.emptyList();
+        return new Frame(expression, children, false);
+    }
+
+    /**
+     * Rewrites the expression bottom up. The children of every expression are
+     * rewritten first, and the function is applied to the expression rebuilt
+     * from the new children.
+     * @param expression the root of the rewrite
+     * @param function the rewrite of one expression, which returns its argument if nothing changes
+     * @return the rewritten expression, or the expression itself if nothing changes
+     */
+    public static Expression rewrite(Expression expression, Function<Expression, Expression> function)
+    {
+        return rewrite(expression, (original, rebuilt) -> function.apply(rebuilt));
+    }
+
+    /**
+     * Rewrites the expression with the callbacks of the given rewriter
+     * @param expression the root of the rewrite
+     * @param rewriter the callbacks of the rewrite
+     * @return the rewritten expression
+     */
+    public static Expression rewrite(Expression expression, Rewriter rewriter)
+    {
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(enter(expression, rewriter));
+        while (true)
+        {
+            Frame frame = stack.peek();
+            if(frame.index < frame.children.size())
+            {
+                stack.push(enter(frame.children.get(frame.index++), rewriter));
+                continue;
+            }
+            stack.pop();
+            Expression rebuilt = frame.children.isEmpty() ? frame.expression : rebuild(frame.expression, frame.newChildren);
+            Expression result  = rewriter.postRewrite(frame.expression, rebuilt);
+            if(stack.isEmpty())
+            {
+                return result;
+            }
+            stack.peek().newChildren.add(result);
+        }
+    }
+
+    private static Frame enter(Expression expression, Rewriter rewriter)
+    {
+        Expression       replaced = rewriter.preRewrite(expression);
+        List<Expression> children = rewriter.rewriteChildren(replaced) ?
+                getChildren(replaced) : Collections.emptyList();
+        return new Frame(replaced, children, true);
+    }
+
+    /**
+     * @param expression an smt expression
+     * @return the direct subexpressions of the given expression
+     */
+    public static List<Expression> getChildren(Expression expression)
+    {
+        if(expression instanceof BinaryExpression)
+        {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            return Arrays.asList(binaryExpression.getLhsExpr(), binaryExpression.getRhsExpr());
+        }
+        if(expression instanceof UnaryExpression)
+        {
+            UnaryExpression unaryExpression = (UnaryExpression) expression;
+            return unaryExpression.getExpression() != null ?
+                    Collections.singletonList(unaryExpression.getExpression()) : unaryExpression.getExpressions();
+        }
+        if(expression instanceof MultiArityExpression)
+        {
+            return ((MultiArityExpression) expression).getExpressions();
+        }
+        if(expression instanceof FunctionCallExpression)
+        {
+            return ((FunctionCallExpression) expression).getArguments();
+        }
+        if(expression instanceof ITEExpression)
+        {
+            ITEExpression iteExpression = (ITEExpression) expression;
+            return Arrays.asList(iteExpression.getCondExpression(), iteExpression.getThenExpression(),
+                    iteExpression.getElseExpression());
+        }
+        if(expression instanceof QuantifiedExpression)
+        {
+            return Collections.singletonList(((QuantifiedExpression) expression).getExpression());
+        }
+        if(expression instanceof LetExpression)
+        {
+            List<Expression> children = new ArrayList<>(((LetExpression) expression).getLetVars().values());
+            children.add(((LetExpression) expression).getExpression());
+            return children;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return a copy of the expression with the given children, or the
+     * expression itself if every new child is the same as the old one
+     */
+    public static Expression rebuild(Expression expression, List<Expression> newChildren)
+    {
+        List<Expression> children = getChildren(expression);
+        boolean          changed  = false;
+        for (int i = 0; i < children.size(); i++)
+        {
+            changed |= newChildren.get(i) != children.get(i);
+        }
+        if(!changed)
+        {
+            return expression;
+        }
+        if(expression instanceof BinaryExpression)
+        {
+            return new BinaryExpression(newChildren.get(0), ((BinaryExpression) expression).getOp(), newChildren.get(1));
+        }
+        if(expression instanceof UnaryExpression)
+        {
+            UnaryExpression unaryExpression = (UnaryExpression) expression;
+            return unaryExpression.getExpression() != null ?
+                    new UnaryExpression(unaryExpression.getOP(), newChildren.get(0)) :
+                    new UnaryExpression(unaryExpression.getOP(), newChildren);
+        }
+        if(expression instanceof MultiArityExpression)
+        {
+            return new MultiArityExpression(((MultiArityExpression) expression).getOp(), newChildren);
+        }
+        if(expression instanceof FunctionCallExpression)
+        {
+            return new FunctionCallExpression(((FunctionCallExpression) expression).getFunctionName(), newChildren);
+        }
+        if(expression instanceof ITEExpression)
+        {
+            return new ITEExpression(newChildren.get(0), newChildren.get(1), newChildren.get(2));
+        }
+        if(expression instanceof QuantifiedExpression)
+        {
+            QuantifiedExpression quantifiedExpression = (QuantifiedExpression) expression;
+            return new QuantifiedExpression(quantifiedExpression.getOp(), quantifiedExpression.getBoundVars(), newChildren.get(0));
+        }
+        if(expression instanceof LetExpression)
+        {
+            LetExpression           letExpression   = (LetExpression) expression;
+            Map<String, Expression> letVars         = new LinkedHashMap<>();
+            int                     index           = 0;
+            for (String name : letExpression.getLetVars().keySet())
+            {
+                letVars.put(name, newChildren.get(index++));
+            }
+            return new LetExpression(letExpression.getOp(), letVars, newChildren.get(index));
+        }
+        throw new UnsupportedOperationException("Can not rebuild " + expression.getClass().getName());
+    }
+
+    /**
+     * Compares two expressions structurally with an explicit stack of pairs,
+     * which relies on the hash codes the expressions compute in their
+     * constructors to reject most unequal pairs at once.
+     * @return true if the expressions are equal
+     */
+    public static boolean equals(Expression expression1, Expression expression2)
+    {
+        Deque<Expression> stack = new ArrayDeque<>();
+        stack.push(expression1);
+        stack.push(expression2);
+        while (!stack.isEmpty())
+        {
+            Expression right = stack.pop();
+            Expression left  = stack.pop();
+            if(left == right)
+            {
+                continue;
+            }
+            if(left.getClass() != right.getClass() || left.hashCode() != right.hashCode())
+            {
+                return false;
+            }
+            if(left instanceof LetExpression)
+            {
+                // let variables are paired by name
+                Map<String, Expression> leftVars  = ((LetExpression) left).getLetVars();
+                Map<String, Expression> rightVars = ((LetExpression) right).getLetVars();
+                if(((LetExpression) left).getOp() != ((LetExpression) right).getOp() ||
+                   !leftVars.keySet().equals(rightVars.keySet()))
+                {
+                    return false;
+                }
+                for (Map.Entry<String, Expression> entry : leftVars.entrySet())
+                {
+                    stack.push(entry.getValue());
+                    stack.push(rightVars.get(entry.getKey()));
+                }
+                stack.push(((LetExpression) left).getExpression());
+                stack.push(((LetExpression) right).getExpression());
+                continue;
+            }
+            if(isLeaf(left))
+            {
+                if(!left.equals(right))
+                {
+                    return false;
+                }
+                continue;
+            }
+            List<Expression> leftChildren  = getChildren(left);
+            List<Expression> rightChildren = getChildren(right);
+            if(leftChildren.size() != rightChildren.size() || !haveEqualOperators(left, right))
+            {
+                return false;
+            }
+            for (int i = 0; i < leftChildren.size(); i++)
+            {
+                stack.push(leftChildren.get(i));
+                stack.push(rightChildren.get(i));
+            }
+        }
+        return true;
+    }
+
+    // leaves have no subexpressions and compare themselves
+    private static boolean isLeaf(Expression expression)
+    {
+        return !(expression instanceof BinaryExpression || expression instanceof UnaryExpression ||
+                 expression instanceof MultiArityExpression || expression instanceof FunctionCallExpression ||
+                 expression instanceof ITEExpression || expression instanceof QuantifiedExpression ||
+                 expression instanceof LetExpression);
+    }
+
+    // compares everything of two expressions of the same class except their children
+    private static boolean haveEqualOperators(Expression left, Expression right)
+    {
+        if(left instanceof BinaryExpression)
+        {
+            return ((BinaryExpression) left).getOp() == ((BinaryExpression) right).getOp();
+        }
+        if(left instanceof UnaryExpression)
+        {
+            UnaryExpression leftUnary  = (UnaryExpression) left;
+            UnaryExpression rightUnary = (UnaryExpression) right;
+            return leftUnary.getOP() == rightUnary.getOP() &&
+                   (leftUnary.getExpression() == null) == (rightUnary.getExpression() == null);
+        }
+        if(left instanceof MultiArityExpression)
+        {
+            return ((MultiArityExpression) left).getOp() == ((MultiArityExpression) right).getOp();
+        }
+        if(left instanceof FunctionCallExpression)
+        {
+            return ((FunctionCallExpression) left).getFunctionName().equals(((FunctionCallExpression) right).getFunctionName());
+        }
+        if(left instanceof QuantifiedExpression)
+        {
+            // bound variables are compared by name and sort
+            List<BoundVariableDeclaration> leftVars  = ((QuantifiedExpression) left).getBoundVars();
+            List<BoundVariableDeclaration> rightVars = ((QuantifiedExpression) right).getBoundVars();
+            if(((QuantifiedExpression) left).getOp() != ((QuantifiedExpression) right).getOp() ||
+               leftVars.size() != rightVars.size())
+            {
+                return false;
+            }
+            for (int i = 0; i < leftVars.size(); i++)
+            {
+                if(!leftVars.get(i).getConstantExpr().equals(rightVars.get(i).getConstantExpr()))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return left instanceof ITEExpression;
+    }
+
+    /**
+     * @return the number of nodes of the expression tree
+     */
+    public static long countNodes(Expression expression)
+    {
+        long              nodes = 0;
+        Deque<Expression> stack = new ArrayDeque<>();
+        stack.push(expression);
+        while (!stack.isEmpty())
+        {
+            nodes++;
+            for (Expression child : getChildren(stack.pop()))
+            {
+                stack.push(child);
+            }
+        }
+        return nodes;
+    }
+}
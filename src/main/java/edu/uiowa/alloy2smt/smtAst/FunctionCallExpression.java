@@ -10,7 +10,9 @@ package edu.uiowa.alloy2smt.smtAst;
 
 import edu.uiowa.alloy2smt.printers.SmtAstVisitor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class FunctionCallExpression extends Expression
@@ -18,16 +20,19 @@ public class FunctionCallExpression extends Expression
     private final String            functionName;
     private final List<Expression>  arguments;
 
+    private final int           hash;
+
     public FunctionCallExpression(String functionName, Expression ... arguments)
     {
-        this.functionName   = functionName;
-        this.arguments      = Arrays.asList(arguments);
+        this(functionName, Arrays.asList(arguments));
     }
     
     public FunctionCallExpression(String functionName, List<Expression> arguments)
     {
         this.functionName   = functionName;
-        this.arguments      = arguments;
+        // a copy, since the hash code depends on the arguments
+        this.arguments      = Collections.unmodifiableList(new ArrayList<>(arguments));
+        this.hash           = 31 * functionName.hashCode() + this.arguments.hashCode();
     }    
 
     public String getFunctionName()
@@ -40,6 +45,18 @@ public class FunctionCallExpression extends Expression
         return this.arguments;
     }
 
+    @Override
+    public boolean equals(Object object)
+    {
+        return object instanceof Expression && ExpressionTraversal.equals(this, (Expression) object);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.hash;
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor)
     {
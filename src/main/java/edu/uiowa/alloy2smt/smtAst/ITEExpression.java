@@ -17,12 +17,15 @@ public class ITEExpression extends Expression
     private final Expression                  thenExpr;
     private final Expression                  elseExpr;
     private final Op                          op = Op.ITE;
+
+    private final int           hash;
     
     public ITEExpression(Expression condExpr, Expression thenExpr, Expression elseExpr)
     {        
         this.condExpr = condExpr;
         this.thenExpr = thenExpr;
         this.elseExpr = elseExpr;
+        this.hash     = 31 * (31 * condExpr.hashCode() + thenExpr.hashCode()) + elseExpr.hashCode();
     }
 
     
@@ -46,6 +49,18 @@ public class ITEExpression extends Expression
         return this.op;
     }
 
+    @Override
+    public boolean equals(Object object)
+    {
+        return object instanceof Expression && ExpressionTraversal.equals(this, (Expression) object);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.hash;
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor) {
         visitor.visit(this);
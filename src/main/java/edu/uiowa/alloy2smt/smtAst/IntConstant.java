@@ -35,6 +35,27 @@ public class IntConstant extends Expression
         return this.value.toString();
     }
     
+    @Override
+    public boolean equals(Object object)
+    {
+        if(this == object)
+        {
+            return true;
+        }
+        if(object == null || getClass() != object.getClass())
+        {
+            return false;
+        }
+        IntConstant intConstant = (IntConstant) object;
+        return this.value.equals(intConstant.value);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.value.hashCode();
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor) {
         visitor.visit(this);
@@ -18,6 +18,8 @@ public class LetExpression extends Expression
     private final Expression                  expr;
     private final Map<String, Expression>     letVars;
     private final Op                          op;
+
+    private final int           hash;
     
     public LetExpression(Op op, Map<String, Expression> letVars, Expression expr)
     {
@@ -28,6 +30,7 @@ public class LetExpression extends Expression
         {
             this.letVars.put(var.getKey(), var.getValue());
         }
+        this.hash       = 31 * this.letVars.hashCode() + expr.hashCode();
     }
 
     
@@ -46,6 +49,18 @@ public class LetExpression extends Expression
         return this.op;
     }
 
+    @Override
+    public boolean equals(Object object)
+    {
+        return object instanceof Expression && ExpressionTraversal.equals(this, (Expression) object);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.hash;
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor) {
         visitor.visit(this);
@@ -10,24 +10,29 @@ package edu.uiowa.alloy2smt.smtAst;
 
 import edu.uiowa.alloy2smt.printers.SmtAstVisitor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class MultiArityExpression extends Expression
 {
     private final Op op;
     private final List<Expression> exprs;
+
+    private final int           hash;
     
     public MultiArityExpression(Op op, List<Expression> exprs)
     {
         this.op     = op;
-        this.exprs  = exprs;
+        // a copy, since the hash code depends on the operands
+        this.exprs  = Collections.unmodifiableList(new ArrayList<>(exprs));
+        this.hash   = 31 * op.ordinal() + this.exprs.hashCode();
     }
     
     public MultiArityExpression(Op op, Expression ... exprs)
     {
-        this.op     = op;
-        this.exprs  = Arrays.asList(exprs);
+        this(op, Arrays.asList(exprs));
     }    
     
     public Op getOp()
@@ -40,6 +45,18 @@ public class MultiArityExpression extends Expression
         return this.exprs;
     }
 
+    @Override
+    public boolean equals(Object object)
+    {
+        return object instanceof Expression && ExpressionTraversal.equals(this, (Expression) object);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.hash;
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor)
     {
@@ -50,8 +67,12 @@ public class MultiArityExpression extends Expression
     {        
         MKTUPLE ("mkTuple"),
         INSERT ("insert"),
-        DISTINCT ("distinct");
-        //ToDo: add other operators like and, or, ...
+        DISTINCT ("distinct"),
+        AND ("and"),
+        OR ("or"),
+        UNION ("union"),
+        INTERSECTION ("intersection"),
+        PRODUCT ("product");
         private final String opStr;
 
         private Op(String op) 
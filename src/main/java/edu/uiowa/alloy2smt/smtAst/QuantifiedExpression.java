@@ -18,6 +18,8 @@ public class QuantifiedExpression extends Expression
     private final Expression                  expr;
     private final List<BoundVariableDeclaration>   boundVars;
     private final Op                          op;
+
+    private final int                         hash;
     
     public QuantifiedExpression(Op op, List<BoundVariableDeclaration> boundVars, Expression expr)
     {
@@ -28,6 +30,7 @@ public class QuantifiedExpression extends Expression
         {
             this.boundVars.add(bdVar);
         }
+        this.hash       = hashCode(op, this.boundVars, expr);
     }
     
     public QuantifiedExpression(Op op, Expression expr, BoundVariableDeclaration... boundVars)
@@ -35,6 +38,18 @@ public class QuantifiedExpression extends Expression
         this.boundVars  = Arrays.asList(boundVars);
         this.expr       = expr;
         this.op         = op;
+        this.hash       = hashCode(op, this.boundVars, expr);
+    }
+
+    // bound variables are hashed by name and sort
+    private static int hashCode(Op op, List<BoundVariableDeclaration> boundVars, Expression expr)
+    {
+        int result = op.ordinal();
+        for(BoundVariableDeclaration boundVar : boundVars)
+        {
+            result = 31 * result + boundVar.getConstantExpr().hashCode();
+        }
+        return 31 * result + expr.hashCode();
     }
     
     public List<BoundVariableDeclaration> getBoundVars()
@@ -52,6 +67,18 @@ public class QuantifiedExpression extends Expression
         return this.op;
     }
 
+    @Override
+    public boolean equals(Object object)
+    {
+        return object instanceof Expression && ExpressionTraversal.equals(this, (Expression) object);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.hash;
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor) {
         visitor.visit(this);
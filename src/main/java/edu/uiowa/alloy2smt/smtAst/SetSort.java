@@ -12,7 +12,7 @@ import edu.uiowa.alloy2smt.printers.SmtAstVisitor;
 
 public class SetSort extends Sort
 {
-    public Sort elementSort;
+    public final Sort elementSort;
     
     public SetSort(Sort elementSort)
     {
@@ -20,6 +20,18 @@ public class SetSort extends Sort
         this.elementSort = elementSort;
     }
 
+    @Override
+    public boolean equals(Object object)
+    {
+        return super.equals(object) && this.elementSort.equals(((SetSort) object).elementSort);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * super.hashCode() + this.elementSort.hashCode();
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor) {
         visitor.visit(this);
@@ -0,0 +1,83 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.smtAst;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A hash-consing factory for smt expressions and sorts. Structurally equal
+ * nodes created through the same factory are represented by one canonical
+ * instance, which is safe because the ast nodes are immutable.
+ */
+public class SmtAstFactory
+{
+    private final ConcurrentMap<Expression, Expression> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * @param node an ast node
+     * @return the canonical instance that is structurally equal to the given node
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Expression> T intern(T node)
+    {
+        Expression canonical = nodes.putIfAbsent(node, node);
+        return canonical == null ? node : (T) canonical;
+    }
+
+    /**
+     * @return the number of canonical nodes created by this factory
+     */
+    public int size()
+    {
+        return nodes.size();
+    }
+
+    public UninterpretedSort mkUninterpretedSort(String name)
+    {
+        return intern(new UninterpretedSort(name));
+    }
+
+    public TupleSort mkTupleSort(Sort ... elementSorts)
+    {
+        return mkTupleSort(Arrays.asList(elementSorts));
+    }
+
+    public TupleSort mkTupleSort(List<Sort> elementSorts)
+    {
+        return intern(new TupleSort(elementSorts));
+    }
+
+    public SetSort mkSetSort(Sort elementSort)
+    {
+        return intern(new SetSort(elementSort));
+    }
+
+    public BinaryExpression mkBinaryExpression(Expression lhsExpr, BinaryExpression.Op op, Expression rhsExpr)
+    {
+        return intern(new BinaryExpression(lhsExpr, op, rhsExpr));
+    }
+
+    public UnaryExpression mkUnaryExpression(UnaryExpression.Op op, Expression expr)
+    {
+        return intern(new UnaryExpression(op, expr));
+    }
+
+    public MultiArityExpression mkMultiArityExpression(MultiArityExpression.Op op, List<Expression> exprs)
+    {
+        return intern(new MultiArityExpression(op, exprs));
+    }
+
+    public MultiArityExpression mkMultiArityExpression(MultiArityExpression.Op op, Expression ... exprs)
+    {
+        return mkMultiArityExpression(op, Arrays.asList(exprs));
+    }
+}
@@ -32,6 +32,28 @@ public class Sort extends Expression
         return this.name;
     }
 
+    @Override
+    public boolean equals(Object object)
+    {
+        if(this == object)
+        {
+            return true;
+        }
+        if(object == null || getClass() != object.getClass())
+        {
+            return false;
+        }
+        Sort sort = (Sort) object;
+        return this.arity == sort.arity &&
+               this.name.equals(sort.name);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * this.name.hashCode() + this.arity;
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor)
     {
@@ -14,7 +14,9 @@ import java.util.List;
 
 public class TupleSort extends Sort
 {
-    public List<Sort> elementSorts;
+    public final List<Sort> elementSorts;
+
+    private int             hash;
 
     public TupleSort(List<Sort> elementSorts)
     {
@@ -45,6 +47,22 @@ public class TupleSort extends Sort
         return result;
     }      
 
+    @Override
+    public boolean equals(Object object)
+    {
+        return super.equals(object) && this.elementSorts.equals(((TupleSort) object).elementSorts);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        if(this.hash == 0)
+        {
+            this.hash = 31 * super.hashCode() + this.elementSorts.hashCode();
+        }
+        return this.hash;
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor) {
         visitor.visit(this);
@@ -10,6 +10,8 @@ package edu.uiowa.alloy2smt.smtAst;
 
 import edu.uiowa.alloy2smt.printers.SmtAstVisitor;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class UnaryExpression extends Expression
@@ -17,36 +19,29 @@ public class UnaryExpression extends Expression
     private final Op op;
     private final Expression expr;
     private final List<Expression> exprs;
+
+    private final int           hash;
     
     public UnaryExpression(Op op, Expression expr)
     {
         this.op     = op;
         this.expr   = expr;
         this.exprs  = null;
+        this.hash   = 31 * (31 * op.ordinal() + expr.hashCode());
     }
     
     public UnaryExpression(Op op, List<Expression> exprs)
     {
         this.op     = op;
         this.expr   = null;
-        this.exprs  = new ArrayList<>();
-        for(Expression e : exprs)
-        {
-            this.exprs.add(e);
-        }
-        
+        // a copy, since the hash code depends on the operands
+        this.exprs  = Collections.unmodifiableList(new ArrayList<>(exprs));
+        this.hash   = 31 * 31 * op.ordinal() + this.exprs.hashCode();
     }  
     
     public UnaryExpression(Op op, Expression ... exprs)
     {
-        this.op     = op;
-        this.expr   = null;
-        this.exprs  = new ArrayList<>();
-        for(Expression e : exprs)
-        {
-            this.exprs.add(e);
-        }
-        
+        this(op, Arrays.asList(exprs));
     }      
 
     public Op getOP() 
@@ -84,6 +79,18 @@ public class UnaryExpression extends Expression
         return this.op.toString() + " " + exprStr;
     }    
     
+    @Override
+    public boolean equals(Object object)
+    {
+        return object instanceof Expression && ExpressionTraversal.equals(this, (Expression) object);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.hash;
+    }
+
     @Override
     public void accept(SmtAstVisitor visitor) {
         visitor.visit(this);
@@ -0,0 +1,30 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.smtparser;
+
+import edu.uiowa.alloy2smt.smtAst.FunctionDefinition;
+import edu.uiowa.alloy2smt.smtAst.Sort;
+
+/**
+ * Receives the parts of a model in the order the solver prints them, see
+ * {@link SmtModelReader#read(SmtModelListener)}
+ */
+public interface SmtModelListener
+{
+    /**
+     * Called when a sort declaration is complete
+     */
+    void sortDeclared(Sort sort);
+
+    /**
+     * Called when a function definition is complete, e.g. the value of an
+     * alloy signature or field
+     */
+    void functionDefined(FunctionDefinition definition);
+}
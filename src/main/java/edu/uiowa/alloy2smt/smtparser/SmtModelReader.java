@@ -0,0 +1,587 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.smtparser;
+
+import edu.uiowa.alloy2smt.smtAst.*;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a model printed by the solver in a single pass, without the parse
+ * tree of {@link SmtModelVisitor}. Terms are read with an explicit stack and
+ * chains of unions are collected into one list, so large sets do not nest
+ * deeply: the union of n elements becomes a balanced tree of depth log n.
+ * Symbols are interned, so every occurrence of an atom is the same
+ * {@link AtomConstant}.
+ */
+public class SmtModelReader
+{
+    private static final int        EOF             = -1;
+    private static final int        OPEN            = 0;
+    private static final int        CLOSE           = 1;
+    private static final int        SYMBOL          = 2;
+
+    private static final int        BUFFER_SIZE     = 8192;
+
+    private final Reader            reader;
+    private char[]                  buffer;
+    private int                     position;
+    private int                     limit;
+
+    // the characters of the last symbol
+    private char[]                  token           = new char[64];
+    private int                     tokenLength;
+
+    // open addressing table of the interned symbols
+    private String[]                symbols         = new String[1024];
+    private int                     symbolCount;
+
+    private final Map<String, Expression>   constants   = new HashMap<>();
+    private final Map<String, Sort>         sorts       = new HashMap<>();
+
+    // the open terms, reused between terms
+    private final List<Frame>       frames          = new ArrayList<>();
+    private int                     depth;
+
+    /**
+     * @param reader the model text, e.g. the output of the solver
+     */
+    public SmtModelReader(Reader reader)
+    {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * @param text the model text. Array backed buffers are read in place.
+     */
+    public SmtModelReader(CharBuffer text)
+    {
+        this.reader = null;
+        if(text.hasArray())
+        {
+            this.buffer     = text.array();
+            this.position   = text.arrayOffset() + text.position();
+            this.limit      = text.arrayOffset() + text.limit();
+        }
+        else
+        {
+            this.buffer     = text.toString().toCharArray();
+            this.limit      = buffer.length;
+        }
+    }
+
+    /**
+     * @param model a model printed by the solver
+     * @return the parsed model
+     */
+    public static SmtModel parse(String model)
+    {
+        try
+        {
+            return new SmtModelReader(CharBuffer.wrap(model.toCharArray())).read();
+        }
+        catch (IOException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Reads a model with or without the model keyword, i.e. (model ...) or (...)
+     * @return the model
+     */
+    public SmtModel read() throws IOException
+    {
+        SmtModel model = new SmtModel();
+        read(new SmtModelListener()
+        {
+            @Override
+            public void sortDeclared(Sort sort)
+            {
+                model.addSort(sort);
+            }
+
+            @Override
+            public void functionDefined(FunctionDefinition definition)
+            {
+                model.addFunctionDefinition(definition);
+            }
+        });
+        return model;
+    }
+
+    /**
+     * Reads a model and passes each sort declaration and function definition
+     * to the listener as soon as it is read. The reader keeps neither, so
+     * the memory is bounded by the largest definition rather than the model.
+     * Nothing after the closing parenthesis of the model should be pending
+     * on the input, since the reader may buffer it.
+     * @param listener the consumer of the model
+     */
+    public void read(SmtModelListener listener) throws IOException
+    {
+        int token = nextToken();
+        if(token == EOF)
+        {
+            throw new EOFException("The input ended before the model");
+        }
+        check(token, OPEN);
+        token = nextToken();
+        if(token == SYMBOL && symbol().equals("model"))
+        {
+            token = nextToken();
+        }
+        else if(token == SYMBOL && symbol().equals("error"))
+        {
+            check(nextToken(), SYMBOL);
+            throw new RuntimeException("The solver failed: " + symbol());
+        }
+        while (token == OPEN)
+        {
+            String command = expectSymbol();
+            switch (command)
+            {
+                case "declare-sort" : listener.sortDeclared(readSortDeclaration()); break;
+                case "define-fun"   : listener.functionDefined(readFunctionDefinition()); break;
+                default             : skipClose(); break;
+            }
+            token = nextToken();
+        }
+        check(token, CLOSE);
+    }
+
+    private Sort readSortDeclaration() throws IOException
+    {
+        String  name    = expectSymbol();
+        int     arity   = Integer.parseInt(expectSymbol());
+        expect(CLOSE);
+        return new Sort(name, arity);
+    }
+
+    private FunctionDefinition readFunctionDefinition() throws IOException
+    {
+        String                          name        = expectSymbol();
+        List<BoundVariableDeclaration>  arguments   = new ArrayList<>();
+        expect(OPEN);
+        int token = nextToken();
+        while (token == OPEN)
+        {
+            String argumentName = expectSymbol();
+            arguments.add(new BoundVariableDeclaration(argumentName, readSort(nextToken())));
+            expect(CLOSE);
+            token = nextToken();
+        }
+        check(token, CLOSE);
+
+        Sort        returnSort  = readSort(nextToken());
+        Expression  expression  = readTerm(nextToken());
+        expect(CLOSE);
+        return new FunctionDefinition(name, arguments, returnSort, expression);
+    }
+
+    private Sort readSort(int token) throws IOException
+    {
+        if(token == SYMBOL)
+        {
+            return sorts.computeIfAbsent(symbol(), name -> new Sort(name, 0));
+        }
+        check(token, OPEN);
+        String name = expectSymbol();
+        switch (name)
+        {
+            case "Set":
+            {
+                Sort elementSort = readSort(nextToken());
+                expect(CLOSE);
+                return new SetSort(elementSort);
+            }
+            case "Tuple":
+            {
+                List<Sort> elementSorts = new ArrayList<>();
+                for (token = nextToken(); token != CLOSE; token = nextToken())
+                {
+                    elementSorts.add(readSort(token));
+                }
+                return new TupleSort(elementSorts);
+            }
+            default:
+                throw new UnsupportedOperationException("Unsupported sort " + name);
+        }
+    }
+
+    /**
+     * Reads a term without recursion. A union directly inside a union does
+     * not open a new term, it only adds its arguments to the enclosing one.
+     */
+    private Expression readTerm(int token) throws IOException
+    {
+        depth = 0;
+        while (true)
+        {
+            Expression value;
+            if(token == SYMBOL)
+            {
+                value = constant(symbol());
+            }
+            else if(token == OPEN)
+            {
+                String head     = expectSymbol();
+                Frame  parent   = depth > 0 ? frames.get(depth - 1) : null;
+                if(head.equals("union") && parent != null && parent.op == Frame.UNION)
+                {
+                    parent.nestedUnions++;
+                    token = nextToken();
+                    continue;
+                }
+                switch (head)
+                {
+                    case "mkTuple"      : open(Frame.MKTUPLE); token = nextToken(); continue;
+                    case "singleton"    : open(Frame.SINGLETON); token = nextToken(); continue;
+                    case "union"        : open(Frame.UNION); token = nextToken(); continue;
+                    case "as":
+                    {
+                        expectSymbol("emptyset");
+                        Sort sort = readSort(nextToken());
+                        expect(CLOSE);
+                        // like SmtModelVisitor, keep the element sort of the set
+                        if(sort instanceof SetSort)
+                        {
+                            sort = ((SetSort) sort).elementSort;
+                        }
+                        value = new UnaryExpression(UnaryExpression.Op.EMPTYSET, sort);
+                        break;
+                    }
+                    case "-":
+                    {
+                        value = new IntConstant("-" + expectSymbol());
+                        expect(CLOSE);
+                        break;
+                    }
+                    default:
+                        throw new UnsupportedOperationException("Unsupported term " + head);
+                }
+            }
+            else if(token == CLOSE && depth > 0)
+            {
+                Frame frame = frames.get(depth - 1);
+                if(frame.nestedUnions > 0)
+                {
+                    frame.nestedUnions--;
+                    token = nextToken();
+                    continue;
+                }
+                depth--;
+                value = frame.build();
+            }
+            else
+            {
+                throw error("a term");
+            }
+
+            if(depth == 0)
+            {
+                return value;
+            }
+            frames.get(depth - 1).arguments.add(value);
+            token = nextToken();
+        }
+    }
+
+    private void open(int op)
+    {
+        if(depth == frames.size())
+        {
+            frames.add(new Frame());
+        }
+        Frame frame = frames.get(depth++);
+        frame.op            = op;
+        frame.nestedUnions  = 0;
+        frame.arguments.clear();
+    }
+
+    private Expression constant(String symbol)
+    {
+        return constants.computeIfAbsent(symbol, name ->
+                Character.isDigit(name.charAt(0)) ? new IntConstant(name) : new AtomConstant(name));
+    }
+
+    /**
+     * Skips the rest of an unsupported command
+     */
+    private void skipClose() throws IOException
+    {
+        int open = 1;
+        while (open > 0)
+        {
+            int token = nextToken();
+            if(token == OPEN)
+            {
+                open++;
+            }
+            else if(token == CLOSE)
+            {
+                open--;
+            }
+            else if(token == EOF)
+            {
+                throw error("')'");
+            }
+        }
+    }
+
+    private void expect(int expected) throws IOException
+    {
+        check(nextToken(), expected);
+    }
+
+    private void check(int token, int expected)
+    {
+        if(token != expected)
+        {
+            throw error(expected == OPEN ? "'('" : expected == CLOSE ? "')'" : "a symbol");
+        }
+    }
+
+    private String expectSymbol() throws IOException
+    {
+        check(nextToken(), SYMBOL);
+        return symbol();
+    }
+
+    private void expectSymbol(String expected) throws IOException
+    {
+        if(!expectSymbol().equals(expected))
+        {
+            throw error(expected);
+        }
+    }
+
+    private RuntimeException error(String expected)
+    {
+        return new RuntimeException("Expected " + expected + " in the model but found '" + new String(token, 0, tokenLength) + "'");
+    }
+
+    private int nextToken() throws IOException
+    {
+        tokenLength = 0;
+        int c = readChar();
+        while (c >= 0)
+        {
+            if(c == ';')
+            {
+                do
+                {
+                    c = readChar();
+                }
+                while (c >= 0 && c != '\n');
+            }
+            else if(!Character.isWhitespace(c))
+            {
+                break;
+            }
+            c = readChar();
+        }
+
+        switch (c)
+        {
+            case EOF    : return EOF;
+            case '('    : return OPEN;
+            case ')'    : return CLOSE;
+            case '"':
+            {
+                // a string literal with its quotes, where "" is an escaped quote
+                append('"');
+                for (c = readChar(); c >= 0; c = readChar())
+                {
+                    append((char) c);
+                    if(c == '"')
+                    {
+                        if(peek() != '"')
+                        {
+                            break;
+                        }
+                        append('"');
+                        position++;
+                    }
+                }
+                return SYMBOL;
+            }
+            case '|':
+            {
+                // a quoted symbol, without the bars
+                for (c = readChar(); c >= 0 && c != '|'; c = readChar())
+                {
+                    append((char) c);
+                }
+                return SYMBOL;
+            }
+            default:
+            {
+                append((char) c);
+                for (c = peek(); c >= 0 && !Character.isWhitespace(c) && c != '(' && c != ')' && c != ';'; c = peek())
+                {
+                    append((char) c);
+                    position++;
+                }
+                return SYMBOL;
+            }
+        }
+    }
+
+    private void append(char c)
+    {
+        if(tokenLength == token.length)
+        {
+            token = Arrays.copyOf(token, token.length * 2);
+        }
+        token[tokenLength++] = c;
+    }
+
+    private int readChar() throws IOException
+    {
+        int c = peek();
+        if(c >= 0)
+        {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException
+    {
+        if(position == limit)
+        {
+            if(reader == null)
+            {
+                return EOF;
+            }
+            int count = reader.read(buffer, 0, buffer.length);
+            if(count <= 0)
+            {
+                return EOF;
+            }
+            position    = 0;
+            limit       = count;
+        }
+        return buffer[position];
+    }
+
+    /**
+     * @return the interned string of the last symbol
+     */
+    private String symbol()
+    {
+        int hash = 0;
+        for (int i = 0; i < tokenLength; i++)
+        {
+            hash = 31 * hash + token[i];
+        }
+        int mask  = symbols.length - 1;
+        int index = hash & mask;
+        for (String symbol = symbols[index]; symbol != null; symbol = symbols[index])
+        {
+            if(matches(symbol))
+            {
+                return symbol;
+            }
+            index = (index + 1) & mask;
+        }
+
+        String symbol = new String(token, 0, tokenLength);
+        symbols[index] = symbol;
+        if(++symbolCount * 2 > symbols.length)
+        {
+            rehash();
+        }
+        return symbol;
+    }
+
+    private boolean matches(String symbol)
+    {
+        if(symbol.length() != tokenLength)
+        {
+            return false;
+        }
+        for (int i = 0; i < tokenLength; i++)
+        {
+            if(symbol.charAt(i) != token[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash()
+    {
+        String[]    old     = symbols;
+        int         mask    = old.length * 2 - 1;
+        symbols = new String[old.length * 2];
+        for (String symbol : old)
+        {
+            if(symbol != null)
+            {
+                // String.hashCode uses the same hash as symbol()
+                int index = symbol.hashCode() & mask;
+                while (symbols[index] != null)
+                {
+                    index = (index + 1) & mask;
+                }
+                symbols[index] = symbol;
+            }
+        }
+    }
+
+    /**
+     * A term whose arguments are being read
+     */
+    private static class Frame
+    {
+        static final int            MKTUPLE     = 0;
+        static final int            SINGLETON   = 1;
+        static final int            UNION       = 2;
+
+        int                         op;
+        int                         nestedUnions;
+        final List<Expression>      arguments   = new ArrayList<>();
+
+        Expression build()
+        {
+            switch (op)
+            {
+                case MKTUPLE    : return new MultiArityExpression(MultiArityExpression.Op.MKTUPLE, new ArrayList<>(arguments));
+                case SINGLETON  : return new UnaryExpression(UnaryExpression.Op.SINGLETON, arguments.get(0));
+                default         : return union(arguments, 0, arguments.size());
+            }
+        }
+
+        /**
+         * @return a balanced union of the given elements
+         */
+        private static Expression union(List<Expression> elements, int from, int to)
+        {
+            if(to - from == 1)
+            {
+                return elements.get(from);
+            }
+            int middle = from + (to - from) / 2;
+            return new BinaryExpression(union(elements, from, middle), BinaryExpression.Op.UNION, union(elements, middle, to));
+        }
+    }
+}
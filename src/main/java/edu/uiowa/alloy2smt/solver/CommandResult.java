@@ -0,0 +1,81 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.solver;
+
+import edu.uiowa.alloy2smt.smtAst.SmtModel;
+
+/**
+ * The answer of a solver to an alloy command
+ */
+public class CommandResult
+{
+    public enum Result
+    {
+        SAT, UNSAT, UNKNOWN
+    }
+
+    private final int       commandIndex;
+    private final Result    result;
+    private final String    modelText;
+    private final SmtModel  model;
+
+    public CommandResult(int commandIndex, Result result, String modelText, SmtModel model)
+    {
+        this.commandIndex   = commandIndex;
+        this.result         = result;
+        this.modelText      = modelText;
+        this.model          = model;
+    }
+
+    /**
+     * @param response the response of a solver to check-sat
+     * @return the corresponding result
+     */
+    public static Result parseResult(String response)
+    {
+        switch (response)
+        {
+            case "sat"      : return Result.SAT;
+            case "unsat"    : return Result.UNSAT;
+            case "unknown"  : return Result.UNKNOWN;
+            default:
+            {
+                throw new RuntimeException("Unexpected response to check-sat: " + response);
+            }
+        }
+    }
+
+    public int getCommandIndex()
+    {
+        return commandIndex;
+    }
+
+    public Result getResult()
+    {
+        return result;
+    }
+
+    /**
+     * @return the model as printed by the solver, or null if the command is
+     * not satisfiable or its model was streamed to a listener
+     */
+    public String getModelText()
+    {
+        return modelText;
+    }
+
+    /**
+     * @return the parsed model, or null if the command is not satisfiable or
+     * its model was streamed to a listener
+     */
+    public SmtModel getModel()
+    {
+        return model;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.solver;
+
+import java.util.Map;
+
+/**
+ * The outcome of checking one command of one model in a {@link SolverPool}
+ * or a {@link PortfolioSolver}
+ */
+public class JobResult
+{
+    public enum Status
+    {
+        SAT, UNSAT, UNKNOWN, TIMEOUT, ERROR
+    }
+
+    private final String                model;
+    private final int                   commandIndex;
+    private final Status                status;
+    private final CommandResult         commandResult;
+    private final String                error;
+    private final long                  wallNanos;
+    private final boolean               startedSolver;
+    private final Map<String, String>   solverOptions;
+
+    JobResult(String model, int commandIndex, Status status, CommandResult commandResult,
+              String error, long wallNanos, boolean startedSolver, Map<String, String> solverOptions)
+    {
+        this.model          = model;
+        this.commandIndex   = commandIndex;
+        this.status         = status;
+        this.commandResult  = commandResult;
+        this.error          = error;
+        this.wallNanos      = wallNanos;
+        this.startedSolver  = startedSolver;
+        this.solverOptions  = solverOptions;
+    }
+
+    static JobResult solved(String model, CommandResult result, long wallNanos, boolean startedSolver,
+                            Map<String, String> solverOptions)
+    {
+        Status status = Status.valueOf(result.getResult().name());
+        return new JobResult(model, result.getCommandIndex(), status, result, null, wallNanos, startedSolver, solverOptions);
+    }
+
+    public String getModel()
+    {
+        return model;
+    }
+
+    public int getCommandIndex()
+    {
+        return commandIndex;
+    }
+
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * @return the answer of the solver, or null if the job timed out or failed
+     */
+    public CommandResult getCommandResult()
+    {
+        return commandResult;
+    }
+
+    /**
+     * @return why the job failed, or null if it did not
+     */
+    public String getError()
+    {
+        return error;
+    }
+
+    /**
+     * @return the wall time of the job, including starting a solver if needed
+     */
+    public long getWallNanos()
+    {
+        return wallNanos;
+    }
+
+    /**
+     * @return true if the job started a new solver process instead of
+     * reusing the process of the previous job
+     */
+    public boolean isStartedSolver()
+    {
+        return startedSolver;
+    }
+
+    /**
+     * @return the options of the solver that answered, or null if the job timed out or failed
+     */
+    public Map<String, String> getSolverOptions()
+    {
+        return solverOptions;
+    }
+
+    @Override
+    public String toString()
+    {
+        return model + " command " + commandIndex + ": " + status.name().toLowerCase() +
+               " (" + wallNanos / 1000000 + " ms)" + (error == null ? "" : " " + error);
+    }
+}
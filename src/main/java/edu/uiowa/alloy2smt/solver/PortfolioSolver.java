@@ -0,0 +1,326 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.solver;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.uiowa.alloy2smt.printers.SmtLibPrettyPrinter;
+import edu.uiowa.alloy2smt.translators.Translation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks a command under several solver option sets at once, each in its
+ * own solver process. The first sat or unsat answer wins and the other
+ * solvers are killed. The winning option set is recorded per model and
+ * tried first the next time the model is solved.
+ */
+public class PortfolioSolver implements AutoCloseable
+{
+    private static final ObjectMapper                   objectMapper    = new ObjectMapper();
+
+    private final List<String>                          command;
+    private final List<Map<String, String>>             optionSets;
+    private final int                                   size;
+    private final long                                  timeout;
+    private final ExecutorService                       executor;
+    private final Map<String, Map<String, String>>      winners         = new ConcurrentHashMap<>();
+
+    /**
+     * A portfolio that runs all the given option sets and waits for an answer
+     * @param command the solver executable and its arguments
+     * @param optionSets solver options that override the default options,
+     *                   e.g. fmf-bound true or finite-model-find false
+     */
+    public PortfolioSolver(List<String> command, List<Map<String, String>> optionSets)
+    {
+        this(command, optionSets, optionSets.size(), 0);
+    }
+
+    /**
+     * @param command the solver executable and its arguments
+     * @param optionSets solver options that override the default options
+     * @param size the number of option sets that run in parallel for a command
+     * @param timeout the time limit of a command in milliseconds, or 0 for no limit
+     */
+    public PortfolioSolver(List<String> command, List<Map<String, String>> optionSets, int size, long timeout)
+    {
+        if(optionSets.isEmpty() || size < 1)
+        {
+            throw new IllegalArgumentException("A portfolio needs at least one option set");
+        }
+        this.command    = new ArrayList<>(command);
+        this.optionSets = new ArrayList<>(optionSets);
+        this.size       = size;
+        this.timeout    = timeout;
+        this.executor   = Executors.newCachedThreadPool(runnable ->
+        {
+            Thread thread = new Thread(runnable, "portfolio-solver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param options solver options
+     * @return the default options of the smt script overridden by the given options
+     */
+    public static Map<String, String> withDefaults(Map<String, String> options)
+    {
+        Map<String, String> merged = new LinkedHashMap<>(SmtLibPrettyPrinter.DEFAULT_OPTIONS);
+        merged.putAll(options);
+        return merged;
+    }
+
+    /**
+     * @param model the name of a model
+     * @return the option sets that run for the commands of the model: the
+     * recorded winner of the model first, then the others in order
+     */
+    public List<Map<String, String>> getOptionSets(String model)
+    {
+        List<Map<String, String>> sets      = new ArrayList<>();
+        Map<String, String>       winner    = winners.get(model);
+        if(winner != null)
+        {
+            sets.add(winner);
+        }
+        for (Map<String, String> options: optionSets)
+        {
+            if(sets.size() < size && !options.equals(winner))
+            {
+                sets.add(options);
+            }
+        }
+        return sets;
+    }
+
+    /**
+     * Checks the given command under the option sets of the model
+     * @param model the name of the model
+     * @param translation the translation of the model
+     * @param commandIndex the index of the command
+     * @return the first definitive answer, otherwise unknown, a timeout or the last error
+     */
+    public JobResult solve(String model, Translation translation, int commandIndex)
+    {
+        long                        start       = System.nanoTime();
+        List<Map<String, String>>   sets        = getOptionSets(model);
+        Race                        race        = new Race();
+        CompletionService<Attempt>  service     = new ExecutorCompletionService<>(executor);
+        List<Future<Attempt>>       futures     = new ArrayList<>();
+
+        // print the script once for all solvers
+        translation.getSmtScript();
+        for (Map<String, String> options: sets)
+        {
+            futures.add(service.submit(() -> attempt(translation, commandIndex, options, race)));
+        }
+
+        Attempt unknown     = null;
+        String  error       = null;
+        try
+        {
+            for (int i = 0; i < sets.size(); i++)
+            {
+                Future<Attempt> future;
+                if(timeout > 0)
+                {
+                    long remaining = timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    future = service.poll(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+                    if(future == null)
+                    {
+                        break;
+                    }
+                }
+                else
+                {
+                    future = service.take();
+                }
+
+                Attempt attempt = future.get();
+                if(attempt.result == null)
+                {
+                    error = attempt.error;
+                }
+                else if(attempt.result.getResult() == CommandResult.Result.UNKNOWN)
+                {
+                    unknown = attempt;
+                }
+                else
+                {
+                    winners.put(model, attempt.options);
+                    return JobResult.solved(model, attempt.result, System.nanoTime() - start, true,
+                                            withDefaults(attempt.options));
+                }
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException exception)
+        {
+            error = exception.getCause().getMessage();
+        }
+        finally
+        {
+            race.stop();
+            awaitAll(futures);
+        }
+
+        long wallNanos = System.nanoTime() - start;
+        if(unknown != null)
+        {
+            return JobResult.solved(model, unknown.result, wallNanos, true, withDefaults(unknown.options));
+        }
+        if(error != null)
+        {
+            return new JobResult(model, commandIndex, JobResult.Status.ERROR, null, error, wallNanos, true, null);
+        }
+        return new JobResult(model, commandIndex, JobResult.Status.TIMEOUT, null, null, wallNanos, true, null);
+    }
+
+    /**
+     * @return the results of all commands of the model in the order of the commands
+     */
+    public List<JobResult> solveAll(String model, Translation translation)
+    {
+        List<JobResult> results = new ArrayList<>();
+        for (int i = 0; i < translation.getCommandCount(); i++)
+        {
+            results.add(solve(model, translation, i));
+        }
+        return results;
+    }
+
+    private Attempt attempt(Translation translation, int commandIndex, Map<String, String> options, Race race)
+    {
+        try
+        {
+            SolverProcess solver = new SolverProcess(command);
+            race.join(solver);
+            try (SolverDriver driver = new SolverDriver(solver, translation, withDefaults(options)))
+            {
+                return new Attempt(options, driver.solve(commandIndex), null);
+            }
+        }
+        catch (IOException | RuntimeException exception)
+        {
+            return new Attempt(options, null, exception.getMessage());
+        }
+    }
+
+    private static void awaitAll(List<Future<Attempt>> futures)
+    {
+        for (Future<Attempt> future: futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (ExecutionException exception)
+            {
+                // the attempt lost the race
+            }
+        }
+    }
+
+    /**
+     * @return the winning option set of each model solved so far
+     */
+    public Map<String, Map<String, String>> getWinners()
+    {
+        return new TreeMap<>(winners);
+    }
+
+    /**
+     * Reads the winners recorded by an earlier run
+     * @param file a json file written by {@link PortfolioSolver#saveWinners(File)}
+     */
+    public void loadWinners(File file) throws IOException
+    {
+        winners.putAll(objectMapper.readValue(file, new TypeReference<Map<String, LinkedHashMap<String, String>>>() {}));
+    }
+
+    /**
+     * Writes the winning option set of each model to a json file
+     */
+    public void saveWinners(File file) throws IOException
+    {
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, getWinners());
+    }
+
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+    }
+
+    private static class Attempt
+    {
+        private final Map<String, String>   options;
+        private final CommandResult         result;
+        private final String                error;
+
+        Attempt(Map<String, String> options, CommandResult result, String error)
+        {
+            this.options    = options;
+            this.result     = result;
+            this.error      = error;
+        }
+    }
+
+    /**
+     * The solvers that check one command. Solvers that join after the race
+     * is over are killed right away.
+     */
+    private static class Race
+    {
+        private final List<SolverProcess>   solvers = new ArrayList<>();
+        private boolean                     stopped;
+
+        synchronized void join(SolverProcess solver)
+        {
+            if(stopped)
+            {
+                solver.kill();
+            }
+            solvers.add(solver);
+        }
+
+        synchronized void stop()
+        {
+            stopped = true;
+            for (SolverProcess solver: solvers)
+            {
+                solver.kill();
+            }
+        }
+    }
+}
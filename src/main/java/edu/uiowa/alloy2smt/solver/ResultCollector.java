@@ -0,0 +1,52 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.solver;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects the results of the jobs of a {@link SolverPool}. Workers add
+ * results concurrently in the order they finish.
+ */
+public class ResultCollector
+{
+    private final Queue<JobResult> results = new ConcurrentLinkedQueue<>();
+
+    public void add(JobResult result)
+    {
+        results.add(result);
+    }
+
+    public int size()
+    {
+        return results.size();
+    }
+
+    /**
+     * @return the collected results ordered by model and command index
+     */
+    public List<JobResult> getResults()
+    {
+        List<JobResult> list = new ArrayList<>(results);
+        list.sort(Comparator.comparing(JobResult::getModel).thenComparingInt(JobResult::getCommandIndex));
+        return list;
+    }
+
+    /**
+     * @return the sum of the wall times of the collected jobs
+     */
+    public long getTotalWallNanos()
+    {
+        return results.stream().mapToLong(JobResult::getWallNanos).sum();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.solver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits a stream of smt-lib text into s-expressions and atoms, e.g. the
+ * responses of a solver or the commands sent to it. Comments are skipped.
+ */
+public class SExpressionReader
+{
+    private final BufferedReader reader;
+
+    public SExpressionReader(Reader reader)
+    {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * @return the underlying reader, positioned after the last expression read
+     */
+    BufferedReader getReader()
+    {
+        return reader;
+    }
+
+    /**
+     * Blocks until a complete s-expression or atom is available
+     * @return the next s-expression or atom, or null at the end of the stream
+     */
+    public String read() throws IOException
+    {
+        int c = skipWhitespaceAndComments();
+        if(c < 0)
+        {
+            return null;
+        }
+
+        StringBuilder expression = new StringBuilder();
+        if(c != '(')
+        {
+            // an atom like sat, unsat or a symbol
+            expression.append((char) c);
+            while (true)
+            {
+                reader.mark(1);
+                c = reader.read();
+                if(c < 0 || Character.isWhitespace(c) || c == '(' || c == ')' || c == ';')
+                {
+                    reader.reset();
+                    return expression.toString();
+                }
+                expression.append((char) c);
+            }
+        }
+
+        int depth = 0;
+        while (c >= 0)
+        {
+            expression.append((char) c);
+            if(c == '(')
+            {
+                depth++;
+            }
+            else if(c == ')')
+            {
+                depth--;
+                if(depth == 0)
+                {
+                    return expression.toString();
+                }
+            }
+            else if(c == '"')
+            {
+                // a string literal, where "" is an escaped quote
+                readQuoted('"', expression);
+            }
+            else if(c == '|')
+            {
+                readQuoted('|', expression);
+            }
+            else if(c == ';')
+            {
+                expression.setLength(expression.length() - 1);
+                skipLine();
+            }
+            c = reader.read();
+        }
+        throw new IOException("Unexpected end of stream in " + expression);
+    }
+
+    private void readQuoted(char quote, StringBuilder expression) throws IOException
+    {
+        int c;
+        while ((c = reader.read()) >= 0)
+        {
+            expression.append((char) c);
+            if(c == quote)
+            {
+                return;
+            }
+        }
+    }
+
+    private int skipWhitespaceAndComments() throws IOException
+    {
+        int c = reader.read();
+        while (c >= 0)
+        {
+            if(c == ';')
+            {
+                skipLine();
+            }
+            else if(!Character.isWhitespace(c))
+            {
+                return c;
+            }
+            c = reader.read();
+        }
+        return c;
+    }
+
+    private void skipLine() throws IOException
+    {
+        int c;
+        do
+        {
+            c = reader.read();
+        }
+        while (c >= 0 && c != '\n');
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.solver;
+
+import edu.uiowa.alloy2smt.printers.SmtLibPrettyPrinter;
+import edu.uiowa.alloy2smt.smtAst.SmtModel;
+import edu.uiowa.alloy2smt.smtparser.SmtModelListener;
+import edu.uiowa.alloy2smt.smtparser.SmtModelReader;
+import edu.uiowa.alloy2smt.translators.Translation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the commands of a translation on one solver process. The smt script
+ * of the alloy model is sent once, and each command is checked within its
+ * own push and pop, so the solver parses and preprocesses the shared part
+ * of the script only once.
+ */
+public class SolverDriver implements AutoCloseable
+{
+    private final SolverProcess solver;
+    private final Translation   translation;
+
+    /**
+     * Starts the solver and sends it the smt script of the translation
+     * @param command the solver executable and its arguments
+     * @param translation the translation of an alloy model
+     */
+    public SolverDriver(List<String> command, Translation translation) throws IOException
+    {
+        this(new SolverProcess(command), translation);
+    }
+
+    /**
+     * Sends the smt script of the translation to the given solver
+     * @param solver a solver process that has no assertions yet
+     * @param translation the translation of an alloy model
+     */
+    public SolverDriver(SolverProcess solver, Translation translation) throws IOException
+    {
+        this(solver, translation, SmtLibPrettyPrinter.DEFAULT_OPTIONS);
+    }
+
+    /**
+     * Sends the smt script of the translation with the given options to the given solver
+     * @param solver a solver process that has no assertions yet
+     * @param translation the translation of an alloy model
+     * @param solverOptions the options at the start of the script
+     */
+    public SolverDriver(SolverProcess solver, Translation translation, Map<String, String> solverOptions) throws IOException
+    {
+        this.solver         = solver;
+        this.translation    = translation;
+        try
+        {
+            // stream the script into the solver as it is printed
+            translation.writeSmtScript(solver.getInput(), solverOptions);
+            solver.send("");
+        }
+        catch (UncheckedIOException exception)
+        {
+            throw exception.getCause();
+        }
+    }
+
+    /**
+     * Checks the given command and gets its model if it is satisfiable
+     * @param commandIndex the index of the command
+     * @return the result of the command
+     */
+    public CommandResult solve(int commandIndex) throws IOException
+    {
+        return solve(commandIndex, null);
+    }
+
+    /**
+     * Checks the given command and streams its model to the listener if it
+     * is satisfiable. The result then has neither the model nor its text.
+     * @param commandIndex the index of the command
+     * @param listener the consumer of the model, or null to keep the model in the result
+     * @return the result of the command
+     */
+    public CommandResult solve(int commandIndex, SmtModelListener listener) throws IOException
+    {
+        solver.push();
+        try
+        {
+            translation.translateCommand(commandIndex, solver.getInput());
+        }
+        catch (UncheckedIOException exception)
+        {
+            throw exception.getCause();
+        }
+
+        CommandResult.Result    result      = CommandResult.parseResult(solver.checkSat());
+        String                  modelText   = null;
+        SmtModel                model       = null;
+        if(result == CommandResult.Result.SAT && listener != null)
+        {
+            solver.getModel(listener);
+        }
+        else if(result == CommandResult.Result.SAT)
+        {
+            modelText   = solver.getModel();
+            model       = parseModel(modelText);
+        }
+        solver.pop();
+        return new CommandResult(commandIndex, result, modelText, model);
+    }
+
+    /**
+     * @return the results of all commands in the order of the commands
+     */
+    public List<CommandResult> solveAll() throws IOException
+    {
+        List<CommandResult> results = new ArrayList<>();
+        for (int i = 0; i < translation.getCommandCount(); i++)
+        {
+            results.add(solve(i));
+        }
+        return results;
+    }
+
+    /**
+     * @param modelText a model printed by the solver
+     * @return the parsed model
+     */
+    public static SmtModel parseModel(String modelText)
+    {
+        return SmtModelReader.parse(modelText);
+    }
+
+    public SolverProcess getSolver()
+    {
+        return solver;
+    }
+
+    public Translation getTranslation()
+    {
+        return translation;
+    }
+
+    @Override
+    public void close()
+    {
+        solver.close();
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.solver;
+
+import edu.uiowa.alloy2smt.printers.SmtLibPrettyPrinter;
+import edu.uiowa.alloy2smt.translators.Translation;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checks the commands of many models on a fixed number of solver processes.
+ * Each of the worker threads owns one solver process and keeps it as long
+ * as it checks commands of the same translation.
+ * A worker that is idle takes the next model and queues the commands of
+ * that model on its own deque, so they all run on its process. Once no
+ * model is left, idle workers steal commands from the end of the deques of
+ * busy workers, preferring workers of the model their own solver has.
+ * A solver that crashes or exceeds the timeout is killed and restarted for
+ * the next job.
+ */
+public class SolverPool implements AutoCloseable
+{
+    private final List<String>                  command;
+    private final long                          timeout;
+    private final ScheduledThreadPoolExecutor   timer;
+    private final List<Worker>                  workers         = new ArrayList<>();
+    // guards the queues of the pool and the deques of the workers
+    private final Object                        lock            = new Object();
+    private final Deque<List<Job>>              models          = new ArrayDeque<>();
+    private boolean                             closed          = false;
+
+    /**
+     * A pool with one worker per core and no timeout
+     * @param command the solver executable and its arguments
+     */
+    public SolverPool(List<String> command)
+    {
+        this(command, Runtime.getRuntime().availableProcessors(), 0);
+    }
+
+    /**
+     * @param command the solver executable and its arguments
+     * @param workers the number of solver processes
+     * @param timeout the time limit of a command in milliseconds, or 0 for no limit
+     */
+    public SolverPool(List<String> command, int workers, long timeout)
+    {
+        if(workers < 1)
+        {
+            throw new IllegalArgumentException("The number of workers should be positive: " + workers);
+        }
+        this.command    = new ArrayList<>(command);
+        this.timeout    = timeout;
+        this.timer      = new ScheduledThreadPoolExecutor(1, runnable ->
+        {
+            Thread thread = new Thread(runnable, "solver-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+        for (int i = 0; i < workers; i++)
+        {
+            Worker worker = new Worker();
+            worker.thread = new Thread(worker::run, "solver-worker-" + i);
+            worker.thread.setDaemon(true);
+            this.workers.add(worker);
+        }
+        this.workers.forEach(worker -> worker.thread.start());
+    }
+
+    /**
+     * Checks all commands of the given models
+     * @param models translations keyed by the names of their models
+     * @return the collected results
+     */
+    public ResultCollector solve(Map<String, Translation> models)
+    {
+        ResultCollector collector = new ResultCollector();
+        solve(models, collector);
+        return collector;
+    }
+
+    /**
+     * Checks all commands of the given models and waits until they are done
+     * @param models translations keyed by the names of their models
+     * @param collector where the workers add the result of each command
+     */
+    public void solve(Map<String, Translation> models, ResultCollector collector)
+    {
+        int commands = 0;
+        for (Translation translation: models.values())
+        {
+            commands += translation.getCommandCount();
+        }
+        CountDownLatch done = new CountDownLatch(commands);
+        synchronized (lock)
+        {
+            if(closed)
+            {
+                throw new IllegalStateException("The solver pool is closed");
+            }
+            for (Map.Entry<String, Translation> entry: models.entrySet())
+            {
+                List<Job> jobs = new ArrayList<>();
+                for (int i = 0; i < entry.getValue().getCommandCount(); i++)
+                {
+                    jobs.add(new Job(entry.getKey(), entry.getValue(), i, collector, done));
+                }
+                if(!jobs.isEmpty())
+                {
+                    this.models.add(jobs);
+                }
+            }
+            lock.notifyAll();
+        }
+
+        boolean interrupted = false;
+        while (done.getCount() > 0)
+        {
+            try
+            {
+                done.await();
+            }
+            catch (InterruptedException exception)
+            {
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the workers once the queued jobs are done, and their solvers
+     */
+    @Override
+    public void close()
+    {
+        synchronized (lock)
+        {
+            closed = true;
+            lock.notifyAll();
+        }
+        for (Worker worker: workers)
+        {
+            try
+            {
+                worker.thread.join(TimeUnit.MINUTES.toMillis(1));
+            }
+            catch (InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Worker worker: workers)
+        {
+            worker.stop();
+        }
+        timer.shutdownNow();
+    }
+
+    /**
+     * @return the next job of the given worker, or null if there is none.
+     * Called with the lock held.
+     */
+    private Job nextJob(Worker worker)
+    {
+        Job job = worker.jobs.pollFirst();
+        if(job != null)
+        {
+            return job;
+        }
+        List<Job> model = models.pollFirst();
+        if(model != null)
+        {
+            worker.jobs.addAll(model);
+            return worker.jobs.pollFirst();
+        }
+        // steal from the worker with the most jobs left, preferably of the
+        // translation the solver of this worker has
+        Worker victim = null;
+        for (Worker other: workers)
+        {
+            if(other.jobs.isEmpty())
+            {
+                continue;
+            }
+            boolean sameTranslation     = worker.hasTranslation(other.jobs.peekLast().translation);
+            boolean victimTranslation   = victim != null && worker.hasTranslation(victim.jobs.peekLast().translation);
+            if(victim == null || (sameTranslation && !victimTranslation) ||
+               (sameTranslation == victimTranslation && other.jobs.size() > victim.jobs.size()))
+            {
+                victim = other;
+            }
+        }
+        return victim == null ? null : victim.jobs.pollLast();
+    }
+
+    /**
+     * A command of a model
+     */
+    private static class Job
+    {
+        final String            model;
+        final Translation       translation;
+        final int               commandIndex;
+        final ResultCollector   collector;
+        final CountDownLatch    done;
+
+        Job(String model, Translation translation, int commandIndex, ResultCollector collector, CountDownLatch done)
+        {
+            this.model          = model;
+            this.translation    = translation;
+            this.commandIndex   = commandIndex;
+            this.collector      = collector;
+            this.done           = done;
+        }
+    }
+
+    /**
+     * A worker thread with its solver and its deque of jobs
+     */
+    private class Worker
+    {
+        // guarded by the lock of the pool
+        private final Deque<Job>        jobs    = new ArrayDeque<>();
+        private Thread                  thread;
+        // the translation of the solver, read by other workers to choose whom to steal from
+        private volatile SolverDriver   driver;
+
+        void run()
+        {
+            while (true)
+            {
+                Job job;
+                synchronized (lock)
+                {
+                    while ((job = nextJob(this)) == null)
+                    {
+                        if(closed)
+                        {
+                            return;
+                        }
+                        try
+                        {
+                            lock.wait();
+                        }
+                        catch (InterruptedException exception)
+                        {
+                            return;
+                        }
+                    }
+                }
+                try
+                {
+                    job.collector.add(solve(job.model, job.translation, job.commandIndex));
+                }
+                finally
+                {
+                    job.done.countDown();
+                }
+            }
+        }
+
+        boolean hasTranslation(Translation translation)
+        {
+            SolverDriver current = driver;
+            return current != null && current.getTranslation() == translation;
+        }
+
+        JobResult solve(String model, Translation translation, int commandIndex)
+        {
+            long            start           = System.nanoTime();
+            boolean         startedSolver   = false;
+            AtomicBoolean   timedOut        = new AtomicBoolean();
+            try
+            {
+                if(!canReuse(translation))
+                {
+                    stop();
+                    driver          = new SolverDriver(command, translation);
+                    startedSolver   = true;
+                }
+
+                SolverProcess       solver  = driver.getSolver();
+                ScheduledFuture<?>  kill    = null;
+                if(timeout > 0)
+                {
+                    kill = timer.schedule(() ->
+                    {
+                        timedOut.set(true);
+                        solver.kill();
+                    }, timeout, TimeUnit.MILLISECONDS);
+                }
+                try
+                {
+                    CommandResult result = driver.solve(commandIndex);
+                    return JobResult.solved(model, result, System.nanoTime() - start, startedSolver,
+                                           SmtLibPrettyPrinter.DEFAULT_OPTIONS);
+                }
+                finally
+                {
+                    if(kill != null)
+                    {
+                        kill.cancel(false);
+                    }
+                }
+            }
+            catch (IOException | RuntimeException exception)
+            {
+                // the state of the solver is unknown, the next job starts a new one
+                stop();
+                JobResult.Status status = timedOut.get() ? JobResult.Status.TIMEOUT : JobResult.Status.ERROR;
+                return new JobResult(model, commandIndex, status, null, exception.getMessage(),
+                                     System.nanoTime() - start, startedSolver, null);
+            }
+        }
+
+        /**
+         * The solver can be reused if it is alive and has the same translation
+         */
+        private boolean canReuse(Translation translation)
+        {
+            return driver != null && driver.getSolver().isAlive() && driver.getTranslation() == translation;
+        }
+
+        void stop()
+        {
+            if(driver != null)
+            {
+                driver.close();
+                driver = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.solver;
+
+import edu.uiowa.alloy2smt.smtparser.SmtModelListener;
+import edu.uiowa.alloy2smt.smtparser.SmtModelReader;
+import edu.uiowa.alloy2smt.translators.Translation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A running smt solver that reads smt-lib from its standard input and
+ * answers on its standard output. The solver keeps its assertions between
+ * commands, so a script sent once serves many check-sat commands.
+ */
+public class SolverProcess implements AutoCloseable
+{
+    /**
+     * The default solver command, cvc4 reading smt-lib from its standard input
+     */
+    public static final List<String> DEFAULT_COMMAND = Arrays.asList("cvc4", "--lang", "smt2");
+
+    private final List<String>      command;
+    private final Process           process;
+    private final Writer            writer;
+    private final SExpressionReader reader;
+
+    public SolverProcess() throws IOException
+    {
+        this(DEFAULT_COMMAND);
+    }
+
+    /**
+     * Starts the solver
+     * @param command the solver executable and its arguments
+     */
+    public SolverProcess(List<String> command) throws IOException
+    {
+        this.command    = new ArrayList<>(command);
+        this.process    = new ProcessBuilder(command)
+                            .redirectError(ProcessBuilder.Redirect.INHERIT)
+                            .start();
+        this.writer     = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.reader     = new SExpressionReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the writer of the standard input of the solver. Text written
+     * to it reaches the solver when it is flushed, e.g. by {@link SolverProcess#checkSat()}.
+     */
+    public Writer getInput()
+    {
+        return writer;
+    }
+
+    /**
+     * Sends the given smt-lib text to the solver
+     */
+    public void send(String smt) throws IOException
+    {
+        writer.write(smt);
+        writer.write("\n");
+    }
+
+    public void push() throws IOException
+    {
+        send(Translation.PUSH);
+    }
+
+    public void pop() throws IOException
+    {
+        send(Translation.POP);
+    }
+
+    /**
+     * Checks the satisfiability of the current assertions
+     * @return sat, unsat or unknown
+     */
+    public String checkSat() throws IOException
+    {
+        send(Translation.CHECK_SAT);
+        return readResponse();
+    }
+
+    /**
+     * @return the model of the last satisfiable check
+     */
+    public String getModel() throws IOException
+    {
+        send(Translation.GET_MODEL);
+        return readResponse();
+    }
+
+    /**
+     * Reads the model of the last satisfiable check directly from the output
+     * of the solver and passes its parts to the listener as they arrive
+     * @param listener the consumer of the model
+     */
+    public void getModel(SmtModelListener listener) throws IOException
+    {
+        send(Translation.GET_MODEL);
+        writer.flush();
+        new SmtModelReader(reader.getReader()).read(listener);
+    }
+
+    /**
+     * Flushes the pending input and waits for the next response of the
+     * solver. Errors of earlier commands are reported here, since the solver
+     * answers only check-sat and get-model commands.
+     */
+    private String readResponse() throws IOException
+    {
+        writer.flush();
+        String response = reader.read();
+        if(response == null)
+        {
+            throw new IOException("The solver " + command + " exited" + exitStatus());
+        }
+        if(response.startsWith("(error"))
+        {
+            throw new RuntimeException("The solver " + command + " failed: " + response);
+        }
+        return response;
+    }
+
+    private String exitStatus()
+    {
+        try
+        {
+            if(process.waitFor(1, TimeUnit.SECONDS))
+            {
+                return " with status " + process.exitValue();
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return "";
+    }
+
+    public boolean isAlive()
+    {
+        return process.isAlive();
+    }
+
+    /**
+     * Kills the solver, e.g. when it takes too long. A command waiting for
+     * a response fails with an {@link IOException}.
+     */
+    public void kill()
+    {
+        process.destroyForcibly();
+    }
+
+    /**
+     * Asks the solver to exit and kills it if it does not
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            send("(exit)");
+            writer.close();
+            if(!process.waitFor(1, TimeUnit.SECONDS))
+            {
+                process.destroyForcibly();
+            }
+        }
+        catch (IOException exception)
+        {
+            // the solver is already gone
+            process.destroyForcibly();
+        }
+        catch (InterruptedException exception)
+        {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
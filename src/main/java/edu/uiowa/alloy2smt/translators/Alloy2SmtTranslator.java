@@ -30,12 +30,19 @@ public class Alloy2SmtTranslator
 {
     public final SmtProgram smtProgram;
 
+    // receives the declarations of arithmetic and comparison operators,
+    // the smt program itself unless an incremental translation keeps them apart
+    SmtProgram                      operators;
+
     final String atom               = "Atom";
     final String unaryIntAtom       = "UnaryIntTup";
     final String binaryIntAtom      = "BinaryIntTup";        
     final String ternaryIntAtom     = "TernaryIntTup";     
     
     
+    final SmtAstFactory             factory;
+    final TranslationContext        context;
+    final TranslationMetrics        metrics;
     final CompModule                alloyModel;
     final List<Sig>                 reachableSigs;
     final List<Sig>                 topLevelSigs;
@@ -72,7 +79,6 @@ public class Alloy2SmtTranslator
     final FunctionDeclaration       valueOfBinaryIntTup;      
     final FunctionDeclaration       valueOfTernaryIntTup;
     
-    Expression                                      auxExpr;
     Set<String>                                     funcNames;
     Map<Sig, Expr>                                  sigFacts;    
     
@@ -81,39 +87,68 @@ public class Alloy2SmtTranslator
     Map<String, Expression>                         setCompFuncNameToDefMap;
     Map<String, BoundVariableDeclaration>           setCompFuncNameToBdVarExprMap;
     Map<Sig, FunctionDeclaration>                   signaturesMap;   
-    List<BoundVariableDeclaration>                  existentialBdVars;      
     Map<String, FunctionDefinition>                 funcDefsMap;        
     Map<Sig.Field, FunctionDeclaration>             fieldsMap;     
     Map<BinaryExpression.Op, FunctionDefinition>    comparisonOps;
     Map<BinaryExpression.Op, ConstantExpression>    arithOps;  
+    // the distinct atoms that bound the top-level signatures with symmetry breaking
+    Map<Sig, List<Expression>>                      atomPools;
+
+    // whether the scopes of commands are translated into cardinality bounds
+    private boolean                                 translateScopes = false;
+    // whether sibling signatures are disjoint by a linear number of assertions
+    boolean                                         linearDisjointness = false;
+    // whether the top-level signatures are bounded by ordered pools of atoms
+    private boolean                                 breakSymmetries = false;
     
 
 
     public Alloy2SmtTranslator(CompModule alloyModel)
     {
-        TranslatorUtils.reset();
+        this(alloyModel, new TranslationMetrics());
+    }
+
+    /**
+     * @param alloyModel the alloy model to translate
+     * @param metrics the metrics that record the times of the translation phases
+     */
+    public Alloy2SmtTranslator(CompModule alloyModel, TranslationMetrics metrics)
+    {
+        this(alloyModel, metrics, new TranslationContext());
+    }
 
+    /**
+     * @param alloyModel the alloy model to translate
+     * @param metrics the metrics that record the times of the translation phases
+     * @param context the context that generates the fresh names of the translation
+     */
+    Alloy2SmtTranslator(CompModule alloyModel, TranslationMetrics metrics, TranslationContext context)
+    {
         this.smtProgram             = new SmtProgram();
-        this.intSort                = new IntSort();
+        this.operators              = this.smtProgram;
+        this.context                = context;
+        this.metrics                = metrics;
+        this.factory                = new SmtAstFactory();
+        this.intSort                = factory.intern(new IntSort());
         this.alloyModel             = alloyModel;
         this.reachableSigs          = new ArrayList<>();
         this.topLevelSigs           = new ArrayList<>();
         this.commands               = alloyModel.getAllCommands();
-        this.atomSort               = new UninterpretedSort(this.atom);
-        this.unaryIntTup            = new UninterpretedSort(this.unaryIntAtom);
-        this.binaryIntTup           = new UninterpretedSort(this.binaryIntAtom);
-        this.ternaryIntTup          = new UninterpretedSort(this.ternaryIntAtom);        
+        this.atomSort               = factory.mkUninterpretedSort(this.atom);
+        this.unaryIntTup            = factory.mkUninterpretedSort(this.unaryIntAtom);
+        this.binaryIntTup           = factory.mkUninterpretedSort(this.binaryIntAtom);
+        this.ternaryIntTup          = factory.mkUninterpretedSort(this.ternaryIntAtom);        
         
-        this.unaryAtomSort          = new TupleSort(this.atomSort);
-        this.binaryAtomSort         = new TupleSort(this.atomSort, this.atomSort);
-        this.unaryIntAtomSort       = new TupleSort(this.unaryIntTup);
-        this.unaryIntSort           = new TupleSort(this.intSort);
-        this.binaryIntSort          = new TupleSort(this.intSort, this.intSort);        
-        this.ternaryIntSort         = new TupleSort(this.intSort, this.intSort, this.intSort);
-        this.setOfUnaryAtomSort     = new SetSort(this.unaryAtomSort);
-        this.setOfUnaryIntSort      = new SetSort(this.unaryIntSort);
-        this.setOfBinaryAtomSort    = new SetSort(this.binaryAtomSort);
-        this.setOfTernaryIntSort    = new SetSort(this.ternaryIntSort);
+        this.unaryAtomSort          = factory.mkTupleSort(this.atomSort);
+        this.binaryAtomSort         = factory.mkTupleSort(this.atomSort, this.atomSort);
+        this.unaryIntAtomSort       = factory.mkTupleSort(this.unaryIntTup);
+        this.unaryIntSort           = factory.mkTupleSort(this.intSort);
+        this.binaryIntSort          = factory.mkTupleSort(this.intSort, this.intSort);        
+        this.ternaryIntSort         = factory.mkTupleSort(this.intSort, this.intSort, this.intSort);
+        this.setOfUnaryAtomSort     = factory.mkSetSort(this.unaryAtomSort);
+        this.setOfUnaryIntSort      = factory.mkSetSort(this.unaryIntSort);
+        this.setOfBinaryAtomSort    = factory.mkSetSort(this.binaryAtomSort);
+        this.setOfTernaryIntSort    = factory.mkSetSort(this.ternaryIntSort);
         this.signatureTranslator    = new SignatureTranslator(this);
         this.atomUniv               = new FunctionDeclaration("atomUniv", setOfUnaryAtomSort);
         this.atomNone               = new FunctionDeclaration("atomNone", setOfUnaryAtomSort);        
@@ -128,12 +163,12 @@ public class Alloy2SmtTranslator
         
         this.comparisonOps          = new HashMap<>();  
         this.arithOps               = new HashMap<>();
+        this.atomPools              = new LinkedHashMap<>();
         this.signaturesMap          = new HashMap<>();
         this.funcNamesMap           = new HashMap<>();
         this.funcDefsMap            = new HashMap<>();
         this.fieldsMap              = new HashMap<>();
         this.sigFacts               = new HashMap<>();
-        this.existentialBdVars      = new ArrayList<>();
         this.funcNames              = new HashSet<>();    
 
         this.signaturesMap.put(Sig.UNIV, this.atomUniv);  
@@ -153,29 +188,38 @@ public class Alloy2SmtTranslator
 
     public SmtProgram translate()
     {
-        translateSpecialFunctions();
-        this.signatureTranslator.translateSigs();
-        translateFunctionsAndPredicates();
-        translateFacts();
-        translateSpecialAssertions();
+        metrics.measure("translateSpecialFunctions", this::translateSpecialFunctions);
+        metrics.measure("translateSigs", this.signatureTranslator::translateSigs);
+        metrics.measure("translateFunctionsAndPredicates", this::translateFunctionsAndPredicates);
+        metrics.measure("translateFacts", this::translateFacts);
+        if(translateScopes && breakSymmetries)
+        {
+            metrics.measure("translateAtomPools", new ScopeTranslator(this, exprTranslator)::translateAtomPools);
+        }
+        metrics.measure("translateSpecialAssertions", this::translateSpecialAssertions);
         return this.smtProgram;
     }
 
-    private void translateSpecialFunctions()
+    public TranslationMetrics getMetrics()
+    {
+        return this.metrics;
+    }
+
+    void translateSpecialFunctions()
     {
         this.smtProgram.addFunctionDeclaration(this.atomNone);
         this.smtProgram.addFunctionDeclaration(this.atomUniv);
         this.smtProgram.addFunctionDeclaration(this.atomIden);
     }
 
-    private void translateSpecialAssertions()
+    void translateSpecialAssertions()
     {
         // Axiom for identity relation
-        BoundVariableDeclaration    a       = new BoundVariableDeclaration(TranslatorUtils.getNewAtomName(), atomSort);
+        BoundVariableDeclaration    a       = new BoundVariableDeclaration(this.context.getNewAtomName(), atomSort);
         MultiArityExpression        tupleA  = new MultiArityExpression(MultiArityExpression.Op.MKTUPLE,a.getConstantExpr());
         BinaryExpression            memberA = new BinaryExpression(tupleA, BinaryExpression.Op.MEMBER, this.atomUniv.getConstantExpr());
 
-        BoundVariableDeclaration    b       = new BoundVariableDeclaration(TranslatorUtils.getNewAtomName(), atomSort);
+        BoundVariableDeclaration    b       = new BoundVariableDeclaration(this.context.getNewAtomName(), atomSort);
         MultiArityExpression        tupleB  = new MultiArityExpression(MultiArityExpression.Op.MKTUPLE,b.getConstantExpr());
         BinaryExpression            memberB = new BinaryExpression(tupleB, BinaryExpression.Op.MEMBER, this.atomUniv.getConstantExpr());
 
@@ -194,7 +238,17 @@ public class Alloy2SmtTranslator
         QuantifiedExpression        idenSemantics  = new QuantifiedExpression(QuantifiedExpression.Op.FORALL, implies, a, b);
 
         this.smtProgram.addAssertion(new Assertion("Empty unary relation definition for Atom", new BinaryExpression(this.atomNone.getConstantExpr(), BinaryExpression.Op.EQ, new UnaryExpression(UnaryExpression.Op.EMPTYSET, setOfUnaryAtomSort))));
-        this.smtProgram.addAssertion(new Assertion("Universe definition for Atom", new BinaryExpression(this.atomUniv.getConstantExpr(), BinaryExpression.Op.EQ, new UnaryExpression(UnaryExpression.Op.UNIVSET, setOfUnaryAtomSort))));
+        if(this.atomPools.isEmpty())
+        {
+            this.smtProgram.addAssertion(new Assertion("Universe definition for Atom", new BinaryExpression(this.atomUniv.getConstantExpr(), BinaryExpression.Op.EQ, new UnaryExpression(UnaryExpression.Op.UNIVSET, setOfUnaryAtomSort))));
+        }
+        else
+        {
+            // the unused atoms of the pools lie outside the universe, which
+            // still bounds the identity relation
+            BinaryExpression            univProduct = new BinaryExpression(this.atomUniv.getConstantExpr(), BinaryExpression.Op.PRODUCT, this.atomUniv.getConstantExpr());
+            this.smtProgram.addAssertion(new Assertion("Identity relation bound for Atom", new BinaryExpression(this.atomIden.getConstantExpr(), BinaryExpression.Op.SUBSET, univProduct)));
+        }
         this.smtProgram.addAssertion(new Assertion("Identity relation definition for Atom", idenSemantics));
     }
 
@@ -208,7 +262,6 @@ public class Alloy2SmtTranslator
 
     private void translateFunctionsAndPredicates()
     {        
-        List<String> funcOrder = new ArrayList<>();
         Map<String, List<String>> dependency = new HashMap<>();
         
         for(Func func : this.alloyModel.getAllFunc()) 
@@ -226,7 +279,17 @@ public class Alloy2SmtTranslator
             translateFunc(f);
             sortFunctionDependency(f.label, f.getBody(), dependency);
         }
-                
+        addFunctionDefinitions(dependency);
+    }
+
+    /**
+     * Adds the definitions of the translated functions to the smt program
+     * such that every function is defined after the functions it calls
+     */
+    void addFunctionDefinitions(Map<String, List<String>> dependency)
+    {
+        List<String> funcOrder = new ArrayList<>();
+
         // Organize the order of dependency
         organizeDependency(dependency, funcOrder);
         
@@ -256,8 +319,8 @@ public class Alloy2SmtTranslator
             }                    
         }
 
-        String              setBdVarName    = TranslatorUtils.getNewSetName();
-        SetSort             setSort         = new SetSort(new TupleSort(elementSorts));
+        String              setBdVarName    = this.context.getNewSetName();
+        SetSort             setSort         = factory.mkSetSort(factory.mkTupleSort(elementSorts));
         BoundVariableDeclaration setBdVar   = new BoundVariableDeclaration(setBdVarName, setSort);
         LinkedHashMap<BoundVariableDeclaration, Expression> inputBdVars = new LinkedHashMap<>();
         List<String> inputVarNames = new ArrayList<>();
@@ -269,7 +332,7 @@ public class Alloy2SmtTranslator
             {
                 String  bdVarName       = n.label;
                 String  sanBdVarName    = TranslatorUtils.sanitizeName(n.label);
-                Sort    bdVarSort       = TranslatorUtils.getSetSortOfAtomWithArity(getArityofExpr(f.decls.get(i).expr));
+                Sort    bdVarSort       = TranslatorUtils.getSetSortOfAtomWithArity(getArityofExpr(f.decls.get(i).expr), this);
                 BoundVariableDeclaration bdVarDecl = new BoundVariableDeclaration(sanBdVarName, bdVarSort);
                 
                 inputVarNames.add(sanBdVarName);
@@ -309,8 +372,10 @@ public class Alloy2SmtTranslator
     }    
          
     
-    private void translateFunc(Func f)
+    void translateFunc(Func f)
     { 
+        // every function has its own auxiliary constraints of cardinalities
+        this.exprTranslator.clearAuxiliaryState();
         if(isSetComp(f.getBody()))
         {
            translateSetCompFunc(f);
@@ -331,7 +396,7 @@ public class Alloy2SmtTranslator
             {
                 String  bdVarName       = n.label;
                 String  sanBdVarName    = TranslatorUtils.sanitizeName(n.label);
-                Sort    bdVarSort       = TranslatorUtils.getSetSortOfAtomWithArity(getArityofExpr(f.decls.get(i).expr));
+                Sort    bdVarSort       = TranslatorUtils.getSetSortOfAtomWithArity(getArityofExpr(f.decls.get(i).expr), this);
                 BoundVariableDeclaration bdVarDecl = new BoundVariableDeclaration(sanBdVarName, bdVarSort);
                 
                 bdVars.add(bdVarDecl);
@@ -341,7 +406,7 @@ public class Alloy2SmtTranslator
         // If the function is not predicate, we change its returned type.
         if(!f.isPred)
         {
-            returnSort = TranslatorUtils.getSetSortOfAtomWithArity(getArityofExpr(f.returnDecl));
+            returnSort = TranslatorUtils.getSetSortOfAtomWithArity(getArityofExpr(f.returnDecl), this);
         }
         
         FunctionDefinition funcDef = new FunctionDefinition(funcName, bdVars, returnSort, 
@@ -354,8 +419,10 @@ public class Alloy2SmtTranslator
         return expr.type().arity();    
     }
 
-    private void translateFact(String factName, Expr factExpr)
+    void translateFact(String factName, Expr factExpr)
     {
+        // every fact has its own auxiliary constraints of cardinalities
+        this.exprTranslator.clearAuxiliaryState();
         this.smtProgram.addAssertion(new Assertion(factName, this.exprTranslator.translateExpr(factExpr)));
     }
     
@@ -374,7 +441,7 @@ public class Alloy2SmtTranslator
      * This is to sort out the function dependencies so that 
      * we can print them in the right order
      */
-    private void sortFunctionDependency(String callingFuncName, Expr expr, Map<String, List<String>> dependency)
+    void sortFunctionDependency(String callingFuncName, Expr expr, Map<String, List<String>> dependency)
     {
         if(expr instanceof ExprUnary)
         {
@@ -393,9 +460,11 @@ public class Alloy2SmtTranslator
                 case LONEOF     :
                 case SOMEOF     : 
                 case SETOF      :                 
+                case EXACTLYOF  :
+                case CARDINALITY:
+                case CAST2INT   :
+                case CAST2SIGINT:
                 case NOT        : sortFunctionDependency(callingFuncName, exprUnary.sub, dependency); break;
-                case CAST2INT   : return;
-                case CAST2SIGINT : return;
                 default:
                 {
                     throw new UnsupportedOperationException("Not supported yet: " + exprUnary.op);
@@ -698,19 +767,123 @@ public class Alloy2SmtTranslator
         return id;
     }
 
+    /**
+     * @param translateScopes whether the commands are bounded by their scopes,
+     * e.g. for 3 but 5 A, which are ignored otherwise
+     */
+    public void setTranslateScopes(boolean translateScopes)
+    {
+        this.translateScopes = translateScopes;
+    }
+
+    /**
+     * @param linearDisjointness whether the disjointness of sibling signatures
+     * is asserted through the unions of their prefixes, which are linear in
+     * the number of siblings, instead of one assertion per pair.
+     * It has to be set before the model is translated.
+     */
+    public void setLinearDisjointness(boolean linearDisjointness)
+    {
+        this.linearDisjointness = linearDisjointness;
+    }
+
+    /**
+     * @param breakSymmetries whether every top-level signature is bounded by
+     * a pool of distinct atoms that it fills in order, which has no effect
+     * unless scopes are translated. It has to be set before the model is
+     * translated.
+     */
+    public void setBreakSymmetries(boolean breakSymmetries)
+    {
+        this.breakSymmetries = breakSymmetries;
+    }
+
     /**
      * @param commandIndex the index of the run command
      * @return an assertion that represents the translation
      * of the command
      */
     public Assertion translateCommand(int commandIndex)
+    {
+        return translateCommand(commandIndex, this.context);
+    }
+
+    /**
+     * Translates the given command using the fresh names of the given context
+     * @param commandIndex the index of the command
+     * @param context the context that generates the fresh names of the command
+     * @return an assertion of the command formula
+     */
+    public Assertion translateCommand(int commandIndex, TranslationContext context)
     {
         Command command = this.commands.get(commandIndex);
 
-        Expression expression = this.exprTranslator.translateExpr(command.formula);
+        // a fresh expression translator keeps the auxiliary state of this
+        // command apart from other commands translated concurrently
+        ExprTranslator exprTranslator = new ExprTranslator(this, context);
+        Expression expression = exprTranslator.translateExpr(command.formula);
+
+        if(translateScopes)
+        {
+            List<Expression> conjuncts = new ArrayList<>();
+            conjuncts.add(expression);
+            conjuncts.addAll(new ScopeTranslator(this, exprTranslator).translateScopes(command));
+            expression = TranslatorUtils.mkMultiArityExpression(MultiArityExpression.Op.AND, conjuncts);
+        }
 
         Assertion assertion = new Assertion(command.label, expression);
 
         return assertion;
     }
+
+    /**
+     * @return a context that continues the fresh names of this translator
+     * without advancing them
+     */
+    public TranslationContext forkContext()
+    {
+        return this.context.fork();
+    }
+
+    /**
+     * @return a context like {@link #forkContext()} for a command that is
+     * translated along with other commands, which collects the operators
+     * the command uses for the first time
+     */
+    TranslationContext forkCommandContext()
+    {
+        return this.context.forkCommand();
+    }
+
+    /**
+     * Declares the operators collected in the context of a command in the smt
+     * program, unless they were declared already. Calling this for the
+     * commands in their order declares the operators in the same order
+     * however the commands were scheduled.
+     * @param context the context of a command from {@link #forkCommandContext()}
+     */
+    synchronized void declareOperators(TranslationContext context)
+    {
+        for (Map.Entry<BinaryExpression.Op, SmtProgram> entry : context.getOperators().entrySet())
+        {
+            BinaryExpression.Op op           = entry.getKey();
+            SmtProgram          declarations = entry.getValue();
+            if(!declarations.getFunctionDefinitions().isEmpty())
+            {
+                if(!comparisonOps.containsKey(op))
+                {
+                    FunctionDefinition definition = declarations.getFunctionDefinitions().get(0);
+                    operators.addFunctionDefinition(definition);
+                    comparisonOps.put(op, definition);
+                }
+            }
+            else if(!arithOps.containsKey(op))
+            {
+                ConstantDeclaration declaration = declarations.getConstantDeclarations().get(0);
+                operators.addConstantDeclaration(declaration);
+                declarations.getAssertions().forEach(operators::addAssertion);
+                arithOps.put(op, declaration.getConstantExpr());
+            }
+        }
+    }
 }
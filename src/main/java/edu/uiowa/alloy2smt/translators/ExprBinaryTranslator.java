@@ -204,11 +204,7 @@ public class ExprBinaryTranslator
         Expression leftExpr     = exprTranslator.translateExpr(expr.left, variablesScope);
         Expression rightExpr    = exprTranslator.translateExpr(expr.right, variablesScope);    
         
-        if(!exprTranslator.translator.arithOps.containsKey(op))
-        {                      
-            exprTranslator.declArithmeticOp(op);
-        }
-        return new BinaryExpression(leftExpr, BinaryExpression.Op.JOIN, new BinaryExpression(rightExpr, BinaryExpression.Op.JOIN, exprTranslator.translator.arithOps.get(op)));
+        return new BinaryExpression(leftExpr, BinaryExpression.Op.JOIN, new BinaryExpression(rightExpr, BinaryExpression.Op.JOIN, exprTranslator.getArithmeticOp(op)));
     }
     
     private Expression translateComparison(ExprBinary expr, BinaryExpression.Op op, Map<String,Expression> variablesScope)
@@ -246,14 +242,14 @@ public class ExprBinaryTranslator
 
                     Expression distElementsExpr = TranslatorUtils.mkDistinctExpr(existentialBdVarExprs);
 
-                    exprTranslator.translator.existentialBdVars.addAll(existentialBdVars);        
-                    if(exprTranslator.translator.auxExpr != null)
+                    exprTranslator.existentialBdVars.addAll(existentialBdVars);        
+                    if(exprTranslator.auxExpr != null)
                     {
-                        exprTranslator.translator.auxExpr = new BinaryExpression(exprTranslator.translator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
+                        exprTranslator.auxExpr = new BinaryExpression(exprTranslator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
                     }
                     else
                     {
-                        exprTranslator.translator.auxExpr = distElementsExpr;
+                        exprTranslator.auxExpr = distElementsExpr;
                     }
      
                     Expression  rightExpr;
@@ -269,11 +265,11 @@ public class ExprBinaryTranslator
                     
                     // rightExpr + 1 <= leftExpr
                     comparisonExpr = new BinaryExpression(rightExpr, BinaryExpression.Op.SUBSET, leftExpr);
-                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
+                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
                     
-                    if(!exprTranslator.translator.existentialBdVars.isEmpty())
+                    if(!exprTranslator.existentialBdVars.isEmpty())
                     {
-                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, comparisonExpr);
+                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, comparisonExpr);
                     }                    
                     break;
                 }
@@ -295,14 +291,14 @@ public class ExprBinaryTranslator
                     // (distinct e1 e2 e3 ....)
                     Expression distElementsExpr = TranslatorUtils.mkDistinctExpr(existentialBdVarExprs);
 
-                    exprTranslator.translator.existentialBdVars.addAll(existentialBdVars);        
-                    if(exprTranslator.translator.auxExpr != null)
+                    exprTranslator.existentialBdVars.addAll(existentialBdVars);        
+                    if(exprTranslator.auxExpr != null)
                     {
-                        exprTranslator.translator.auxExpr = new BinaryExpression(exprTranslator.translator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
+                        exprTranslator.auxExpr = new BinaryExpression(exprTranslator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
                     }
                     else
                     {
-                        exprTranslator.translator.auxExpr = distElementsExpr;
+                        exprTranslator.auxExpr = distElementsExpr;
                     }
      
                     Expression  rightExpr;
@@ -318,11 +314,11 @@ public class ExprBinaryTranslator
                     
                     // leftExpr <= rightExpr-1
                     comparisonExpr = new BinaryExpression(leftExpr, BinaryExpression.Op.SUBSET, rightExpr);
-                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
+                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
                     
-                    if(!exprTranslator.translator.existentialBdVars.isEmpty())
+                    if(!exprTranslator.existentialBdVars.isEmpty())
                     {
-                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, comparisonExpr);
+                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, comparisonExpr);
                     } 
                     break;
                 }
@@ -344,14 +340,14 @@ public class ExprBinaryTranslator
                     // (distinct e1 e2 e3 ....)
                     Expression distElementsExpr = TranslatorUtils.mkDistinctExpr(existentialBdVarExprs);
 
-                    exprTranslator.translator.existentialBdVars.addAll(existentialBdVars);        
-                    if(exprTranslator.translator.auxExpr != null)
+                    exprTranslator.existentialBdVars.addAll(existentialBdVars);        
+                    if(exprTranslator.auxExpr != null)
                     {
-                        exprTranslator.translator.auxExpr = new BinaryExpression(exprTranslator.translator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
+                        exprTranslator.auxExpr = new BinaryExpression(exprTranslator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
                     }
                     else
                     {
-                        exprTranslator.translator.auxExpr = distElementsExpr;
+                        exprTranslator.auxExpr = distElementsExpr;
                     }
      
                     Expression  rightExpr;
@@ -367,11 +363,11 @@ public class ExprBinaryTranslator
                     
                     // rightExpr <= leftExpr
                     comparisonExpr = new BinaryExpression(rightExpr, BinaryExpression.Op.SUBSET, leftExpr);
-                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
+                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
                     
-                    if(!exprTranslator.translator.existentialBdVars.isEmpty())
+                    if(!exprTranslator.existentialBdVars.isEmpty())
                     {
-                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, comparisonExpr);
+                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, comparisonExpr);
                     }
                     break;
                 }
@@ -393,14 +389,14 @@ public class ExprBinaryTranslator
                     // (distinct e1 e2 e3 ....)
                     Expression distElementsExpr = TranslatorUtils.mkDistinctExpr(existentialBdVarExprs);
 
-                    exprTranslator.translator.existentialBdVars.addAll(existentialBdVars);        
-                    if(exprTranslator.translator.auxExpr != null)
+                    exprTranslator.existentialBdVars.addAll(existentialBdVars);        
+                    if(exprTranslator.auxExpr != null)
                     {
-                        exprTranslator.translator.auxExpr = new BinaryExpression(exprTranslator.translator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
+                        exprTranslator.auxExpr = new BinaryExpression(exprTranslator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
                     }
                     else
                     {
-                        exprTranslator.translator.auxExpr = distElementsExpr;
+                        exprTranslator.auxExpr = distElementsExpr;
                     }
      
                     Expression  rightExpr;
@@ -416,11 +412,11 @@ public class ExprBinaryTranslator
                     
                     // rightExpr <= leftExpr
                     comparisonExpr = new BinaryExpression(leftExpr, BinaryExpression.Op.SUBSET, rightExpr);
-                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
+                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
                     
-                    if(!exprTranslator.translator.existentialBdVars.isEmpty())
+                    if(!exprTranslator.existentialBdVars.isEmpty())
                     {
-                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, comparisonExpr);
+                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, comparisonExpr);
                     }
                     break;                    
                 }                
@@ -457,14 +453,14 @@ public class ExprBinaryTranslator
 
                     Expression distElementsExpr = TranslatorUtils.mkDistinctExpr(existentialBdVarExprs);
 
-                    exprTranslator.translator.existentialBdVars.addAll(existentialBdVars);        
-                    if(exprTranslator.translator.auxExpr != null)
+                    exprTranslator.existentialBdVars.addAll(existentialBdVars);        
+                    if(exprTranslator.auxExpr != null)
                     {
-                        exprTranslator.translator.auxExpr = new BinaryExpression(exprTranslator.translator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
+                        exprTranslator.auxExpr = new BinaryExpression(exprTranslator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
                     }
                     else
                     {
-                        exprTranslator.translator.auxExpr = distElementsExpr;
+                        exprTranslator.auxExpr = distElementsExpr;
                     }
      
                     Expression  leftExpr;
@@ -480,11 +476,11 @@ public class ExprBinaryTranslator
                     
                     // rightExpr + 1 <= leftExpr
                     comparisonExpr = new BinaryExpression(rightExpr, BinaryExpression.Op.SUBSET, leftExpr);
-                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
+                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
                     
-                    if(!exprTranslator.translator.existentialBdVars.isEmpty())
+                    if(!exprTranslator.existentialBdVars.isEmpty())
                     {
-                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, comparisonExpr);
+                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, comparisonExpr);
                     }                    
                     break;
                 }
@@ -506,14 +502,14 @@ public class ExprBinaryTranslator
                     // (distinct e1 e2 e3 ....)
                     Expression distElementsExpr = TranslatorUtils.mkDistinctExpr(existentialBdVarExprs);
 
-                    exprTranslator.translator.existentialBdVars.addAll(existentialBdVars);        
-                    if(exprTranslator.translator.auxExpr != null)
+                    exprTranslator.existentialBdVars.addAll(existentialBdVars);        
+                    if(exprTranslator.auxExpr != null)
                     {
-                        exprTranslator.translator.auxExpr = new BinaryExpression(exprTranslator.translator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
+                        exprTranslator.auxExpr = new BinaryExpression(exprTranslator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
                     }
                     else
                     {
-                        exprTranslator.translator.auxExpr = distElementsExpr;
+                        exprTranslator.auxExpr = distElementsExpr;
                     }
      
                     Expression  leftExpr;
@@ -529,11 +525,11 @@ public class ExprBinaryTranslator
                     
                     // leftExpr <= rightExpr-1
                     comparisonExpr = new BinaryExpression(rightExpr, BinaryExpression.Op.SUBSET, leftExpr);
-                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
+                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
                     
-                    if(!exprTranslator.translator.existentialBdVars.isEmpty())
+                    if(!exprTranslator.existentialBdVars.isEmpty())
                     {
-                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, comparisonExpr);
+                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, comparisonExpr);
                     } 
                     break;
                 }
@@ -555,14 +551,14 @@ public class ExprBinaryTranslator
                     // (distinct e1 e2 e3 ....)
                     Expression distElementsExpr = TranslatorUtils.mkDistinctExpr(existentialBdVarExprs);
 
-                    exprTranslator.translator.existentialBdVars.addAll(existentialBdVars);        
-                    if(exprTranslator.translator.auxExpr != null)
+                    exprTranslator.existentialBdVars.addAll(existentialBdVars);        
+                    if(exprTranslator.auxExpr != null)
                     {
-                        exprTranslator.translator.auxExpr = new BinaryExpression(exprTranslator.translator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
+                        exprTranslator.auxExpr = new BinaryExpression(exprTranslator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
                     }
                     else
                     {
-                        exprTranslator.translator.auxExpr = distElementsExpr;
+                        exprTranslator.auxExpr = distElementsExpr;
                     }
      
                     Expression  leftExpr;
@@ -578,11 +574,11 @@ public class ExprBinaryTranslator
                     
                     // rightExpr <= leftExpr
                     comparisonExpr = new BinaryExpression(rightExpr, BinaryExpression.Op.SUBSET, leftExpr);
-                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
+                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
                     
-                    if(!exprTranslator.translator.existentialBdVars.isEmpty())
+                    if(!exprTranslator.existentialBdVars.isEmpty())
                     {
-                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, comparisonExpr);
+                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, comparisonExpr);
                     }
                     break;
                 }
@@ -604,14 +600,14 @@ public class ExprBinaryTranslator
                     // (distinct e1 e2 e3 ....)
                     Expression distElementsExpr = TranslatorUtils.mkDistinctExpr(existentialBdVarExprs);
 
-                    exprTranslator.translator.existentialBdVars.addAll(existentialBdVars);        
-                    if(exprTranslator.translator.auxExpr != null)
+                    exprTranslator.existentialBdVars.addAll(existentialBdVars);        
+                    if(exprTranslator.auxExpr != null)
                     {
-                        exprTranslator.translator.auxExpr = new BinaryExpression(exprTranslator.translator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
+                        exprTranslator.auxExpr = new BinaryExpression(exprTranslator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
                     }
                     else
                     {
-                        exprTranslator.translator.auxExpr = distElementsExpr;
+                        exprTranslator.auxExpr = distElementsExpr;
                     }
      
                     Expression  leftExpr;
@@ -627,11 +623,11 @@ public class ExprBinaryTranslator
                     
                     // leftExpr <= rightExpr 
                     comparisonExpr = new BinaryExpression(leftExpr, BinaryExpression.Op.SUBSET, rightExpr);
-                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
+                    comparisonExpr = new BinaryExpression(comparisonExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
                     
-                    if(!exprTranslator.translator.existentialBdVars.isEmpty())
+                    if(!exprTranslator.existentialBdVars.isEmpty())
                     {
-                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, comparisonExpr);
+                        comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, comparisonExpr);
                     }
                     break;                    
                 }                
@@ -643,29 +639,64 @@ public class ExprBinaryTranslator
             Expression leftExpr     = exprTranslator.translateExpr(expr.left, variablesScope);
             Expression rightExpr    = exprTranslator.translateExpr(expr.right, variablesScope);
 
-            if(!exprTranslator.translator.comparisonOps.containsKey(op))
-            {
-                declComparisonOps(op);
-            }
-            comparisonExpr = new FunctionCallExpression(exprTranslator.translator.comparisonOps.get(op).getFuncName(), leftExpr, rightExpr);             
+            comparisonExpr = new FunctionCallExpression(getComparisonOp(op).getFuncName(), leftExpr, rightExpr);             
             
             // Add auxiliary quantifiers and expressions
-            if(!exprTranslator.translator.existentialBdVars.isEmpty())
+            if(!exprTranslator.existentialBdVars.isEmpty())
             {
-                if(exprTranslator.translator.auxExpr != null)
+                if(exprTranslator.auxExpr != null)
                 {
-                    comparisonExpr = new BinaryExpression(comparisonExpr, op, exprTranslator.translator.auxExpr);
+                    comparisonExpr = new BinaryExpression(comparisonExpr, op, exprTranslator.auxExpr);
                 }
-                comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, comparisonExpr);
+                comparisonExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, comparisonExpr);
             }
-            exprTranslator.translator.auxExpr = null;
-            exprTranslator.translator.existentialBdVars.clear();
+            exprTranslator.auxExpr = null;
+            exprTranslator.existentialBdVars.clear();
         }    
 
         return comparisonExpr;     
     }
     
-    private void declComparisonOps(BinaryExpression.Op op)
+    /**
+     * @param op a comparison operator
+     * @return the definition of the operator, which is declared in the smt
+     * program the first time it is used, or collected in the context of a
+     * command that is translated along with other commands. Commands may be
+     * translated concurrently, hence the lock on the translator
+     */
+    private FunctionDefinition getComparisonOp(BinaryExpression.Op op)
+    {
+        Alloy2SmtTranslator translator = exprTranslator.translator;
+        synchronized (translator)
+        {
+            FunctionDefinition operator = translator.comparisonOps.get(op);
+            if(operator != null)
+            {
+                return operator;
+            }
+            Map<BinaryExpression.Op, SmtProgram> commandOperators = exprTranslator.context.getOperators();
+            if(commandOperators == null)
+            {
+                operator = declComparisonOps(op);
+                translator.operators.addFunctionDefinition(operator);
+                translator.comparisonOps.put(op, operator);
+                return operator;
+            }
+            SmtProgram declarations = commandOperators.get(op);
+            if(declarations == null)
+            {
+                declarations = new SmtProgram();
+                declarations.addFunctionDefinition(declComparisonOps(op));
+                commandOperators.put(op, declarations);
+            }
+            return declarations.getFunctionDefinitions().get(0);
+        }
+    }
+
+    /**
+     * @return the definition of the given comparison operator
+     */
+    private FunctionDefinition declComparisonOps(BinaryExpression.Op op)
     {
         BoundVariableDeclaration    bdIntRelVar1        = new BoundVariableDeclaration("_rel1", exprTranslator.translator.setOfUnaryIntSort);                
         BoundVariableDeclaration    bdIntRelVar2        = new BoundVariableDeclaration("_rel2", exprTranslator.translator.setOfUnaryIntSort);
@@ -703,8 +734,7 @@ public class ExprBinaryTranslator
                 break;
             default:break;
         } 
-        exprTranslator.translator.smtProgram.addFunctionDefinition(compFunc);
-        exprTranslator.translator.comparisonOps.put(op, compFunc);                
+        return compFunc;
     }
     
     private Expression translateEqComparison(ExprBinary expr, BinaryExpression.Op op, Map<String,Expression> variablesScope)
@@ -755,14 +785,14 @@ public class ExprBinaryTranslator
             finalExpr = new BinaryExpression(left, BinaryExpression.Op.EQ, right);
         }        
 
-        if(!exprTranslator.translator.existentialBdVars.isEmpty())
+        if(!exprTranslator.existentialBdVars.isEmpty())
         {
-            if(exprTranslator.translator.auxExpr != null)
+            if(exprTranslator.auxExpr != null)
             {
-                finalExpr = new BinaryExpression(finalExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
-                exprTranslator.translator.auxExpr = null;
+                finalExpr = new BinaryExpression(finalExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
+                exprTranslator.auxExpr = null;
             }
-            finalExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, finalExpr);
+            finalExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, finalExpr);
         }                
         return finalExpr;        
     }
@@ -843,14 +873,14 @@ public class ExprBinaryTranslator
         
         Expression distElementsExpr = new MultiArityExpression(MultiArityExpression.Op.DISTINCT, existentialBdVarExprs);
         
-        exprTranslator.translator.existentialBdVars.addAll(existentialBdVars);        
-        if(exprTranslator.translator.auxExpr != null)
+        exprTranslator.existentialBdVars.addAll(existentialBdVars);        
+        if(exprTranslator.auxExpr != null)
         {
-            exprTranslator.translator.auxExpr = new BinaryExpression(exprTranslator.translator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
+            exprTranslator.auxExpr = new BinaryExpression(exprTranslator.auxExpr, BinaryExpression.Op.AND, distElementsExpr);
         }
         else
         {
-            exprTranslator.translator.auxExpr = distElementsExpr;
+            exprTranslator.auxExpr = distElementsExpr;
         }
         
         Expression  distElementSetExpr = exprTranslator.mkUnaryRelationOutOfAtomsOrTuples(existentialBdVarExprs);        
@@ -863,15 +893,15 @@ public class ExprBinaryTranslator
             case EQ : {
                 Expression eqExpr = new BinaryExpression(left, BinaryExpression.Op.EQ, right);
                 
-                if(exprTranslator.translator.auxExpr != null)
+                if(exprTranslator.auxExpr != null)
                 {
-                    eqExpr = new BinaryExpression(eqExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
-                    exprTranslator.translator.auxExpr = null;
+                    eqExpr = new BinaryExpression(eqExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
+                    exprTranslator.auxExpr = null;
                 }
-                if(!exprTranslator.translator.existentialBdVars.isEmpty())
+                if(!exprTranslator.existentialBdVars.isEmpty())
                 {
                     eqExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, existentialBdVars, eqExpr);
-                    exprTranslator.translator.existentialBdVars.clear();
+                    exprTranslator.existentialBdVars.clear();
                 }
                 if(op == BinaryExpression.Op.NEQ)
                 {
@@ -946,15 +976,15 @@ public class ExprBinaryTranslator
         {
             finalExpr = new UnaryExpression(UnaryExpression.Op.NOT, finalExpr);
         }
-        if(!exprTranslator.translator.existentialBdVars.isEmpty())
+        if(!exprTranslator.existentialBdVars.isEmpty())
         {
-            if(exprTranslator.translator.auxExpr != null)
+            if(exprTranslator.auxExpr != null)
             {
-                finalExpr = new BinaryExpression(finalExpr, BinaryExpression.Op.AND, exprTranslator.translator.auxExpr);
-                exprTranslator.translator.auxExpr = null;
+                finalExpr = new BinaryExpression(finalExpr, BinaryExpression.Op.AND, exprTranslator.auxExpr);
+                exprTranslator.auxExpr = null;
             }
-            finalExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, finalExpr);
-            exprTranslator.translator.existentialBdVars.clear();
+            finalExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, finalExpr);
+            exprTranslator.existentialBdVars.clear();
         }                
         return finalExpr;                 
     }
@@ -23,15 +23,39 @@ public class ExprTranslator
 {
     final Alloy2SmtTranslator translator;
 
+    final TranslationContext context;
+
     final ExprUnaryTranslator exprUnaryTranslator;
 
     final ExprBinaryTranslator exprBinaryTranslator;
 
+    // auxiliary constraints and existential variables of the expression being
+    // translated. Each command gets its own expression translator
+    Expression                      auxExpr;
+    List<BoundVariableDeclaration>  existentialBdVars;
+
     public ExprTranslator(Alloy2SmtTranslator translator)
+    {
+        this(translator, translator.context);
+    }
+
+    public ExprTranslator(Alloy2SmtTranslator translator, TranslationContext context)
     {
         this.translator             = translator;
+        this.context                = context;
         this.exprUnaryTranslator    = new ExprUnaryTranslator(this);
         this.exprBinaryTranslator   = new ExprBinaryTranslator(this);
+        this.existentialBdVars      = new ArrayList<>();
+    }
+
+    /**
+     * Forgets the auxiliary constraints and existential variables of the
+     * expressions translated so far
+     */
+    void clearAuxiliaryState()
+    {
+        this.auxExpr            = null;
+        this.existentialBdVars  = new ArrayList<>();
     }
 
     Expression translateExpr(Expr expr)
@@ -102,8 +126,8 @@ public class ExprTranslator
     {
         switch (exprList.op)
         {
-            case AND        : return translateExprListToBinaryExpressions(BinaryExpression.Op.AND, exprList, variablesScope);
-            case OR         : return translateExprListToBinaryExpressions(BinaryExpression.Op.OR, exprList, variablesScope);
+            case AND        : return translateExprListToMultiArityExpression(MultiArityExpression.Op.AND, exprList, variablesScope);
+            case OR         : return translateExprListToMultiArityExpression(MultiArityExpression.Op.OR, exprList, variablesScope);
             case DISJOINT   : return translateExprListToDisjBinaryExpressions(UnaryExpression.Op.DISTINCT, exprList, variablesScope);
             default     : throw new UnsupportedOperationException();
         }
@@ -127,11 +151,7 @@ public class ExprTranslator
                 Expression disjExpr = new BinaryExpression(translator.atomNone.getConstantExpr(), BinaryExpression.Op.EQ, new BinaryExpression(exprs.get(i), BinaryExpression.Op.INTERSECTION, exprs.get(i+1)));
                 finalExprs.add(disjExpr);
             }
-            finalExpr = finalExprs.get(0);
-            for(int i = 1; i < finalExprs.size(); ++i)
-            {
-                finalExpr = new BinaryExpression(finalExpr, BinaryExpression.Op.AND, finalExprs.get(i));
-            }
+            finalExpr = TranslatorUtils.mkMultiArityExpression(MultiArityExpression.Op.AND, finalExprs);
         }
         else
         {
@@ -146,7 +166,7 @@ public class ExprTranslator
         Map<String, Expression> varToExprMap    = new HashMap<>();
         String                  sanitizeName    = TranslatorUtils.sanitizeName(exprLet.var.label);
         List<Sort>              exprSorts       = getExprSorts(exprLet.expr);
-        ConstantExpression      varDeclExpr     = new ConstantExpression(new ConstantDeclaration(sanitizeName, new SetSort(new TupleSort(exprSorts))));
+        ConstantExpression      varDeclExpr     = new ConstantExpression(new ConstantDeclaration(sanitizeName, translator.factory.mkSetSort(translator.factory.mkTupleSort(exprSorts))));
         
         varToExprMap.put(sanitizeName, varExpr);        
         variablesScope.put(exprLet.var.label, varDeclExpr);
@@ -212,28 +232,62 @@ public class ExprTranslator
         {
             setCompDef = new LetExpression(LetExpression.Op.LET, letVars, setCompDef);
         }
-        if(translator.auxExpr != null)
+        if(auxExpr != null)
         {
-            translator.auxExpr = new BinaryExpression(translator.auxExpr, BinaryExpression.Op.AND, setCompDef);
+            auxExpr = new BinaryExpression(auxExpr, BinaryExpression.Op.AND, setCompDef);
         }
         else
         {
-            translator.auxExpr = setCompDef;
+            auxExpr = setCompDef;
         }
-        translator.existentialBdVars.add(setBdVar);
+        existentialBdVars.add(setBdVar);
         return setBdVar.getConstantExpr();
     }
     
     public Expression translateArithmetic(Expression leftExpr, Expression rightExpr, BinaryExpression.Op op, Map<String,Expression> variablesScope)
     {
-        if(!translator.arithOps.containsKey(op))
-        {                      
-            declArithmeticOp(op);
+        return new BinaryExpression(rightExpr, BinaryExpression.Op.JOIN, new BinaryExpression(leftExpr, BinaryExpression.Op.JOIN, getArithmeticOp(op)));
+    }
+
+    /**
+     * @param op an arithmetic operator
+     * @return the constant of the operator, which is declared in the smt
+     * program the first time it is used, or collected in the context of a
+     * command that is translated along with other commands. Commands may be
+     * translated concurrently, hence the lock on the translator
+     */
+    ConstantExpression getArithmeticOp(BinaryExpression.Op op)
+    {
+        synchronized (translator)
+        {
+            ConstantExpression operator = translator.arithOps.get(op);
+            if(operator != null)
+            {
+                return operator;
+            }
+            Map<BinaryExpression.Op, SmtProgram> commandOperators = context.getOperators();
+            if(commandOperators == null)
+            {
+                operator = declArithmeticOp(op, translator.operators);
+                translator.arithOps.put(op, operator);
+                return operator;
+            }
+            SmtProgram declarations = commandOperators.get(op);
+            if(declarations == null)
+            {
+                declarations = new SmtProgram();
+                declArithmeticOp(op, declarations);
+                commandOperators.put(op, declarations);
+            }
+            return declarations.getConstantDeclarations().get(0).getConstantExpr();
         }
-        return new BinaryExpression(rightExpr, BinaryExpression.Op.JOIN, new BinaryExpression(leftExpr, BinaryExpression.Op.JOIN, translator.arithOps.get(op)));
     }
 
-    public void declArithmeticOp(BinaryExpression.Op op)
+    /**
+     * Declares the given arithmetic operator in the given program
+     * @return the constant of the operator
+     */
+    ConstantExpression declArithmeticOp(BinaryExpression.Op op, SmtProgram program)
     {
         BoundVariableDeclaration  bdUnaryIntVar1 = new BoundVariableDeclaration("_x", translator.unaryIntTup);
         BoundVariableDeclaration  bdUnaryIntVar2 = new BoundVariableDeclaration("_y", translator.unaryIntTup); 
@@ -322,23 +376,23 @@ public class ExprTranslator
             default:
                 break;                   
         }
-        translator.smtProgram.addConstantDeclaration(arithVarDecl);
-        translator.smtProgram.addAssertion(new Assertion("Arithmetic operator constant definition I", finalExprI));     
-        translator.smtProgram.addAssertion(new Assertion("Arithmetic operator constant definition II", finalExprII));     
-        translator.arithOps.put(op, arithVarDecl.getConstantExpr());        
+        program.addConstantDeclaration(arithVarDecl);
+        program.addAssertion(new Assertion("Arithmetic operator constant definition I", finalExprI));     
+        program.addAssertion(new Assertion("Arithmetic operator constant definition II", finalExprII));     
+        return arithVarDecl.getConstantExpr();
     }
 
-    private Expression translateExprListToBinaryExpressions(BinaryExpression.Op op, ExprList exprList, Map<String, Expression> variablesScope)
+    private Expression translateExprListToMultiArityExpression(MultiArityExpression.Op op, ExprList exprList, Map<String, Expression> variablesScope)
     {
 
         if(exprList.args.size() == 0 )
         {
-            if (op == BinaryExpression.Op.AND)
+            if (op == MultiArityExpression.Op.AND)
             {
                 return new BooleanConstant(true);
             }
 
-            if (op == BinaryExpression.Op.OR)
+            if (op == MultiArityExpression.Op.OR)
             {
                 return new BooleanConstant(false);
             }
@@ -346,24 +400,12 @@ public class ExprTranslator
         }
 
         //ToDo: review the case of nested variable scopes
-        Expression left         = translateExpr(exprList.args.get(0), variablesScope);
-
-        if(exprList.args.size() == 1)
-        {
-            return left;
-        }
-
-        Expression right        = translateExpr(exprList.args.get(1), variablesScope);
-        BinaryExpression result = new BinaryExpression(left, op, right);
-
-
-        for(int i = 2; i < exprList.args.size(); i++)
+        List<Expression> exprs = new ArrayList<>(exprList.args.size());
+        for(Expr expr : exprList.args)
         {
-            Expression expr     = translateExpr(exprList.args.get(i), variablesScope);
-            result              = new BinaryExpression(result, op, expr);
+            exprs.add(translateExpr(expr, variablesScope));
         }
-
-        return result;
+        return TranslatorUtils.mkMultiArityExpression(op, exprs);
     }
 
     Expression translateExprQt(ExprQt exprQt, Map<String, Expression> variablesScope)
@@ -474,8 +516,8 @@ public class ExprTranslator
                     }                    
                 }
                 
-                String              setBdVarName    = TranslatorUtils.getNewSetName();
-                SetSort             setSort         = new SetSort(new TupleSort(elementSorts));
+                String              setBdVarName    = context.getNewSetName();
+                SetSort             setSort         = translator.factory.mkSetSort(translator.factory.mkTupleSort(elementSorts));
                 BoundVariableDeclaration setBdVar   = new BoundVariableDeclaration(setBdVarName, setSort);
                 LinkedHashMap<BoundVariableDeclaration, Expression> bdVars = new LinkedHashMap<>();
                 
@@ -504,16 +546,16 @@ public class ExprTranslator
                 membership = new BinaryExpression(membership, BinaryExpression.Op.EQ, setMembership);
                 Expression forallExpr = new QuantifiedExpression(QuantifiedExpression.Op.FORALL, new ArrayList<>(bdVars.keySet()), membership);
                 
-                if(translator.auxExpr != null)
+                if(auxExpr != null)
                 {                    
-                    translator.auxExpr = new BinaryExpression(translator.auxExpr, BinaryExpression.Op.AND, forallExpr);
+                    auxExpr = new BinaryExpression(auxExpr, BinaryExpression.Op.AND, forallExpr);
                 }
                 else
                 {
-                    translator.auxExpr = forallExpr;
+                    auxExpr = forallExpr;
                 }
                 
-                translator.existentialBdVars.add(setBdVar);
+                existentialBdVars.add(setBdVar);
                 return setBdVar.getConstantExpr();
             }
             default: throw new UnsupportedOperationException();
@@ -779,7 +821,7 @@ public class ExprTranslator
         
         for(int i = 0; i < num; i++)
         {
-            bdVars.add(new BoundVariableDeclaration(TranslatorUtils.getNewAtomName(), sort));
+            bdVars.add(new BoundVariableDeclaration(context.getNewAtomName(), sort));
         }
         return bdVars;
     }
@@ -824,7 +866,7 @@ public class ExprTranslator
         }
         for(int i = 0; i < num; i++)
         {
-            bdVars.add(new BoundVariableDeclaration(TranslatorUtils.getNewAtomName(), new TupleSort(elementSorts)));
+            bdVars.add(new BoundVariableDeclaration(context.getNewAtomName(), translator.factory.mkTupleSort(elementSorts)));
         }
         return bdVars;
     }    
@@ -875,7 +917,7 @@ public class ExprTranslator
                 Logger.getLogger(ExprTranslator.class.getName()).log(Level.SEVERE, null, ex);
             }
         }
-        return new UnaryExpression(UnaryExpression.Op.EMPTYSET, new SetSort(new TupleSort(sorts)));
+        return new UnaryExpression(UnaryExpression.Op.EMPTYSET, translator.factory.mkSetSort(translator.factory.mkTupleSort(sorts)));
     }
 
     Expression mkUnaryRelationOutOfAtomsOrTuples(List<Expression> atomOrTupleExprs)
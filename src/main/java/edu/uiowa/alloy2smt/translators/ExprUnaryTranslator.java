@@ -160,12 +160,12 @@ public class ExprUnaryTranslator
     {
         Expression finalExpr = expr;
         
-        if(exprTranslator.translator.auxExpr != null)
+        if(exprTranslator.auxExpr != null)
         {
-            finalExpr = new BinaryExpression(exprTranslator.translator.auxExpr, BinaryExpression.Op.AND, finalExpr);            
-            finalExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.translator.existentialBdVars, finalExpr);
-            exprTranslator.translator.auxExpr = null;
-            exprTranslator.translator.existentialBdVars.clear();            
+            finalExpr = new BinaryExpression(exprTranslator.auxExpr, BinaryExpression.Op.AND, finalExpr);            
+            finalExpr = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, exprTranslator.existentialBdVars, finalExpr);
+            exprTranslator.auxExpr = null;
+            exprTranslator.existentialBdVars.clear();            
             
         }
         return finalExpr;
@@ -185,7 +185,7 @@ public class ExprUnaryTranslator
             elementSorts.add(sorts.get(i));
         }
         Expression eqExpr = new BinaryExpression(set, BinaryExpression.Op.EQ, 
-                                    new UnaryExpression(UnaryExpression.Op.EMPTYSET, new SetSort(new TupleSort(elementSorts))));         
+                                    new UnaryExpression(UnaryExpression.Op.EMPTYSET, exprTranslator.translator.factory.mkSetSort(exprTranslator.translator.factory.mkTupleSort(elementSorts))));         
         return tryAddingExistentialConstraint(eqExpr);
     }
 
@@ -199,7 +199,7 @@ public class ExprUnaryTranslator
         
         for(Sort sort : sorts)
         {
-            String name = TranslatorUtils.getNewName();
+            String name = exprTranslator.context.getNewName();
             BoundVariableDeclaration bdVar;
             Expression bdVarExpr;
             
@@ -238,7 +238,7 @@ public class ExprUnaryTranslator
         
         for(Sort sort : sorts)
         {
-            String name = TranslatorUtils.getNewName();
+            String name = exprTranslator.context.getNewName();
             BoundVariableDeclaration bdVar;
             Expression bdVarExpr;
             
@@ -281,7 +281,7 @@ public class ExprUnaryTranslator
         
         for(Sort sort : sorts)
         {
-            String name = TranslatorUtils.getNewName();
+            String name = exprTranslator.context.getNewName();
             BoundVariableDeclaration bdVar;
             Expression bdVarExpr;
             
@@ -443,14 +443,14 @@ public class ExprUnaryTranslator
         Expression finalExpr = bodyExpr;
         if(isBinaryIntField(exprUnary))
         {            
-            BoundVariableDeclaration bdBinIntTup = new BoundVariableDeclaration(TranslatorUtils.getNewName(), exprTranslator.translator.binaryIntTup);
+            BoundVariableDeclaration bdBinIntTup = new BoundVariableDeclaration(exprTranslator.context.getNewName(), exprTranslator.translator.binaryIntTup);
             Expression eq = new BinaryExpression(mkBinaryIntTupValue(bdBinIntTup.getConstantExpr()), BinaryExpression.Op.EQ, bdVarTupExpr);
             QuantifiedExpression quantEq = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, eq, bdBinIntTup);            
             finalExpr = new BinaryExpression(bodyExpr, BinaryExpression.Op.AND, quantEq);
         }
         else if(isTernaryIntField(exprUnary))
         {            
-            BoundVariableDeclaration bdTernaryIntTup = new BoundVariableDeclaration(TranslatorUtils.getNewName(), exprTranslator.translator.ternaryIntTup);
+            BoundVariableDeclaration bdTernaryIntTup = new BoundVariableDeclaration(exprTranslator.context.getNewName(), exprTranslator.translator.ternaryIntTup);
             Expression eq = new BinaryExpression(mkTernaryIntTupValue(bdTernaryIntTup.getConstantExpr()), BinaryExpression.Op.EQ, bdVarTupExpr);
             QuantifiedExpression quantEq = new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, eq, bdTernaryIntTup);
             finalExpr = new BinaryExpression(bodyExpr, BinaryExpression.Op.AND, quantEq);
@@ -91,19 +91,16 @@ public class FieldTranslator
         /* alloy: sig Book{addr: Name -> lone Addr}
          *  smt  : (assert (subset addr (product (product Book Name) Addr)))
          */
-        Expression  first   = translator.signaturesMap.get(field.sig).getConstantExpr();
-        Expression  second  = (fieldComponentExprs.get(1) instanceof Sig) ? 
-                                    translator.signaturesMap.get((Sig)fieldComponentExprs.get(1)).getConstantExpr()
-                                    : translator.exprTranslator.translateExpr(fieldComponentExprs.get(1));
-        BinaryExpression    product = new BinaryExpression(first, BinaryExpression.Op.PRODUCT, second);
-
-        for(int i = 2; i < fieldComponentExprs.size(); i++)
+        List<Expression>    components  = new ArrayList<>();
+        components.add(translator.signaturesMap.get(field.sig).getConstantExpr());
+        for(int i = 1; i < fieldComponentExprs.size(); i++)
         {       
             Expression  expr  = (fieldComponentExprs.get(i) instanceof Sig) ? 
                                     translator.signaturesMap.get((Sig)fieldComponentExprs.get(i)).getConstantExpr()
                                     : translator.exprTranslator.translateExpr(fieldComponentExprs.get(i));
-            product = new BinaryExpression(product, BinaryExpression.Op.PRODUCT, expr);            
+            components.add(expr);
         }
+        Expression          product     = TranslatorUtils.mkMultiArityExpression(MultiArityExpression.Op.PRODUCT, components);
         // Collect field's type information
         for(int i = 0; i < fieldComponentExprs.size(); i++)
         {
@@ -118,7 +115,7 @@ public class FieldTranslator
         }        
         
       
-        FunctionDeclaration fieldDecl = new FunctionDeclaration(fieldName, new SetSort(new TupleSort(fieldSorts)));
+        FunctionDeclaration fieldDecl = new FunctionDeclaration(fieldName, translator.factory.mkSetSort(translator.factory.mkTupleSort(fieldSorts)));
         // declare a variable for the field
         translator.smtProgram.addFunctionDeclaration(fieldDecl);
         translator.fieldsMap.put(field, fieldDecl);   
@@ -248,9 +245,9 @@ public class FieldTranslator
         boolean isFstSigVarInt = fieldComponentExprs.get(0).type().is_int();
         boolean isSndSigVarInt = fieldComponentExprs.get(1).type().is_int();
         
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String sndSigVarName    = TranslatorUtils.getNewName();
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String sndSigVarName    = translator.context.getNewName();
 
         Sort sigVarSort     = isSigVarInt?translator.unaryIntTup:translator.atomSort;
         Sort fstSigVarSort  = isFstSigVarInt?translator.unaryIntTup:translator.atomSort;
@@ -302,9 +299,9 @@ public class FieldTranslator
         boolean isFstSigVarInt = fieldComponentExprs.get(0).type().is_int();
         boolean isSndSigVarInt = fieldComponentExprs.get(1).type().is_int();
         
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String sndSigVarName    = TranslatorUtils.getNewName();
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String sndSigVarName    = translator.context.getNewName();
         
         Sort sigVarSort     = isSigVarInt?translator.unaryIntTup:translator.atomSort;
         Sort fstSigVarSort  = isFstSigVarInt?translator.unaryIntTup:translator.atomSort;
@@ -361,10 +358,10 @@ public class FieldTranslator
         boolean isFstSigVarInt = fieldComponentExprs.get(0).type().is_int();
         boolean isSndSigVarInt = fieldComponentExprs.get(1).type().is_int();
         
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String sndSigVarName    = TranslatorUtils.getNewName();
-        String fstPrimeSigVarName    = TranslatorUtils.getNewName();
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String sndSigVarName    = translator.context.getNewName();
+        String fstPrimeSigVarName    = translator.context.getNewName();
 
         Sort sigVarSort     = isSigVarInt?translator.unaryIntTup:translator.atomSort;
         Sort fstSigVarSort  = isFstSigVarInt?translator.unaryIntTup:translator.atomSort;
@@ -432,10 +429,10 @@ public class FieldTranslator
         boolean isFstSigVarInt = fieldComponentExprs.get(0).type().is_int();
         boolean isSndSigVarInt = fieldComponentExprs.get(1).type().is_int();
         
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String sndSigVarName    = TranslatorUtils.getNewName();
-        String sndPrimeSigVarName    = TranslatorUtils.getNewName();
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String sndSigVarName    = translator.context.getNewName();
+        String sndPrimeSigVarName    = translator.context.getNewName();
 
         Sort sigVarSort     = isSigVarInt?translator.unaryIntTup:translator.atomSort;
         Sort fstSigVarSort  = isFstSigVarInt?translator.unaryIntTup:translator.atomSort;
@@ -501,10 +498,10 @@ public class FieldTranslator
         boolean isFstSigVarInt = fieldComponentExprs.get(0).type().is_int();
         boolean isSndSigVarInt = fieldComponentExprs.get(1).type().is_int();
         
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String sndSigVarName    = TranslatorUtils.getNewName();
-        String sndPrimeSigVarName    = TranslatorUtils.getNewName();
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String sndSigVarName    = translator.context.getNewName();
+        String sndPrimeSigVarName    = translator.context.getNewName();
 
         Sort sigVarSort     = isSigVarInt?translator.unaryIntTup:translator.atomSort;
         Sort fstSigVarSort  = isFstSigVarInt?translator.unaryIntTup:translator.atomSort;
@@ -570,10 +567,10 @@ public class FieldTranslator
         boolean isFstSigVarInt = fieldComponentExprs.get(0).type().is_int();
         boolean isSndSigVarInt = fieldComponentExprs.get(1).type().is_int();
         
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String sndSigVarName    = TranslatorUtils.getNewName();
-        String fstPrimeSigVarName    = TranslatorUtils.getNewName();
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String sndSigVarName    = translator.context.getNewName();
+        String fstPrimeSigVarName    = translator.context.getNewName();
 
         Sort sigVarSort     = isSigVarInt?translator.unaryIntTup:translator.atomSort;
         Sort fstSigVarSort  = isFstSigVarInt?translator.unaryIntTup:translator.atomSort;
@@ -655,9 +652,9 @@ public class FieldTranslator
         Boolean sigVarIsInt     = field.sig.type().is_int();
         Boolean fstSigVarIsInt  = fieldComponentExprs.get(0).type().is_int();
         
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        TupleSort unaryTupleSort = new TupleSort(translator.atomSort);
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        TupleSort unaryTupleSort = translator.factory.mkTupleSort(translator.atomSort);
         
         BoundVariableDeclaration    sigVar  = new BoundVariableDeclaration(sigVarName, 
                                                     sigVarIsInt? translator.unaryIntTup:translator.atomSort);
@@ -715,10 +712,10 @@ public class FieldTranslator
         Boolean fstSigVarIsInt  = fieldComponentExprs.get(0).type().is_int();
 
         
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String fstPrimeSigVarName    = TranslatorUtils.getNewName();
-        TupleSort unaryTupleSort = new TupleSort(translator.atomSort);
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String fstPrimeSigVarName    = translator.context.getNewName();
+        TupleSort unaryTupleSort = translator.factory.mkTupleSort(translator.atomSort);
         
         BoundVariableDeclaration    sigVar      = new BoundVariableDeclaration(sigVarName, 
                                                     sigVarIsInt? translator.unaryIntTup:translator.atomSort);
@@ -796,10 +793,10 @@ public class FieldTranslator
         Boolean fstSigVarIsInt  = fieldComponentExprs.get(0).type().is_int();
 
         
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String fstPrimeSigVarName    = TranslatorUtils.getNewName();
-        TupleSort unaryTupleSort = new TupleSort(translator.atomSort);
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String fstPrimeSigVarName    = translator.context.getNewName();
+        TupleSort unaryTupleSort = translator.factory.mkTupleSort(translator.atomSort);
         
         BoundVariableDeclaration    sigVar      = new BoundVariableDeclaration(sigVarName, 
                                                     sigVarIsInt? translator.unaryIntTup:translator.atomSort);
@@ -878,9 +875,9 @@ public class FieldTranslator
         
         if(numOfSigs == 2)
         {
-            String sigVarName       = TranslatorUtils.getNewName();
-            String fstSigVarName    = TranslatorUtils.getNewName();
-            String sndSigVarName    = TranslatorUtils.getNewName();
+            String sigVarName       = translator.context.getNewName();
+            String fstSigVarName    = translator.context.getNewName();
+            String sndSigVarName    = translator.context.getNewName();
 
             Sort sigVarSort     = field.sig.type().is_int()?translator.intSort:translator.atomSort;
             Sort fstSigVarSort  = fieldSignatures.get(0).type().is_int()?translator.intSort:translator.atomSort;
@@ -913,12 +910,12 @@ public class FieldTranslator
         }
         else
         {
-            String sigVarName       = TranslatorUtils.getNewName();
-            String fstSigVarName    = TranslatorUtils.getNewName();
-            String sndSigVarName    = TranslatorUtils.getNewName();
+            String sigVarName       = translator.context.getNewName();
+            String fstSigVarName    = translator.context.getNewName();
+            String sndSigVarName    = translator.context.getNewName();
             
-            String leftSetName      = TranslatorUtils.getNewSetName();
-            String rightSetName     = TranslatorUtils.getNewSetName();
+            String leftSetName      = translator.context.getNewSetName();
+            String rightSetName     = translator.context.getNewSetName();
 
             Sort                        sigVarSort  = field.sig.type().is_int()?translator.intSort:translator.atomSort;
             BoundVariableDeclaration    sigVar      = new BoundVariableDeclaration(sigVarName, sigVarSort);
@@ -953,8 +950,8 @@ public class FieldTranslator
                     Sort s  = fieldSignatures.get(i).type().is_int()?translator.intSort:translator.atomSort;
                     elementSorts.add(s);
                 }
-                fstSigVarSort = new TupleSort(elementSorts);
-                FunctionDeclaration varDecl = new FunctionDeclaration(leftSetName, new SetSort(fstSigVarSort));                                
+                fstSigVarSort = translator.factory.mkTupleSort(elementSorts);
+                FunctionDeclaration varDecl = new FunctionDeclaration(leftSetName, translator.factory.mkSetSort(fstSigVarSort));                                
                 leftSigExpr = varDecl.getConstantExpr();
                 translator.smtProgram.addFunctionDeclaration(varDecl);
                 fstSigVar           = new BoundVariableDeclaration(fstSigVarName, fstSigVarSort);                
@@ -984,8 +981,8 @@ public class FieldTranslator
                     Sort s  = fieldSignatures.get(i).type().is_int()?translator.intSort:translator.atomSort;
                     elementSorts.add(s);
                 }                
-                sndSigVarSort = new TupleSort(elementSorts);   
-                FunctionDeclaration varDecl = new FunctionDeclaration(rightSetName, new SetSort(sndSigVarSort));
+                sndSigVarSort = translator.factory.mkTupleSort(elementSorts);   
+                FunctionDeclaration varDecl = new FunctionDeclaration(rightSetName, translator.factory.mkSetSort(sndSigVarSort));
                 rightSigExpr = varDecl.getConstantExpr();
                 sndSigVar      = new BoundVariableDeclaration(sndSigVarName, sndSigVarSort);
                 sndSigVarMembership = new BinaryExpression(sndSigVar.getConstantExpr(),
@@ -1029,9 +1026,9 @@ public class FieldTranslator
     // SOME_ARROW_ANY
     private void translateNestedSomeArrowAny(List<Sig> fieldSignatures, Sig.Field field)
     {   
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String sndSigVarName    = TranslatorUtils.getNewName();
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String sndSigVarName    = translator.context.getNewName();
         
         Sort sigVarSort     = field.sig.type().is_int()?translator.intSort:translator.atomSort;
         Sort fstSigVarSort  = fieldSignatures.get(0).type().is_int()?translator.intSort:translator.atomSort;
@@ -1069,10 +1066,10 @@ public class FieldTranslator
     // ONE_ARROW_ANY
     private void translateNestedOneArrowAny(List<Sig> fieldSignatures, Sig.Field field)
     {
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String sndSigVarName    = TranslatorUtils.getNewName();
-        String sndPrimeSigVarName    = TranslatorUtils.getNewName();
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String sndSigVarName    = translator.context.getNewName();
+        String sndPrimeSigVarName    = translator.context.getNewName();
 
         Sort sigVarSort     = field.sig.type().is_int()?translator.intSort:translator.atomSort;
         Sort fstSigVarSort  = fieldSignatures.get(0).type().is_int()?translator.intSort:translator.atomSort;
@@ -1120,10 +1117,10 @@ public class FieldTranslator
     // ANY_ARROW_ONE
     private void translateNestedAnyArrowOne(List<Sig> fieldSignatures, Sig.Field field)
     {
-        String sigVarName       = TranslatorUtils.getNewName();
-        String fstSigVarName    = TranslatorUtils.getNewName();
-        String sndSigVarName    = TranslatorUtils.getNewName();
-        String sndPrimeSigVarName    = TranslatorUtils.getNewName();
+        String sigVarName       = translator.context.getNewName();
+        String fstSigVarName    = translator.context.getNewName();
+        String sndSigVarName    = translator.context.getNewName();
+        String sndPrimeSigVarName    = translator.context.getNewName();
 
         Sort sigVarSort     = field.sig.type().is_int()?translator.intSort:translator.atomSort;
         Sort fstSigVarSort  = fieldSignatures.get(0).type().is_int()?translator.intSort:translator.atomSort;
@@ -1197,7 +1194,7 @@ public class FieldTranslator
                     exprs.add(atomExprs.get(i));
                 }
             }
-            return new MultiArityExpression(MultiArityExpression.Op.MKTUPLE, exprs);
+            return translator.factory.mkMultiArityExpression(MultiArityExpression.Op.MKTUPLE, exprs);
         }        
     } 
     
@@ -1231,7 +1228,7 @@ public class FieldTranslator
                     exprs.add(atomExprs[i]);
                 }
             }
-            return new MultiArityExpression(MultiArityExpression.Op.MKTUPLE, exprs);
+            return translator.factory.mkMultiArityExpression(MultiArityExpression.Op.MKTUPLE, exprs);
         }        
     } 
 
@@ -1243,7 +1240,7 @@ public class FieldTranslator
         }
         else 
         {            
-            return new UnaryExpression(UnaryExpression.Op.SINGLETON, mkTupleOutofAtoms(atomExprs));
+            return translator.factory.mkUnaryExpression(UnaryExpression.Op.SINGLETON, mkTupleOutofAtoms(atomExprs));
         }        
     }
     
@@ -1255,7 +1252,7 @@ public class FieldTranslator
         }
         else 
         {            
-            return new UnaryExpression(UnaryExpression.Op.SINGLETON, mkTupleOutofAtoms(atomExprs));
+            return translator.factory.mkUnaryExpression(UnaryExpression.Op.SINGLETON, mkTupleOutofAtoms(atomExprs));
         }        
     } 
     
@@ -1267,7 +1264,7 @@ public class FieldTranslator
         }
         else 
         {            
-            return new UnaryExpression(UnaryExpression.Op.SINGLETON, tupleExpr);
+            return translator.factory.mkUnaryExpression(UnaryExpression.Op.SINGLETON, tupleExpr);
         }        
     }  
     
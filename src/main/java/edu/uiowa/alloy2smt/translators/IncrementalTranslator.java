@@ -0,0 +1,590 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.translators;
+
+import edu.mit.csail.sdg.alloy4.Pair;
+import edu.mit.csail.sdg.ast.*;
+import edu.mit.csail.sdg.parser.CompModule;
+import edu.mit.csail.sdg.parser.CompUtil;
+import edu.uiowa.alloy2smt.mapping.Mapper;
+import edu.uiowa.alloy2smt.smtAst.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates successive versions of an alloy model, reusing the translations
+ * of the items that did not change since the previous version. The items are
+ * the signatures with their fields, each function or predicate and each fact.
+ * A function or a fact is translated again when its own text changes or when
+ * a function it calls, directly or not, is translated again. A change to the
+ * signatures or fields translates the whole model again.
+ * <p>
+ * Each item is translated on its own, and like in a full translation no
+ * auxiliary constraints of cardinalities carry over from one item to the
+ * next, so both translations are equivalent. The model is still parsed as
+ * a whole; the translation after an edit costs in proportion to the items
+ * the edit touches.
+ */
+public class IncrementalTranslator
+{
+    /**
+     * The declarations, definitions and assertions added to a program while
+     * translating an item
+     */
+    static class ProgramSlice
+    {
+        final List<FunctionDeclaration> functionDeclarations;
+        final List<ConstantDeclaration> constantDeclarations;
+        final List<FunctionDefinition>  functionDefinitions;
+        final List<Assertion>           assertions;
+
+        private ProgramSlice(SmtProgram program, int[] sizes)
+        {
+            this.functionDeclarations   = slice(program.getFunctionDeclarations(), sizes[0]);
+            this.constantDeclarations   = slice(program.getConstantDeclarations(), sizes[1]);
+            this.functionDefinitions    = slice(program.getFunctionDefinitions(), sizes[2]);
+            this.assertions             = slice(program.getAssertions(), sizes[3]);
+        }
+
+        private static <T> List<T> slice(List<T> list, int start)
+        {
+            return new ArrayList<>(list.subList(start, list.size()));
+        }
+
+        /**
+         * Runs the given translation and records what it adds to the program
+         */
+        static ProgramSlice record(SmtProgram program, Runnable translation)
+        {
+            int[] sizes = {program.getFunctionDeclarations().size(), program.getConstantDeclarations().size(),
+                           program.getFunctionDefinitions().size(), program.getAssertions().size()};
+            translation.run();
+            return new ProgramSlice(program, sizes);
+        }
+
+        void replay(SmtProgram program)
+        {
+            functionDeclarations.forEach(program::addFunctionDeclaration);
+            constantDeclarations.forEach(program::addConstantDeclaration);
+            functionDefinitions.forEach(program::addFunctionDefinition);
+            assertions.forEach(program::addAssertion);
+        }
+    }
+
+    /**
+     * The translation of a function or predicate
+     */
+    static class FunctionTranslation
+    {
+        final String                    label;
+        final ProgramSlice              slice;
+
+        // the definition of an ordinary function
+        String                          name;
+        FunctionDefinition              definition;
+
+        // the inlined definition of a set comprehension function
+        List<String>                    setCompInputs;
+        Expression                      setCompDefinition;
+        BoundVariableDeclaration        setCompVariable;
+
+        FunctionTranslation(String label, ProgramSlice slice)
+        {
+            this.label  = label;
+            this.slice  = slice;
+        }
+
+        void replay(Alloy2SmtTranslator translator)
+        {
+            slice.replay(translator.smtProgram);
+            if(definition != null)
+            {
+                translator.funcNamesMap.put(label, name);
+                translator.funcDefsMap.put(name, definition);
+            }
+            else
+            {
+                translator.setCompFuncNameToInputsMap.put(label, setCompInputs);
+                translator.setCompFuncNameToDefMap.put(label, setCompDefinition);
+                translator.setCompFuncNameToBdVarExprMap.put(label, setCompVariable);
+            }
+        }
+    }
+
+    // the state of the previous translation
+    private TranslationContext                              context;
+    private String                                          signaturesKey;
+    private ProgramSlice                                    signatures;
+    private Map<String, FunctionDeclaration>                signatureDeclarations   = new HashMap<>();
+    private Map<String, FunctionDeclaration>                fieldDeclarations       = new HashMap<>();
+    private SmtProgram                                      operators               = new SmtProgram();
+    private Map<BinaryExpression.Op, FunctionDefinition>    comparisonOps           = new HashMap<>();
+    private Map<BinaryExpression.Op, ConstantExpression>    arithOps                = new HashMap<>();
+    private Map<String, FunctionTranslation>                functions               = new HashMap<>();
+    private Map<String, ProgramSlice>                       facts                   = new HashMap<>();
+
+    // the keys of the functions of the current translation by label
+    private Map<String, String>                             functionKeys            = new HashMap<>();
+
+    private int                                             translatedItems;
+    private int                                             reusedItems;
+
+    /**
+     * Parses and translates the given version of the alloy model
+     * @param alloyProgram the alloy model
+     * @return the translation of the alloy model
+     */
+    public Translation translate(String alloyProgram)
+    {
+        TranslationMetrics  metrics     = new TranslationMetrics();
+        CompModule          alloyModel  = metrics.measure(TranslationMetrics.PARSE,
+                                            () -> CompUtil.parseEverything_fromString(null, alloyProgram));
+        return translate(alloyModel, metrics);
+    }
+
+    /**
+     * Translates the given version of the alloy model
+     * @param alloyModel the parsed alloy model
+     * @param metrics the metrics that record the times of the translation phases
+     * @return the translation of the alloy model
+     */
+    public synchronized Translation translate(CompModule alloyModel, TranslationMetrics metrics)
+    {
+        // names generated by this translation continue the names of the reused items
+        TranslationContext  translationContext  = context == null ? new TranslationContext() : context.fork();
+        Alloy2SmtTranslator translator          = new Alloy2SmtTranslator(alloyModel, metrics, translationContext);
+        String              newSignaturesKey    = computeSignaturesKey(alloyModel);
+        boolean             reuseSignatures     = newSignaturesKey.equals(signaturesKey);
+
+        translatedItems = 0;
+        reusedItems     = 0;
+        if(!reuseSignatures)
+        {
+            // every item may refer to the changed signatures
+            operators       = new SmtProgram();
+            comparisonOps   = new HashMap<>();
+            arithOps        = new HashMap<>();
+            functions       = new HashMap<>();
+            facts           = new HashMap<>();
+        }
+
+        // operators declared by previous translations are declared again, so
+        // that reused items can refer to them
+        translator.operators = new SmtProgram();
+        addAll(operators, translator.operators);
+        translator.comparisonOps.putAll(comparisonOps);
+        translator.arithOps.putAll(arithOps);
+
+        metrics.measure("translateSpecialFunctions", translator::translateSpecialFunctions);
+        metrics.measure("translateSigs", () -> translateSignatures(translator, reuseSignatures));
+        metrics.measure("translateFunctionsAndPredicates", () -> translateFunctions(translator));
+        metrics.measure("translateFacts", () -> translateFacts(translator));
+        metrics.measure("translateSpecialAssertions", translator::translateSpecialAssertions);
+
+        // operator definitions come first since functions may call them
+        SmtProgram program = translator.smtProgram;
+        List<FunctionDefinition> definitions = new ArrayList<>(program.getFunctionDefinitions());
+        program.getFunctionDefinitions().clear();
+        addAll(translator.operators, program);
+        definitions.forEach(program::addFunctionDefinition);
+
+        this.operators      = translator.operators;
+        this.comparisonOps  = new HashMap<>(translator.comparisonOps);
+        this.arithOps       = new HashMap<>(translator.arithOps);
+        this.signaturesKey  = newSignaturesKey;
+        this.context        = translationContext;
+
+        // operators used for the first time by commands go to the program
+        translator.operators = program;
+
+        Mapper mapper = metrics.measure("generateMapper", translator::generateMapper);
+        metrics.countProgram(program);
+        return new Translation(translator, program, mapper, null);
+    }
+
+    private static void addAll(SmtProgram source, SmtProgram target)
+    {
+        source.getFunctionDeclarations().forEach(target::addFunctionDeclaration);
+        source.getConstantDeclarations().forEach(target::addConstantDeclaration);
+        source.getFunctionDefinitions().forEach(target::addFunctionDefinition);
+        source.getAssertions().forEach(target::addAssertion);
+    }
+
+    private void translateSignatures(Alloy2SmtTranslator translator, boolean reuseSignatures)
+    {
+        if(reuseSignatures)
+        {
+            translator.signatureTranslator.collectReachableSigs();
+            // the signatures of the new model are new objects with the same names
+            for (Sig sig : translator.reachableSigs)
+            {
+                translator.signaturesMap.put(sig, signatureDeclarations.get(sig.label));
+                for (Sig.Field field : sig.getFields())
+                {
+                    translator.fieldsMap.put(field, fieldDeclarations.get(getFieldKey(field)));
+                }
+            }
+            signatures.replay(translator.smtProgram);
+            reusedItems++;
+            return;
+        }
+
+        signatures = ProgramSlice.record(translator.smtProgram, translator.signatureTranslator::translateSigs);
+        signatureDeclarations.clear();
+        fieldDeclarations.clear();
+        for (Sig sig : translator.reachableSigs)
+        {
+            signatureDeclarations.put(sig.label, translator.signaturesMap.get(sig));
+            for (Sig.Field field : sig.getFields())
+            {
+                fieldDeclarations.put(getFieldKey(field), translator.fieldsMap.get(field));
+            }
+        }
+        translatedItems++;
+    }
+
+    private void translateFunctions(Alloy2SmtTranslator translator)
+    {
+        Map<String, List<String>>   dependency  = new HashMap<>();
+        Map<String, Func>           funcs       = new LinkedHashMap<>();
+
+        for(Func func : translator.alloyModel.getAllFunc())
+        {
+            translator.funcNames.add(func.label);
+            //ignore  private functions like $$Default and run$1 etc
+            if(func.isPrivate == null)
+            {
+                funcs.put(func.label, func);
+                translator.sortFunctionDependency(func.label, func.getBody(), dependency);
+            }
+        }
+
+        functionKeys = new HashMap<>();
+        for (String label : funcs.keySet())
+        {
+            computeFunctionKey(label, funcs, dependency, new HashSet<>());
+        }
+
+        Map<String, FunctionTranslation> newFunctions = new HashMap<>();
+        for (Func func : funcs.values())
+        {
+            String              key         = functionKeys.get(func.label);
+            FunctionTranslation translation = functions.get(key);
+            if(translation != null)
+            {
+                translation.replay(translator);
+                reusedItems++;
+            }
+            else
+            {
+                translation = translateFunction(translator, func);
+                translatedItems++;
+            }
+            newFunctions.put(key, translation);
+        }
+        functions = newFunctions;
+
+        translator.addFunctionDefinitions(dependency);
+    }
+
+    private FunctionTranslation translateFunction(Alloy2SmtTranslator translator, Func func)
+    {
+        ProgramSlice        slice       = ProgramSlice.record(translator.smtProgram, () -> translator.translateFunc(func));
+        FunctionTranslation translation = new FunctionTranslation(func.label, slice);
+        if(translator.funcNamesMap.containsKey(func.label))
+        {
+            translation.name                = translator.funcNamesMap.get(func.label);
+            translation.definition          = translator.funcDefsMap.get(translation.name);
+        }
+        else
+        {
+            translation.setCompInputs       = translator.setCompFuncNameToInputsMap.get(func.label);
+            translation.setCompDefinition   = translator.setCompFuncNameToDefMap.get(func.label);
+            translation.setCompVariable     = translator.setCompFuncNameToBdVarExprMap.get(func.label);
+        }
+        return translation;
+    }
+
+    /**
+     * @return a key of the given function that changes whenever the function
+     * or one of the functions it calls changes
+     */
+    private String computeFunctionKey(String label, Map<String, Func> funcs, Map<String, List<String>> dependency,
+                                      Set<String> visiting)
+    {
+        if(functionKeys.containsKey(label))
+        {
+            return functionKeys.get(label);
+        }
+        Func func = funcs.get(label);
+        if(func == null)
+        {
+            // a library or private function whose text is part of the callers' text
+            return label;
+        }
+        if(!visiting.add(label))
+        {
+            // recursive functions are keyed by their own text within the cycle
+            return fingerprint(func);
+        }
+        StringBuilder key = new StringBuilder(fingerprint(func));
+        for (String callee : dependency.getOrDefault(label, new ArrayList<>()))
+        {
+            key.append("\ncalls ").append(callee).append(":\n")
+               .append(computeFunctionKey(callee, funcs, dependency, visiting));
+        }
+        visiting.remove(label);
+        functionKeys.put(label, key.toString());
+        return key.toString();
+    }
+
+    private void translateFacts(Alloy2SmtTranslator translator)
+    {
+        Map<String, ProgramSlice>   newFacts    = new HashMap<>();
+        Map<String, Integer>        occurrences = new HashMap<>();
+        for (Pair<String, Expr> pair : translator.alloyModel.getAllFacts())
+        {
+            StringBuilder key = new StringBuilder(pair.a).append("\n").append(fingerprint(pair.b));
+            for (String callee : getCallees(translator, pair.a, pair.b))
+            {
+                key.append("\ncalls ").append(callee).append(":\n").append(functionKeys.get(callee));
+            }
+            // identical facts have separate translations, which declare different names
+            int occurrence = occurrences.merge(key.toString(), 1, Integer::sum);
+            key.append("\n#").append(occurrence);
+
+            ProgramSlice slice = facts.get(key.toString());
+            if(slice != null)
+            {
+                slice.replay(translator.smtProgram);
+                reusedItems++;
+            }
+            else
+            {
+                slice = ProgramSlice.record(translator.smtProgram, () -> translator.translateFact(pair.a, pair.b));
+                translatedItems++;
+            }
+            newFacts.put(key.toString(), slice);
+        }
+        facts = newFacts;
+    }
+
+    /**
+     * @return the functions called by the given fact, or all functions when
+     * the calls of the fact cannot be determined
+     */
+    private List<String> getCallees(Alloy2SmtTranslator translator, String factName, Expr fact)
+    {
+        Map<String, List<String>> dependency = new HashMap<>();
+        try
+        {
+            translator.sortFunctionDependency(factName, fact, dependency);
+        }
+        catch (UnsupportedOperationException exception)
+        {
+            List<String> callees = new ArrayList<>(functionKeys.keySet());
+            callees.sort(String::compareTo);
+            return callees;
+        }
+        List<String> callees = new ArrayList<>();
+        for (String callee : dependency.getOrDefault(factName, new ArrayList<>()))
+        {
+            if(functionKeys.containsKey(callee))
+            {
+                callees.add(callee);
+            }
+        }
+        return callees;
+    }
+
+    /**
+     * @return a key that changes whenever a signature or a field of the model changes
+     */
+    private static String computeSignaturesKey(CompModule alloyModel)
+    {
+        StringBuilder key = new StringBuilder();
+        for (Sig sig : alloyModel.getAllSigs())
+        {
+            key.append(sig instanceof Sig.PrimSig ? "sig " : "subset sig ").append(sig.label)
+               .append(" abstract=").append(sig.isAbstract != null)
+               .append(" one=").append(sig.isOne != null)
+               .append(" lone=").append(sig.isLone != null)
+               .append(" some=").append(sig.isSome != null)
+               .append(" int=").append(sig.type().is_int());
+            if(sig instanceof Sig.PrimSig)
+            {
+                Sig parent = ((Sig.PrimSig) sig).parent;
+                key.append(" extends ").append(parent == null ? "" : parent.label);
+            }
+            else
+            {
+                key.append(" exact=").append(((Sig.SubsetSig) sig).exact).append(" in");
+                for (Sig parent : ((Sig.SubsetSig) sig).parents)
+                {
+                    key.append(" ").append(parent.label);
+                }
+            }
+            key.append("\n");
+            for (Sig.Field field : sig.getFields())
+            {
+                Decl decl = field.decl();
+                key.append("field ").append(field.label)
+                   .append(" disj=").append(decl.disjoint != null).append(decl.disjoint2 != null)
+                   .append(" type=").append(field.type()).append("\n")
+                   .append(fingerprint(decl.expr)).append("\n");
+            }
+            for (Expr fact : sig.getFacts())
+            {
+                key.append("fact\n").append(fingerprint(fact)).append("\n");
+            }
+        }
+        return key.toString();
+    }
+
+    private static String fingerprint(Func func)
+    {
+        StringBuilder fingerprint = new StringBuilder(func.isPred ? "pred " : "fun ").append(func.label).append("\n");
+        for (Decl decl : func.decls)
+        {
+            for (ExprHasName name : decl.names)
+            {
+                fingerprint.append("param ").append(name.label).append("\n");
+            }
+            fingerprint.append(fingerprint(decl.expr)).append("\n");
+        }
+        fingerprint.append("returns\n").append(fingerprint(func.returnDecl)).append("\n");
+        return fingerprint.append(fingerprint(func.getBody())).toString();
+    }
+
+    /**
+     * @return a compact text of the given expression that, unlike its
+     * string form, includes the bounds of quantified variables and leaves out
+     * source positions, which move when earlier parts of the model are edited
+     */
+    static String fingerprint(Expr expr)
+    {
+        StringBuilder fingerprint = new StringBuilder();
+        appendFingerprint(expr, fingerprint);
+        return fingerprint.toString();
+    }
+
+    private static void appendFingerprint(Expr expr, StringBuilder fingerprint)
+    {
+        if(expr instanceof ExprUnary)
+        {
+            fingerprint.append("(").append(((ExprUnary) expr).op.name()).append(" ");
+            appendFingerprint(((ExprUnary) expr).sub, fingerprint);
+        }
+        else if(expr instanceof ExprBinary)
+        {
+            fingerprint.append("(").append(((ExprBinary) expr).op.name()).append(" ");
+            appendFingerprint(((ExprBinary) expr).left, fingerprint);
+            appendFingerprint(((ExprBinary) expr).right, fingerprint);
+        }
+        else if(expr instanceof ExprQt)
+        {
+            fingerprint.append("(").append(((ExprQt) expr).op.name());
+            for (Decl decl : ((ExprQt) expr).decls)
+            {
+                appendFingerprint(decl, fingerprint);
+            }
+            fingerprint.append(" ");
+            appendFingerprint(((ExprQt) expr).sub, fingerprint);
+        }
+        else if(expr instanceof ExprList)
+        {
+            fingerprint.append("(").append(((ExprList) expr).op.name());
+            for (Expr arg : ((ExprList) expr).args)
+            {
+                fingerprint.append(" ");
+                appendFingerprint(arg, fingerprint);
+            }
+        }
+        else if(expr instanceof ExprCall)
+        {
+            fingerprint.append("(call ").append(((ExprCall) expr).fun.label);
+            for (Expr arg : ((ExprCall) expr).args)
+            {
+                fingerprint.append(" ");
+                appendFingerprint(arg, fingerprint);
+            }
+        }
+        else if(expr instanceof ExprLet)
+        {
+            fingerprint.append("(let ").append(((ExprLet) expr).var.label).append(" ");
+            appendFingerprint(((ExprLet) expr).expr, fingerprint);
+            appendFingerprint(((ExprLet) expr).sub, fingerprint);
+        }
+        else if(expr instanceof ExprITE)
+        {
+            fingerprint.append("(ite ");
+            appendFingerprint(((ExprITE) expr).cond, fingerprint);
+            appendFingerprint(((ExprITE) expr).left, fingerprint);
+            appendFingerprint(((ExprITE) expr).right, fingerprint);
+        }
+        else if(expr instanceof Sig.Field)
+        {
+            fingerprint.append("(field ").append(getFieldKey((Sig.Field) expr));
+        }
+        else if(expr instanceof Sig)
+        {
+            fingerprint.append("(sig ").append(((Sig) expr).label);
+        }
+        else if(expr instanceof ExprConstant)
+        {
+            ExprConstant constant = (ExprConstant) expr;
+            fingerprint.append("(").append(constant.op.name()).append(" ").append(constant.num).append(" ").append(constant.string);
+        }
+        else
+        {
+            // variables and other leaves
+            fingerprint.append("(").append(expr.getClass().getSimpleName()).append(" ").append(expr);
+        }
+        fingerprint.append(")");
+    }
+
+    private static void appendFingerprint(Decl decl, StringBuilder fingerprint)
+    {
+        fingerprint.append(decl.disjoint != null ? " (disj" : " (decl");
+        for (ExprHasName name : decl.names)
+        {
+            fingerprint.append(" ").append(name.label);
+        }
+        fingerprint.append(" ");
+        appendFingerprint(decl.expr, fingerprint);
+        fingerprint.append(")");
+    }
+
+    /**
+     * @return the number of items translated by the last translation
+     */
+    public synchronized int getTranslatedItems()
+    {
+        return translatedItems;
+    }
+
+    /**
+     * @return the number of items the last translation reused from the previous one
+     */
+    public synchronized int getReusedItems()
+    {
+        return reusedItems;
+    }
+
+    private static String getFieldKey(Sig.Field field)
+    {
+        return field.sig.label + "." + field.label;
+    }
+}
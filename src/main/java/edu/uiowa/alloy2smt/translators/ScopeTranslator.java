@@ -0,0 +1,340 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.translators;
+
+import edu.mit.csail.sdg.alloy4.ErrorSyntax;
+import edu.mit.csail.sdg.alloy4.Pos;
+import edu.mit.csail.sdg.ast.Command;
+import edu.mit.csail.sdg.ast.CommandScope;
+import edu.mit.csail.sdg.ast.Sig;
+import edu.uiowa.alloy2smt.smtAst.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Translates the scope of a command, e.g. for 3 but exactly 5 A, into
+ * cardinality bounds of the signatures. A bound of n atoms is an existential
+ * over n atoms whose set contains the signature, or equals it if the scope
+ * is exact. Signatures declared one or lone are bounded by their
+ * multiplicity constraints already, and count as one atom in the scope of
+ * their parents. Like in alloy, a scope with fewer atoms than a signature
+ * and its children need is an error.
+ * <p>
+ * With symmetry breaking, every top-level signature has a pool of distinct
+ * atoms u1 ... un, where n is its largest scope in the commands, and the
+ * atoms of all pools are distinct. A command with scope k for the signature
+ * bounds it by u1 ... uk and fills them in order: u(i+1) is in the signature
+ * only if ui is. The children of an abstract signature take consecutive
+ * blocks of the pool instead, which they fill in order. The unused atoms of
+ * the pools lie outside the universe of atoms, so every instance within the
+ * scopes can be relabeled into this form and satisfiability is kept.
+ */
+public class ScopeTranslator
+{
+    /**
+     * The scope of top-level signatures if the command has no overall scope
+     */
+    public static final int DEFAULT_SCOPE = 3;
+
+    private final Alloy2SmtTranslator   translator;
+    private final ExprTranslator        exprTranslator;
+
+    public ScopeTranslator(Alloy2SmtTranslator translator, ExprTranslator exprTranslator)
+    {
+        this.translator     = translator;
+        this.exprTranslator = exprTranslator;
+    }
+
+    /**
+     * @param command an alloy command
+     * @return the cardinality bounds of the signatures in the scope of the command
+     */
+    List<Expression> translateScopes(Command command)
+    {
+        List<Expression> bounds = new ArrayList<>();
+        for (Sig sig : translator.reachableSigs)
+        {
+            if(sig.builtin || sig.isOne != null || sig.isLone != null)
+            {
+                continue;
+            }
+            int scope = getScope(command, sig);
+            if(scope > 0 && translator.atomPools.containsKey(sig))
+            {
+                bounds.addAll(mkPoolBound(command, (Sig.PrimSig) sig, scope));
+            }
+            else if(scope >= 0)
+            {
+                bounds.add(mkCardinalityBound(translator.signaturesMap.get(sig).getConstantExpr(), scope, isExact(command, sig)));
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * @return the largest number of atoms of the signature in the scope of
+     * the command, or -1 if the signature is only bounded by its parent
+     * @throws ErrorSyntax if the scope is smaller than the least number of
+     * atoms of the signature
+     */
+    static int getScope(Command command, Sig sig)
+    {
+        if(sig.isOne != null || sig.isLone != null)
+        {
+            return 1;
+        }
+        CommandScope scope = command.getScope(sig);
+        if(scope != null)
+        {
+            return checkMinimum(command, sig, scope.endingScope, scope.pos);
+        }
+        if(!sig.isTopLevel())
+        {
+            return -1;
+        }
+        int fallback = command.overall >= 0 ? command.overall : DEFAULT_SCOPE;
+        // like alloy, an abstract signature gets the sum of the scopes of its
+        // children, where a child without a scope gets the overall scope
+        if(sig.isAbstract != null && sig instanceof Sig.PrimSig && !((Sig.PrimSig) sig).children().isEmpty())
+        {
+            int sum = 0;
+            for (Sig child : ((Sig.PrimSig) sig).children())
+            {
+                int childScope = getScope(command, child);
+                sum += childScope >= 0 ? childScope : fallback;
+            }
+            return checkMinimum(command, sig, sum, command.pos);
+        }
+        return checkMinimum(command, sig, fallback, command.pos);
+    }
+
+    private static int checkMinimum(Command command, Sig sig, int scope, Pos pos)
+    {
+        int minimum = getMinimum(command, sig);
+        if(scope < minimum)
+        {
+            throw new ErrorSyntax(pos, "The scope of " + sig.label + " is " + scope +
+                                       ", but it needs at least " + minimum + " atoms");
+        }
+        return scope;
+    }
+
+    /**
+     * @return the least number of atoms of the signature in every instance
+     * within the scope of the command, which includes the atoms its children
+     * need
+     */
+    static int getMinimum(Command command, Sig sig)
+    {
+        int minimum = 0;
+        if(sig.isOne != null || sig.isSome != null)
+        {
+            minimum = 1;
+        }
+        else if(isExact(command, sig) && command.getScope(sig) != null)
+        {
+            minimum = command.getScope(sig).endingScope;
+        }
+        if(sig instanceof Sig.PrimSig)
+        {
+            int sum = 0;
+            for (Sig child : ((Sig.PrimSig) sig).children())
+            {
+                sum += getMinimum(command, child);
+            }
+            minimum = Math.max(minimum, sum);
+        }
+        return minimum;
+    }
+
+    private static boolean isExact(Command command, Sig sig)
+    {
+        return command.additionalExactScopes.contains(sig) ||
+               (command.getScope(sig) != null && command.getScope(sig).isExact);
+    }
+
+    /**
+     * @param set a unary relation of atoms
+     * @param n the number of atoms
+     * @param isExact whether the relation has exactly or at most n atoms
+     * @return (exists ((a1 Atom) ... (an Atom)) (subset set (insert (mkTuple a1) ... (singleton (mkTuple an)))))
+     * or with distinct atoms and an equality if the bound is exact
+     */
+    Expression mkCardinalityBound(Expression set, int n, boolean isExact)
+    {
+        if(n == 0)
+        {
+            return new BinaryExpression(set, BinaryExpression.Op.EQ,
+                                        exprTranslator.mkEmptyRelationOfSort(translator.unaryAtomSort.elementSorts));
+        }
+        List<BoundVariableDeclaration>  atoms       = exprTranslator.getBdVars(translator.atomSort, n);
+        List<Expression>                atomExprs   = new ArrayList<>();
+        for (BoundVariableDeclaration atom : atoms)
+        {
+            atomExprs.add(atom.getConstantExpr());
+        }
+        Expression atomSet = exprTranslator.mkUnaryRelationOutOfAtomsOrTuples(atomExprs);
+        Expression body;
+        if(isExact)
+        {
+            body = new BinaryExpression(set, BinaryExpression.Op.EQ, atomSet);
+            if(n > 1)
+            {
+                body = new BinaryExpression(body, BinaryExpression.Op.AND, TranslatorUtils.mkDistinctExpr(atomExprs));
+            }
+        }
+        else
+        {
+            body = new BinaryExpression(set, BinaryExpression.Op.SUBSET, atomSet);
+        }
+        return new QuantifiedExpression(QuantifiedExpression.Op.EXISTS, atoms, body);
+    }
+
+    /**
+     * Declares the pools of atoms of the top-level signatures, which have as
+     * many atoms as the largest scope of their signature in the commands,
+     * and asserts that all of them are distinct
+     */
+    void translateAtomPools()
+    {
+        List<Expression> allAtoms = new ArrayList<>();
+        for (Sig sig : translator.topLevelSigs)
+        {
+            if(sig.builtin || sig.isOne != null || sig.isLone != null || !(sig instanceof Sig.PrimSig))
+            {
+                continue;
+            }
+            int size = 0;
+            for (Command command : translator.commands)
+            {
+                try
+                {
+                    size = Math.max(size, getScope(command, sig));
+                }
+                catch (ErrorSyntax error)
+                {
+                    // the command reports the error when it is translated
+                }
+            }
+            if(size == 0)
+            {
+                continue;
+            }
+            List<Expression> pool = new ArrayList<>();
+            for (int i = 0; i < size; i++)
+            {
+                ConstantDeclaration atom = new ConstantDeclaration(translator.context.getNewAtomName(), translator.atomSort);
+                translator.smtProgram.addConstantDeclaration(atom);
+                pool.add(atom.getConstantExpr());
+            }
+            translator.atomPools.put(sig, pool);
+            allAtoms.addAll(pool);
+        }
+        if(allAtoms.size() > 1)
+        {
+            translator.smtProgram.addAssertion(new Assertion("Distinct atoms of the pools", TranslatorUtils.mkDistinctExpr(allAtoms)));
+        }
+    }
+
+    /**
+     * @param command an alloy command
+     * @param sig a top-level signature with a pool of atoms
+     * @param n the scope of the signature, at least 1
+     * @return the bound of the signature by the first n atoms of its pool,
+     * which it fills in order unless its children take blocks of them
+     */
+    List<Expression> mkPoolBound(Command command, Sig.PrimSig sig, int n)
+    {
+        List<Expression>    pool        = translator.atomPools.get(sig).subList(0, n);
+        Expression          set         = translator.signaturesMap.get(sig).getConstantExpr();
+        List<Expression>    conjuncts   = new ArrayList<>();
+        List<Integer>       blocks      = getBlocks(command, sig, n);
+        if(isExact(command, sig))
+        {
+            // the atoms are distinct, so the signature has all of them
+            conjuncts.add(new BinaryExpression(set, BinaryExpression.Op.EQ, exprTranslator.mkUnaryRelationOutOfAtomsOrTuples(pool)));
+        }
+        else
+        {
+            conjuncts.add(new BinaryExpression(set, BinaryExpression.Op.SUBSET, exprTranslator.mkUnaryRelationOutOfAtomsOrTuples(pool)));
+            if(blocks == null)
+            {
+                conjuncts.addAll(mkOrdering(set, pool));
+            }
+        }
+        if(blocks != null)
+        {
+            int start = 0;
+            for (int i = 0; i < blocks.size(); i++)
+            {
+                if(blocks.get(i) == 0)
+                {
+                    // the child is empty by its own bound
+                    continue;
+                }
+                List<Expression>    block       = pool.subList(start, start + blocks.get(i));
+                Expression          childSet    = translator.signaturesMap.get(sig.children().get(i)).getConstantExpr();
+                conjuncts.add(new BinaryExpression(childSet, BinaryExpression.Op.SUBSET,
+                                                   exprTranslator.mkUnaryRelationOutOfAtomsOrTuples(block)));
+                conjuncts.addAll(mkOrdering(childSet, block));
+                start += blocks.get(i);
+            }
+        }
+        return conjuncts;
+    }
+
+    /**
+     * @return the sizes of the blocks of the pool that the children of an
+     * abstract signature take in their order, or null if the signature is not
+     * abstract or the largest numbers of atoms of its children do not fit in
+     * the n atoms of the signature
+     */
+    private static List<Integer> getBlocks(Command command, Sig.PrimSig sig, int n)
+    {
+        if(sig.isAbstract == null || sig.children().isEmpty())
+        {
+            return null;
+        }
+        // like in getScope, a child without a scope gets the overall scope,
+        // unless the signature has a scope of its own that bounds the child
+        int             fallback    = command.getScope(sig) != null ? n :
+                                      command.overall >= 0 ? command.overall : DEFAULT_SCOPE;
+        List<Integer>   blocks      = new ArrayList<>();
+        int             total       = 0;
+        for (Sig.PrimSig child : sig.children())
+        {
+            int scope = getScope(command, child);
+            blocks.add(scope >= 0 ? scope : fallback);
+            total += scope >= 0 ? scope : fallback;
+        }
+        return total <= n ? blocks : null;
+    }
+
+    /**
+     * @return the implications (=> (member (mkTuple u(i+1)) set) (member (mkTuple ui) set))
+     * for the given atoms u1 ... un
+     */
+    private static List<Expression> mkOrdering(Expression set, List<Expression> atoms)
+    {
+        List<Expression> ordering = new ArrayList<>();
+        for (int i = 1; i < atoms.size(); i++)
+        {
+            Expression next     = new BinaryExpression(mkTuple(atoms.get(i)), BinaryExpression.Op.MEMBER, set);
+            Expression previous = new BinaryExpression(mkTuple(atoms.get(i - 1)), BinaryExpression.Op.MEMBER, set);
+            ordering.add(new BinaryExpression(next, BinaryExpression.Op.IMPLIES, previous));
+        }
+        return ordering;
+    }
+
+    private static Expression mkTuple(Expression atom)
+    {
+        return new MultiArityExpression(MultiArityExpression.Op.MKTUPLE, atom);
+    }
+}
@@ -51,15 +51,12 @@ public class SignatureTranslator
                 else if(children.size() > 1)
                 {
 
-                    Expression          left        = translator.signaturesMap.get(children.get(0)).getConstantExpr();
-                    Expression          right       = translator.signaturesMap.get(children.get(1)).getConstantExpr();
-                    BinaryExpression    union       = new BinaryExpression(left, BinaryExpression.Op.UNION, right);
-
-                    for(int i = 2; i < children.size(); i++)
+                    List<Expression>    childExprs  = new ArrayList<>();
+                    for(Sig.PrimSig child : children)
                     {
-                        Expression      expression  = translator.signaturesMap.get(children.get(i)).getConstantExpr();
-                        union                       = new BinaryExpression(union, BinaryExpression.Op.UNION, expression);
+                        childExprs.add(translator.signaturesMap.get(child).getConstantExpr());
                     }
+                    Expression          union       = TranslatorUtils.mkMultiArityExpression(MultiArityExpression.Op.UNION, childExprs);
 
                     Expression          leftExpr    = translator.signaturesMap.get(sig).getConstantExpr();
                     BinaryExpression    equality    = new BinaryExpression(leftExpr, BinaryExpression.Op.EQ, union);
@@ -71,34 +68,26 @@ public class SignatureTranslator
         if(translator.topLevelSigs.size() > 0)
         {
             // The union of all top-level sigs equals to the universe
-            Expression unionTopSigExprs = translator.signaturesMap.get(translator.topLevelSigs.get(0)).getConstantExpr();
-            
-            for(int i = 1; i < translator.topLevelSigs.size(); ++i)
+            List<Expression> topSigExprs = new ArrayList<>();
+            for(Sig topLevelSig : translator.topLevelSigs)
             {
-                unionTopSigExprs = new BinaryExpression(unionTopSigExprs, BinaryExpression.Op.UNION, translator.signaturesMap.get(translator.topLevelSigs.get(i)).getConstantExpr());
+                topSigExprs.add(translator.signaturesMap.get(topLevelSig).getConstantExpr());
             }
+            Expression unionTopSigExprs = TranslatorUtils.mkMultiArityExpression(MultiArityExpression.Op.UNION, topSigExprs);
             translator.smtProgram.addAssertion(new Assertion(new BinaryExpression(unionTopSigExprs, BinaryExpression.Op.EQ, translator.atomUniv.getConstantExpr())));
             
             // Top-level sigs are mutually disjoin
-            if(translator.topLevelSigs.size() > 1)
-            {
-                for(int i = 0; i < translator.topLevelSigs.size()-1; ++i)
-                {
-                    Expression fstSigExpr = translator.signaturesMap.get(translator.topLevelSigs.get(i)).getConstantExpr();
-                    
-                    for(int j = i+1; j < translator.topLevelSigs.size();++j)
-                    {
-                        Expression sndSigExpr = translator.signaturesMap.get(translator.topLevelSigs.get(j)).getConstantExpr();
-                        translator.smtProgram.addAssertion(new Assertion(new BinaryExpression(new BinaryExpression(fstSigExpr, BinaryExpression.Op.INTERSECTION, sndSigExpr), BinaryExpression.Op.EQ, translator.atomNone.getConstantExpr())));
-                    }
-                }
-            }
-            
+            translateDisjointSignatures(translator.topLevelSigs);
         }
     }
 
     private void translateDisjointSignatures(List<Sig> signatures)
     {
+        if(translator.linearDisjointness && signatures.size() > 2)
+        {
+            translateDisjointSignaturesLinearly(signatures);
+            return;
+        }
         for (int i = 0; i < signatures.size(); i++)
         {
             Expression      left    = translator.signaturesMap.get(signatures.get(i)).getConstantExpr();
@@ -114,7 +103,35 @@ public class SignatureTranslator
         }
     }
 
-    private void collectReachableSigs()
+    /**
+     * Asserts that the signatures are mutually disjoint with a linear number
+     * of assertions instead of one assertion per pair. Every signature is
+     * disjoint from the union of the signatures before it, which is declared
+     * as a fresh set:
+     * (= (intersection A B) atomNone), (= _S1 (union A B)),
+     * (= (intersection _S1 C) atomNone), (= _S2 (union _S1 C)), ...
+     */
+    private void translateDisjointSignaturesLinearly(List<Sig> signatures)
+    {
+        Expression previous = translator.signaturesMap.get(signatures.get(0)).getConstantExpr();
+        for (int i = 1; i < signatures.size(); i++)
+        {
+            Expression          current     = translator.signaturesMap.get(signatures.get(i)).getConstantExpr();
+            BinaryExpression    disjoint    = new BinaryExpression(previous, BinaryExpression.Op.INTERSECTION, current);
+            translator.smtProgram.addAssertion(new Assertion(new BinaryExpression(disjoint, BinaryExpression.Op.EQ, translator.atomNone.getConstantExpr())));
+
+            if(i < signatures.size() - 1)
+            {
+                FunctionDeclaration union = new FunctionDeclaration(translator.context.getNewSetName(), translator.setOfUnaryAtomSort);
+                translator.smtProgram.addFunctionDeclaration(union);
+                translator.smtProgram.addAssertion(new Assertion(new BinaryExpression(union.getConstantExpr(), BinaryExpression.Op.EQ,
+                        new BinaryExpression(previous, BinaryExpression.Op.UNION, current))));
+                previous = union.getConstantExpr();
+            }
+        }
+    }
+
+    void collectReachableSigs()
     {
         for(Sig sig : translator.alloyModel.getAllSigs())
         {
@@ -185,7 +202,7 @@ public class SignatureTranslator
         Expression expr;
         ConstantDeclaration constDecl;
         Boolean isInt = sig.type().is_int();
-        String name = TranslatorUtils.getNewName();        
+        String name = translator.context.getNewName();        
         FunctionDeclaration signature = translator.signaturesMap.get(sig);                        
         
         if(isInt)
@@ -209,7 +226,7 @@ public class SignatureTranslator
         Expression expr;
         ConstantDeclaration constDecl;
         Boolean isInt = sig.type().is_int();
-        String name = TranslatorUtils.getNewName();        
+        String name = translator.context.getNewName();        
         FunctionDeclaration signature = translator.signaturesMap.get(sig);          
         
         if(isInt)
@@ -233,7 +250,7 @@ public class SignatureTranslator
         Expression expr;
         ConstantDeclaration constDecl;
         Boolean isInt = sig.type().is_int();
-        String name = TranslatorUtils.getNewName();        
+        String name = translator.context.getNewName();        
         FunctionDeclaration signature = translator.signaturesMap.get(sig);  
         
         if(isInt)
@@ -285,15 +302,12 @@ public class SignatureTranslator
             }
             else
             {
-                Expression          left    = translator.signaturesMap.get(parents.get(0)).getConstantExpr();
-                Expression          right   = translator.signaturesMap.get(parents.get(1)).getConstantExpr();
-                BinaryExpression    union   = new BinaryExpression(left, BinaryExpression.Op.UNION, right);
-
-                for (int i = 2; i < parents.size(); i++)
+                List<Expression>    parentExprs = new ArrayList<>();
+                for (Sig parent : parents)
                 {
-                    Expression expression   = translator.signaturesMap.get(parents.get(i)).getConstantExpr();
-                    union                   = new BinaryExpression(union, BinaryExpression.Op.UNION, expression);
+                    parentExprs.add(translator.signaturesMap.get(parent).getConstantExpr());
                 }
+                Expression          union       = TranslatorUtils.mkMultiArityExpression(MultiArityExpression.Op.UNION, parentExprs);
 
                 BinaryExpression subset     = new BinaryExpression(functionDeclaration.getConstantExpr(), BinaryExpression.Op.SUBSET, union);
                 translator.smtProgram.addAssertion(new Assertion(subset));
@@ -2,13 +2,22 @@ package edu.uiowa.alloy2smt.translators;
 
 import edu.mit.csail.sdg.ast.Command;
 import edu.uiowa.alloy2smt.mapping.Mapper;
+import edu.uiowa.alloy2smt.optimizers.Simplifier;
 import edu.uiowa.alloy2smt.printers.SmtLibPrettyPrinter;
 import edu.uiowa.alloy2smt.smtAst.Assertion;
 import edu.uiowa.alloy2smt.smtAst.SmtProgram;
 import edu.uiowa.alloy2smt.smtAst.SolverOption;
 
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class Translation
 {
@@ -17,10 +26,18 @@ public class Translation
     public final static String PUSH         = "(push)";
     public final static String POP          = "(pop)";
 
-    private Alloy2SmtTranslator translator;
-    private final SmtProgram    smtAst;
-    private final Mapper        mapper;
-    private final String        smtScript;
+    private Alloy2SmtTranslator         translator;
+    private final SmtProgram            smtAst;
+    private final Mapper                mapper;
+    private String                      smtScript;
+    // the translations of the commands when this translation was restored from a cache
+    private final List<String>          commands;
+    // the translations of all commands once they were translated together
+    private volatile List<String>       translatedCommands;
+    // whether the operators of all commands are declared in the smt program
+    private volatile boolean            commandOperatorsDeclared;
+    private final TranslationMetrics    metrics;
+    private boolean                     simplifyCommands;
 
     public Translation(Alloy2SmtTranslator translator, SmtProgram smtAst, Mapper mapper, String smtScript)
     {
@@ -28,19 +45,169 @@ public class Translation
         this.smtAst     = smtAst;
         this.mapper     = mapper;
         this.smtScript  = smtScript;
+        this.commands   = null;
+        this.metrics    = translator.metrics;
+    }
+
+    /**
+     * Creates a translation from a previously printed smt script and command
+     * translations, e.g. from a cache. Such a translation has neither an
+     * alloy model nor an smt ast.
+     * @param smtScript the smt script of the alloy model
+     * @param commands the translations of all commands in the order of the commands
+     * @param mapper the mapper of the alloy model
+     */
+    public Translation(String smtScript, List<String> commands, Mapper mapper)
+    {
+        this.translator = null;
+        this.smtAst     = null;
+        this.mapper     = mapper;
+        this.smtScript  = smtScript;
+        this.commands   = new ArrayList<>(commands);
+        this.metrics    = new TranslationMetrics();
+    }
+
+    /**
+     * @return true if this translation was created from printed smt instead
+     * of an alloy model
+     */
+    public boolean isRestored()
+    {
+        return translator == null;
     }
 
     /**
      * @return the result of translating the alloy model
      * (excluding assertions and commands like check and run) into smt.
      * Command translation is handled separately  by the method
-     * {@link Translation#translateCommand(int)}
+     * {@link Translation#translateCommand(int)}, but the script declares the
+     * operators of all commands.
      */
     public String getSmtScript()
     {
+        if(smtScript == null)
+        {
+            declareCommandOperators();
+            SmtLibPrettyPrinter printer = new SmtLibPrettyPrinter();
+            getMetrics().measure(TranslationMetrics.PRINT, () -> printer.visit(smtAst));
+            smtScript = printer.getSmtLib();
+            getMetrics().addOutput(smtScript);
+        }
         return smtScript;
     }
 
+    /**
+     * Writes the smt script of the alloy model to the given output without
+     * keeping a copy of it in memory.
+     * @param out the destination of the smt script
+     */
+    public void writeSmtScript(Appendable out)
+    {
+        writeSmtScript(out, SmtLibPrettyPrinter.DEFAULT_OPTIONS);
+    }
+
+    /**
+     * Writes the smt script of the alloy model with the given solver
+     * options in place of the default ones.
+     * @param out the destination of the smt script
+     * @param solverOptions option names without the colon mapped to their values
+     */
+    public void writeSmtScript(Appendable out, Map<String, String> solverOptions)
+    {
+        if(smtScript == null)
+        {
+            declareCommandOperators();
+            SmtLibPrettyPrinter printer = new SmtLibPrettyPrinter(new MeasuredAppendable(out, getMetrics()));
+            printer.setSolverOptions(solverOptions);
+            getMetrics().measure(TranslationMetrics.PRINT, () ->
+            {
+                printer.visit(smtAst);
+                printer.flush();
+            });
+        }
+        else
+        {
+            String defaultHeader = SmtLibPrettyPrinter.header(SmtLibPrettyPrinter.DEFAULT_OPTIONS);
+            try
+            {
+                if(solverOptions.equals(SmtLibPrettyPrinter.DEFAULT_OPTIONS))
+                {
+                    out.append(smtScript);
+                }
+                else if(smtScript.startsWith(defaultHeader))
+                {
+                    out.append(SmtLibPrettyPrinter.header(solverOptions));
+                    out.append(smtScript, defaultHeader.length(), smtScript.length());
+                }
+                else
+                {
+                    throw new UnsupportedOperationException("The smt script does not start with the default options");
+                }
+            }
+            catch (IOException exception)
+            {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+
+    /**
+     * Translates all commands unless their operators were declared already.
+     * Commands declare the arithmetic and comparison operators they use for
+     * the first time in the smt program, so they are translated before it is
+     * printed.
+     */
+    private void declareCommandOperators()
+    {
+        if(!isRestored() && !commandOperatorsDeclared)
+        {
+            translateAllCommands(Runnable::run);
+        }
+    }
+
+    /**
+     * Declares the arithmetic and comparison operators of all commands in the
+     * smt program in the order of the commands. Unlike
+     * {@link #translateAllCommands(Executor)} the translations of the
+     * commands are not kept, so that a large script can be written with
+     * {@link #writeSmtScript(Appendable)} followed by
+     * {@link #translateCommand(int, Appendable)} for each command.
+     */
+    public void declareOperators()
+    {
+        if(isRestored() || commandOperatorsDeclared)
+        {
+            return;
+        }
+        for (int i = 0; i < getCommandCount(); i++)
+        {
+            final int                   commandIndex    = i;
+            final TranslationContext    context         = translator.forkCommandContext();
+            getMetrics().measure(TranslationMetrics.COMMAND, () -> translator.translateCommand(commandIndex, context));
+            translator.declareOperators(context);
+        }
+        commandOperatorsDeclared = true;
+    }
+
+    /**
+     * @param simplifyCommands whether the translations of the commands are
+     *                         simplified before they are printed
+     */
+    public void setSimplifyCommands(boolean simplifyCommands)
+    {
+        this.simplifyCommands   = simplifyCommands;
+        this.translatedCommands = null;
+    }
+
+    /**
+     * @return the times of the translation phases and the sizes of the
+     * translation so far
+     */
+    public TranslationMetrics getMetrics()
+    {
+        return metrics;
+    }
+
     /**
      * @return a mapper that maps alloy signatures and fields into their
      * corresponding functions in the generated smt script
@@ -51,7 +218,8 @@ public class Translation
     }
 
     /**
-     * @return an abstract syntax tree for the smt translation
+     * @return an abstract syntax tree for the smt translation, or null if
+     * the translation was restored from printed smt
      */
     public SmtProgram getSmtAst()
     {
@@ -60,20 +228,160 @@ public class Translation
 
     public List<Command> getCommands()
     {
+        if(isRestored())
+        {
+            throw new UnsupportedOperationException("The alloy commands of a restored translation are not available");
+        }
         return translator.commands;
     }
 
+    /**
+     * @return the number of commands of the alloy model
+     */
+    public int getCommandCount()
+    {
+        return isRestored() ? commands.size() : translator.commands.size();
+    }
+
     /**
      * @param commandIndex the index of the command
-     * @return the result of translating the given command (ignoring
-     * scope constraints) into smt
+     * @return the result of translating the given command into smt, which
+     * ignores the scope of the command unless scopes are translated
      */
     public String translateCommand(int commandIndex)
     {
-        Assertion           assertion   =  translator.translateCommand(commandIndex);
-        SmtLibPrettyPrinter printer     = new SmtLibPrettyPrinter();
-        printer.visit(assertion);
-        return printer.getSmtLib();
+        StringBuilder stringBuilder = new StringBuilder();
+        translateCommand(commandIndex, stringBuilder);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Translates the given command into smt and writes the result to the
+     * given output. The scope of the command is ignored unless scopes are
+     * translated.
+     * @param commandIndex the index of the command
+     * @param out the destination of the command translation
+     */
+    public void translateCommand(int commandIndex, Appendable out)
+    {
+        if(isRestored())
+        {
+            try
+            {
+                out.append(commands.get(commandIndex));
+                return;
+            }
+            catch (IOException exception)
+            {
+                throw new UncheckedIOException(exception);
+            }
+        }
+        getMetrics().measure(TranslationMetrics.COMMAND, () ->
+        {
+            Assertion           assertion   = simplify(translator.translateCommand(commandIndex));
+            SmtLibPrettyPrinter printer     = new SmtLibPrettyPrinter(new MeasuredAppendable(out, getMetrics()));
+            if(assertion != null)
+            {
+                printer.visit(assertion);
+            }
+            printer.flush();
+        });
+    }
+
+    private String translateCommand(int commandIndex, TranslationContext context)
+    {
+        String command = getMetrics().measure(TranslationMetrics.COMMAND, () ->
+        {
+            Assertion           assertion   = simplify(translator.translateCommand(commandIndex, context));
+            SmtLibPrettyPrinter printer     = new SmtLibPrettyPrinter();
+            if(assertion != null)
+            {
+                printer.visit(assertion);
+            }
+            return printer.getSmtLib();
+        });
+        getMetrics().addOutput(command);
+        return command;
+    }
+
+    /**
+     * @return the simplified assertion of a command if commands are simplified,
+     * or null if the simplified assertion is trivially true
+     */
+    private Assertion simplify(Assertion assertion)
+    {
+        if(!simplifyCommands)
+        {
+            return assertion;
+        }
+        Simplifier simplifier = new Simplifier();
+        Assertion  simplified = simplifier.simplify(assertion);
+        getMetrics().addSimplifiedNodes(simplifier.getRemovedNodes());
+        return simplified;
+    }
+
+    /**
+     * Translates and prints all commands concurrently using the given executor.
+     * Every command starts its fresh names from the same point, and the
+     * operators first used by the commands are declared in the order of the
+     * commands afterwards, so neither the result nor the smt script depends
+     * on the order in which the commands are scheduled. The result is kept
+     * for later calls, e.g. after a cache stored the translation.
+     * @param executor the executor that runs the command translations
+     * @return the translations of all commands in the order of the commands
+     */
+    public List<String> translateAllCommands(Executor executor)
+    {
+        if(isRestored())
+        {
+            return new ArrayList<>(commands);
+        }
+        List<String> translated = translatedCommands;
+        if(translated != null)
+        {
+            return new ArrayList<>(translated);
+        }
+        List<CompletableFuture<String>> futures  = new ArrayList<>();
+        List<TranslationContext>        contexts = new ArrayList<>();
+        for (int i = 0; i < getCommandCount(); i++)
+        {
+            final int                   commandIndex    = i;
+            final TranslationContext    context         = translator.forkCommandContext();
+            contexts.add(context);
+            futures.add(CompletableFuture.supplyAsync(() -> translateCommand(commandIndex, context), executor));
+        }
+
+        List<String> commands = new ArrayList<>();
+        for (CompletableFuture<String> future : futures)
+        {
+            try
+            {
+                commands.add(future.join());
+            }
+            catch (CompletionException exception)
+            {
+                if(exception.getCause() instanceof RuntimeException)
+                {
+                    throw (RuntimeException) exception.getCause();
+                }
+                throw exception;
+            }
+        }
+        // the operators are declared in the order of the commands, so the
+        // smt script does not depend on the schedule of the commands
+        contexts.forEach(translator::declareOperators);
+        commandOperatorsDeclared = true;
+        translatedCommands       = new ArrayList<>(commands);
+        return commands;
+    }
+
+    /**
+     * Translates and prints all commands concurrently on the common fork-join pool
+     * @return the translations of all commands in the order of the commands
+     */
+    public List<String> translateAllCommands()
+    {
+        return translateAllCommands(ForkJoinPool.commonPool());
     }
 
     public String translateOptions(Map<String, String> options)
@@ -87,4 +395,54 @@ public class Translation
         }
         return printer.getSmtLib();
     }
+
+    /**
+     * Counts the bytes written to an output, and adds them to the translation
+     * metrics when the output is flushed
+     */
+    private static class MeasuredAppendable implements Appendable, Flushable
+    {
+        private final Appendable            out;
+        private final TranslationMetrics    metrics;
+        private long                        bytes = 0;
+
+        MeasuredAppendable(Appendable out, TranslationMetrics metrics)
+        {
+            this.out        = out;
+            this.metrics    = metrics;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException
+        {
+            out.append(csq);
+            bytes += TranslationMetrics.utf8Length(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException
+        {
+            return append(csq.subSequence(start, end));
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException
+        {
+            out.append(c);
+            bytes += TranslationMetrics.utf8Length(String.valueOf(c));
+            return this;
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            metrics.addOutputBytes(bytes);
+            bytes = 0;
+            if(out instanceof Flushable)
+            {
+                ((Flushable) out).flush();
+            }
+        }
+    }
 }
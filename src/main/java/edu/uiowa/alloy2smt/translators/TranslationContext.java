@@ -0,0 +1,93 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.translators;
+
+import edu.uiowa.alloy2smt.smtAst.BinaryExpression;
+import edu.uiowa.alloy2smt.smtAst.SmtProgram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The per-run state of a translation, mainly the counters of fresh names.
+ * Each translator owns its context, so translations running in the same jvm
+ * do not affect each other's names.
+ */
+public class TranslationContext
+{
+    private final AtomicInteger nameIndex;
+
+    private final AtomicInteger atomIndex;
+
+    private final AtomicInteger setIndex;
+
+    // the declarations of the operators first used under this context in the
+    // order of their first use, or null if operators are declared in the
+    // smt program directly
+    private final Map<BinaryExpression.Op, SmtProgram> operators;
+
+    public TranslationContext()
+    {
+        this(0, 0, 0, null);
+    }
+
+    private TranslationContext(int nameIndex, int atomIndex, int setIndex, Map<BinaryExpression.Op, SmtProgram> operators)
+    {
+        this.nameIndex  = new AtomicInteger(nameIndex);
+        this.atomIndex  = new AtomicInteger(atomIndex);
+        this.setIndex   = new AtomicInteger(setIndex);
+        this.operators  = operators;
+    }
+
+    /**
+     * @return a new context whose counters start where the counters of this
+     * context currently are. Names generated by the fork do not advance this
+     * context.
+     */
+    public TranslationContext fork()
+    {
+        return new TranslationContext(nameIndex.get(), atomIndex.get(), setIndex.get(), null);
+    }
+
+    /**
+     * @return a fork of this context for a command that is translated along
+     * with other commands. The operators the command uses for the first time
+     * are collected in the fork instead of the smt program, so that they can
+     * be declared in the order of the commands afterwards.
+     */
+    public TranslationContext forkCommand()
+    {
+        return new TranslationContext(nameIndex.get(), atomIndex.get(), setIndex.get(), new LinkedHashMap<>());
+    }
+
+    /**
+     * @return the declarations of the operators first used under this
+     * context by operator, or null if they are declared in the smt program
+     */
+    Map<BinaryExpression.Op, SmtProgram> getOperators()
+    {
+        return operators;
+    }
+
+    public String getNewName()
+    {
+        return "_x" + nameIndex.incrementAndGet();
+    }
+
+    public String getNewAtomName()
+    {
+        return "_a" + atomIndex.incrementAndGet();
+    }
+
+    public String getNewSetName()
+    {
+        return "_S" + setIndex.incrementAndGet();
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.translators;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.uiowa.alloy2smt.smtAst.Assertion;
+import edu.uiowa.alloy2smt.smtAst.Expression;
+import edu.uiowa.alloy2smt.smtAst.ExpressionTraversal;
+import edu.uiowa.alloy2smt.smtAst.FunctionDefinition;
+import edu.uiowa.alloy2smt.smtAst.SmtProgram;
+
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Wall and cpu times of the translation phases together with the size of
+ * the generated smt program and output
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.NONE, getterVisibility = JsonAutoDetect.Visibility.NONE)
+public class TranslationMetrics
+{
+    public static final String PARSE    = "parse";
+    public static final String PRINT    = "print";
+    public static final String COMMAND  = "command";
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The accumulated times of a phase. A phase that runs many times, e.g.
+     * the translation of commands, accumulates the times of all its runs.
+     */
+    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.NONE, getterVisibility = JsonAutoDetect.Visibility.NONE)
+    public static class Phase
+    {
+        @JsonProperty("wallNanos")
+        private long wallNanos;
+
+        @JsonProperty("cpuNanos")
+        private long cpuNanos;
+
+        @JsonProperty("runs")
+        private int  runs;
+
+        public long getWallNanos()
+        {
+            return wallNanos;
+        }
+
+        /**
+         * @return the cpu time of the phase, or -1 if the jvm does not measure thread cpu time
+         */
+        public long getCpuNanos()
+        {
+            return cpuNanos;
+        }
+
+        public int getRuns()
+        {
+            return runs;
+        }
+    }
+
+    @JsonProperty("phases")
+    private final Map<String, Phase>    phases                  = new LinkedHashMap<>();
+
+    @JsonProperty("sorts")
+    private int                         sorts;
+
+    @JsonProperty("functionDeclarations")
+    private int                         functionDeclarations;
+
+    @JsonProperty("constantDeclarations")
+    private int                         constantDeclarations;
+
+    @JsonProperty("functionDefinitions")
+    private int                         functionDefinitions;
+
+    @JsonProperty("assertions")
+    private int                         assertions;
+
+    @JsonProperty("nodes")
+    private long                        nodes;
+
+    @JsonProperty("outputBytes")
+    private long                        outputBytes;
+
+    @JsonProperty("simplifiedNodes")
+    private long                        simplifiedNodes;
+
+    /**
+     * Runs the given phase and records its times
+     * @param phase the name of the phase
+     * @param supplier the phase
+     * @return the result of the phase
+     */
+    public <T> T measure(String phase, Supplier<T> supplier)
+    {
+        long wallStart  = System.nanoTime();
+        long cpuStart   = getCpuTime();
+        try
+        {
+            return supplier.get();
+        }
+        finally
+        {
+            long cpuEnd = getCpuTime();
+            record(phase, System.nanoTime() - wallStart, cpuStart < 0 || cpuEnd < 0 ? -1 : cpuEnd - cpuStart);
+        }
+    }
+
+    public void measure(String phase, Runnable runnable)
+    {
+        measure(phase, () ->
+        {
+            runnable.run();
+            return null;
+        });
+    }
+
+    private static long getCpuTime()
+    {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    private synchronized void record(String name, long wallNanos, long cpuNanos)
+    {
+        Phase phase = phases.computeIfAbsent(name, key -> new Phase());
+        phase.wallNanos += wallNanos;
+        phase.cpuNanos   = phase.cpuNanos < 0 || cpuNanos < 0 ? -1 : phase.cpuNanos + cpuNanos;
+        phase.runs++;
+    }
+
+    /**
+     * @param name the name of a phase
+     * @return the times of the phase or null if the phase did not run
+     */
+    public synchronized Phase getPhase(String name)
+    {
+        return phases.get(name);
+    }
+
+    /**
+     * @return the names of the phases in the order they first ran
+     */
+    public synchronized List<String> getPhaseNames()
+    {
+        return new ArrayList<>(phases.keySet());
+    }
+
+    /**
+     * Records the number of declarations, definitions, assertions and
+     * expression nodes of the given program
+     * @param program a translated smt program
+     */
+    public synchronized void countProgram(SmtProgram program)
+    {
+        sorts                   = program.getSorts().size();
+        functionDeclarations    = program.getFunctionDeclarations().size();
+        constantDeclarations    = program.getConstantDeclarations().size();
+        functionDefinitions     = program.getFunctionDefinitions().size();
+        assertions              = program.getAssertions().size();
+
+        // count the nodes of the expression trees without recursion
+        Deque<Expression> stack = new ArrayDeque<>();
+        for (FunctionDefinition definition : program.getFunctionDefinitions())
+        {
+            stack.push(definition.getExpression());
+        }
+        for (Assertion assertion : program.getAssertions())
+        {
+            stack.push(assertion.getExpression());
+        }
+        nodes = 0;
+        while (!stack.isEmpty())
+        {
+            nodes++;
+            for (Expression child : ExpressionTraversal.getChildren(stack.pop()))
+            {
+                stack.push(child);
+            }
+        }
+    }
+
+    /**
+     * Adds the size of the given output to the output bytes
+     * @param output printed smt
+     */
+    public void addOutput(CharSequence output)
+    {
+        addOutputBytes(utf8Length(output));
+    }
+
+    public synchronized void addOutputBytes(long bytes)
+    {
+        outputBytes += bytes;
+    }
+
+    /**
+     * @param text a character sequence
+     * @return the number of bytes of the utf-8 encoding of the text
+     */
+    public static long utf8Length(CharSequence text)
+    {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if(c < 0x80)
+            {
+                length += 1;
+            }
+            else if(c < 0x800)
+            {
+                length += 2;
+            }
+            else if(Character.isHighSurrogate(c))
+            {
+                // a surrogate pair encodes one code point in 4 bytes
+                length += 4;
+                i++;
+            }
+            else
+            {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    public synchronized int getSorts()
+    {
+        return sorts;
+    }
+
+    public synchronized int getFunctionDeclarations()
+    {
+        return functionDeclarations;
+    }
+
+    public synchronized int getConstantDeclarations()
+    {
+        return constantDeclarations;
+    }
+
+    public synchronized int getFunctionDefinitions()
+    {
+        return functionDefinitions;
+    }
+
+    public synchronized int getAssertions()
+    {
+        return assertions;
+    }
+
+    public synchronized long getNodes()
+    {
+        return nodes;
+    }
+
+    public synchronized long getOutputBytes()
+    {
+        return outputBytes;
+    }
+
+    /**
+     * @param nodes the number of expression nodes removed by the simplifier
+     */
+    public synchronized void addSimplifiedNodes(long nodes)
+    {
+        simplifiedNodes += nodes;
+    }
+
+    /**
+     * @return the number of expression nodes of the program and the commands
+     * removed by the simplifier
+     */
+    public synchronized long getSimplifiedNodes()
+    {
+        return simplifiedNodes;
+    }
+
+    public synchronized String toJson()
+    {
+        try
+        {
+            return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(this);
+        }
+        catch (JsonProcessingException exception)
+        {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * This file is part of alloy2smt.
+ * Copyright (C) 2018-2019  The University of Iowa
+ *
+ * @author Mudathir Mohamed, Paul Meng
+ *
+ */
+
+package edu.uiowa.alloy2smt.translators;
+
+/**
+ * Options that control how an alloy model is translated into smt
+ */
+public class TranslationOptions
+{
+    /**
+     * Hoist repeated subterms of the smt program into define-fun
+     * definitions and let bindings
+     */
+    public boolean eliminateCommonSubexpressions = false;
+
+    /**
+     * Simplify boolean terms and drop trivially true assertions before
+     * printing
+     */
+    public boolean simplify = false;
+
+    /**
+     * Bound the signatures of every command by the scope of the command,
+     * e.g. for 3 but 5 A, instead of leaving their sizes unbounded
+     */
+    public boolean translateScopes = false;
+
+    /**
+     * Assert the disjointness of sibling signatures with a number of
+     * assertions linear in the number of siblings instead of one per pair
+     */
+    public boolean linearDisjointness = false;
+
+    /**
+     * Bound every top-level signature by a pool of distinct atoms that it
+     * fills in order, so the solver does not explore isomorphic instances.
+     * This implies translateScopes.
+     */
+    public boolean breakSymmetries = false;
+}
@@ -17,12 +17,6 @@ import java.util.stream.IntStream;
 
 public class TranslatorUtils
 {
-    private static int nameIndex = 0;
-
-    private static int atomIndex = 0;
-
-    private static int setIndex = 0;
-
     public static final int UNIV_SIGNATURE_ID = 2;
 
     /**
@@ -37,13 +31,13 @@ public class TranslatorUtils
     public static FunctionDeclaration generateAuxiliarySetNAtoms(int arity, int n, Alloy2SmtTranslator translator)
     {
         List<Sort>  sorts       = IntStream.range(1, arity + 1).boxed().map(x -> translator.atomSort).collect(Collectors.toList());
-        Sort        tupleSort   = new TupleSort(sorts);
-        Sort        setSort     = new SetSort(tupleSort);
+        Sort        tupleSort   = translator.factory.mkTupleSort(sorts);
+        Sort        setSort     = translator.factory.mkSetSort(tupleSort);
 
         //ToDo: handle the case when n = 0
-        List<Expression> expressions = declareNDistinctConstants(tupleSort, n, translator.smtProgram);
+        List<Expression> expressions = declareNDistinctConstants(tupleSort, n, translator.smtProgram, translator.context);
 
-        FunctionDeclaration declaration = new FunctionDeclaration(getNewSetName(), setSort);
+        FunctionDeclaration declaration = new FunctionDeclaration(translator.context.getNewSetName(), setSort);
 
         translator.smtProgram.addFunctionDeclaration(declaration);
 
@@ -70,14 +64,14 @@ public class TranslatorUtils
         return declaration;
     }
 
-    public static List<Expression> declareNDistinctConstants(Sort sort, int n, SmtProgram smtProgram)
+    public static List<Expression> declareNDistinctConstants(Sort sort, int n, SmtProgram smtProgram, TranslationContext context)
     {
         List<Expression> expressions = new ArrayList<>();
         if(n > 0)
         {
             for (int i = 0; i < n; i++)
             {
-                ConstantDeclaration constantDeclaration = new ConstantDeclaration(getNewAtomName(), sort);
+                ConstantDeclaration constantDeclaration = new ConstantDeclaration(context.getNewAtomName(), sort);
                 expressions.add(constantDeclaration.getConstantExpr());
                 smtProgram.addConstantDeclaration(constantDeclaration);
             }
@@ -95,40 +89,14 @@ public class TranslatorUtils
         return expressions;
     }
 
-    public static String getNewName()
-    {
-        nameIndex++;
-        return "_x" + nameIndex;
-    }
-
-    public static String getNewAtomName()
-    {
-        atomIndex ++;
-        return "_a" + atomIndex;
-    }
-
-    public static String getNewSetName()
-    {
-        setIndex ++;
-        return "_S" + setIndex;
-    }
-
-    public static void reset()
-    {
-        nameIndex = 0;
-        atomIndex = 0;
-        setIndex  = 0;
-    }
-    
-    public static Sort getSetSortOfAtomWithArity(int n)
+    public static Sort getSetSortOfAtomWithArity(int n, Alloy2SmtTranslator translator)
     {
         List<Sort> elementSorts = new ArrayList<>();
-        UninterpretedSort atomSort = new UninterpretedSort("Atom");
         for(int i = 0; i < n; ++i)
         {
-            elementSorts.add(atomSort);
+            elementSorts.add(translator.atomSort);
         }
-        return new SetSort(new TupleSort(elementSorts));
+        return translator.factory.mkSetSort(translator.factory.mkTupleSort(elementSorts));
     }
     
     public static Expression mkDistinctExpr(Expression ... exprs)
@@ -147,6 +115,25 @@ public class TranslatorUtils
         }
     }
     
+    /**
+     * @param op an associative operator, e.g. and or union
+     * @param exprs the operands, at least one
+     * @return the only operand or one n-ary expression of all operands,
+     * which is shallow unlike a chain of binary expressions
+     */
+    public static Expression mkMultiArityExpression(MultiArityExpression.Op op, List<Expression> exprs)
+    {
+        if(exprs.isEmpty())
+        {
+            throw new IllegalArgumentException("No operands for " + op);
+        }
+        if(exprs.size() == 1)
+        {
+            return exprs.get(0);
+        }
+        return new MultiArityExpression(op, exprs);
+    }
+
     public static Expression mkDistinctExpr(List<Expression> exprs)
     {
         if(exprs == null)
@@ -0,0 +1,223 @@
+package edu.uiowa.alloy2smt.smtparser;
+
+import edu.uiowa.alloy2smt.smtAst.*;
+import edu.uiowa.alloy2smt.smtparser.antlr.SmtLexer;
+import edu.uiowa.alloy2smt.smtparser.antlr.SmtParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+class SmtModelReaderTests
+{
+    private static final String model =
+            "(model\n" +
+            "; cardinality of Atom is 3\n" +
+            "(declare-sort Atom 0)\n" +
+            "; rep: @uc_Atom_0\n" +
+            "(declare-sort UnaryIntTup 0)\n" +
+            "(define-fun value_of_unaryIntTup ((BOUND_VARIABLE_448 UnaryIntTup)) (Tuple Int) (mkTuple 0))\n" +
+            "(define-fun atomNone () (Set (Tuple Atom)) (as emptyset (Set (Tuple Atom))))\n" +
+            "(define-fun this_A () (Set (Tuple Atom)) (singleton (mkTuple @uc_Atom_0)))\n" +
+            "(define-fun this_A_f () (Set (Tuple Atom Atom)) (union (singleton (mkTuple @uc_Atom_0 @uc_Atom_1)) " +
+            "(singleton (mkTuple @uc_Atom_1 @uc_Atom_2))))\n" +
+            ")";
+
+    private static SmtModel parseWithAntlr(String model)
+    {
+        SmtParser parser = new SmtParser(new CommonTokenStream(new SmtLexer(CharStreams.fromString(model))));
+        return (SmtModel) new SmtModelVisitor().visit(parser.model());
+    }
+
+    private static void assertSameModel(SmtModel expected, SmtModel actual)
+    {
+        Assertions.assertEquals(expected.getSorts(), actual.getSorts());
+        Assertions.assertEquals(expected.getFunctionDefinitions().size(), actual.getFunctionDefinitions().size());
+        for (int i = 0; i < expected.getFunctionDefinitions().size(); i++)
+        {
+            FunctionDefinition expectedDefinition   = expected.getFunctionDefinitions().get(i);
+            FunctionDefinition actualDefinition     = actual.getFunctionDefinitions().get(i);
+            Assertions.assertEquals(expectedDefinition.getFuncName(), actualDefinition.getFuncName());
+            Assertions.assertEquals(expectedDefinition.getInputSorts().size(), actualDefinition.getInputSorts().size());
+            for (int j = 0; j < expectedDefinition.getInputSorts().size(); j++)
+            {
+                Assertions.assertEquals(expectedDefinition.getInputSorts().get(j).getName(), actualDefinition.getInputSorts().get(j).getName());
+                Assertions.assertEquals(expectedDefinition.getInputSorts().get(j).getSort(), actualDefinition.getInputSorts().get(j).getSort());
+            }
+            Assertions.assertEquals(expectedDefinition.getOutputSort(), actualDefinition.getOutputSort());
+            Assertions.assertEquals(expectedDefinition.getExpression(), actualDefinition.getExpression());
+        }
+    }
+
+    @Test
+    void sameAsAntlr()
+    {
+        assertSameModel(parseWithAntlr(model), SmtModelReader.parse(model));
+    }
+
+    @Test
+    void readers() throws Exception
+    {
+        SmtModel expected = SmtModelReader.parse(model);
+
+        // a reader that returns one character at a time
+        Reader slowReader = new StringReader(model)
+        {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws java.io.IOException
+            {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+        assertSameModel(expected, new SmtModelReader(slowReader).read());
+
+        CharBuffer buffer = CharBuffer.wrap(("xx" + model + "xx").toCharArray(), 2, model.length());
+        assertSameModel(expected, new SmtModelReader(buffer).read());
+
+        // newer solvers leave out the model keyword
+        assertSameModel(expected, SmtModelReader.parse("(" + model.substring("(model".length())));
+    }
+
+    @Test
+    void internedAtoms()
+    {
+        SmtModel    smtModel    = SmtModelReader.parse(model);
+        Expression  a           = ((MultiArityExpression) ((UnaryExpression) smtModel.getFunctionDefinitions()
+                                    .get(2).getExpression()).getExpression()).getExpressions().get(0);
+        Expression  f           = ((MultiArityExpression) ((UnaryExpression) ((BinaryExpression) smtModel
+                                    .getFunctionDefinitions().get(3).getExpression()).getLhsExpr())
+                                    .getExpression()).getExpressions().get(0);
+        Assertions.assertSame(a, f);
+    }
+
+    @Test
+    void largeUnions()
+    {
+        int atoms = 100000;
+        StringBuilder leftNested  = new StringBuilder();
+        StringBuilder rightNested = new StringBuilder();
+        for (int i = 1; i < atoms; i++)
+        {
+            leftNested.append("(union ");
+            rightNested.append("(union (singleton (mkTuple @uc_Atom_").append(i).append(")) ");
+        }
+        leftNested.append("(singleton (mkTuple @uc_Atom_0))");
+        rightNested.append("(singleton (mkTuple @uc_Atom_0))");
+        for (int i = 1; i < atoms; i++)
+        {
+            leftNested.append(" (singleton (mkTuple @uc_Atom_").append(i).append(")))");
+            rightNested.append(")");
+        }
+
+        for (StringBuilder union : new StringBuilder[]{leftNested, rightNested})
+        {
+            SmtModel    smtModel    = SmtModelReader.parse("(model (define-fun this_A () (Set (Tuple Atom)) " + union + "))");
+            Expression  expression  = smtModel.getFunctionDefinitions().get(0).getExpression();
+
+            Set<String> elements    = new HashSet<>();
+            int         height      = 0;
+            Deque<Expression> stack = new ArrayDeque<>();
+            Deque<Integer>    depths = new ArrayDeque<>();
+            stack.push(expression);
+            depths.push(1);
+            while (!stack.isEmpty())
+            {
+                Expression  current = stack.pop();
+                int         depth   = depths.pop();
+                height = Math.max(height, depth);
+                if(current instanceof BinaryExpression)
+                {
+                    stack.push(((BinaryExpression) current).getLhsExpr());
+                    depths.push(depth + 1);
+                    stack.push(((BinaryExpression) current).getRhsExpr());
+                    depths.push(depth + 1);
+                }
+                else
+                {
+                    MultiArityExpression tuple = (MultiArityExpression) ((UnaryExpression) current).getExpression();
+                    elements.add(((AtomConstant) tuple.getExpressions().get(0)).getName());
+                }
+            }
+            Assertions.assertEquals(atoms, elements.size());
+            Assertions.assertTrue(height <= 18);
+        }
+    }
+
+    @Test
+    void integers()
+    {
+        SmtModel smtModel = SmtModelReader.parse("(model (define-fun n () (Tuple Int Int) (mkTuple 3 (- 2))))");
+        Assertions.assertEquals(new MultiArityExpression(MultiArityExpression.Op.MKTUPLE, new IntConstant(3), new IntConstant(-2)),
+                                smtModel.getFunctionDefinitions().get(0).getExpression());
+    }
+
+    @Test
+    void streaming() throws Exception
+    {
+        PipedWriter                 writer      = new PipedWriter();
+        PipedReader                 reader      = new PipedReader(writer);
+        BlockingQueue<SmtAst>       parts       = new LinkedBlockingQueue<>();
+        Thread                      thread      = new Thread(() ->
+        {
+            try
+            {
+                new SmtModelReader(reader).read(new SmtModelListener()
+                {
+                    @Override
+                    public void sortDeclared(Sort sort)
+                    {
+                        parts.add(sort);
+                    }
+
+                    @Override
+                    public void functionDefined(FunctionDefinition definition)
+                    {
+                        parts.add(definition);
+                    }
+                });
+            }
+            catch (IOException exception)
+            {
+                throw new UncheckedIOException(exception);
+            }
+        });
+        thread.start();
+
+        // each part arrives before the rest of the model is written
+        writer.write("(model\n(declare-sort Atom 0)\n");
+        writer.flush();
+        Assertions.assertEquals(new Sort("Atom", 0), parts.poll(10, TimeUnit.SECONDS));
+        writer.write("(define-fun this_A () (Set (Tuple Atom)) (singleton (mkTuple @uc_Atom_0)))");
+        writer.flush();
+        Assertions.assertEquals("this_A", ((FunctionDefinition) parts.poll(10, TimeUnit.SECONDS)).getFuncName());
+        writer.write(")\n");
+        writer.close();
+        thread.join();
+        Assertions.assertTrue(parts.isEmpty());
+    }
+
+    @Test
+    void errors()
+    {
+        Assertions.assertThrows(RuntimeException.class, () -> SmtModelReader.parse("(model (declare-sort Atom 0)"));
+        Assertions.assertThrows(RuntimeException.class, () -> SmtModelReader.parse("model"));
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+                () -> SmtModelReader.parse("(error \"Cannot get model: \"\"x\"\"\")"));
+        Assertions.assertTrue(exception.getMessage().contains("Cannot get model"));
+    }
+}
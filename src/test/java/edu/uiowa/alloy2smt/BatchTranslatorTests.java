@@ -0,0 +1,95 @@
+package edu.uiowa.alloy2smt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.uiowa.alloy2smt.mapping.Mapper;
+import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+class BatchTranslatorTests
+{
+    private static final String alloy =
+            "sig A {f: set A}\n" +
+            "run {some A} for 3\n" +
+            "run {no A} for 3\n";
+
+    private static Path createInputs() throws IOException
+    {
+        Path directory = Files.createTempDirectory("batch");
+        Files.createDirectories(directory.resolve("nested"));
+        Files.write(directory.resolve("first.als"), alloy.getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("nested").resolve("second.als"), "sig B {}".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("nested").resolve("broken.als"), "sig {".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("notes.txt"), "sig C {}".getBytes(StandardCharsets.UTF_8));
+        return directory;
+    }
+
+    @Test
+    void findInputs() throws IOException
+    {
+        Path directory = createInputs();
+        Assertions.assertEquals(Arrays.asList(directory.resolve("first.als"),
+                                              directory.resolve("nested").resolve("broken.als"),
+                                              directory.resolve("nested").resolve("second.als")),
+                                BatchTranslator.findInputs(directory.toString()));
+        Assertions.assertEquals(Arrays.asList(directory.resolve("first.als")),
+                                BatchTranslator.findInputs(directory + "/*.als"));
+        Assertions.assertEquals(Arrays.asList(directory.resolve("nested").resolve("second.als")),
+                                BatchTranslator.findInputs(directory + "/**/s*.als"));
+        Assertions.assertEquals(Paths.get("models/"), BatchTranslator.getBaseDirectory("models/**/*.als"));
+        Assertions.assertEquals(Paths.get("."), BatchTranslator.getBaseDirectory("*.als"));
+    }
+
+    @Test
+    void translate() throws Exception
+    {
+        Path directory  = createInputs();
+        Path output     = Files.createTempDirectory("batch-output");
+
+        BatchTranslator.Manifest manifest;
+        try (BatchTranslator batch = new BatchTranslator(2, new TranslationOptions(), null))
+        {
+            manifest = batch.translate(directory.toString(), output);
+        }
+        Assertions.assertEquals(3, manifest.inputs);
+        Assertions.assertEquals(1, manifest.failures);
+
+        // the failure of one input does not stop the others
+        BatchTranslator.Entry broken = manifest.files.get(1);
+        Assertions.assertEquals(BatchTranslator.Entry.ERROR, broken.status);
+        Assertions.assertNotNull(broken.error);
+        Assertions.assertFalse(Files.exists(output.resolve("nested").resolve("broken.als.smt2")));
+
+        BatchTranslator.Entry first = manifest.files.get(0);
+        Assertions.assertEquals(BatchTranslator.Entry.OK, first.status);
+        Assertions.assertEquals(2, first.commands);
+        Path smtFile    = output.resolve("first.als.smt2");
+        Path mapperFile = output.resolve("first.als.mapper.json");
+        Assertions.assertEquals(Files.size(smtFile) + Files.size(mapperFile), first.outputBytes);
+
+        Translation translation = Utils.translate(alloy);
+        String      script      = new String(Files.readAllBytes(smtFile), StandardCharsets.UTF_8);
+        Assertions.assertTrue(script.startsWith(translation.getSmtScript()));
+        List<String> commands = translation.translateAllCommands();
+        Assertions.assertTrue(script.contains(commands.get(0)));
+        Assertions.assertTrue(script.contains(commands.get(1)));
+        Assertions.assertEquals(translation.getMapper().signatures.size(),
+                                Mapper.readFromJson(mapperFile.toString()).signatures.size());
+        Assertions.assertTrue(Files.exists(output.resolve("nested").resolve("second.als.smt2")));
+
+        JsonNode json = new ObjectMapper().readTree(output.resolve(BatchTranslator.MANIFEST_FILE).toFile());
+        Assertions.assertEquals(3, json.get("files").size());
+        Assertions.assertEquals("error", json.get("files").get(1).get("status").asText());
+        Assertions.assertFalse(json.get("files").get(0).has("error"));
+    }
+}
@@ -0,0 +1,86 @@
+package edu.uiowa.alloy2smt;
+
+import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationMetrics;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+class TranslationCacheTests
+{
+    private static final String alloy =
+            "sig A {f: set A}\n" +
+            "fact {all x: A | some x.f}\n" +
+            "run {some A} for 3\n" +
+            "run {no A} for 3\n";
+
+    @Test
+    void cacheHit() throws IOException
+    {
+        TranslationCache    cache   = new TranslationCache(Files.createTempDirectory("cache"));
+        TranslationOptions  options = new TranslationOptions();
+
+        Translation miss = cache.translate(alloy, null, options);
+        Translation hit  = cache.translate(alloy, null, options);
+
+        // the classes of the tests are not in a jar, so their hash is the version
+        Assertions.assertTrue(TranslationCache.isEnabled());
+        Assertions.assertFalse(miss.isRestored());
+        Assertions.assertTrue(hit.isRestored());
+        Assertions.assertEquals(miss.getSmtScript(), hit.getSmtScript());
+        Assertions.assertEquals(miss.translateAllCommands(), hit.translateAllCommands());
+        // the commands of a miss are translated once, when they are stored
+        Assertions.assertEquals(2, miss.getMetrics().getPhase(TranslationMetrics.COMMAND).getRuns());
+        Assertions.assertEquals(2, hit.getCommandCount());
+        Assertions.assertEquals(miss.getMapper().signatures.size(), hit.getMapper().signatures.size());
+        Assertions.assertEquals(miss.getMapper().fields.get(0).functionName, hit.getMapper().fields.get(0).functionName);
+    }
+
+    @Test
+    void keys() throws IOException
+    {
+        Path                directory   = Files.createTempDirectory("cache");
+        TranslationCache    cache       = new TranslationCache(directory);
+        TranslationOptions  options     = new TranslationOptions();
+        TranslationOptions  cseOptions  = new TranslationOptions();
+        cseOptions.eliminateCommonSubexpressions = true;
+
+        Path model  = directory.resolve("model.als");
+        Path module = directory.resolve("lib").resolve("base.als");
+        Files.createDirectories(module.getParent());
+        Files.write(module, "module lib/base\nsig B {}\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(model, ("open lib/base\n" + alloy).getBytes(StandardCharsets.UTF_8));
+        String source = new String(Files.readAllBytes(model), StandardCharsets.UTF_8);
+
+        String key = cache.computeKey(source, directory, options);
+        Assertions.assertEquals(key, cache.computeKey(source, directory, options));
+        Assertions.assertNotEquals(key, cache.computeKey(source, directory, cseOptions));
+        Assertions.assertNotEquals(key, cache.computeKey(source + " ", directory, options));
+
+        Files.write(module, "module lib/base\nsig C {}\n".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertNotEquals(key, cache.computeKey(source, directory, options));
+    }
+
+    @Test
+    void eviction() throws IOException
+    {
+        Path                directory   = Files.createTempDirectory("cache");
+        TranslationCache    cache       = new TranslationCache(directory, 1);
+        TranslationOptions  options     = new TranslationOptions();
+
+        cache.translate(alloy, null, options);
+        cache.translate("sig B {}", null, options);
+
+        try (Stream<Path> entries = Files.list(directory))
+        {
+            Assertions.assertEquals(0, entries.count());
+        }
+        Assertions.assertFalse(cache.translate(alloy, null, options).isRestored());
+    }
+}
@@ -0,0 +1,101 @@
+package edu.uiowa.alloy2smt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+class TranslationServerTests
+{
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Map<String, JsonNode> serve(String requests) throws Exception
+    {
+        return serve(requests, new TranslationServer(2, 1, 60_000));
+    }
+
+    private Map<String, JsonNode> serve(String requests, TranslationServer translationServer) throws Exception
+    {
+        StringWriter output = new StringWriter();
+        try (TranslationServer server = translationServer)
+        {
+            server.serve(new StringReader(requests), output);
+        }
+
+        Map<String, JsonNode> responses = new HashMap<>();
+        for (String line : output.toString().split("\n"))
+        {
+            JsonNode response = objectMapper.readTree(line);
+            responses.put(response.path("id").asText("null"), response);
+        }
+        return responses;
+    }
+
+    @Test
+    void translateRequests() throws Exception
+    {
+        String requests =
+                "{\"id\": \"1\", \"alloy\": \"sig A {}\\nrun {some A}\\nrun {no A}\"}\n" +
+                "{\"id\": \"2\", \"alloy\": \"sig A {}\\nrun {some A}\\nrun {no A}\", \"command\": 1}\n" +
+                "\n" +
+                "{\"id\": \"3\", \"alloy\": \"sig A {f: A}\", \"options\": {\"cse\": true}}\n";
+
+        Map<String, JsonNode> responses = serve(requests);
+
+        Assertions.assertEquals(3, responses.size());
+
+        JsonNode response1 = responses.get("1");
+        Assertions.assertTrue(response1.get("smtScript").asText().contains("(declare-fun this_A () (Set (Tuple Atom)))"));
+        Assertions.assertEquals(2, response1.get("commands").size());
+        Assertions.assertTrue(response1.get("mapper").get("signatures").size() > 0);
+
+        JsonNode response2 = responses.get("2");
+        Assertions.assertEquals(1, response2.get("commands").size());
+        Assertions.assertEquals(response1.get("commands").get(1), response2.get("commands").get(0));
+
+        Assertions.assertFalse(responses.get("3").has("error"));
+    }
+
+    @Test
+    void invalidRequests() throws Exception
+    {
+        String requests =
+                "not json\n" +
+                "{\"id\": 1}\n" +
+                "{\"id\": 2, \"alloy\": \"sig A {\"}\n" +
+                "{\"id\": 3, \"alloy\": \"sig A {}\", \"command\": 5}\n";
+
+        Map<String, JsonNode> responses = serve(requests);
+
+        Assertions.assertEquals(4, responses.size());
+        for (JsonNode response : responses.values())
+        {
+            Assertions.assertTrue(response.has("error"));
+        }
+    }
+
+    @Test
+    void timeouts() throws Exception
+    {
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < 20; i++)
+        {
+            requests.append("{\"id\": ").append(i).append(", \"alloy\": \"sig A {f: set A}\\nrun {some f}\", \"timeout\": 1}\n");
+        }
+
+        // requests that time out while queued or running never overflow the queue
+        Map<String, JsonNode> responses = serve(requests.toString(), new TranslationServer(1, 0, 60_000));
+
+        Assertions.assertEquals(20, responses.size());
+        for (JsonNode response : responses.values())
+        {
+            Assertions.assertTrue(response.has("smtScript") ||
+                                  response.get("error").asText().startsWith("Timeout after 1 ms"));
+        }
+    }
+}
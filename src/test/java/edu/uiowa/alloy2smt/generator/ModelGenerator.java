@@ -0,0 +1,278 @@
+package edu.uiowa.alloy2smt.generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic alloy models of a given size for scaling tests and
+ * benchmarks. The same settings and seed always produce the same model.
+ */
+public class ModelGenerator
+{
+    /**
+     * The multiplicities of generated fields, ->m means a binary field
+     * of the form f: A -> m B
+     */
+    public static final List<String> MULTIPLICITIES = Arrays.asList("set", "one", "lone", "some", "->set", "->one", "->lone", "->some");
+
+    private int             signatures              = 10;
+    private int             hierarchyDepth          = 1;
+    private int             fieldsPerSig            = 2;
+    private List<String>    multiplicities          = Arrays.asList("set");
+    private int             facts                   = 0;
+    private int             quantifierDepth         = 1;
+    private int             predicates              = 0;
+    private int             setComprehensions       = 0;
+    private int             cardinalityConstraints  = 0;
+    private int             arithmeticConstraints   = 0;
+    private long            seed                    = 0;
+
+    public ModelGenerator signatures(int signatures)
+    {
+        if(signatures < 1)
+        {
+            throw new IllegalArgumentException("At least one signature is needed");
+        }
+        this.signatures = signatures;
+        return this;
+    }
+
+    /**
+     * @param hierarchyDepth the length of the extends chains, 1 for top level signatures only
+     */
+    public ModelGenerator hierarchyDepth(int hierarchyDepth)
+    {
+        if(hierarchyDepth < 1)
+        {
+            throw new IllegalArgumentException("The hierarchy depth should be at least 1");
+        }
+        this.hierarchyDepth = hierarchyDepth;
+        return this;
+    }
+
+    public ModelGenerator fieldsPerSig(int fieldsPerSig)
+    {
+        this.fieldsPerSig = fieldsPerSig;
+        return this;
+    }
+
+    /**
+     * @param multiplicities the multiplicities of fields, taken from {@link ModelGenerator#MULTIPLICITIES}
+     *                       in turn
+     */
+    public ModelGenerator multiplicities(String ... multiplicities)
+    {
+        for (String multiplicity : multiplicities)
+        {
+            if(!MULTIPLICITIES.contains(multiplicity))
+            {
+                throw new IllegalArgumentException("Unknown multiplicity " + multiplicity);
+            }
+        }
+        this.multiplicities = Arrays.asList(multiplicities);
+        return this;
+    }
+
+    /**
+     * @param facts the number of quantified facts
+     */
+    public ModelGenerator facts(int facts)
+    {
+        this.facts = facts;
+        return this;
+    }
+
+    /**
+     * @param quantifierDepth the number of nested quantifiers in each fact and predicate
+     */
+    public ModelGenerator quantifierDepth(int quantifierDepth)
+    {
+        if(quantifierDepth < 1)
+        {
+            throw new IllegalArgumentException("The quantifier depth should be at least 1");
+        }
+        this.quantifierDepth = quantifierDepth;
+        return this;
+    }
+
+    /**
+     * @param predicates the length of a chain of predicates where each
+     *                   predicate calls the previous one. The run command
+     *                   calls the last predicate.
+     */
+    public ModelGenerator predicates(int predicates)
+    {
+        this.predicates = predicates;
+        return this;
+    }
+
+    public ModelGenerator setComprehensions(int setComprehensions)
+    {
+        this.setComprehensions = setComprehensions;
+        return this;
+    }
+
+    public ModelGenerator cardinalityConstraints(int cardinalityConstraints)
+    {
+        this.cardinalityConstraints = cardinalityConstraints;
+        return this;
+    }
+
+    /**
+     * @param arithmeticConstraints the number of facts with integer arithmetic.
+     *                              The translator compares cardinalities with
+     *                              numbers only, so the arithmetic is over constants.
+     */
+    public ModelGenerator arithmeticConstraints(int arithmeticConstraints)
+    {
+        this.arithmeticConstraints = arithmeticConstraints;
+        return this;
+    }
+
+    public ModelGenerator seed(long seed)
+    {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @return an alloy model with the configured size and a run command
+     */
+    public String generate()
+    {
+        Random          random  = new Random(seed);
+        StringBuilder   alloy   = new StringBuilder();
+        // the fields of each signature including inherited fields
+        List<List<String>> fields = generateSignatures(alloy);
+
+        for (int i = 0; i < facts; i++)
+        {
+            alloy.append("fact fact").append(i).append(" {")
+                 .append(quantifiedFormula(random, fields, random.nextInt(signatures), null))
+                 .append("}\n");
+        }
+
+        for (int i = 0; i < setComprehensions; i++)
+        {
+            int sig = random.nextInt(signatures);
+            alloy.append("fact comprehension").append(i).append(" {some {x: ").append(sigName(sig))
+                 .append(" | x in ").append(sigName(sig)).append(fieldFormula(random, fields.get(sig), "x")).append("}}\n");
+        }
+
+        for (int i = 0; i < cardinalityConstraints; i++)
+        {
+            alloy.append("fact cardinality").append(i).append(" {#")
+                 .append(sigName(random.nextInt(signatures)))
+                 .append(random.nextBoolean() ? " <= " : " >= ")
+                 .append(random.nextInt(4)).append("}\n");
+        }
+
+        for (int i = 0; i < arithmeticConstraints; i++)
+        {
+            alloy.append("fact arithmetic").append(i).append(" {let n = plus[")
+                 .append(random.nextInt(8)).append(", mul[").append(random.nextInt(4)).append(", ")
+                 .append(random.nextInt(4)).append("]] | minus[n, ").append(random.nextInt(4)).append("]")
+                 .append(random.nextBoolean() ? " >= " : " <= ")
+                 .append(random.nextInt(16)).append("}\n");
+        }
+
+        int previousSig = 0;
+        for (int i = 0; i < predicates; i++)
+        {
+            int sig = random.nextInt(signatures);
+            alloy.append("pred p").append(i).append("[y: ").append(sigName(sig)).append("] {")
+                 .append(quantifiedFormula(random, fields, sig, "y"));
+            if(i > 0)
+            {
+                alloy.append(" and (some z: ").append(sigName(previousSig)).append(" | p").append(i - 1).append("[z])");
+            }
+            alloy.append("}\n");
+            previousSig = sig;
+        }
+
+        if(predicates > 0)
+        {
+            alloy.append("run {some x: ").append(sigName(previousSig)).append(" | p").append(predicates - 1).append("[x]} for 3\n");
+        }
+        else
+        {
+            alloy.append("run {} for 3\n");
+        }
+        return alloy.toString();
+    }
+
+    private List<List<String>> generateSignatures(StringBuilder alloy)
+    {
+        List<List<String>>  fields      = new ArrayList<>();
+        int                 fieldIndex  = 0;
+        for (int i = 0; i < signatures; i++)
+        {
+            alloy.append("sig ").append(sigName(i));
+            // every hierarchyDepth signatures form a chain of extensions
+            if(i % hierarchyDepth != 0)
+            {
+                alloy.append(" extends ").append(sigName(i - 1));
+                fields.add(new ArrayList<>(fields.get(i - 1)));
+            }
+            else
+            {
+                fields.add(new ArrayList<>());
+            }
+            alloy.append(" {");
+            for (int j = 0; j < fieldsPerSig; j++)
+            {
+                String field        = "f" + i + "_" + j;
+                String multiplicity = multiplicities.get(fieldIndex++ % multiplicities.size());
+                String target       = sigName((i + j + 1) % signatures);
+                alloy.append(j == 0 ? "" : ", ").append(field).append(": ");
+                if(multiplicity.startsWith("->"))
+                {
+                    alloy.append(target).append(" -> ").append(multiplicity.substring(2)).append(" ").append(target);
+                }
+                else
+                {
+                    alloy.append(multiplicity).append(" ").append(target);
+                }
+                fields.get(i).add(field);
+            }
+            alloy.append("}\n");
+        }
+        return fields;
+    }
+
+    /**
+     * @return a formula with quantifierDepth nested quantifiers over the given
+     * signature whose body relates the quantified variables and the given free variable
+     */
+    private String quantifiedFormula(Random random, List<List<String>> fields, int sig, String freeVariable)
+    {
+        StringBuilder formula   = new StringBuilder();
+        StringBuilder body      = new StringBuilder();
+        for (int depth = 0; depth < quantifierDepth; depth++)
+        {
+            String variable = "x" + depth;
+            formula.append(depth % 2 == 0 ? "all " : "some ").append(variable).append(": ")
+                   .append(sigName(sig)).append(" | ");
+            body.append(depth == 0 ? "" : " or ").append(variable).append(" = ")
+                .append(depth == 0 ? (freeVariable == null ? variable : freeVariable) : "x" + (depth - 1));
+        }
+        body.append(fieldFormula(random, fields.get(sig), "x" + (quantifierDepth - 1)));
+        return formula.append("(").append(body).append(")").toString();
+    }
+
+    private String fieldFormula(Random random, List<String> fields, String variable)
+    {
+        if(fields.isEmpty())
+        {
+            return "";
+        }
+        return " or some " + variable + "." + fields.get(random.nextInt(fields.size()));
+    }
+
+    private static String sigName(int index)
+    {
+        return "S" + index;
+    }
+}
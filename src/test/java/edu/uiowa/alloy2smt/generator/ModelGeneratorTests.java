@@ -0,0 +1,50 @@
+package edu.uiowa.alloy2smt.generator;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.translators.Translation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ModelGeneratorTests
+{
+    private int scriptSize(ModelGenerator generator)
+    {
+        Translation translation = Utils.translate(generator.generate());
+        return translation.getSmtScript().length() + translation.translateCommand(0).length();
+    }
+
+    @Test
+    void allKnobsTranslate()
+    {
+        for (int seed = 0; seed < 5; seed++)
+        {
+            ModelGenerator generator = new ModelGenerator()
+                    .signatures(6)
+                    .hierarchyDepth(3)
+                    .fieldsPerSig(2)
+                    .multiplicities(ModelGenerator.MULTIPLICITIES.toArray(new String[0]))
+                    .facts(3)
+                    .quantifierDepth(3)
+                    .predicates(3)
+                    .setComprehensions(2)
+                    .cardinalityConstraints(2)
+                    .arithmeticConstraints(2)
+                    .seed(seed);
+
+            Assertions.assertEquals(generator.generate(), generator.generate());
+            Assertions.assertTrue(scriptSize(generator) > 0);
+        }
+    }
+
+    @Test
+    void scriptsGrowWithTheKnobs()
+    {
+        int base = scriptSize(new ModelGenerator().signatures(5).facts(1));
+
+        Assertions.assertTrue(scriptSize(new ModelGenerator().signatures(10).facts(1)) > base);
+        Assertions.assertTrue(scriptSize(new ModelGenerator().signatures(5).fieldsPerSig(4).facts(1)) > base);
+        Assertions.assertTrue(scriptSize(new ModelGenerator().signatures(5).facts(4)) > base);
+        Assertions.assertTrue(scriptSize(new ModelGenerator().signatures(5).facts(1).quantifierDepth(4)) > base);
+        Assertions.assertTrue(scriptSize(new ModelGenerator().signatures(5).facts(1).predicates(3)) > base);
+    }
+}
@@ -0,0 +1,96 @@
+package edu.uiowa.alloy2smt.instance;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.mapping.Mapper;
+import edu.uiowa.alloy2smt.smtparser.SmtModelReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class InstanceTests
+{
+    private static final String model =
+            "(model\n" +
+            "(declare-sort Atom 0)\n" +
+            "(define-fun value_of_unaryIntTup ((BOUND_VARIABLE_448 UnaryIntTup)) (Tuple Int) (mkTuple 0))\n" +
+            "(define-fun atomNone () (Set (Tuple Atom)) (as emptyset (Set (Tuple Atom))))\n" +
+            "(define-fun this_A () (Set (Tuple Atom)) (union (singleton (mkTuple @uc_Atom_0)) " +
+            "(union (singleton (mkTuple @uc_Atom_1)) (singleton (mkTuple @uc_Atom_2)))))\n" +
+            "(define-fun this_A_f () (Set (Tuple Atom Atom)) (union (singleton (mkTuple @uc_Atom_2 @uc_Atom_0)) " +
+            "(union (singleton (mkTuple @uc_Atom_0 @uc_Atom_1)) (singleton (mkTuple @uc_Atom_0 @uc_Atom_2)))))\n" +
+            ")";
+
+    @Test
+    void relations()
+    {
+        Instance    instance    = Instance.fromModel(SmtModelReader.parse(model), new AtomTable());
+        AtomTable   atoms       = instance.getAtoms();
+        int         a0          = atoms.find("@uc_Atom_0");
+        int         a1          = atoms.find("@uc_Atom_1");
+        int         a2          = atoms.find("@uc_Atom_2");
+
+        Assertions.assertNull(instance.getRelation("value_of_unaryIntTup"));
+        Assertions.assertTrue(instance.getRelation("atomNone").isEmpty());
+
+        Relation a = instance.getRelation("this_A");
+        Assertions.assertEquals(3, a.size());
+        Assertions.assertTrue(a.contains(a1));
+        Assertions.assertFalse(a.contains(atoms.size()));
+
+        Relation f = instance.getRelation("this_A_f");
+        Assertions.assertEquals(2, f.getArity());
+        Assertions.assertEquals(3, f.size());
+        Assertions.assertTrue(f.contains(a2, a0));
+        Assertions.assertFalse(f.contains(a0, a0));
+
+        // tuples are sorted by atom id
+        List<String> tuples = new ArrayList<>();
+        f.forEach(tuple -> tuples.add(Arrays.toString(tuple)));
+        Assertions.assertEquals(Arrays.asList("[0, 1]", "[0, 2]", "[2, 0]"), tuples);
+        Assertions.assertEquals("{(@uc_Atom_0, @uc_Atom_1), (@uc_Atom_0, @uc_Atom_2), (@uc_Atom_2, @uc_Atom_0)}",
+                                f.toString(atoms));
+    }
+
+    @Test
+    void join()
+    {
+        Relation a  = new Relation.Builder(1).add(0).add(2).build();
+        Relation f  = new Relation.Builder(2).add(0, 1).add(0, 2).add(2, 0).add(1, 1).add(0, 1).build();
+        Relation g  = new Relation.Builder(3).add(1, 5, 6).add(2, 7, 8).add(3, 9, 9).build();
+
+        Assertions.assertEquals(4, f.size());
+        Assertions.assertEquals(new Relation.Builder(1).add(1).add(2).add(0).build(), a.join(f));
+        Assertions.assertEquals(new Relation.Builder(1).add(0).add(2).build(), f.join(a));
+        Assertions.assertEquals(new Relation.Builder(2).add(0, 1).add(0, 0).add(1, 1).add(2, 1).add(2, 2).build(), f.join(f));
+        Assertions.assertEquals(new Relation.Builder(3).add(0, 5, 6).add(0, 7, 8).add(1, 5, 6).build(), f.join(g));
+        Assertions.assertEquals(new Relation.Builder(2).add(7, 8).build(), a.join(g));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> a.join(a));
+    }
+
+    @Test
+    void compareInstances()
+    {
+        AtomTable   atoms   = new AtomTable();
+        Instance    first   = Instance.fromModel(SmtModelReader.parse(model), atoms);
+        Instance    second  = new Instance(atoms);
+        // the same relations in a different order
+        String      shuffled = model.replace("(singleton (mkTuple @uc_Atom_2 @uc_Atom_0))", "(singleton (mkTuple @uc_Atom_0 @uc_Atom_2))")
+                                    .replace("(union (singleton (mkTuple @uc_Atom_0 @uc_Atom_1)) (singleton (mkTuple @uc_Atom_0 @uc_Atom_2)))",
+                                             "(union (singleton (mkTuple @uc_Atom_0 @uc_Atom_1)) (singleton (mkTuple @uc_Atom_2 @uc_Atom_0)))");
+        SmtModelReader.parse(shuffled).getFunctionDefinitions().forEach(second::functionDefined);
+        Assertions.assertEquals(first, second);
+    }
+
+    @Test
+    void mapper()
+    {
+        Mapper      mapper      = Utils.translate("sig A {f: set A}").getMapper();
+        Instance    instance    = Instance.fromModel(SmtModelReader.parse(model), new AtomTable());
+        Assertions.assertSame(instance.getRelation("this_A"), instance.getSignature(mapper, "this/A"));
+        Assertions.assertSame(instance.getRelation("this_A_f"), instance.getField(mapper, "this/A", "f"));
+        Assertions.assertNull(instance.getSignature(mapper, "this/B"));
+    }
+}
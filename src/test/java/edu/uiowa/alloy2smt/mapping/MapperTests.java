@@ -1,11 +1,19 @@
 package edu.uiowa.alloy2smt.mapping;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.uiowa.alloy2smt.Utils;
 import edu.uiowa.alloy2smt.translators.Translation;
 import edu.uiowa.alloy2smt.translators.TranslatorUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
 class MapperTests
 {
     @Test
@@ -94,4 +102,63 @@ class MapperTests
         Assertions.assertEquals(signatureB.id, fieldB_g.types.get(1).id);
         Assertions.assertEquals(signatureA.id, fieldB_g.types.get(2).id);
     }
-}
\ No newline at end of file
+
+    private static void assertSameMapper(Mapper expected, Mapper actual)
+    {
+        Assertions.assertEquals(expected.signatures.size(), actual.signatures.size());
+        for (int i = 0; i < expected.signatures.size(); i++)
+        {
+            Assertions.assertEquals(expected.signatures.get(i).label, actual.signatures.get(i).label);
+            Assertions.assertEquals(expected.signatures.get(i).functionName, actual.signatures.get(i).functionName);
+            Assertions.assertEquals(expected.signatures.get(i).isOne, actual.signatures.get(i).isOne);
+        }
+        Assertions.assertEquals(expected.fields.size(), actual.fields.size());
+        for (int i = 0; i < expected.fields.size(); i++)
+        {
+            Assertions.assertEquals(expected.fields.get(i).functionName, actual.fields.get(i).functionName);
+            Assertions.assertEquals(expected.fields.get(i).parentId, actual.fields.get(i).parentId);
+            Assertions.assertEquals(expected.fields.get(i).types.size(), actual.fields.get(i).types.size());
+            Assertions.assertEquals(expected.fields.get(i).types.get(0).id, actual.fields.get(i).types.get(0).id);
+        }
+    }
+
+    @Test
+    void json() throws Exception
+    {
+        Mapper mapper = Utils.translate("sig A {f: A, g: A -> A} one sig B extends A {}").getMapper();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mapper.writeToJson(out);
+        Mapper stream = Mapper.readFromJson(new ByteArrayInputStream(out.toByteArray()));
+        assertSameMapper(mapper, stream);
+
+        File file = File.createTempFile("mapper", ".json");
+        mapper.writeToJson(file.getPath());
+        assertSameMapper(mapper, Mapper.readFromJson(file.getPath()));
+        Assertions.assertArrayEquals(out.toByteArray(), Files.readAllBytes(file.toPath()));
+
+        // the compact json is the same object on one line
+        ObjectMapper objectMapper = new ObjectMapper();
+        Assertions.assertFalse(mapper.toJson().contains("\n"));
+        Assertions.assertEquals(objectMapper.readTree(out.toByteArray()), objectMapper.readTree(mapper.toJson()));
+        Assertions.assertEquals(objectMapper.valueToTree(mapper), objectMapper.readTree(mapper.toJson()));
+        assertSameMapper(mapper, objectMapper.readValue(mapper.toJson(), Mapper.class));
+
+        Assertions.assertThrows(IOException.class,
+                () -> Mapper.readFromJson(new ByteArrayInputStream("{\"sigs\": []}".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void xml() throws Exception
+    {
+        Mapper mapper = Utils.translate("sig A {f: A, g: A -> A} one sig B extends A {}").getMapper();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mapper.writeToXml(out);
+        assertSameMapper(mapper, Mapper.readFromXml(new ByteArrayInputStream(out.toByteArray())));
+
+        File file = File.createTempFile("mapper", ".xml");
+        mapper.writeToXml(file.getPath());
+        assertSameMapper(mapper, Mapper.readFromXml(file.getPath()));
+    }
+}
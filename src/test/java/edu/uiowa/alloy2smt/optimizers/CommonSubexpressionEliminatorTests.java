@@ -0,0 +1,103 @@
+package edu.uiowa.alloy2smt.optimizers;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.smtAst.*;
+import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CommonSubexpressionEliminatorTests
+{
+    private final Sort atomSort = new UninterpretedSort("Atom");
+    private final Sort setSort  = new SetSort(new TupleSort(atomSort, atomSort));
+
+    @Test
+    void closedSubtermsAreDefined()
+    {
+        SmtProgram          program = new SmtProgram();
+        FunctionDeclaration r       = new FunctionDeclaration("r", setSort);
+        FunctionDeclaration s       = new FunctionDeclaration("s", setSort);
+        program.addFunctionDeclaration(r);
+        program.addFunctionDeclaration(s);
+
+        Expression join = new BinaryExpression(new BinaryExpression(r.getConstantExpr(), BinaryExpression.Op.JOIN, s.getConstantExpr()),
+                BinaryExpression.Op.JOIN, r.getConstantExpr());
+        program.addAssertion(new Assertion(new BinaryExpression(join, BinaryExpression.Op.SUBSET, r.getConstantExpr())));
+        program.addAssertion(new Assertion(new BinaryExpression(join, BinaryExpression.Op.SUBSET, s.getConstantExpr())));
+
+        int bindings = new CommonSubexpressionEliminator().eliminate(program);
+
+        Assertions.assertEquals(1, bindings);
+        Assertions.assertEquals(1, program.getFunctionDefinitions().size());
+        FunctionDefinition definition = program.getFunctionDefinitions().get(0);
+        Assertions.assertEquals(join, definition.getExpression());
+        Assertions.assertEquals(setSort, definition.getOutputSort());
+        Assertions.assertEquals(new BinaryExpression(new FunctionCallExpression(definition.getFuncName()),
+                BinaryExpression.Op.SUBSET, r.getConstantExpr()), program.getAssertions().get(0).getExpression());
+    }
+
+    @Test
+    void openSubtermsAreLetBound()
+    {
+        SmtProgram               program = new SmtProgram();
+        FunctionDeclaration      r       = new FunctionDeclaration("r", setSort);
+        BoundVariableDeclaration x       = new BoundVariableDeclaration("x", atomSort);
+        program.addFunctionDeclaration(r);
+
+        Expression tuple      = new MultiArityExpression(MultiArityExpression.Op.MKTUPLE, x.getConstantExpr(), x.getConstantExpr());
+        Expression membership = new BinaryExpression(tuple, BinaryExpression.Op.MEMBER, r.getConstantExpr());
+        Expression body       = new BinaryExpression(membership, BinaryExpression.Op.AND,
+                new BinaryExpression(membership, BinaryExpression.Op.OR, new UnaryExpression(UnaryExpression.Op.NOT, membership)));
+        program.addAssertion(new Assertion(new QuantifiedExpression(QuantifiedExpression.Op.FORALL, body, x)));
+
+        new CommonSubexpressionEliminator().eliminate(program);
+
+        Assertions.assertTrue(program.getFunctionDefinitions().isEmpty());
+        QuantifiedExpression forall = (QuantifiedExpression) program.getAssertions().get(0).getExpression();
+        Assertions.assertTrue(forall.getExpression() instanceof LetExpression);
+        LetExpression let = (LetExpression) forall.getExpression();
+        Assertions.assertEquals(1, let.getLetVars().size());
+        Assertions.assertEquals(membership, let.getLetVars().values().iterator().next());
+    }
+
+    @Test
+    void deepSubterms()
+    {
+        SmtProgram          program = new SmtProgram();
+        FunctionDeclaration r       = new FunctionDeclaration("r", setSort);
+        FunctionDeclaration s       = new FunctionDeclaration("s", setSort);
+        program.addFunctionDeclaration(r);
+        program.addFunctionDeclaration(s);
+
+        Expression union = r.getConstantExpr();
+        for (int i = 0; i < 200000; i++)
+        {
+            union = new BinaryExpression(union, BinaryExpression.Op.UNION, i % 2 == 0 ? s.getConstantExpr() : r.getConstantExpr());
+        }
+        program.addAssertion(new Assertion(new BinaryExpression(union, BinaryExpression.Op.SUBSET, r.getConstantExpr())));
+        program.addAssertion(new Assertion(new BinaryExpression(union, BinaryExpression.Op.SUBSET, s.getConstantExpr())));
+
+        new CommonSubexpressionEliminator().eliminate(program);
+
+        Assertions.assertEquals(1, program.getFunctionDefinitions().size());
+        FunctionDefinition definition = program.getFunctionDefinitions().get(0);
+        Assertions.assertSame(union, definition.getExpression());
+        Assertions.assertEquals(setSort, definition.getOutputSort());
+    }
+
+    @Test
+    void translationWithCommonSubexpressionElimination()
+    {
+        String alloy = "sig A {f: set A, g: set A} \n" +
+                "fact {some A.f.g and A.f.g in A.g}\n" +
+                "fact {no A.f.g & A.f}";
+        TranslationOptions options = new TranslationOptions();
+        options.eliminateCommonSubexpressions = true;
+        Translation translation = Utils.translate(alloy, options);
+        String smt = translation.getSmtScript();
+
+        Assertions.assertTrue(smt.contains("(define-fun _cse1 () (Set (Tuple Atom)) \n(join (join this_A this_A_f) this_A_g))"));
+        Assertions.assertTrue(Utils.translate(alloy).getSmtScript().length() > smt.length());
+    }
+}
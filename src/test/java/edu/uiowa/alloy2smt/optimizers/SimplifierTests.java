@@ -0,0 +1,166 @@
+package edu.uiowa.alloy2smt.optimizers;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.smtAst.*;
+import edu.uiowa.alloy2smt.translators.Translation;
+import edu.uiowa.alloy2smt.translators.TranslationOptions;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+class SimplifierTests
+{
+    private final Expression        TRUE    = new BooleanConstant(true);
+    private final Expression        FALSE   = new BooleanConstant(false);
+    private final Expression        a       = new FunctionDeclaration("a", new BoolSort()).getConstantExpr();
+    private final Expression        b       = new FunctionDeclaration("b", new BoolSort()).getConstantExpr();
+    private final Expression        c       = new FunctionDeclaration("c", new BoolSort()).getConstantExpr();
+
+    private static Expression and(Expression left, Expression right)
+    {
+        return new BinaryExpression(left, BinaryExpression.Op.AND, right);
+    }
+
+    private static Expression or(Expression left, Expression right)
+    {
+        return new BinaryExpression(left, BinaryExpression.Op.OR, right);
+    }
+
+    private static Expression not(Expression expression)
+    {
+        return new UnaryExpression(UnaryExpression.Op.NOT, expression);
+    }
+
+    @Test
+    void constants()
+    {
+        Simplifier simplifier = new Simplifier();
+        Assertions.assertEquals(a, simplifier.simplify(and(TRUE, a)));
+        Assertions.assertEquals(FALSE, simplifier.simplify(and(a, FALSE)));
+        Assertions.assertEquals(TRUE, simplifier.simplify(or(a, not(FALSE))));
+        Assertions.assertEquals(b, simplifier.simplify(or(FALSE, b)));
+        Assertions.assertEquals(TRUE, simplifier.simplify(and(TRUE, TRUE)));
+        Assertions.assertEquals(b, simplifier.simplify(new BinaryExpression(TRUE, BinaryExpression.Op.IMPLIES, b)));
+        Assertions.assertEquals(not(a), simplifier.simplify(new BinaryExpression(a, BinaryExpression.Op.IMPLIES, FALSE)));
+        Assertions.assertEquals(c, simplifier.simplify(new ITEExpression(not(TRUE), b, c)));
+        Assertions.assertEquals(TRUE, simplifier.simplify(new BinaryExpression(a, BinaryExpression.Op.EQ, a)));
+    }
+
+    @Test
+    void doubleNegation()
+    {
+        Simplifier simplifier = new Simplifier();
+        Assertions.assertEquals(a, simplifier.simplify(not(not(a))));
+        Assertions.assertEquals(not(a), simplifier.simplify(not(not(not(a)))));
+        Expression unchanged = not(and(a, b));
+        Assertions.assertSame(unchanged, simplifier.simplify(unchanged));
+    }
+
+    @Test
+    void deepNegation()
+    {
+        // a deep term does not overflow the stack
+        Expression negation = a;
+        for (int i = 0; i < 200001; i++)
+        {
+            negation = not(negation);
+        }
+        Assertions.assertEquals(not(a), new Simplifier().simplify(negation));
+    }
+
+    private static Expression union(Expression first, Expression second, int length)
+    {
+        Expression union = first;
+        for (int i = 0; i < length; i++)
+        {
+            union = new BinaryExpression(union, BinaryExpression.Op.UNION, i % 2 == 0 ? second : first);
+        }
+        return union;
+    }
+
+    @Test
+    void deepEquality()
+    {
+        // deep terms built apart are hashed and compared without overflowing the stack
+        Sort       setSort = new SetSort(new TupleSort(new UninterpretedSort("Atom")));
+        Expression r       = new FunctionDeclaration("r", setSort).getConstantExpr();
+        Expression s       = new FunctionDeclaration("s", setSort).getConstantExpr();
+        Expression union1  = union(r, s, 200000);
+        Expression union2  = union(r, s, 200000);
+        Expression union3  = union(s, r, 200000);
+        Assertions.assertEquals(union1.hashCode(), union2.hashCode());
+        Assertions.assertEquals(union1, union2);
+        Assertions.assertNotEquals(union1, union3);
+
+        Simplifier simplifier = new Simplifier();
+        Assertions.assertEquals(TRUE, simplifier.simplify(new BinaryExpression(union1, BinaryExpression.Op.EQ, union2)));
+        Expression unequal = new BinaryExpression(union1, BinaryExpression.Op.EQ, union3);
+        Assertions.assertSame(unequal, simplifier.simplify(unequal));
+        Assertions.assertEquals(a, simplifier.simplify(and(and(a, new BinaryExpression(union1, BinaryExpression.Op.EQ, union2)), a)));
+    }
+
+    @Test
+    void flattening()
+    {
+        Simplifier simplifier = new Simplifier();
+        Expression conjunction = and(and(and(TRUE, a), b), and(a, c));
+        Assertions.assertEquals(new MultiArityExpression(MultiArityExpression.Op.AND, Arrays.asList(a, b, c)),
+                                simplifier.simplify(conjunction));
+        Assertions.assertEquals(new MultiArityExpression(MultiArityExpression.Op.OR, Arrays.asList(a, b, c)),
+                                simplifier.simplify(or(a, or(not(not(b)), or(c, b)))));
+
+        // or terms inside and terms stay apart
+        Expression mixed = and(a, or(b, c));
+        Assertions.assertSame(mixed, simplifier.simplify(mixed));
+
+        // a long chain does not overflow the stack
+        Expression chain = a;
+        for (int i = 0; i < 100000; i++)
+        {
+            chain = and(chain, i % 2 == 0 ? b : TRUE);
+        }
+        Assertions.assertEquals(new MultiArityExpression(MultiArityExpression.Op.AND, Arrays.asList(a, b)),
+                                simplifier.simplify(chain));
+    }
+
+    @Test
+    void program()
+    {
+        SmtProgram program = new SmtProgram();
+        program.addAssertion(new Assertion(and(TRUE, TRUE)));
+        program.addAssertion(new Assertion(and(a, not(not(b)))));
+        program.addAssertion(new Assertion(a));
+
+        long removed = new Simplifier().simplify(program);
+
+        Assertions.assertEquals(2, program.getAssertions().size());
+        Assertions.assertEquals(new MultiArityExpression(MultiArityExpression.Op.AND, Arrays.asList(a, b)),
+                                program.getAssertions().get(0).getExpression());
+        Assertions.assertEquals(a, program.getAssertions().get(1).getExpression());
+        // three nodes of the first assertion and two negations
+        Assertions.assertEquals(5, removed);
+    }
+
+    @Test
+    void translation()
+    {
+        String alloy = "sig A {f: set A, g: A -> A}\n" +
+                       "fact {some A and not not some A.f}\n" +
+                       "run {some A} for 3\n";
+        TranslationOptions options = new TranslationOptions();
+        options.simplify = true;
+        Translation simplified  = Utils.translate(alloy, options);
+        Translation original    = Utils.translate(alloy);
+
+        Assertions.assertTrue(simplified.getSmtScript().length() < original.getSmtScript().length());
+        Assertions.assertFalse(simplified.getSmtScript().contains("(assert true)"));
+        Assertions.assertFalse(simplified.getSmtScript().contains("(not (not"));
+        Assertions.assertTrue(simplified.getMetrics().getSimplifiedNodes() > 0);
+        Assertions.assertEquals(0, original.getMetrics().getSimplifiedNodes());
+        Assertions.assertEquals(original.getCommandCount(), simplified.translateAllCommands().size());
+
+        options.eliminateCommonSubexpressions = true;
+        Assertions.assertFalse(Utils.translate(alloy, options).getSmtScript().isEmpty());
+    }
+}
@@ -0,0 +1,109 @@
+package edu.uiowa.alloy2smt.smtAst;
+
+import edu.uiowa.alloy2smt.printers.SmtLibPrettyPrinter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class ExpressionTraversalTests
+{
+    private final Sort          atomSort    = new UninterpretedSort("Atom");
+    private final Expression    a           = new FunctionDeclaration("a", new BoolSort()).getConstantExpr();
+    private final Expression    b           = new FunctionDeclaration("b", new BoolSort()).getConstantExpr();
+
+    private static String print(Expression expression)
+    {
+        SmtLibPrettyPrinter printer = new SmtLibPrettyPrinter();
+        printer.visit(new Assertion(expression));
+        return printer.getSmtLib();
+    }
+
+    @Test
+    void order()
+    {
+        Expression   expression = new BinaryExpression(new UnaryExpression(UnaryExpression.Op.NOT, a),
+                                                       BinaryExpression.Op.AND, b);
+        List<String> events     = new ArrayList<>();
+        ExpressionTraversal.traverse(expression, new ExpressionTraversal.Visitor()
+        {
+            @Override
+            public boolean preVisit(Expression expression)
+            {
+                events.add("pre " + expression.getClass().getSimpleName());
+                return true;
+            }
+
+            @Override
+            public void inVisit(Expression expression, int index)
+            {
+                events.add("in " + index);
+            }
+
+            @Override
+            public void postVisit(Expression expression)
+            {
+                events.add("post " + expression.getClass().getSimpleName());
+            }
+        });
+        Assertions.assertEquals(Arrays.asList("pre BinaryExpression", "pre UnaryExpression", "pre ConstantExpression",
+                                              "post ConstantExpression", "post UnaryExpression", "in 1",
+                                              "pre ConstantExpression", "post ConstantExpression",
+                                              "post BinaryExpression"), events);
+    }
+
+    @Test
+    void rewrite()
+    {
+        Expression expression = new ITEExpression(a, new UnaryExpression(UnaryExpression.Op.NOT, a), b);
+        Expression rewritten  = ExpressionTraversal.rewrite(expression, e -> e == a ? b : e);
+        Assertions.assertEquals(new ITEExpression(b, new UnaryExpression(UnaryExpression.Op.NOT, b), b), rewritten);
+        Assertions.assertSame(expression, ExpressionTraversal.rewrite(expression, e -> e));
+    }
+
+    @Test
+    void deepExpressions()
+    {
+        int        depth      = 200000;
+        Expression expression = a;
+        for (int i = 0; i < depth; i++)
+        {
+            expression = new UnaryExpression(UnaryExpression.Op.NOT, expression);
+        }
+        Assertions.assertEquals(depth + 1, ExpressionTraversal.countNodes(expression));
+
+        String smt = print(expression);
+        Assertions.assertEquals("(assert ".length() + depth * "(not ".length() + "a".length() + depth + ")\n".length(),
+                                smt.length());
+        Assertions.assertTrue(smt.contains("(not (not a))))"));
+
+        Expression rewritten = ExpressionTraversal.rewrite(expression, e -> e == a ? b : e);
+        Assertions.assertTrue(print(rewritten).contains("(not (not b))))"));
+    }
+
+    @Test
+    void printing()
+    {
+        BoundVariableDeclaration x          = new BoundVariableDeclaration("x", atomSort);
+        Expression               tuple      = new MultiArityExpression(MultiArityExpression.Op.MKTUPLE, x.getConstantExpr());
+        Expression               select     = new BinaryExpression(new IntConstant(0), BinaryExpression.Op.TUPSEL, tuple);
+        Map<String, Expression>  letVars    = new LinkedHashMap<>();
+        letVars.put("y", select);
+        letVars.put("z", new FunctionCallExpression("f"));
+        Expression               let        = new LetExpression(LetExpression.Op.LET, letVars,
+                new BinaryExpression(new FunctionCallExpression("g", x.getConstantExpr(), x.getConstantExpr()),
+                                     BinaryExpression.Op.EQ, new BooleanConstant(true)));
+        Expression               forall     = new QuantifiedExpression(QuantifiedExpression.Op.FORALL, let, x);
+
+        Assertions.assertEquals("(assert (forall ((x Atom)) (let ((y ((_ tupSel 0) (mkTuple x)))(z f)) (= (g x x) true))))\n",
+                                print(forall));
+        Assertions.assertEquals("(assert (let () a))\n",
+                                print(new LetExpression(LetExpression.Op.LET, new LinkedHashMap<>(), a)));
+        Assertions.assertEquals("(assert (union (union a b) a))\n",
+                                print(new MultiArityExpression(MultiArityExpression.Op.UNION, a, b, a)));
+    }
+}
@@ -0,0 +1,80 @@
+package edu.uiowa.alloy2smt.smtAst;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class SmtAstFactoryTests
+{
+    @Test
+    void structurallyEqualSorts()
+    {
+        SmtAstFactory factory = new SmtAstFactory();
+        SetSort set1 = factory.mkSetSort(factory.mkTupleSort(factory.mkUninterpretedSort("Atom"), new IntSort()));
+        SetSort set2 = factory.mkSetSort(factory.mkTupleSort(new UninterpretedSort("Atom"), factory.intern(new IntSort())));
+
+        Assertions.assertSame(set1, set2);
+        Assertions.assertNotEquals(factory.mkTupleSort(new UninterpretedSort("Atom")), factory.mkTupleSort(new IntSort()));
+    }
+
+    @Test
+    void structurallyEqualExpressions()
+    {
+        SmtAstFactory factory = new SmtAstFactory();
+        Sort atomSort = factory.mkUninterpretedSort("Atom");
+        Expression x1 = new BoundVariableDeclaration("_x1", atomSort).getConstantExpr();
+        Expression x2 = new BoundVariableDeclaration("_x1", atomSort).getConstantExpr();
+
+        Expression tuple1 = factory.mkMultiArityExpression(MultiArityExpression.Op.MKTUPLE, x1);
+        Expression tuple2 = factory.mkMultiArityExpression(MultiArityExpression.Op.MKTUPLE, x2);
+        Assertions.assertSame(tuple1, tuple2);
+
+        Expression singleton1 = factory.mkUnaryExpression(UnaryExpression.Op.SINGLETON, tuple1);
+        Expression singleton2 = new UnaryExpression(UnaryExpression.Op.SINGLETON, new MultiArityExpression(MultiArityExpression.Op.MKTUPLE, x2));
+        Assertions.assertEquals(singleton1, singleton2);
+        Assertions.assertEquals(singleton1.hashCode(), singleton2.hashCode());
+        Assertions.assertSame(singleton1, factory.intern(singleton2));
+
+        Expression union = factory.mkBinaryExpression(singleton1, BinaryExpression.Op.UNION, singleton2);
+        Expression intersection = factory.mkBinaryExpression(singleton1, BinaryExpression.Op.INTERSECTION, singleton2);
+        Assertions.assertNotEquals(union, intersection);
+    }
+
+    @Test
+    void operandsAreCopied()
+    {
+        Expression       a        = new BooleanConstant(true);
+        Expression       b        = new BooleanConstant(false);
+        List<Expression> operands = new ArrayList<>();
+        operands.add(a);
+        MultiArityExpression and  = new MultiArityExpression(MultiArityExpression.Op.AND, operands);
+        int                  hash = and.hashCode();
+
+        // changing the list of the caller does not change the node
+        operands.add(b);
+        Assertions.assertEquals(1, and.getExpressions().size());
+        Assertions.assertEquals(hash, and.hashCode());
+        Assertions.assertEquals(new MultiArityExpression(MultiArityExpression.Op.AND, a), and);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> and.getExpressions().add(b));
+    }
+
+    @Test
+    void quantifiersCompareBoundVariables()
+    {
+        Sort atomSort = new UninterpretedSort("Atom");
+        BoundVariableDeclaration x = new BoundVariableDeclaration("x", atomSort);
+        BoundVariableDeclaration y = new BoundVariableDeclaration("y", atomSort);
+
+        Expression forallX1 = new QuantifiedExpression(QuantifiedExpression.Op.FORALL,
+                new BinaryExpression(x.getConstantExpr(), BinaryExpression.Op.EQ, x.getConstantExpr()), x);
+        Expression forallX2 = new QuantifiedExpression(QuantifiedExpression.Op.FORALL,
+                new BinaryExpression(x.getConstantExpr(), BinaryExpression.Op.EQ, x.getConstantExpr()), x);
+        Expression forallY = new QuantifiedExpression(QuantifiedExpression.Op.FORALL,
+                new BinaryExpression(y.getConstantExpr(), BinaryExpression.Op.EQ, y.getConstantExpr()), y);
+
+        Assertions.assertEquals(forallX1, forallX2);
+        Assertions.assertNotEquals(forallX1, forallY);
+    }
+}
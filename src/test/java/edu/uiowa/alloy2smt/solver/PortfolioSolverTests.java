@@ -0,0 +1,113 @@
+package edu.uiowa.alloy2smt.solver;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.printers.SmtLibPrettyPrinter;
+import edu.uiowa.alloy2smt.translators.Translation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class PortfolioSolverTests
+{
+    private static final Map<String, String> defaults = Collections.emptyMap();
+    private static final Map<String, String> fmfBound = new HashMap<>();
+
+    static
+    {
+        fmfBound.put("fmf-bound", "true");
+        fmfBound.put("finite-model-find", "false");
+    }
+
+    @Test
+    void firstDefinitiveAnswerWins() throws Exception
+    {
+        File        transcript  = File.createTempFile("transcript", ".smt2");
+        Translation translation = Utils.translate("sig A {}\nrun {some A}");
+
+        // only the solver with fmf-bound answers, the other one hangs until it is killed
+        try (PortfolioSolver portfolio = new PortfolioSolver(StubSolver.command(transcript, "sat?fmf-bound"),
+                                                             Arrays.asList(defaults, fmfBound)))
+        {
+            JobResult result = portfolio.solve("model", translation, 0);
+            Assertions.assertEquals(JobResult.Status.SAT, result.getStatus());
+            Assertions.assertEquals("true", result.getSolverOptions().get("fmf-bound"));
+            Assertions.assertEquals("false", result.getSolverOptions().get("finite-model-find"));
+            Assertions.assertEquals(fmfBound, portfolio.getWinners().get("model"));
+            Assertions.assertEquals(Arrays.asList(fmfBound, defaults), portfolio.getOptionSets("model"));
+        }
+        transcript.delete();
+    }
+
+    @Test
+    void noDefinitiveAnswer() throws Exception
+    {
+        File        transcript  = File.createTempFile("transcript", ".smt2");
+        Translation translation = Utils.translate("sig A {}\nrun {some A}");
+
+        try (PortfolioSolver portfolio = new PortfolioSolver(StubSolver.command(transcript, "unknown"),
+                                                             Arrays.asList(defaults, fmfBound)))
+        {
+            Assertions.assertEquals(JobResult.Status.UNKNOWN, portfolio.solve("model", translation, 0).getStatus());
+            Assertions.assertTrue(portfolio.getWinners().isEmpty());
+        }
+
+        try (PortfolioSolver portfolio = new PortfolioSolver(StubSolver.command(transcript, "hang"),
+                                                             Arrays.asList(defaults, fmfBound), 2, 500))
+        {
+            Assertions.assertEquals(JobResult.Status.TIMEOUT, portfolio.solve("model", translation, 0).getStatus());
+        }
+        transcript.delete();
+    }
+
+    @Test
+    void startWithRecordedWinner() throws Exception
+    {
+        File        transcript  = File.createTempFile("transcript", ".smt2");
+        File        winners     = File.createTempFile("winners", ".json");
+        Translation translation = Utils.translate("sig A {}\nrun {some A}");
+        List<String> command    = StubSolver.command(transcript, "sat?fmf-bound");
+
+        try (PortfolioSolver portfolio = new PortfolioSolver(command, Arrays.asList(defaults, fmfBound)))
+        {
+            portfolio.solve("model", translation, 0);
+            portfolio.saveWinners(winners);
+        }
+
+        // a portfolio of size one runs only the recorded winner
+        try (PortfolioSolver portfolio = new PortfolioSolver(command, Arrays.asList(defaults, fmfBound), 1, 0))
+        {
+            portfolio.loadWinners(winners);
+            Assertions.assertEquals(Collections.singletonList(fmfBound), portfolio.getOptionSets("model"));
+            Assertions.assertEquals(Collections.singletonList(defaults), portfolio.getOptionSets("other"));
+            Assertions.assertEquals(JobResult.Status.SAT, portfolio.solve("model", translation, 0).getStatus());
+        }
+        transcript.delete();
+        winners.delete();
+    }
+
+    @Test
+    void scriptWithOptions()
+    {
+        Translation translation = Utils.translate("sig A {}\nrun {some A}");
+        String      script      = translation.getSmtScript();
+        Assertions.assertTrue(script.startsWith(SmtLibPrettyPrinter.header(SmtLibPrettyPrinter.DEFAULT_OPTIONS)));
+
+        // the printed and the cached script get the same options
+        StringWriter printed = new StringWriter();
+        Utils.translate("sig A {}\nrun {some A}").writeSmtScript(printed, PortfolioSolver.withDefaults(fmfBound));
+        StringWriter cached = new StringWriter();
+        translation.writeSmtScript(cached, PortfolioSolver.withDefaults(fmfBound));
+
+        Assertions.assertEquals(printed.toString(), cached.toString());
+        Assertions.assertTrue(cached.toString().contains("(set-option :fmf-bound true)\n"));
+        Assertions.assertTrue(cached.toString().contains("(set-option :finite-model-find false)\n"));
+        Assertions.assertTrue(cached.toString().endsWith(script.substring(script.indexOf("(declare-sort"))));
+    }
+}
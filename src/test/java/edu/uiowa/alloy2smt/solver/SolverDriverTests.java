@@ -0,0 +1,128 @@
+package edu.uiowa.alloy2smt.solver;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.smtAst.FunctionDefinition;
+import edu.uiowa.alloy2smt.smtAst.Sort;
+import edu.uiowa.alloy2smt.smtparser.SmtModelListener;
+import edu.uiowa.alloy2smt.translators.Translation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class SolverDriverTests
+{
+    @Test
+    void solveAllCommandsOnOneProcess() throws Exception
+    {
+        File        transcript  = File.createTempFile("transcript", ".smt2");
+        Translation translation = Utils.translate("sig A {}\nrun {some A}\nrun {no A and some A}\nrun {lone A}");
+
+        List<CommandResult> results;
+        try (SolverDriver driver = new SolverDriver(StubSolver.command(transcript, "sat", "unsat", "unknown"), translation))
+        {
+            results = driver.solveAll();
+        }
+
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals(CommandResult.Result.SAT, results.get(0).getResult());
+        Assertions.assertEquals(1, results.get(0).getModel().getFunctionDefinitions().size());
+        Assertions.assertEquals(CommandResult.Result.UNSAT, results.get(1).getResult());
+        Assertions.assertNull(results.get(1).getModel());
+        Assertions.assertEquals(CommandResult.Result.UNKNOWN, results.get(2).getResult());
+
+        // the script is sent once, each command within its own push and pop
+        List<String> commands = Files.readAllLines(transcript.toPath(), StandardCharsets.UTF_8);
+        Assertions.assertEquals(1, commands.stream().filter(c -> c.equals("(declare-fun this_A () (Set (Tuple Atom)))")).count());
+        Assertions.assertEquals(3, commands.stream().filter(c -> c.equals("(push)")).count());
+        Assertions.assertEquals(3, commands.stream().filter(c -> c.equals("(pop)")).count());
+        Assertions.assertEquals(1, commands.stream().filter(c -> c.equals("(get-model)")).count());
+        Assertions.assertEquals("(exit)", commands.get(commands.size() - 1));
+        transcript.delete();
+    }
+
+    @Test
+    void declareOperatorsOfCommands() throws Exception
+    {
+        File        transcript  = File.createTempFile("transcript", ".smt2");
+        Translation translation = Utils.translate("sig A {}\nrun {plus[1, 2] > 2}");
+
+        try (SolverDriver driver = new SolverDriver(StubSolver.command(transcript, "sat"), translation))
+        {
+            Assertions.assertEquals(CommandResult.Result.SAT, driver.solve(0).getResult());
+        }
+
+        // the operators used only by the command are declared with the script, before the push
+        List<String> commands   = Files.readAllLines(transcript.toPath(), StandardCharsets.UTF_8);
+        int          push       = commands.indexOf("(push)");
+        Assertions.assertTrue(commands.get(push + 1).contains("(_GT ") && commands.get(push + 1).contains("PLUS"));
+        Assertions.assertTrue(commands.subList(0, push).stream().anyMatch(c -> c.startsWith("(define-fun _GT ")));
+        Assertions.assertTrue(commands.subList(0, push).stream().anyMatch(c -> c.startsWith("(declare-const PLUS ")));
+        transcript.delete();
+    }
+
+    @Test
+    void streamModels() throws Exception
+    {
+        File                transcript  = File.createTempFile("transcript", ".smt2");
+        Translation         translation = Utils.translate("sig A {}\nrun {some A}\nrun {lone A}");
+        List<String>        definitions = new ArrayList<>();
+        SmtModelListener    listener    = new SmtModelListener()
+        {
+            @Override
+            public void sortDeclared(Sort sort)
+            {
+                definitions.add(sort.getName());
+            }
+
+            @Override
+            public void functionDefined(FunctionDefinition definition)
+            {
+                definitions.add(definition.getFuncName());
+            }
+        };
+
+        try (SolverDriver driver = new SolverDriver(StubSolver.command(transcript, "sat", "sat"), translation))
+        {
+            for (int i = 0; i < 2; i++)
+            {
+                CommandResult result = driver.solve(i, listener);
+                Assertions.assertEquals(CommandResult.Result.SAT, result.getResult());
+                Assertions.assertNull(result.getModel());
+            }
+        }
+        Assertions.assertEquals(Arrays.asList("Atom", "this_A", "Atom", "this_A"), definitions);
+        transcript.delete();
+    }
+
+    @Test
+    void solverErrors() throws Exception
+    {
+        File        transcript  = File.createTempFile("transcript", ".smt2");
+        Translation translation = Utils.translate("sig A {}\nrun {some A}");
+
+        try (SolverDriver driver = new SolverDriver(StubSolver.command(transcript, "(error \"stub\")"), translation))
+        {
+            Assertions.assertThrows(RuntimeException.class, () -> driver.solve(0));
+        }
+        transcript.delete();
+    }
+
+    @Test
+    void readExpressions() throws Exception
+    {
+        SExpressionReader reader = new SExpressionReader(new StringReader(
+                "sat ; a comment\n(model (define-fun |a b| () Int 1)\n; (\n(define-fun s () String \"x)\"\"\"))unsat"));
+
+        Assertions.assertEquals("sat", reader.read());
+        Assertions.assertEquals("(model (define-fun |a b| () Int 1)\n(define-fun s () String \"x)\"\"\"))", reader.read());
+        Assertions.assertEquals("unsat", reader.read());
+        Assertions.assertNull(reader.read());
+    }
+}
@@ -0,0 +1,124 @@
+package edu.uiowa.alloy2smt.solver;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.translators.Translation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class SolverPoolTests
+{
+    @Test
+    void solveManyModels() throws Exception
+    {
+        File                        transcript  = File.createTempFile("transcript", ".smt2");
+        Map<String, Translation>    models      = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++)
+        {
+            models.put("model" + i, Utils.translate("sig A" + i + " {}\nrun {some A" + i + "}\nrun {lone A" + i + "}\nrun {}"));
+        }
+
+        List<JobResult> results;
+        try (SolverPool pool = new SolverPool(StubSolver.command(transcript, "sat", "sat", "sat", "sat", "sat", "sat",
+                                                                 "sat", "sat", "sat", "sat", "sat", "sat"), 2, 0))
+        {
+            results = pool.solve(models).getResults();
+        }
+
+        Assertions.assertEquals(12, results.size());
+        for (int i = 0; i < results.size(); i++)
+        {
+            JobResult result = results.get(i);
+            Assertions.assertEquals("model" + i / 3, result.getModel());
+            Assertions.assertEquals(i % 3, result.getCommandIndex());
+            Assertions.assertEquals(JobResult.Status.SAT, result.getStatus());
+            Assertions.assertNotNull(result.getCommandResult().getModel());
+            Assertions.assertTrue(result.getWallNanos() > 0);
+        }
+        transcript.delete();
+    }
+
+    @Test
+    void reuseSolverForSameScript() throws Exception
+    {
+        File        transcript  = File.createTempFile("transcript", ".smt2");
+        Translation translation = Utils.translate("sig A {}\nrun {some A}\nrun {no A}\nrun {lone A}");
+
+        List<JobResult> results;
+        try (SolverPool pool = new SolverPool(StubSolver.command(transcript, "sat", "unsat", "unknown"), 1, 0))
+        {
+            results = pool.solve(Collections.singletonMap("model", translation)).getResults();
+        }
+
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals(1, results.stream().filter(JobResult::isStartedSolver).count());
+        transcript.delete();
+    }
+
+    @Test
+    void checkModelsOneAfterAnother() throws Exception
+    {
+        File                        transcript  = File.createTempFile("transcript", ".smt2");
+        Map<String, Translation>    models      = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++)
+        {
+            models.put("model" + i, Utils.translate("sig A" + i + " {}\nrun {some A" + i + "}\nrun {no A" + i + "}\nrun {}"));
+        }
+
+        List<JobResult> results;
+        try (SolverPool pool = new SolverPool(StubSolver.command(transcript), 1, 0))
+        {
+            results = pool.solve(models).getResults();
+        }
+
+        // the commands of a model run together, so each model starts one solver
+        Assertions.assertEquals(9, results.size());
+        Assertions.assertEquals(3, results.stream().filter(JobResult::isStartedSolver).count());
+        transcript.delete();
+    }
+
+    @Test
+    void restartCrashedSolver() throws Exception
+    {
+        File        transcript  = File.createTempFile("transcript", ".smt2");
+        Translation translation = Utils.translate("sig A {}\nrun {some A}\nrun {no A}");
+
+        List<JobResult> results;
+        try (SolverPool pool = new SolverPool(StubSolver.command(transcript, "crash"), 1, 0))
+        {
+            results = pool.solve(Collections.singletonMap("model", translation)).getResults();
+        }
+
+        Assertions.assertEquals(2, results.size());
+        for (JobResult result: results)
+        {
+            Assertions.assertEquals(JobResult.Status.ERROR, result.getStatus());
+            Assertions.assertTrue(result.isStartedSolver());
+            Assertions.assertNotNull(result.getError());
+        }
+        transcript.delete();
+    }
+
+    @Test
+    void killSolverAfterTimeout() throws Exception
+    {
+        File        transcript  = File.createTempFile("transcript", ".smt2");
+        Translation translation = Utils.translate("sig A {}\nrun {some A}");
+
+        List<JobResult> results;
+        try (SolverPool pool = new SolverPool(StubSolver.command(transcript, "hang"), 1, 500))
+        {
+            results = pool.solve(Collections.singletonMap("model", translation)).getResults();
+        }
+
+        Assertions.assertEquals(1, results.size());
+        Assertions.assertEquals(JobResult.Status.TIMEOUT, results.get(0).getStatus());
+        Assertions.assertNull(results.get(0).getCommandResult());
+        transcript.delete();
+    }
+}
@@ -0,0 +1,111 @@
+package edu.uiowa.alloy2smt.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A scripted solver for tests. It writes every command it reads to a
+ * transcript file and answers check-sat commands with the given answers in
+ * turn, get-model commands with a fixed model. The answer crash makes the
+ * stub exit with an error and the answer hang makes it never answer. An
+ * answer like sat?fmf-bound is given only if the option fmf-bound was set to
+ * true, otherwise the stub hangs.
+ * Usage: StubSolver transcript answer...
+ */
+public class StubSolver
+{
+    public static final String MODEL = "(model\n" +
+                                       "(declare-sort Atom 0)\n" +
+                                       "(define-fun this_A () (Set (Tuple Atom)) (singleton (mkTuple @uc_Atom_0)))\n" +
+                                       ")";
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        List<String>        answers     = new ArrayList<>(Arrays.asList(args).subList(1, args.length));
+        SExpressionReader   reader      = new SExpressionReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        PrintWriter         transcript  = new PrintWriter(Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8), true);
+        Set<String>         options     = new HashSet<>();
+        String              command;
+        while ((command = reader.read()) != null)
+        {
+            transcript.println(command);
+            if(command.startsWith("(set-option :") && command.endsWith(" true)"))
+            {
+                options.add(command.substring("(set-option :".length(), command.length() - " true)".length()));
+            }
+            switch (command)
+            {
+                case "(check-sat)":
+                    String answer = answers.isEmpty() ? "unknown" : answers.remove(0);
+                    if(answer.contains("?"))
+                    {
+                        String option = answer.substring(answer.indexOf('?') + 1);
+                        answer = options.contains(option) ? answer.substring(0, answer.indexOf('?')) : "hang";
+                    }
+                    respond(answer);
+                    break;
+                case "(get-model)":
+                    respond(MODEL);
+                    break;
+                case "(exit)":
+                    return;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static void respond(String response) throws InterruptedException
+    {
+        if(response.equals("crash"))
+        {
+            System.exit(1);
+        }
+        if(response.equals("hang"))
+        {
+            Thread.sleep(Long.MAX_VALUE);
+        }
+        System.out.println(response);
+        System.out.flush();
+    }
+
+    /**
+     * @return the command that runs this stub with the given transcript and answers
+     */
+    public static List<String> command(File transcript, String ... answers)
+    {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        // the test runner may load the classes with its own class loader
+        command.add(location(StubSolver.class) + File.pathSeparator + location(SExpressionReader.class) +
+                    File.pathSeparator + System.getProperty("java.class.path"));
+        command.add(StubSolver.class.getName());
+        command.add(transcript.getAbsolutePath());
+        command.addAll(Arrays.asList(answers));
+        return command;
+    }
+
+    private static String location(Class<?> type)
+    {
+        try
+        {
+            return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        }
+        catch (URISyntaxException exception)
+        {
+            throw new RuntimeException(exception);
+        }
+    }
+}
@@ -6,6 +6,10 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 class CommandTranslationTests
 {
 
@@ -94,4 +98,88 @@ class CommandTranslationTests
                                             "(as emptyset (Set (Tuple Atom)))))))\n",
                 command2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void allCommands()
+    {
+        String alloy =
+                "sig A {}\n" +
+                "run command1 {#A = 1 or #A = 2} for 10\n" +
+                "assert command2 {some A or no A} \n" +
+                "check command2 for 10\n" +
+                "run command3 {no A} for 10\n";
+
+        Translation     translation = Utils.translate(alloy);
+        ExecutorService executor    = Executors.newFixedThreadPool(3);
+        List<String>    commands;
+        try
+        {
+            commands = translation.translateAllCommands(executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(3, commands.size());
+        Assertions.assertTrue(commands.get(0).startsWith("; command1\n(assert (or (exists"));
+        Assertions.assertTrue(commands.get(1).startsWith("; command2\n(assert (not (or (exists"));
+        Assertions.assertEquals(
+                "; command3\n" +
+                "(assert (= this_A (as emptyset (Set (Tuple Atom)))))\n",
+                commands.get(2));
+    }
+
+    @Test
+    void operatorsInCommandOrder()
+    {
+        String alloy =
+                "sig A {}\n" +
+                "run {plus[1, 2] > 2}\n" +
+                "run {minus[3, 1] < 2}\n" +
+                "run {mul[2, 2] >= 1}\n" +
+                "run {div[4, 2] <= 3}\n";
+
+        // the script of a sequential translation
+        String          expected = Utils.translate(alloy).getSmtScript();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                Translation translation = Utils.translate(alloy);
+                translation.translateAllCommands(executor);
+                Assertions.assertEquals(expected, translation.getSmtScript());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        Assertions.assertTrue(expected.indexOf("(declare-const PLUS ") < expected.indexOf("(declare-const MINUS "));
+        Assertions.assertTrue(expected.indexOf("(define-fun _GT ") < expected.indexOf("(define-fun _LT "));
+    }
+
+    @Test
+    void streamedCommands()
+    {
+        String alloy =
+                "sig A {}\n" +
+                "run {plus[1, 2] > 2}\n" +
+                "run {minus[3, 1] < 2}\n";
+
+        Translation translation = Utils.translate(alloy);
+        translation.declareOperators();
+        StringBuilder script = new StringBuilder();
+        translation.writeSmtScript(script);
+
+        // the script declares the operators of the commands without keeping their translations
+        Assertions.assertEquals(Utils.translate(alloy).getSmtScript(), script.toString());
+        Assertions.assertEquals(2, translation.getMetrics().getPhase(TranslationMetrics.COMMAND).getRuns());
+
+        StringBuilder command = new StringBuilder();
+        translation.translateCommand(1, command);
+        Assertions.assertTrue(command.toString().contains("(_LT "));
+        Assertions.assertEquals(3, translation.getMetrics().getPhase(TranslationMetrics.COMMAND).getRuns());
+    }
+}
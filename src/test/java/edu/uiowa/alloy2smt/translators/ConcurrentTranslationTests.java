@@ -0,0 +1,101 @@
+package edu.uiowa.alloy2smt.translators;
+
+import edu.uiowa.alloy2smt.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class ConcurrentTranslationTests
+{
+    private static final String[] models =
+    {
+        "sig A {}\n" +
+        "run command1 {#A = 1 or #A = 2} for 10\n" +
+        "assert command2 {some A or no A} \n" +
+        "check command2 for 10\n",
+
+        "sig A {r: set A}\n" +
+        "sig B extends A {}\n" +
+        "fact {all a: A | a not in a.^r}\n" +
+        "run {some B and some r}\n",
+
+        "abstract sig Person {children: set Person}\n" +
+        "sig Man, Woman extends Person {}\n" +
+        "one sig Alice extends Woman {}\n" +
+        "pred p[x: Person] {some x.children}\n" +
+        "fact {no p: Person | p in p.^children}\n" +
+        "run {some x: Person | p[x]} for 4\n" +
+        "run {#Man = 2} for 5\n",
+
+        "sig A {f: A -> A}\n" +
+        "fact {some x, y: A | x != y and x in y.(y.f)}\n" +
+        "run {some {x: A | some x.f}} for 3\n"
+    };
+
+    private static String translate(String alloy)
+    {
+        Translation translation = Utils.translate(alloy);
+        StringBuilder output = new StringBuilder(translation.getSmtScript());
+        for (int i = 0; i < translation.getCommands().size(); i++)
+        {
+            output.append(translation.translateCommand(i));
+        }
+        return output.toString();
+    }
+
+    @Test
+    void concurrentTranslationsMatchSequentialTranslations() throws Exception
+    {
+        List<String> expected = new ArrayList<>();
+        for (String model : models)
+        {
+            expected.add(translate(model));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 20 * models.length; i++)
+            {
+                final String model = models[i % models.length];
+                futures.add(executor.submit(() -> translate(model)));
+            }
+
+            for (int i = 0; i < futures.size(); i++)
+            {
+                Assertions.assertEquals(expected.get(i % models.length), futures.get(i).get(60, TimeUnit.SECONDS));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentCommandsAreDeterministic()
+    {
+        Translation translation = Utils.translate(models[2]);
+        List<String> expected = translation.translateAllCommands(Runnable::run);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                Assertions.assertEquals(expected, translation.translateAllCommands(executor));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package edu.uiowa.alloy2smt.translators;
+
+import edu.uiowa.alloy2smt.Utils;
+import edu.uiowa.alloy2smt.smtAst.Assertion;
+import edu.uiowa.alloy2smt.smtAst.Expression;
+import edu.uiowa.alloy2smt.smtAst.MultiArityExpression;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ExprTranslatorTests
+{
+    @Test
+    void conjunctions()
+    {
+        StringBuilder alloy = new StringBuilder("sig A {f: set A}\nfact {");
+        for (int i = 0; i < 2000; i++)
+        {
+            alloy.append(i > 0 ? " and " : "").append("#A.f >= ").append(i % 3);
+        }
+        alloy.append("}\nrun {some A or no f or some f.f}\n");
+        Translation translation = Utils.translate(alloy.toString());
+
+        // the conjuncts of the fact are the operands of one and term
+        Expression fact = null;
+        for (Assertion assertion : translation.getSmtAst().getAssertions())
+        {
+            if(assertion.getExpression() instanceof MultiArityExpression &&
+               ((MultiArityExpression) assertion.getExpression()).getOp() == MultiArityExpression.Op.AND)
+            {
+                fact = assertion.getExpression();
+            }
+        }
+        Assertions.assertNotNull(fact);
+        Assertions.assertEquals(2000, ((MultiArityExpression) fact).getExpressions().size());
+        Assertions.assertTrue(translation.translateCommand(0).contains("(or (exists"));
+    }
+
+    @Test
+    void unions()
+    {
+        String alloy = "abstract sig A {}\n" +
+                       "sig B, C, D extends A {}\n" +
+                       "sig E in B + C + D {}\n";
+        String smt = Utils.translate(alloy).getSmtScript();
+
+        // the set operators of the solver are binary
+        Assertions.assertTrue(smt.contains("(assert (= this_A (union (union this_B this_C) this_D)))"));
+        Assertions.assertTrue(smt.contains("(assert (subset this_E (union (union this_B this_C) this_D)))"));
+    }
+}
@@ -0,0 +1,139 @@
+package edu.uiowa.alloy2smt.translators;
+
+import edu.uiowa.alloy2smt.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+class IncrementalTranslatorTests
+{
+    private static final String signatures  = "sig A {f: set A}\nsig B {g: A -> lone A}\n";
+    private static final String functions   = "fun h[a: A]: set A {a.f}\n" +
+                                              "pred p[a: A] {some h[a]}\n" +
+                                              "pred q[b: B] {some b.g}\n";
+    private static final String facts       = "fact f1 {all a: A | p[a]}\n" +
+                                              "fact f2 {some b: B | q[b]}\n" +
+                                              "fact f3 {some A and #B > 1}\n";
+    private static final String command     = "run {some A} for 3\n";
+
+    // 1 signatures item, 3 functions and 3 facts
+    private static final int    items       = 7;
+
+    @Test
+    void unchangedModel()
+    {
+        IncrementalTranslator translator = new IncrementalTranslator();
+        translator.translate(signatures + functions + facts + command);
+        Assertions.assertEquals(items, translator.getTranslatedItems());
+
+        translator.translate(signatures + functions + facts + command);
+        Assertions.assertEquals(0, translator.getTranslatedItems());
+        Assertions.assertEquals(items, translator.getReusedItems());
+    }
+
+    @Test
+    void editedFact()
+    {
+        IncrementalTranslator translator = new IncrementalTranslator();
+        Translation before = translator.translate(signatures + functions + facts + command);
+
+        String editedFacts = facts.replace("some b: B | q[b]", "all b: B | q[b]");
+        Translation after  = translator.translate(signatures + functions + editedFacts + command);
+
+        Assertions.assertEquals(1, translator.getTranslatedItems());
+        Assertions.assertEquals(items - 1, translator.getReusedItems());
+        Assertions.assertSame(findAssertion(before, "f1"), findAssertion(after, "f1"));
+        Assertions.assertNotSame(findAssertion(before, "f2"), findAssertion(after, "f2"));
+        assertEquivalent(signatures + functions + editedFacts + command, after);
+    }
+
+    @Test
+    void editedFunction()
+    {
+        IncrementalTranslator translator = new IncrementalTranslator();
+        translator.translate(signatures + functions + facts + command);
+
+        // h, its caller p and the fact f1 that calls p
+        String editedFunctions = functions.replace("{a.f}", "{a.f.f}");
+        Translation translation = translator.translate(signatures + editedFunctions + facts + command);
+
+        Assertions.assertEquals(3, translator.getTranslatedItems());
+        assertEquivalent(signatures + editedFunctions + facts + command, translation);
+    }
+
+    @Test
+    void editedSignatures()
+    {
+        IncrementalTranslator translator = new IncrementalTranslator();
+        translator.translate(signatures + functions + facts + command);
+
+        String editedSignatures = signatures.replace("f: set A", "f: lone A");
+        Translation translation = translator.translate(editedSignatures + functions + facts + command);
+
+        Assertions.assertEquals(items, translator.getTranslatedItems());
+        assertEquivalent(editedSignatures + functions + facts + command, translation);
+    }
+
+    @Test
+    void reusedOperators()
+    {
+        // the arithmetic operator is declared by the first fact that uses it
+        String model = "sig A {}\n" +
+                       "fact f1 {let n = plus[1, 2] | n > 2}\n" +
+                       "fact f2 {let n = plus[2, 2] | n > 3}\n" +
+                       "run {} for 3\n";
+        IncrementalTranslator translator = new IncrementalTranslator();
+        translator.translate(model);
+
+        String edited = model.replace("plus[1, 2]", "plus[1, 3]");
+        Translation translation = translator.translate(edited);
+
+        Assertions.assertEquals(1, translator.getTranslatedItems());
+        assertEquivalent(edited, translation);
+    }
+
+    @Test
+    void cardinalityFacts()
+    {
+        // every fact has its own auxiliary constraints of cardinalities
+        String model = "sig A {}\n" +
+                       "sig B {}\n" +
+                       "fact c1 {#A > 1}\n" +
+                       "fact c2 {#B > 2}\n" +
+                       "fact c3 {#A < 4}\n" +
+                       "run {} for 5\n";
+        IncrementalTranslator translator = new IncrementalTranslator();
+        assertEquivalent(model, translator.translate(model));
+
+        String edited = model.replace("#A > 1", "#A > 2");
+        Translation translation = translator.translate(edited);
+
+        Assertions.assertEquals(1, translator.getTranslatedItems());
+        assertEquivalent(edited, translation);
+    }
+
+    private static Object findAssertion(Translation translation, String name)
+    {
+        return translation.getSmtAst().getAssertions().stream()
+                          .filter(assertion -> name.equals(assertion.getName()))
+                          .findFirst().orElseThrow(AssertionError::new);
+    }
+
+    /**
+     * Asserts that the incremental translation declares and asserts the same
+     * as a translation from scratch, up to the numbering of fresh names
+     */
+    private static void assertEquivalent(String alloy, Translation translation)
+    {
+        Assertions.assertEquals(normalize(Utils.translate(alloy).getSmtScript()), normalize(translation.getSmtScript()));
+    }
+
+    private static List<String> normalize(String smtScript)
+    {
+        String[] lines = smtScript.replaceAll("_[xaS]\\d+", "_n").split("\n");
+        Arrays.sort(lines);
+        return Arrays.asList(lines);
+    }
+}
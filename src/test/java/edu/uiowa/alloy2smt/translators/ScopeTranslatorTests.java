@@ -0,0 +1,155 @@
+package edu.uiowa.alloy2smt.translators;
+
+import edu.mit.csail.sdg.alloy4.ErrorSyntax;
+import edu.uiowa.alloy2smt.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ScopeTranslatorTests
+{
+    private static Translation translate(String alloy)
+    {
+        TranslationOptions options = new TranslationOptions();
+        options.translateScopes = true;
+        return Utils.translate(alloy, options);
+    }
+
+    @Test
+    void overallScope()
+    {
+        String alloy = "sig A {}\n" +
+                       "run {some A} for 2\n";
+        Assertions.assertEquals("; run$1\n" +
+                                "(assert (and (exists ((_x1 Atom)) (member (mkTuple _x1) this_A)) " +
+                                "(exists ((_a3 Atom)(_a4 Atom)) (subset this_A (insert (mkTuple _a4) (singleton (mkTuple _a3)))))))\n",
+                                translate(alloy).translateCommand(0));
+
+        // without the option the scope is ignored
+        Assertions.assertFalse(Utils.translate(alloy).translateCommand(0).contains("subset"));
+    }
+
+    @Test
+    void butScopes()
+    {
+        String alloy = "abstract sig A {}\n" +
+                       "sig B, C extends A {}\n" +
+                       "one sig D {}\n" +
+                       "sig E in B {}\n" +
+                       "run {} for 4 but exactly 2 B, 0 C, 1 E\n";
+        String command = translate(alloy).translateCommand(0);
+
+        // the abstract signature gets the sum of the scopes of its children
+        Assertions.assertTrue(command.contains("(subset this_A (insert (mkTuple _a4) (singleton (mkTuple _a3))))"));
+        Assertions.assertTrue(command.contains("(= this_B (insert (mkTuple _a6) (singleton (mkTuple _a5)))) (distinct _a5 _a6)"));
+        Assertions.assertTrue(command.contains("(= this_C (as emptyset (Set (Tuple Atom))))"));
+        Assertions.assertTrue(command.contains("(subset this_E (singleton (mkTuple _a7)))"));
+        Assertions.assertFalse(command.contains("this_D"));
+    }
+
+    @Test
+    void defaultScope()
+    {
+        Translation translation = translate("sig A {}\nrun {}\n");
+        Assertions.assertEquals(ScopeTranslator.DEFAULT_SCOPE,
+                                translation.translateCommand(0).split("\\(mkTuple").length - 1);
+    }
+
+    @Test
+    void oneChildren()
+    {
+        // every one child takes an atom of its abstract parent
+        String colors = "abstract sig Color {}\n" +
+                        "one sig Red, Green, Blue, Yellow extends Color {}\n" +
+                        "run {} for 3\n";
+        Assertions.assertEquals(4, translate(colors).translateCommand(0).split("\\(mkTuple").length - 1);
+
+        // a child without a scope gets the overall scope
+        String mixed = "abstract sig A {}\n" +
+                       "one sig B extends A {}\n" +
+                       "sig C extends A {}\n" +
+                       "run {} for 2\n";
+        Assertions.assertEquals(3, translate(mixed).translateCommand(0).split("\\(mkTuple").length - 1);
+
+        // like alloy, a scope smaller than the atoms the children need is an error
+        String tooSmall = "sig A {}\n" +
+                          "one sig B, C extends A {}\n" +
+                          "run {} for 3 but 1 A\n";
+        Assertions.assertThrows(ErrorSyntax.class, () -> translate(tooSmall).translateCommand(0));
+
+        // an abstract signature gets the sum of its children even beyond the overall scope
+        String overall = "abstract sig A {}\n" +
+                         "one sig B, C extends A {}\n" +
+                         "run {} for 1\n";
+        Assertions.assertEquals(2, translate(overall).translateCommand(0).split("\\(mkTuple").length - 1);
+
+        String nonAbstract = "sig A {}\n" +
+                             "one sig B, C extends A {}\n" +
+                             "run {} for 1\n";
+        Assertions.assertThrows(ErrorSyntax.class, () -> translate(nonAbstract).translateCommand(0));
+    }
+
+    @Test
+    void multiplicities()
+    {
+        // a some signature needs an atom
+        String some = "some sig A {}\n" +
+                      "run {} for 3 but 0 A\n";
+        Assertions.assertThrows(ErrorSyntax.class, () -> translate(some).translateCommand(0));
+
+        // an exact scope needs its atoms in the parent
+        String exact = "sig A {}\n" +
+                       "sig B extends A {}\n" +
+                       "run {} for 3 but 2 A, exactly 3 B\n";
+        Assertions.assertThrows(ErrorSyntax.class, () -> translate(exact).translateCommand(0));
+
+        String enough = "some sig A {}\n" +
+                        "run {} for 3 but 1 A\n";
+        Assertions.assertEquals(1, translate(enough).translateCommand(0).split("\\(mkTuple").length - 1);
+    }
+
+    @Test
+    void symmetryBreaking()
+    {
+        String alloy = "abstract sig A {}\n" +
+                       "sig B, C extends A {}\n" +
+                       "sig D {}\n" +
+                       "run {} for 3 but 1 B, 2 C, exactly 2 D\n" +
+                       "run {} for 2\n";
+        TranslationOptions options = new TranslationOptions();
+        options.breakSymmetries = true;
+        Translation translation = Utils.translate(alloy, options);
+        String      script      = translation.getSmtScript();
+
+        // the pools have the largest scopes of their signatures and distinct atoms,
+        // and the unused atoms lie outside the universe
+        Assertions.assertTrue(script.contains("(declare-const _a4 Atom)\n" +
+                                              "(declare-const _a5 Atom)\n" +
+                                              "(declare-const _a6 Atom)\n"));
+        Assertions.assertTrue(script.contains("(assert (distinct _a1 _a2 _a3 _a4 _a5 _a6))"));
+        Assertions.assertFalse(script.contains("univset"));
+        Assertions.assertTrue(script.contains("(assert (subset atomIden (product atomUniv atomUniv)))"));
+
+        // the children of the abstract signature fill consecutive blocks of its pool in order
+        String first = translation.translateCommand(0);
+        Assertions.assertTrue(first.contains("(subset this_A (insert (mkTuple _a2) (mkTuple _a3) (singleton (mkTuple _a1)))) " +
+                                             "(subset this_B (singleton (mkTuple _a1))) " +
+                                             "(subset this_C (insert (mkTuple _a3) (singleton (mkTuple _a2)))) " +
+                                             "(=> (member (mkTuple _a3) this_C) (member (mkTuple _a2) this_C))"));
+        // an exact scope takes the whole pool
+        Assertions.assertTrue(first.contains("(= this_D (insert (mkTuple _a6) (singleton (mkTuple _a5))))"));
+
+        // a smaller scope takes a prefix of the pool and fills it in order
+        String second = translation.translateCommand(1);
+        Assertions.assertTrue(second.contains("(subset this_D (insert (mkTuple _a6) (singleton (mkTuple _a5)))) " +
+                                              "(=> (member (mkTuple _a6) this_D) (member (mkTuple _a5) this_D))"));
+        Assertions.assertTrue(second.contains("(subset this_B (insert (mkTuple _a2) (singleton (mkTuple _a1)))) " +
+                                              "(=> (member (mkTuple _a2) this_B) (member (mkTuple _a1) this_B)) " +
+                                              "(subset this_C (insert (mkTuple _a4) (singleton (mkTuple _a3))))"));
+        // the parent of the blocks is not ordered as a whole
+        Assertions.assertFalse(second.contains("(=> (member (mkTuple _a2) this_A)"));
+
+        // without the option the universe holds every atom
+        Assertions.assertTrue(translate(alloy).getSmtScript().contains("univset"));
+        Assertions.assertFalse(translate(alloy).translateCommand(0).contains("=>"));
+    }
+}
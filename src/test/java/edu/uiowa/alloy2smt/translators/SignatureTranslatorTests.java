@@ -0,0 +1,50 @@
+package edu.uiowa.alloy2smt.translators;
+
+import edu.uiowa.alloy2smt.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SignatureTranslatorTests
+{
+    private static int count(String smt, String term)
+    {
+        return smt.split(term, -1).length - 1;
+    }
+
+    private static String taxonomy(int children)
+    {
+        StringBuilder alloy = new StringBuilder("abstract sig A {}\nsig ");
+        for (int i = 0; i < children; i++)
+        {
+            alloy.append(i > 0 ? ", " : "").append("B").append(i);
+        }
+        return alloy.append(" extends A {}\nsig C {}\nsig D {}\n").toString();
+    }
+
+    @Test
+    void pairwiseDisjointness()
+    {
+        String smt = Utils.translate(taxonomy(50)).getSmtScript();
+        // every pair of children and of the three top-level sigs
+        Assertions.assertEquals(50 * 49 / 2 + 3, count(smt, "\\(assert \\(= \\(intersection "));
+    }
+
+    @Test
+    void linearDisjointness()
+    {
+        TranslationOptions options = new TranslationOptions();
+        options.linearDisjointness = true;
+        String smt = Utils.translate(taxonomy(50), options).getSmtScript();
+
+        Assertions.assertEquals(49 + 2, count(smt, "\\(assert \\(= \\(intersection "));
+        Assertions.assertTrue(smt.contains("(assert (= (intersection this_B0 this_B1) atomNone))\n" +
+                                           "(assert (= _S1 (union this_B0 this_B1)))\n" +
+                                           "(assert (= (intersection _S1 this_B2) atomNone))\n"));
+        Assertions.assertTrue(smt.contains("(assert (= (intersection this_A this_C) atomNone))"));
+        Assertions.assertTrue(smt.contains("(assert (= (intersection _S49 this_D) atomNone))"));
+
+        // two siblings need a single assertion either way
+        Assertions.assertEquals(Utils.translate("sig A {}\nsig B {}\n").getSmtScript(),
+                                Utils.translate("sig A {}\nsig B {}\n", options).getSmtScript());
+    }
+}
@@ -0,0 +1,56 @@
+package edu.uiowa.alloy2smt.translators;
+
+import edu.uiowa.alloy2smt.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+class TranslationMetricsTests
+{
+    @Test
+    void phasesAndSizes()
+    {
+        String alloy =
+                "sig A {f: set A}\n" +
+                "fact {all x: A | some x.f}\n" +
+                "run {some A} for 3\n" +
+                "run {no A} for 3\n";
+
+        Translation         translation = Utils.translate(alloy);
+        TranslationMetrics  metrics     = translation.getMetrics();
+
+        Assertions.assertEquals(Arrays.asList(TranslationMetrics.PARSE, "translateSpecialFunctions", "translateSigs",
+                "translateFunctionsAndPredicates", "translateFacts", "translateSpecialAssertions", "generateMapper"),
+                metrics.getPhaseNames());
+        Assertions.assertTrue(metrics.getPhase(TranslationMetrics.PARSE).getWallNanos() > 0);
+
+        Assertions.assertEquals(translation.getSmtAst().getAssertions().size(), metrics.getAssertions());
+        Assertions.assertEquals(translation.getSmtAst().getFunctionDeclarations().size(), metrics.getFunctionDeclarations());
+        Assertions.assertTrue(metrics.getNodes() > metrics.getAssertions());
+        Assertions.assertEquals(0, metrics.getOutputBytes());
+
+        // the commands are translated before the script, which declares their operators
+        String script = translation.getSmtScript();
+        Assertions.assertEquals(1, metrics.getPhase(TranslationMetrics.PRINT).getRuns());
+        Assertions.assertEquals(2, metrics.getPhase(TranslationMetrics.COMMAND).getRuns());
+
+        long bytes = script.getBytes(StandardCharsets.UTF_8).length;
+        for (String command : translation.translateAllCommands())
+        {
+            bytes += command.getBytes(StandardCharsets.UTF_8).length;
+        }
+        Assertions.assertEquals(bytes, metrics.getOutputBytes());
+        Assertions.assertEquals(2, metrics.getPhase(TranslationMetrics.COMMAND).getRuns());
+        Assertions.assertTrue(metrics.toJson().contains("\"outputBytes\""));
+    }
+
+    @Test
+    void utf8Length()
+    {
+        // a, e acute, the euro sign and an emoji of a surrogate pair
+        String text = "a\u00e9\u20ac\ud83d\ude00";
+        Assertions.assertEquals(text.getBytes(StandardCharsets.UTF_8).length, TranslationMetrics.utf8Length(text));
+    }
+}